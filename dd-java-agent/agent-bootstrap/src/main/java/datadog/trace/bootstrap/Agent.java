@@ -516,6 +516,20 @@ public class Agent {
                   }
                   log.debug("Profiling of ScopeEvents is not available. {}", e.getMessage());
                 }
+                if (Config.get().isProfilingTracerPipelineEventsEnabled()) {
+                  try {
+                    log.debug("Registering tracer pipeline stage events");
+                    AGENT_CLASSLOADER
+                        .loadClass("datadog.trace.core.jfr.openjdk.JFRPipelineStageListener")
+                        .getMethod("register")
+                        .invoke(null);
+                  } catch (Throwable e) {
+                    if (e instanceof InvocationTargetException) {
+                      e = e.getCause();
+                    }
+                    log.debug("Tracer pipeline stage events are not available. {}", e.getMessage());
+                  }
+                }
               }
             });
       }
@@ -0,0 +1,171 @@
+package datadog.trace.bootstrap;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * An uncompressed, pre-indexed copy of the {@code .classdata} entries of the agent jar, which is
+ * memory mapped at startup so that agent classes can be defined without inflating jar entries.
+ *
+ * <p>The blob is produced at build time by running {@link #main(String[])} against the agent jar,
+ * and is used when {@code dd.agent.classdata.blob} points to it. It records a fingerprint of the
+ * agent jar it was produced from and is ignored if that doesn't match the running agent.
+ *
+ * <p>Layout, big endian: magic, version, fingerprint, entry count, then for each entry its name
+ * length, UTF-8 name, offset and length, followed by the concatenated class bytes.
+ */
+final class ClassDataBlob {
+
+  static final String CLASSDATA_BLOB_PROPERTY = "dd.agent.classdata.blob";
+
+  private static final int MAGIC = 0xDDC1A55B;
+  private static final int VERSION = 1;
+
+  private final ByteBuffer data;
+  private final HashMap<String, Long> index;
+
+  private ClassDataBlob(ByteBuffer data, HashMap<String, Long> index) {
+    this.data = data;
+    this.index = index;
+  }
+
+  /** @return the bytes of the jar entry, or null if the blob doesn't contain it */
+  ByteBuffer get(String entryName) {
+    Long location = index.get(entryName);
+    if (null == location) {
+      return null;
+    }
+    int offset = (int) (location >>> 32);
+    int length = (int) (long) location;
+    ByteBuffer slice = data.duplicate();
+    slice.position(offset);
+    slice.limit(offset + length);
+    return slice.slice();
+  }
+
+  int size() {
+    return index.size();
+  }
+
+  /** Accumulates the fingerprint of a jar from its entries, in jar order. */
+  static long fingerprint(long fingerprint, JarEntry entry) {
+    return 31 * (31 * fingerprint + entry.getCrc()) + entry.getSize();
+  }
+
+  static boolean isClassData(JarEntry entry) {
+    return !entry.isDirectory() && entry.getName().endsWith(".classdata");
+  }
+
+  /**
+   * Maps the blob, provided it was produced from a jar with the same fingerprint.
+   *
+   * @return the blob, or null if it is missing, corrupt or stale
+   */
+  static ClassDataBlob open(File file, long fingerprint) throws IOException {
+    if (!file.isFile()) {
+      return null;
+    }
+    MappedByteBuffer buffer;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+        FileChannel channel = raf.getChannel()) {
+      // the mapping stays valid once the channel is closed
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    if (buffer.remaining() < 20
+        || buffer.getInt() != MAGIC
+        || buffer.getInt() != VERSION
+        || buffer.getLong() != fingerprint) {
+      return null;
+    }
+    int count = buffer.getInt();
+    HashMap<String, Long> index = new HashMap<>(count * 4 / 3 + 1);
+    for (int i = 0; i < count; ++i) {
+      byte[] name = new byte[buffer.getShort() & 0xFFFF];
+      buffer.get(name);
+      long offset = buffer.getInt() & 0xFFFFFFFFL;
+      long length = buffer.getInt() & 0xFFFFFFFFL;
+      index.put(new String(name, StandardCharsets.UTF_8), (offset << 32) | length);
+    }
+    return new ClassDataBlob(buffer, index);
+  }
+
+  /** Writes the blob for the {@code .classdata} entries of the given jar. */
+  static void write(JarFile jarFile, File file) throws IOException {
+    long fingerprint = 0;
+    List<JarEntry> entries = new ArrayList<>();
+    Enumeration<JarEntry> jarEntries = jarFile.entries();
+    while (jarEntries.hasMoreElements()) {
+      JarEntry entry = jarEntries.nextElement();
+      if (isClassData(entry)) {
+        fingerprint = fingerprint(fingerprint, entry);
+        entries.add(entry);
+      }
+    }
+    List<byte[]> names = new ArrayList<>(entries.size());
+    int headerSize = 20;
+    for (JarEntry entry : entries) {
+      byte[] name = entry.getName().getBytes(StandardCharsets.UTF_8);
+      names.add(name);
+      headerSize += 2 + name.length + 8;
+    }
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(fingerprint);
+      out.writeInt(entries.size());
+      long offset = headerSize;
+      for (int i = 0; i < entries.size(); ++i) {
+        byte[] name = names.get(i);
+        long length = entries.get(i).getSize();
+        out.writeShort(name.length);
+        out.write(name);
+        out.writeInt((int) offset);
+        out.writeInt((int) length);
+        offset += length;
+      }
+      if (offset > Integer.MAX_VALUE) {
+        throw new IOException("Class data too large for blob: " + offset + " bytes");
+      }
+      byte[] buffer = new byte[8192];
+      for (JarEntry entry : entries) {
+        try (InputStream in = jarFile.getInputStream(entry)) {
+          copy(in, out, buffer);
+        }
+      }
+    }
+  }
+
+  private static void copy(InputStream in, OutputStream out, byte[] buffer) throws IOException {
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      out.write(buffer, 0, read);
+    }
+  }
+
+  /** Build step: {@code ClassDataBlob <agent jar> <blob file>}. */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      throw new IllegalArgumentException("Usage: ClassDataBlob <agent jar> <blob file>");
+    }
+    try (JarFile jarFile = new JarFile(new File(args[0]), false)) {
+      write(jarFile, new File(args[1]));
+    }
+  }
+}
@@ -54,7 +54,10 @@ public class DatadogClassLoader extends URLClassLoader {
     this.classLoaderName = null == internalJarFileName ? "datadog" : internalJarFileName;
     this.internalJarURLHandler =
         new InternalJarURLHandler(
-            internalJarFileName, jarIndex.index.get(internalJarFileName), jarIndex.jarFile);
+            internalJarFileName,
+            jarIndex.index.get(internalJarFileName),
+            jarIndex.jarFile,
+            jarIndex.classDataBlob);
     try {
       // The fields of the URL are mostly dummy.  InternalJarURLHandler is the only important
       // field.  If extending this class from Classloader instead of URLClassloader required less
@@ -199,10 +202,13 @@ public class DatadogClassLoader extends URLClassLoader {
   static final class JarIndex {
     private final HashMap<String, Set<String>> index;
     private final JarFile jarFile;
+    private final long fingerprint;
+    private final ClassDataBlob classDataBlob;
 
     private JarIndex(URL location) {
       this.index = new HashMap<>();
       JarFile jarFile = null;
+      long fingerprint = 0;
       try {
         if (location != null) {
           jarFile = new JarFile(new File(location.toURI()), false);
@@ -212,6 +218,10 @@ public class DatadogClassLoader extends URLClassLoader {
           final Enumeration<JarEntry> entries = jarFile.entries();
           while (entries.hasMoreElements()) {
             final JarEntry entry = entries.nextElement();
+            if (ClassDataBlob.isClassData(entry)) {
+              fingerprint = ClassDataBlob.fingerprint(fingerprint, entry);
+              continue;
+            }
             String name = entry.getName();
             if (entry.isDirectory() && !name.startsWith("META-INF/")) {
               if (!name.startsWith(currentFilePrefix)) {
@@ -233,6 +243,30 @@ public class DatadogClassLoader extends URLClassLoader {
         log.error("Unable to read internal jar", e);
       }
       this.jarFile = jarFile;
+      this.fingerprint = fingerprint;
+      this.classDataBlob = null == jarFile ? null : openClassDataBlob(fingerprint);
+    }
+
+    private static ClassDataBlob openClassDataBlob(long fingerprint) {
+      String path = System.getProperty(ClassDataBlob.CLASSDATA_BLOB_PROPERTY);
+      if (null == path) {
+        path = System.getenv("DD_AGENT_CLASSDATA_BLOB");
+      }
+      if (null == path) {
+        return null;
+      }
+      try {
+        ClassDataBlob blob = ClassDataBlob.open(new File(path), fingerprint);
+        if (null == blob) {
+          log.debug("Ignoring class data blob {} which doesn't match the agent jar", path);
+        } else {
+          log.debug("Mapped class data blob {} with {} classes", path, blob.size());
+        }
+        return blob;
+      } catch (final IOException | RuntimeException e) {
+        log.debug("Unable to map class data blob {}", path, e);
+        return null;
+      }
     }
 
     public Set<String> getPackages(String namespace) {
@@ -8,6 +8,7 @@ import java.lang.ref.WeakReference;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
+import java.nio.ByteBuffer;
 import java.security.Permission;
 import java.util.Set;
 import java.util.jar.JarEntry;
@@ -21,14 +22,24 @@ public class InternalJarURLHandler extends URLStreamHandler {
   private final FileNotInInternalJar notFound;
   private final Set<String> packages;
   private final JarFile bootstrapJarFile;
+  private final ClassDataBlob classDataBlob;
 
   private WeakReference<Pair<String, JarEntry>> cache = NULL;
 
   InternalJarURLHandler(String internalJarFileName, Set<String> packages, JarFile jarFile) {
+    this(internalJarFileName, packages, jarFile, null);
+  }
+
+  InternalJarURLHandler(
+      String internalJarFileName,
+      Set<String> packages,
+      JarFile jarFile,
+      ClassDataBlob classDataBlob) {
     this.name = internalJarFileName;
     this.notFound = new FileNotInInternalJar(internalJarFileName);
     this.packages = packages;
     this.bootstrapJarFile = jarFile;
+    this.classDataBlob = classDataBlob;
   }
 
   Set<String> getPackages() {
@@ -49,6 +60,13 @@ public class InternalJarURLHandler extends URLStreamHandler {
       // nullInputStream() is not available until Java 11
       return new InternalJarURLConnection(url, new ByteArrayInputStream(new byte[0]), 0);
     }
+    if (null != classDataBlob && filename.endsWith(".class")) {
+      ByteBuffer classData = classDataBlob.get(this.name + filename + "data");
+      if (null != classData) {
+        return new InternalJarURLConnection(
+            url, new ByteBufferInputStream(classData), classData.remaining());
+      }
+    }
     // believe it or not, we're going to get called twice for this,
     // and the key will be a new object each time.
     Pair<String, JarEntry> pair = cache.get();
@@ -104,6 +122,37 @@ public class InternalJarURLHandler extends URLStreamHandler {
     }
   }
 
+  private static class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    private ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int read = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, read);
+      return read;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+
   private static class FileNotInInternalJar extends IOException {
 
     public FileNotInInternalJar(String jarName) {
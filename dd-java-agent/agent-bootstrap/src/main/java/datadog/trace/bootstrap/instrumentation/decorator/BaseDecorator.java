@@ -1,6 +1,5 @@
 package datadog.trace.bootstrap.instrumentation.decorator;
 
-import static datadog.trace.api.cache.RadixTreeCache.PORTS;
 import static datadog.trace.api.cache.RadixTreeCache.UNSET_PORT;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
@@ -8,10 +7,14 @@ import datadog.trace.api.Config;
 import datadog.trace.api.DDTags;
 import datadog.trace.api.Function;
 import datadog.trace.api.Functions;
+import datadog.trace.api.cache.DDCache;
+import datadog.trace.api.cache.DDCaches;
 import datadog.trace.api.cache.QualifiedClassNameCache;
 import datadog.trace.bootstrap.instrumentation.api.AgentScope;
 import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
+import datadog.trace.bootstrap.instrumentation.api.TagBatch;
 import datadog.trace.bootstrap.instrumentation.api.Tags;
+import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
 import java.lang.reflect.Method;
 import java.net.Inet4Address;
 import java.net.Inet6Address;
@@ -37,6 +40,19 @@ public abstract class BaseDecorator {
           },
           Functions.PrefixJoin.of("."));
 
+  private static final DDCache<InetAddress, UTF8BytesString> HOST_ADDRESSES =
+      DDCaches.newFixedSizeCache(64);
+
+  private static final Function<InetAddress, UTF8BytesString> HOST_ADDRESS =
+      new Function<InetAddress, UTF8BytesString>() {
+        @Override
+        public UTF8BytesString apply(InetAddress address) {
+          return UTF8BytesString.create(address.getHostAddress());
+        }
+      };
+
+  private static final DDCache<String, UTF8BytesString> HOST_IPS = DDCaches.newFixedSizeCache(64);
+
   protected final boolean endToEndDurationsEnabled;
   protected final boolean traceAnalyticsEnabled;
   protected final Double traceAnalyticsSampleRate;
@@ -73,7 +89,13 @@ public abstract class BaseDecorator {
     if (spanType() != null) {
       span.setSpanType(spanType());
     }
-    span.setTag(Tags.COMPONENT, component());
+    final TagBatch tags = TagBatch.begin();
+    try {
+      startTags(tags);
+      span.setTags(tags);
+    } finally {
+      tags.release();
+    }
     if (traceAnalyticsEnabled) {
       span.setMetric(DDTags.ANALYTICS_SAMPLE_RATE, traceAnalyticsSampleRate);
     }
@@ -86,6 +108,14 @@ public abstract class BaseDecorator {
     return span;
   }
 
+  /**
+   * Adds the tags which {@link #afterStart(AgentSpan)} sets on every span, all at once. Overrides
+   * should call {@code super.startTags(tags)}.
+   */
+  protected void startTags(final TagBatch tags) {
+    tags.put(Tags.COMPONENT, component());
+  }
+
   public AgentScope beforeFinish(final AgentScope scope) {
     beforeFinish(scope.span());
     return scope;
@@ -126,9 +156,22 @@ public abstract class BaseDecorator {
         span.setTag(Tags.PEER_HOSTNAME, remoteAddress.getHostName());
       }
       if (remoteAddress instanceof Inet4Address) {
-        span.setTag(Tags.PEER_HOST_IPV4, remoteAddress.getHostAddress());
+        span.setPeerHostIPv4(HOST_ADDRESSES.computeIfAbsent(remoteAddress, HOST_ADDRESS));
       } else if (remoteAddress instanceof Inet6Address) {
-        span.setTag(Tags.PEER_HOST_IPV6, remoteAddress.getHostAddress());
+        span.setPeerHostIPv6(HOST_ADDRESSES.computeIfAbsent(remoteAddress, HOST_ADDRESS));
+      }
+    }
+    return span;
+  }
+
+  /** Sets the peer address from its textual form, e.g. when it was taken from a header. */
+  public AgentSpan onPeerHostIP(AgentSpan span, String ip) {
+    if (ip != null) {
+      UTF8BytesString address = HOST_IPS.computeIfAbsent(ip, Functions.UTF8_ENCODE);
+      if (ip.indexOf(':') > 0) {
+        span.setPeerHostIPv6(address);
+      } else {
+        span.setPeerHostIPv4(address);
       }
     }
     return span;
@@ -142,7 +185,7 @@ public abstract class BaseDecorator {
 
   public AgentSpan setPeerPort(AgentSpan span, int port) {
     if (port > UNSET_PORT) {
-      span.setTag(Tags.PEER_PORT, PORTS.get(port));
+      span.setPeerPort(port);
     }
 
     return span;
@@ -1,6 +1,7 @@
 package datadog.trace.bootstrap.instrumentation.decorator;
 
 import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
+import datadog.trace.bootstrap.instrumentation.api.TagBatch;
 import datadog.trace.bootstrap.instrumentation.api.Tags;
 
 public abstract class ClientDecorator extends BaseDecorator {
@@ -16,7 +17,12 @@ public abstract class ClientDecorator extends BaseDecorator {
     if (service() != null) {
       span.setServiceName(service());
     }
-    span.setTag(Tags.SPAN_KIND, spanKind());
     return super.afterStart(span);
   }
+
+  @Override
+  protected void startTags(final TagBatch tags) {
+    tags.put(Tags.SPAN_KIND, spanKind());
+    super.startTags(tags);
+  }
 }
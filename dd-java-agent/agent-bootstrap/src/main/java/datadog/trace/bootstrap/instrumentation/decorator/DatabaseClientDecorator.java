@@ -8,6 +8,7 @@ import datadog.trace.api.Functions;
 import datadog.trace.api.cache.DDCache;
 import datadog.trace.api.cache.DDCaches;
 import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
+import datadog.trace.bootstrap.instrumentation.api.TagBatch;
 import datadog.trace.bootstrap.instrumentation.api.Tags;
 
 public abstract class DatabaseClientDecorator<CONNECTION> extends ClientDecorator {
@@ -36,19 +37,25 @@ public abstract class DatabaseClientDecorator<CONNECTION> extends ClientDecorato
    */
   public AgentSpan onConnection(final AgentSpan span, final CONNECTION connection) {
     if (connection != null) {
-      span.setTag(Tags.DB_USER, dbUser(connection));
-      final String instanceName = dbInstance(connection);
-      span.setTag(Tags.DB_INSTANCE, instanceName);
+      final String instanceName;
+      final TagBatch tags = TagBatch.begin();
+      try {
+        tags.put(Tags.DB_USER, dbUser(connection));
+        instanceName = dbInstance(connection);
+        tags.put(Tags.DB_INSTANCE, instanceName);
+        CharSequence hostName = dbHostname(connection);
+        if (hostName != null) {
+          tags.put(Tags.PEER_HOSTNAME, hostName);
+        }
+        span.setTags(tags);
+      } finally {
+        tags.release();
+      }
       span.setMeasured(true);
 
       if (instanceName != null && Config.get().isDbClientSplitByInstance()) {
         span.setServiceName(instanceName);
       }
-
-      CharSequence hostName = dbHostname(connection);
-      if (hostName != null) {
-        span.setTag(Tags.PEER_HOSTNAME, hostName);
-      }
     }
     return span;
   }
@@ -11,6 +11,7 @@ import datadog.trace.api.cache.DDCaches;
 import datadog.trace.api.normalize.PathNormalizer;
 import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
 import datadog.trace.bootstrap.instrumentation.api.InternalSpanTypes;
+import datadog.trace.bootstrap.instrumentation.api.TagBatch;
 import datadog.trace.bootstrap.instrumentation.api.Tags;
 import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
 import java.net.URI;
@@ -52,55 +53,63 @@ public abstract class HttpClientDecorator<REQUEST, RESPONSE> extends ClientDecor
 
   public AgentSpan onRequest(final AgentSpan span, final REQUEST request) {
     if (request != null) {
-      String method = method(request);
-      span.setTag(Tags.HTTP_METHOD, method);
-
-      // Copy of HttpServerDecorator url handling
+      // request tags are set together, taking the span's tag lock once
+      final TagBatch tags = TagBatch.begin();
       try {
-        final URI url = url(request);
-        if (url != null) {
-          final StringBuilder urlNoParams = new StringBuilder();
-          if (url.getScheme() != null) {
-            urlNoParams.append(url.getScheme());
-            urlNoParams.append("://");
-          }
-          if (url.getHost() != null) {
-            urlNoParams.append(url.getHost());
-            span.setTag(Tags.PEER_HOSTNAME, url.getHost());
-            if (Config.get().isHttpClientSplitByDomain()) {
-              span.setServiceName(url.getHost());
+        String method = method(request);
+        tags.put(Tags.HTTP_METHOD, method);
+
+        // Copy of HttpServerDecorator url handling
+        try {
+          final URI url = url(request);
+          if (url != null) {
+            final StringBuilder urlNoParams = new StringBuilder();
+            if (url.getScheme() != null) {
+              urlNoParams.append(url.getScheme());
+              urlNoParams.append("://");
             }
-            if (url.getPort() > 0) {
-              setPeerPort(span, url.getPort());
-              if (url.getPort() != 80 && url.getPort() != 443) {
-                urlNoParams.append(":");
-                urlNoParams.append(url.getPort());
+            if (url.getHost() != null) {
+              urlNoParams.append(url.getHost());
+              tags.put(Tags.PEER_HOSTNAME, url.getHost());
+              if (Config.get().isHttpClientSplitByDomain()) {
+                span.setServiceName(url.getHost());
+              }
+              if (url.getPort() > 0) {
+                setPeerPort(span, url.getPort());
+                if (url.getPort() != 80 && url.getPort() != 443) {
+                  urlNoParams.append(":");
+                  urlNoParams.append(url.getPort());
+                }
               }
             }
-          }
-          final String path = url.getPath();
-          if (path.isEmpty()) {
-            urlNoParams.append("/");
-          } else {
-            urlNoParams.append(path);
-          }
+            final String path = url.getPath();
+            if (path.isEmpty()) {
+              urlNoParams.append("/");
+            } else {
+              urlNoParams.append(path);
+            }
 
-          span.setTag(Tags.HTTP_URL, urlNoParams.toString());
+            tags.put(Tags.HTTP_URL, urlNoParams.toString());
 
-          if (Config.get().isHttpClientTagQueryString()) {
-            span.setTag(DDTags.HTTP_QUERY, url.getQuery());
-            span.setTag(DDTags.HTTP_FRAGMENT, url.getFragment());
-          }
-          if (shouldSetResourceName() && !span.hasResourceName()) {
-            span.setResourceName(
-                RESOURCE_NAMES.computeIfAbsent(
-                    Pair.of(method, PathNormalizer.normalize(path)), PATH_BASED_RESOURCE_NAME));
+            if (Config.get().isHttpClientTagQueryString()) {
+              tags.put(DDTags.HTTP_QUERY, url.getQuery());
+              tags.put(DDTags.HTTP_FRAGMENT, url.getFragment());
+            }
+            if (shouldSetResourceName() && !span.hasResourceName()) {
+              span.setResourceName(
+                  RESOURCE_NAMES.computeIfAbsent(
+                      Pair.of(method, PathNormalizer.normalize(path)), PATH_BASED_RESOURCE_NAME));
+            }
+          } else if (shouldSetResourceName() && !span.hasResourceName()) {
+            span.setResourceName(DEFAULT_RESOURCE_NAME);
           }
-        } else if (shouldSetResourceName() && !span.hasResourceName()) {
-          span.setResourceName(DEFAULT_RESOURCE_NAME);
+        } catch (final Exception e) {
+          log.debug("Error tagging url", e);
         }
-      } catch (final Exception e) {
-        log.debug("Error tagging url", e);
+        span.setTags(tags);
+      } finally {
+        // setTags releases the batch, but tagging the request may have thrown before it was called
+        tags.release();
       }
     }
     return span;
@@ -12,6 +12,7 @@ import datadog.trace.api.cache.DDCache;
 import datadog.trace.api.cache.DDCaches;
 import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
 import datadog.trace.bootstrap.instrumentation.api.InternalSpanTypes;
+import datadog.trace.bootstrap.instrumentation.api.TagBatch;
 import datadog.trace.bootstrap.instrumentation.api.Tags;
 import datadog.trace.bootstrap.instrumentation.api.URIDataAdapter;
 import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
@@ -66,66 +67,67 @@ public abstract class HttpServerDecorator<REQUEST, CONNECTION, RESPONSE> extends
       final REQUEST request,
       final AgentSpan.Context.Extracted context) {
 
-    if (context != null) {
-      String forwarded = context.getForwarded();
-      if (forwarded != null) {
-        span.setTag(Tags.HTTP_FORWARDED, forwarded);
-      }
-      String forwardedProto = context.getForwardedProto();
-      if (forwardedProto != null) {
-        span.setTag(Tags.HTTP_FORWARDED_PROTO, forwardedProto);
-      }
-      String forwardedHost = context.getForwardedHost();
-      if (forwardedHost != null) {
-        span.setTag(Tags.HTTP_FORWARDED_HOST, forwardedHost);
-      }
-      String forwardedIp = context.getForwardedIp();
-      if (forwardedIp != null) {
-        span.setTag(Tags.HTTP_FORWARDED_IP, forwardedIp);
-      }
-      String forwardedPort = context.getForwardedPort();
-      if (forwardedPort != null) {
-        span.setTag(Tags.HTTP_FORWARDED_PORT, forwardedPort);
+    // request tags are set together, taking the span's tag lock once
+    final TagBatch tags = TagBatch.begin();
+    try {
+      if (context != null) {
+        String forwarded = context.getForwarded();
+        if (forwarded != null) {
+          tags.put(Tags.HTTP_FORWARDED, forwarded);
+        }
+        String forwardedProto = context.getForwardedProto();
+        if (forwardedProto != null) {
+          tags.put(Tags.HTTP_FORWARDED_PROTO, forwardedProto);
+        }
+        String forwardedHost = context.getForwardedHost();
+        if (forwardedHost != null) {
+          tags.put(Tags.HTTP_FORWARDED_HOST, forwardedHost);
+        }
+        String forwardedIp = context.getForwardedIp();
+        if (forwardedIp != null) {
+          tags.put(Tags.HTTP_FORWARDED_IP, forwardedIp);
+        }
+        String forwardedPort = context.getForwardedPort();
+        if (forwardedPort != null) {
+          tags.put(Tags.HTTP_FORWARDED_PORT, forwardedPort);
+        }
       }
-    }
-
-    if (request != null) {
-      String method = method(request);
-      span.setTag(Tags.HTTP_METHOD, method);
-
-      // Copy of HttpClientDecorator url handling
-      try {
-        final URIDataAdapter url = url(request);
-        if (url != null) {
-          span.setTag(Tags.HTTP_URL, buildURL(url));
 
-          if (Config.get().isHttpServerTagQueryString()) {
-            span.setTag(DDTags.HTTP_QUERY, url.query());
-            span.setTag(DDTags.HTTP_FRAGMENT, url.fragment());
+      if (request != null) {
+        String method = method(request);
+        tags.put(Tags.HTTP_METHOD, method);
+
+        // Copy of HttpClientDecorator url handling
+        try {
+          final URIDataAdapter url = url(request);
+          if (url != null) {
+            tags.put(Tags.HTTP_URL, buildURL(url));
+
+            if (Config.get().isHttpServerTagQueryString()) {
+              tags.put(DDTags.HTTP_QUERY, url.query());
+              tags.put(DDTags.HTTP_FRAGMENT, url.fragment());
+            }
+            // TODO is this ever false?
+            if (SHOULD_SET_URL_RESOURCE_NAME && !span.hasResourceName()) {
+              span.setResourceName(
+                  RESOURCE_NAMES.computeIfAbsent(
+                      Pair.of(method, normalize(url.path())), PATH_BASED_RESOURCE_NAME));
+            }
+          } else if (SHOULD_SET_URL_RESOURCE_NAME && !span.hasResourceName()) {
+            span.setResourceName(DEFAULT_RESOURCE_NAME);
           }
-          // TODO is this ever false?
-          if (SHOULD_SET_URL_RESOURCE_NAME && !span.hasResourceName()) {
-            span.setResourceName(
-                RESOURCE_NAMES.computeIfAbsent(
-                    Pair.of(method, normalize(url.path())), PATH_BASED_RESOURCE_NAME));
-          }
-        } else if (SHOULD_SET_URL_RESOURCE_NAME && !span.hasResourceName()) {
-          span.setResourceName(DEFAULT_RESOURCE_NAME);
+        } catch (final Exception e) {
+          log.debug("Error tagging url", e);
         }
-      } catch (final Exception e) {
-        log.debug("Error tagging url", e);
       }
+      span.setTags(tags);
+    } finally {
+      // setTags releases the batch, but tagging the request may have thrown before it was called
+      tags.release();
     }
 
     if (connection != null) {
-      final String ip = peerHostIP(connection);
-      if (ip != null) {
-        if (ip.indexOf(':') > 0) {
-          span.setTag(Tags.PEER_HOST_IPV6, ip);
-        } else {
-          span.setTag(Tags.PEER_HOST_IPV4, ip);
-        }
-      }
+      onPeerHostIP(span, peerHostIP(connection));
       setPeerPort(span, peerPort(connection));
     }
     return span;
@@ -3,6 +3,7 @@ package datadog.trace.bootstrap.instrumentation.decorator;
 import datadog.trace.api.DDSpanTypes;
 import datadog.trace.api.sampling.PrioritySampling;
 import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
+import datadog.trace.bootstrap.instrumentation.api.TagBatch;
 import datadog.trace.bootstrap.instrumentation.api.Tags;
 import datadog.trace.bootstrap.instrumentation.ci.CIProviderInfo;
 import java.lang.annotation.Annotation;
@@ -83,22 +84,27 @@ public abstract class TestDecorator extends BaseDecorator {
 
   @Override
   public AgentSpan afterStart(final AgentSpan span) {
-    span.setTag(Tags.SPAN_KIND, spanKind());
-    span.setTag(Tags.TEST_FRAMEWORK, testFramework());
-    span.setTag(Tags.TEST_TYPE, testType());
     span.setSamplingPriority(PrioritySampling.SAMPLER_KEEP);
-    span.setTag(Tags.RUNTIME_NAME, runtimeName());
-    span.setTag(Tags.RUNTIME_VENDOR, runtimeVendor());
-    span.setTag(Tags.RUNTIME_VERSION, runtimeVersion());
-    span.setTag(Tags.OS_ARCHITECTURE, osArch());
-    span.setTag(Tags.OS_PLATFORM, osPlatform());
-    span.setTag(Tags.OS_VERSION, osVersion());
+    return super.afterStart(span);
+  }
+
+  @Override
+  protected void startTags(final TagBatch tags) {
+    tags.put(Tags.SPAN_KIND, spanKind());
+    tags.put(Tags.TEST_FRAMEWORK, testFramework());
+    tags.put(Tags.TEST_TYPE, testType());
+    tags.put(Tags.RUNTIME_NAME, runtimeName());
+    tags.put(Tags.RUNTIME_VENDOR, runtimeVendor());
+    tags.put(Tags.RUNTIME_VERSION, runtimeVersion());
+    tags.put(Tags.OS_ARCHITECTURE, osArch());
+    tags.put(Tags.OS_PLATFORM, osPlatform());
+    tags.put(Tags.OS_VERSION, osVersion());
 
     for (final Map.Entry<String, String> ciTag : ciTags.entrySet()) {
-      span.setTag(ciTag.getKey(), ciTag.getValue());
+      tags.put(ciTag.getKey(), ciTag.getValue());
     }
 
-    return super.afterStart(span);
+    super.startTags(tags);
   }
 
   public List<String> testNames(
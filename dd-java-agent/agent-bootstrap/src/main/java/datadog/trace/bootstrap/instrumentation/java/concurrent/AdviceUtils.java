@@ -19,7 +19,16 @@ public class AdviceUtils {
    */
   public static <T> TraceScope startTaskScope(
       final ContextStore<T, State> contextStore, final T task) {
-    final State state = contextStore.get(task);
+    return startTaskScope(contextStore.get(task));
+  }
+
+  /**
+   * Start scope for a task state held inline by the task
+   *
+   * @param state task's state
+   * @return scope if scope was started, or null
+   */
+  public static TraceScope startTaskScope(final State state) {
     if (state != null) {
       final TraceScope.Continuation continuation = state.getAndResetContinuation();
       if (continuation != null) {
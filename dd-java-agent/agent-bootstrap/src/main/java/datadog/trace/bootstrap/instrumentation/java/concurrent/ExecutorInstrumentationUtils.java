@@ -1,8 +1,10 @@
 package datadog.trace.bootstrap.instrumentation.java.concurrent;
 
 import static datadog.trace.bootstrap.instrumentation.api.AgentTracer.activeScope;
-import static datadog.trace.bootstrap.instrumentation.java.concurrent.ExcludeFilter.ExcludeType;
+import static datadog.trace.bootstrap.instrumentation.java.concurrent.ExcludeFilter.ExcludeType.EXECUTOR;
 
+import datadog.trace.api.Function;
+import datadog.trace.api.GenericClassValue;
 import datadog.trace.bootstrap.ContextStore;
 import datadog.trace.context.TraceScope;
 import java.util.concurrent.Executor;
@@ -14,6 +16,29 @@ public final class ExecutorInstrumentationUtils {
 
   private static final Logger log = LoggerFactory.getLogger(ExecutorInstrumentationUtils.class);
 
+  /**
+   * Remembers "never propagate" decisions per executor class and task class, so the exclusion
+   * rules are only evaluated the first time a task class is submitted to an executor class.
+   */
+  private static final ClassValue<ClassValue<Boolean>> NEVER_PROPAGATE =
+      GenericClassValue.of(
+          new Function<Class<?>, ClassValue<Boolean>>() {
+            @Override
+            public ClassValue<Boolean> apply(final Class<?> executorClass) {
+              final boolean executorExcluded = ExcludeFilter.exclude(EXECUTOR, executorClass);
+              return GenericClassValue.of(
+                  new Function<Class<?>, Boolean>() {
+                    @Override
+                    public Boolean apply(final Class<?> taskClass) {
+                      return executorExcluded
+                          // wrappers already carry their continuation inline
+                          || Wrapper.class.isAssignableFrom(taskClass)
+                          || ExcludeFilter.exclude(EXECUTOR, taskClass);
+                    }
+                  });
+            }
+          });
+
   /**
    * Checks if given task should get state attached.
    *
@@ -22,17 +47,29 @@ public final class ExecutorInstrumentationUtils {
    * @return true iff given task object should be wrapped
    */
   public static boolean shouldAttachStateToTask(final Object task, final Executor executor) {
-    if (task == null) {
-      return false;
-    }
+    return shouldAttachStateToTask(task, executor, activeScope());
+  }
 
-    if (ExcludeFilter.exclude(ExcludeType.EXECUTOR, task)) {
+  /**
+   * Checks if given task should get state attached, for callers which already looked up the active
+   * scope.
+   *
+   * @param task task object
+   * @param executor executor this task was scheduled on
+   * @param scope the active scope, may be null
+   * @return true iff given task object should be wrapped
+   */
+  public static boolean shouldAttachStateToTask(
+      final Object task, final Executor executor, final TraceScope scope) {
+    // cheapest checks first: most submissions happen without any scope to propagate
+    if (task == null || scope == null || !scope.isAsyncPropagating()) {
       return false;
     }
 
-    final TraceScope scope = activeScope();
-
-    return scope != null && scope.isAsyncPropagating();
+    if (null != executor) {
+      return !NEVER_PROPAGATE.get(executor.getClass()).get(task.getClass());
+    }
+    return !ExcludeFilter.exclude(EXECUTOR, task);
   }
 
   /**
@@ -47,7 +84,11 @@ public final class ExecutorInstrumentationUtils {
   public static <T> State setupState(
       final ContextStore<T, State> contextStore, final T task, final TraceScope scope) {
 
-    final State state = contextStore.putIfAbsent(task, State.FACTORY);
+    // tasks wrapped by the agent carry their state inline, avoiding the context store round trip
+    final State state =
+        task instanceof RunnableWrapper
+            ? ((RunnableWrapper) task).getState()
+            : contextStore.putIfAbsent(task, State.FACTORY);
 
     if (!state.captureAndSetContinuation(scope)) {
       log.debug(
@@ -1,15 +1,20 @@
 package datadog.trace.bootstrap.instrumentation.java.concurrent;
 
 import datadog.trace.bootstrap.instrumentation.java.concurrent.ExcludeFilter.ExcludeType;
+import datadog.trace.context.TraceScope;
 
 /**
  * This is used to wrap lambda runnables since currently we cannot instrument them
  *
+ * <p>The task state is held inline, so neither scheduling nor running the wrapper needs a context
+ * store lookup.
+ *
  * <p>FIXME: We should remove this once https://github.com/raphw/byte-buddy/issues/558 is fixed
  */
 public final class RunnableWrapper implements Runnable {
 
   private final Runnable runnable;
+  private final State state = State.FACTORY.create();
 
   public RunnableWrapper(final Runnable runnable) {
     this.runnable = runnable;
@@ -17,7 +22,16 @@ public final class RunnableWrapper implements Runnable {
 
   @Override
   public void run() {
-    runnable.run();
+    final TraceScope scope = AdviceUtils.startTaskScope(state);
+    try {
+      runnable.run();
+    } finally {
+      AdviceUtils.endTaskScope(scope);
+    }
+  }
+
+  public State getState() {
+    return state;
   }
 
   public static Runnable wrapIfNeeded(final Runnable task) {
@@ -93,4 +93,27 @@ class InternalJarURLHandlerTest extends DDSpecification {
     "parent" | '/x/y/Y.class'
     "parent" | '/x/y/z/Z.class'
   }
+
+  def "read classes from class data blob"() {
+    setup:
+    File blobFile = File.createTempFile("classdata", ".blob")
+    blobFile.deleteOnExit()
+    ClassDataBlob.write(index.jarFile, blobFile)
+    ClassDataBlob blob = ClassDataBlob.open(blobFile, index.fingerprint)
+    InternalJarURLHandler fromJar = new InternalJarURLHandler(dir, index.getPackages(dir), index.jarFile)
+    InternalJarURLHandler fromBlob = new InternalJarURLHandler(dir, index.getPackages(dir), index.jarFile, blob)
+
+    expect:
+    blob.size() == 6
+    ClassDataBlob.open(blobFile, index.fingerprint + 1) == null
+    def url = new File(file).toURI().toURL()
+    fromBlob.openConnection(url).getInputStream().bytes == fromJar.openConnection(url).getInputStream().bytes
+    fromBlob.openConnection(url).contentLength == fromJar.openConnection(url).contentLength
+
+    where:
+    dir      | file
+    "parent" | '/a/A.class'
+    "parent" | '/a/b/c/C.class'
+    "child"  | '/x/y/Y.class'
+  }
 }
@@ -2,6 +2,7 @@ package datadog.trace.bootstrap.instrumentation.decorator
 
 
 import datadog.trace.bootstrap.instrumentation.api.AgentSpan
+import datadog.trace.bootstrap.instrumentation.api.TagBatch
 import datadog.trace.bootstrap.instrumentation.api.Tags
 import datadog.trace.test.util.DDSpecification
 import spock.lang.Shared
@@ -13,6 +14,15 @@ class BaseDecoratorTest extends DDSpecification {
 
   def span = Mock(AgentSpan)
 
+  // replays batched tags as individual setTag calls so they can be verified one by one
+  static AgentSpan unbatch(AgentSpan span, TagBatch tags) {
+    for (int i = 0; i < tags.size(); ++i) {
+      span.setTag(tags.key(i), tags.value(i))
+    }
+    tags.release()
+    return span
+  }
+
   def "test afterStart"() {
     when:
     decorator.afterStart(span)
@@ -25,6 +35,7 @@ class BaseDecoratorTest extends DDSpecification {
     _ * span.setServiceName(_)
     _ * span.setOperationName(_)
     _ * span.setSamplingPriority(_)
+    _ * span.setTags(_) >> { TagBatch tags -> unbatch(span, tags) }
     0 * _
   }
 
@@ -36,12 +47,12 @@ class BaseDecoratorTest extends DDSpecification {
     if (!connection.isUnresolved()) {
       1 * span.setTag(Tags.PEER_HOSTNAME, connection.hostName)
     }
-    1 * span.setTag(Tags.PEER_PORT, connection.port)
+    1 * span.setPeerPort(connection.port)
     if (connection.address instanceof Inet4Address) {
-      1 * span.setTag(Tags.PEER_HOST_IPV4, connection.address.hostAddress)
+      1 * span.setPeerHostIPv4({ it as String == connection.address.hostAddress })
     }
     if (connection.address instanceof Inet6Address) {
-      1 * span.setTag(Tags.PEER_HOST_IPV6, connection.address.hostAddress)
+      1 * span.setPeerHostIPv6({ it as String == connection.address.hostAddress })
     }
     0 * _
 
@@ -52,6 +63,30 @@ class BaseDecoratorTest extends DDSpecification {
     InetSocketAddress.createUnresolved("bad.address.local", 999) | _
   }
 
+  def "test onPeerHostIP reuses the encoded address"() {
+    setup:
+    def addresses = []
+
+    when:
+    decorator.onPeerHostIP(span, new String(ip))
+    decorator.onPeerHostIP(span, new String(ip))
+
+    then:
+    if (ipv4) {
+      2 * span.setPeerHostIPv4(_) >> { args -> addresses.add(args[0]) }
+    } else {
+      2 * span.setPeerHostIPv6(_) >> { args -> addresses.add(args[0]) }
+    }
+    0 * _
+    addresses[0] as String == ip
+    addresses[0].is(addresses[1])
+
+    where:
+    ip                                    | ipv4
+    "10.0.0.1"                            | true
+    "3ffe:1900:4545:3:200:f8ff:fe21:67cf" | false
+  }
+
   def "test onError"() {
     when:
     decorator.onError(span, error)
@@ -2,6 +2,7 @@ package datadog.trace.bootstrap.instrumentation.decorator
 
 import datadog.trace.api.DDTags
 import datadog.trace.bootstrap.instrumentation.api.AgentSpan
+import datadog.trace.bootstrap.instrumentation.api.TagBatch
 import datadog.trace.bootstrap.instrumentation.api.Tags
 import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString
 
@@ -27,6 +28,7 @@ class DBTypeProcessingDatabaseClientDecoratorTest extends ClientDecoratorTest {
     1 * span.setOperationName(UTF8BytesString.create("test-db.query"))
     1 * span.setTag("db.type", "test-db") // is this really necessary or a waste of space and cycles?
     1 * span.setMetric(DDTags.ANALYTICS_SAMPLE_RATE, 1.0)
+    _ * span.setTags(_) >> { TagBatch tags -> unbatch(span, tags) }
     0 * _
 
     where:
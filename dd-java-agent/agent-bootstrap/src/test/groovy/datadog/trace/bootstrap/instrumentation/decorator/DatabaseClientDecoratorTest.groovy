@@ -2,6 +2,7 @@ package datadog.trace.bootstrap.instrumentation.decorator
 
 import datadog.trace.api.DDTags
 import datadog.trace.bootstrap.instrumentation.api.AgentSpan
+import datadog.trace.bootstrap.instrumentation.api.TagBatch
 import datadog.trace.bootstrap.instrumentation.api.Tags
 
 import static datadog.trace.api.config.TraceInstrumentationConfig.DB_CLIENT_HOST_SPLIT_BY_INSTANCE
@@ -25,6 +26,7 @@ class DatabaseClientDecoratorTest extends ClientDecoratorTest {
     1 * span.setTag(Tags.SPAN_KIND, "client")
     1 * span.setSpanType("test-type")
     1 * span.setMetric(DDTags.ANALYTICS_SAMPLE_RATE, 1.0)
+    _ * span.setTags(_) >> { TagBatch tags -> unbatch(span, tags) }
     0 * _
 
     where:
@@ -51,6 +53,7 @@ class DatabaseClientDecoratorTest extends ClientDecoratorTest {
         1 * span.setServiceName(session.instance)
       }
     }
+    _ * span.setTags(_) >> { TagBatch tags -> unbatch(span, tags) }
     0 * _
 
     where:
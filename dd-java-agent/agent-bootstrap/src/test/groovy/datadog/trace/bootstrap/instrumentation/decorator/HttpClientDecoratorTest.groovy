@@ -2,6 +2,7 @@ package datadog.trace.bootstrap.instrumentation.decorator
 
 import datadog.trace.api.DDTags
 import datadog.trace.bootstrap.instrumentation.api.AgentSpan
+import datadog.trace.bootstrap.instrumentation.api.TagBatch
 import datadog.trace.bootstrap.instrumentation.api.Tags
 import spock.lang.Shared
 
@@ -28,13 +29,14 @@ class HttpClientDecoratorTest extends ClientDecoratorTest {
       1 * span.setTag(Tags.HTTP_METHOD, req.method)
       1 * span.setTag(Tags.HTTP_URL, "$req.url")
       1 * span.setTag(Tags.PEER_HOSTNAME, req.url.host)
-      1 * span.setTag(Tags.PEER_PORT, req.url.port)
+      1 * span.setPeerPort(req.url.port)
       1 * span.hasResourceName() >> false
       1 * span.setResourceName({ it as String == req.method + " " + req.path })
       if (renameService) {
         1 * span.setServiceName(req.url.host)
       }
     }
+    _ * span.setTags(_) >> { TagBatch tags -> unbatch(span, tags) }
     0 * _
 
     where:
@@ -66,10 +68,11 @@ class HttpClientDecoratorTest extends ClientDecoratorTest {
       1 * span.setTag(Tags.PEER_HOSTNAME, hostname)
     }
     if (port) {
-      1 * span.setTag(Tags.PEER_PORT, port)
+      1 * span.setPeerPort(port)
     }
     1 * span.hasResourceName() >> false
     1 * span.setResourceName({ it as String == expectedPath })
+    _ * span.setTags(_) >> { TagBatch tags -> unbatch(span, tags) }
     0 * _
 
     where:
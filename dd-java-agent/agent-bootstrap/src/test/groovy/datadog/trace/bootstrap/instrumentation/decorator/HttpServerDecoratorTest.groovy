@@ -3,6 +3,7 @@ package datadog.trace.bootstrap.instrumentation.decorator
 import datadog.trace.api.DDTags
 import datadog.trace.bootstrap.instrumentation.api.AgentSpan
 import datadog.trace.bootstrap.instrumentation.api.DefaultURIDataAdapter
+import datadog.trace.bootstrap.instrumentation.api.TagBatch
 import datadog.trace.bootstrap.instrumentation.api.Tags
 import datadog.trace.bootstrap.instrumentation.api.URIDataAdapter
 
@@ -26,6 +27,7 @@ class HttpServerDecoratorTest extends ServerDecoratorTest {
       1 * span.hasResourceName() >> false
       1 * span.setResourceName({ it as String == req.method + " " + req.path })
     }
+    _ * span.setTags(_) >> { TagBatch tags -> unbatch(span, tags) }
     0 * _
 
     where:
@@ -38,6 +40,44 @@ class HttpServerDecoratorTest extends ServerDecoratorTest {
     [method: "test-method", url: URI.create("http://123:8080/some/path"), path: '/some/path'] | "http://123:8080/some/path"
   }
 
+  def "batched tags are released when the request adapter throws"() {
+    setup:
+    def decorator = newDecorator()
+    def threadBatch = TagBatch.begin()
+    threadBatch.release()
+    def context = Stub(AgentSpan.Context.Extracted) {
+      getForwarded() >> "for=10.0.0.1"
+    }
+    def req = new HashMap() {
+        @Override
+        Object get(Object key) {
+          if (key == "method") {
+            throw new IllegalStateException("adapter failure")
+          }
+          return super.get(key)
+        }
+      }
+
+    when:
+    decorator.onRequest(span, null, req, context)
+
+    then:
+    thrown(IllegalStateException)
+    0 * span.setTags(_)
+
+    when:
+    def next = TagBatch.begin()
+
+    then:
+    next.is(threadBatch)
+    next.size() == 0
+    // the values of the failed request aren't kept alive
+    next.value(0) == null
+
+    cleanup:
+    next?.release()
+  }
+
   def "test url handling for #url"() {
     setup:
     injectSysConfig(HTTP_SERVER_TAG_QUERY_STRING, "$tagQueryString")
@@ -57,6 +97,7 @@ class HttpServerDecoratorTest extends ServerDecoratorTest {
     1 * span.hasResourceName() >> false
     1 * span.setResourceName({ it as String == expectedPath })
     1 * span.setTag(Tags.HTTP_METHOD, null)
+    _ * span.setTags(_) >> { TagBatch tags -> unbatch(span, tags) }
     0 * _
 
     where:
@@ -93,13 +134,14 @@ class HttpServerDecoratorTest extends ServerDecoratorTest {
     _ * ctx.getForwardedIp() >> null
     _ * ctx.getForwardedPort() >> null
     if (conn) {
-      1 * span.setTag(Tags.PEER_PORT, 555)
+      1 * span.setPeerPort(555)
       if (ipv4) {
-        1 * span.setTag(Tags.PEER_HOST_IPV4, "10.0.0.1")
+        1 * span.setPeerHostIPv4({ it as String == "10.0.0.1" })
       } else if (ipv4 != null) {
-        1 * span.setTag(Tags.PEER_HOST_IPV6, "3ffe:1900:4545:3:200:f8ff:fe21:67cf")
+        1 * span.setPeerHostIPv6({ it as String == "3ffe:1900:4545:3:200:f8ff:fe21:67cf" })
       }
     }
+    _ * span.setTags(_) >> { TagBatch tags -> unbatch(span, tags) }
     0 * _
 
     when:
@@ -116,17 +158,18 @@ class HttpServerDecoratorTest extends ServerDecoratorTest {
     1 * span.setTag(Tags.HTTP_FORWARDED_HOST, "somehost")
     if (ipv4) {
       1 * span.setTag(Tags.HTTP_FORWARDED_IP, "10.1.1.1, 192.168.1.1")
-      1 * span.setTag(Tags.PEER_HOST_IPV4, "10.0.0.1")
+      1 * span.setPeerHostIPv4({ it as String == "10.0.0.1" })
     } else if (conn?.ip) {
       1 * span.setTag(Tags.HTTP_FORWARDED_IP, "0::1")
-      1 * span.setTag(Tags.PEER_HOST_IPV6, "3ffe:1900:4545:3:200:f8ff:fe21:67cf")
+      1 * span.setPeerHostIPv6({ it as String == "3ffe:1900:4545:3:200:f8ff:fe21:67cf" })
     } else {
       1 * span.setTag(Tags.HTTP_FORWARDED_IP, "0::1")
     }
     1 * span.setTag(Tags.HTTP_FORWARDED_PORT, "123")
     if (conn) {
-      1 * span.setTag(Tags.PEER_PORT, 555)
+      1 * span.setPeerPort(555)
     }
+    _ * span.setTags(_) >> { TagBatch tags -> unbatch(span, tags) }
     0 * _
 
     where:
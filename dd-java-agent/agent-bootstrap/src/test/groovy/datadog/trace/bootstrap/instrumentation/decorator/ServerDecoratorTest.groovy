@@ -2,6 +2,7 @@ package datadog.trace.bootstrap.instrumentation.decorator
 
 
 import datadog.trace.bootstrap.instrumentation.api.AgentSpan
+import datadog.trace.bootstrap.instrumentation.api.TagBatch
 
 import static datadog.trace.api.DDTags.ANALYTICS_SAMPLE_RATE
 import static datadog.trace.api.DDTags.LANGUAGE_TAG_KEY
@@ -26,6 +27,7 @@ class ServerDecoratorTest extends BaseDecoratorTest {
     if (decorator.traceAnalyticsEnabled) {
       1 * span.setMetric(ANALYTICS_SAMPLE_RATE, 1.0)
     }
+    _ * span.setTags(_) >> { TagBatch tags -> unbatch(span, tags) }
     0 * _
   }
 
@@ -0,0 +1,73 @@
+package datadog.trace.bootstrap.instrumentation.java.concurrent
+
+import datadog.trace.bootstrap.ContextStore
+import datadog.trace.context.TraceScope
+import datadog.trace.test.util.DDSpecification
+
+import java.util.concurrent.Executor
+
+class ExecutorInstrumentationUtilsTest extends DDSpecification {
+
+  def executor = new DirectExecutor()
+
+  def "no state is attached without a propagating scope"() {
+    setup:
+    def scope = Mock(TraceScope)
+    scope.isAsyncPropagating() >> propagating
+
+    expect:
+    !ExecutorInstrumentationUtils.shouldAttachStateToTask(new Task(), executor, hasScope ? scope : null)
+
+    where:
+    hasScope | propagating
+    false    | false
+    true     | false
+  }
+
+  def "state is attached with a propagating scope unless the task propagates inline"() {
+    setup:
+    def scope = Mock(TraceScope)
+    scope.isAsyncPropagating() >> true
+
+    expect:
+    ExecutorInstrumentationUtils.shouldAttachStateToTask(task, executor, scope) == expected
+    // decisions are cached, so asking again gives the same answer
+    ExecutorInstrumentationUtils.shouldAttachStateToTask(task, executor, scope) == expected
+
+    where:
+    task                                | expected
+    null                                | false
+    new Task()                          | true
+    new RunnableWrapper(new Task())     | true
+    new Wrapper(new Task(), null)       | false
+  }
+
+  def "wrapped tasks carry their state inline"() {
+    setup:
+    def contextStore = Mock(ContextStore)
+    def continuation = Mock(TraceScope.Continuation)
+    def scope = Mock(TraceScope)
+    scope.capture() >> continuation
+    def task = new RunnableWrapper(new Task())
+
+    when:
+    def state = ExecutorInstrumentationUtils.setupState(contextStore, task, scope)
+
+    then:
+    0 * contextStore._
+    state.is(task.getState())
+    state.getAndResetContinuation() == continuation
+  }
+
+  static class Task implements Runnable {
+    @Override
+    void run() {}
+  }
+
+  static class DirectExecutor implements Executor {
+    @Override
+    void execute(Runnable command) {
+      command.run()
+    }
+  }
+}
@@ -0,0 +1,222 @@
+package com.datadog.profiling.controller.openjdk;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the chunk files of the flight recorder's disk repository while they are being written.
+ * From JDK 14 the recorder flushes its buffers to the current chunk about once a second, so reading
+ * the flushed data as it arrives spreads the I/O of an upload over the upload period, and leaves
+ * only the tail written when the chunk is rotated to be read at upload time.
+ *
+ * <p>Chunk headers are read the way the JDK's own repository stream reads them: a header is only
+ * trusted if its file state is the same before and after reading it and doesn't mark the header as
+ * being updated, and only the bytes before the chunk size it records are read. Those bytes are
+ * never rewritten, only the header is, so a finished chunk is its final header followed by the
+ * bytes read since it was started.
+ */
+final class ChunkPrefetcher {
+  private static final Logger log = LoggerFactory.getLogger(ChunkPrefetcher.class);
+
+  static final String REPOSITORY_PROPERTY = "jdk.jfr.repository";
+
+  static final int HEADER_SIZE = 68;
+  private static final int CHUNK_SIZE_POSITION = 8;
+  private static final int FILE_STATE_POSITION = 64;
+  private static final byte UPDATING_HEADER = (byte) 255;
+  private static final byte FINISHED = 0;
+
+  private static final int INITIAL_CAPACITY = 64 * 1024;
+
+  private final long maxBufferedBytes;
+  // chunk files are named after the time they were started, so this is chronological
+  private final TreeMap<String, Chunk> chunks = new TreeMap<>();
+  private String lastTaken;
+  private long bufferedBytes;
+  // set if the repository couldn't be listed since the chunks were last taken
+  private boolean failed;
+
+  /**
+   * @param maxBufferedBytes how many bytes may be held before falling back to reading the chunks
+   *     at upload time
+   */
+  ChunkPrefetcher(final long maxBufferedBytes) {
+    this.maxBufferedBytes = maxBufferedBytes;
+    // chunks which were finished before the recording started aren't part of it
+    prefetch();
+    takeFinished();
+  }
+
+  /** Reads whatever the recorder has flushed since the previous call. */
+  synchronized void prefetch() {
+    final String location = System.getProperty(REPOSITORY_PROPERTY);
+    if (location == null) {
+      return;
+    }
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(location), "*.jfr")) {
+      for (final Path file : files) {
+        final String name = file.getFileName().toString();
+        if ((lastTaken == null || name.compareTo(lastTaken) > 0) && !chunks.containsKey(name)) {
+          chunks.put(name, new Chunk(file));
+        }
+      }
+    } catch (final IOException e) {
+      log.debug("Failed to list the flight recorder repository {}", location, e);
+      failed = true;
+      return;
+    }
+    for (final Chunk chunk : chunks.values()) {
+      if (!chunk.isFinished()) {
+        read(chunk);
+      }
+    }
+  }
+
+  /**
+   * Takes the chunks finished since the previous call, which must be called once the current
+   * chunk has been rotated.
+   *
+   * @return the finished chunks in the order they were written, or {@code null} if there are
+   *     none, if any of them couldn't be read completely or if the repository couldn't be listed
+   *     since the previous call, in which case the recording has to be read from the recorder
+   */
+  synchronized List<Chunk> takeFinished() {
+    prefetch();
+    final List<Chunk> finished = new ArrayList<>();
+    boolean complete = !failed;
+    failed = false;
+    final String newest = chunks.isEmpty() ? null : chunks.lastKey();
+    for (final Iterator<Map.Entry<String, Chunk>> it = chunks.entrySet().iterator();
+        it.hasNext(); ) {
+      final Map.Entry<String, Chunk> entry = it.next();
+      final Chunk chunk = entry.getValue();
+      // only the newest chunk can still be written, any older one whose final header couldn't be
+      // read is missing from this upload
+      if (chunk.isFinished()
+          || !entry.getKey().equals(newest)
+          || (chunk.broken && !Files.exists(chunk.path))) {
+        it.remove();
+        if (lastTaken == null || entry.getKey().compareTo(lastTaken) > 0) {
+          lastTaken = entry.getKey();
+        }
+        bufferedBytes -= chunk.size;
+        complete &= chunk.isFinished() && !chunk.broken;
+        finished.add(chunk);
+      }
+    }
+    return complete && !finished.isEmpty() ? finished : null;
+  }
+
+  private void read(final Chunk chunk) {
+    try (FileChannel channel = FileChannel.open(chunk.path, StandardOpenOption.READ)) {
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      final byte state = readFileState(channel);
+      if (state == UPDATING_HEADER
+          || !readFully(channel, header, 0)
+          || readFileState(channel) != state) {
+        // the header is being written, try again on the next flush
+        return;
+      }
+      final long chunkSize = header.getLong(CHUNK_SIZE_POSITION);
+      final long available = chunkSize - chunk.position;
+      if (available > 0 && !chunk.broken) {
+        if (bufferedBytes + available > maxBufferedBytes || !chunk.append(channel, available)) {
+          // still take the header of a finished chunk, so it's taken as broken
+          chunk.broken = true;
+        } else {
+          bufferedBytes += available;
+        }
+      }
+      if (state == FINISHED) {
+        chunk.header = header.array();
+      }
+    } catch (final NoSuchFileException e) {
+      chunk.broken = true;
+    } catch (final IOException e) {
+      log.debug("Failed to read flight recorder chunk {}", chunk.path, e);
+      chunk.broken = true;
+    }
+  }
+
+  private static byte readFileState(final FileChannel channel) throws IOException {
+    final ByteBuffer state = ByteBuffer.allocate(1);
+    return readFully(channel, state, FILE_STATE_POSITION) ? state.get(0) : UPDATING_HEADER;
+  }
+
+  private static boolean readFully(
+      final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** A chunk file, and the bytes following its header read so far. */
+  static final class Chunk {
+    final Path path;
+    private byte[] data = new byte[INITIAL_CAPACITY];
+    private int size;
+    private long position = HEADER_SIZE;
+    // set once the chunk is finished
+    private byte[] header;
+    // set if some of the chunk couldn't be read, only its header is read from then on
+    private boolean broken;
+
+    Chunk(final Path path) {
+      this.path = path;
+    }
+
+    boolean isFinished() {
+      return header != null;
+    }
+
+    long length() {
+      return HEADER_SIZE + size;
+    }
+
+    InputStream getStream() {
+      return new SequenceInputStream(
+          new ByteArrayInputStream(header), new ByteArrayInputStream(data, 0, size));
+    }
+
+    private boolean append(final FileChannel channel, final long count) throws IOException {
+      if (size + count > Integer.MAX_VALUE - 8) {
+        return false;
+      }
+      if (size + count > data.length) {
+        data =
+            Arrays.copyOf(
+                data,
+                (int) Math.min(Integer.MAX_VALUE - 8, Math.max(size + count, data.length * 2L)));
+      }
+      final ByteBuffer buffer = ByteBuffer.wrap(data, size, (int) count);
+      // the buffer's position starts at size, and maps to the position in the file
+      if (!readFully(channel, buffer, position - size)) {
+        return false;
+      }
+      size += (int) count;
+      position += count;
+      return true;
+    }
+  }
+}
@@ -38,10 +38,13 @@ import org.slf4j.LoggerFactory;
 public final class OpenJdkController implements Controller {
   static final int RECORDING_MAX_SIZE = 64 * 1024 * 1024; // 64 megs
   static final Duration RECORDING_MAX_AGE = Duration.ofMinutes(5);
+  // prefetching falls back to reading snapshots back once an upload period exceeds this
+  static final int PREFETCH_MAX_SIZE = 32 * 1024 * 1024; // 32 megs
 
   private static final Logger log = LoggerFactory.getLogger(OpenJdkController.class);
 
   private final Map<String, String> recordingSettings;
+  private final boolean streaming;
 
   /**
    * Main constructor for OpenJDK profiling controller.
@@ -72,6 +75,9 @@ public final class OpenJdkController implements Controller {
       }
     }
 
+    // The recorder only flushes chunks while they are being written from JDK 14
+    streaming = config.isProfilingStreamingEnabled() && isJavaVersionAtLeast(14);
+
     // Register periodic events
     AvailableProcessorCoresEvent.register();
   }
@@ -84,6 +90,7 @@ public final class OpenJdkController implements Controller {
     recording.setMaxSize(RECORDING_MAX_SIZE);
     recording.setMaxAge(RECORDING_MAX_AGE);
     recording.start();
-    return new OpenJdkOngoingRecording(recording);
+    return new OpenJdkOngoingRecording(
+        recording, streaming ? new ChunkPrefetcher(PREFETCH_MAX_SIZE) : null);
   }
 }
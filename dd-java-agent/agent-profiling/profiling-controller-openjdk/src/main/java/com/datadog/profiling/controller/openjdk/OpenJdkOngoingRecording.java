@@ -1,17 +1,43 @@
 package com.datadog.profiling.controller.openjdk;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
 import com.datadog.profiling.controller.OngoingRecording;
+import datadog.trace.util.AgentTaskScheduler;
 import java.time.Instant;
+import java.util.List;
 import jdk.jfr.FlightRecorder;
 import jdk.jfr.Recording;
 import jdk.jfr.RecordingState;
 
 public class OpenJdkOngoingRecording implements OngoingRecording {
 
+  static final long PREFETCH_PERIOD_MILLIS = 1000;
+
   private final Recording recording;
+  private final ChunkPrefetcher prefetcher;
+  private final AgentTaskScheduler.Scheduled<ChunkPrefetcher> prefetching;
 
   OpenJdkOngoingRecording(final Recording recording) {
+    this(recording, null);
+  }
+
+  /**
+   * @param prefetcher reads the recording's chunks while they are written, so snapshots don't have
+   *     to read them back, or {@code null} to always read snapshots back
+   */
+  OpenJdkOngoingRecording(final Recording recording, final ChunkPrefetcher prefetcher) {
     this.recording = recording;
+    this.prefetcher = prefetcher;
+    this.prefetching =
+        null == prefetcher
+            ? null
+            : AgentTaskScheduler.INSTANCE.scheduleAtFixedRate(
+                ChunkPrefetcher::prefetch,
+                prefetcher,
+                PREFETCH_PERIOD_MILLIS,
+                PREFETCH_PERIOD_MILLIS,
+                MILLISECONDS);
   }
 
   @Override
@@ -20,6 +46,7 @@ public class OpenJdkOngoingRecording implements OngoingRecording {
       throw new IllegalStateException("Cannot stop recording that is not running");
     }
 
+    cancelPrefetching();
     recording.stop();
     return new OpenJdkRecordingData(recording);
   }
@@ -35,11 +62,25 @@ public class OpenJdkOngoingRecording implements OngoingRecording {
     // Since we just requested a snapshot, the end time of the snapshot will be
     // very close to now, so use that end time to minimize the risk of gaps or
     // overlaps in the data.
+    if (null != prefetcher) {
+      // taking the snapshot rotated the chunk, so the chunks it holds are finished
+      final List<ChunkPrefetcher.Chunk> chunks = prefetcher.takeFinished();
+      if (null != chunks) {
+        return new PrefetchedRecordingData(snapshot, start, snapshot.getStopTime(), chunks);
+      }
+    }
     return new OpenJdkRecordingData(snapshot, start, snapshot.getStopTime());
   }
 
   @Override
   public void close() {
+    cancelPrefetching();
     recording.close();
   }
+
+  private void cancelPrefetching() {
+    if (null != prefetching) {
+      prefetching.cancel();
+    }
+  }
 }
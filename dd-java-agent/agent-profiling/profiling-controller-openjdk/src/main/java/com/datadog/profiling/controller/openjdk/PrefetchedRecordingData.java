@@ -0,0 +1,54 @@
+package com.datadog.profiling.controller.openjdk;
+
+import com.datadog.profiling.controller.RecordingInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nonnull;
+import jdk.jfr.Recording;
+
+/**
+ * Recording data made of chunks read by a {@link ChunkPrefetcher} while they were being written,
+ * rather than read back from the snapshot when uploaded.
+ */
+final class PrefetchedRecordingData extends OpenJdkRecordingData {
+
+  private volatile List<ChunkPrefetcher.Chunk> chunks;
+
+  PrefetchedRecordingData(
+      final Recording snapshot,
+      final Instant start,
+      final Instant end,
+      final List<ChunkPrefetcher.Chunk> chunks) {
+    super(snapshot, start, end);
+    this.chunks = chunks;
+  }
+
+  @Override
+  @Nonnull
+  public RecordingInputStream getStream() {
+    final List<InputStream> streams = new ArrayList<>(chunks.size());
+    for (final ChunkPrefetcher.Chunk chunk : chunks) {
+      streams.add(chunk.getStream());
+    }
+    return new RecordingInputStream(new SequenceInputStream(Collections.enumeration(streams)));
+  }
+
+  @Override
+  public void release() {
+    chunks = Collections.emptyList();
+    super.release();
+  }
+
+  // Visible for testing
+  long length() {
+    long length = 0;
+    for (final ChunkPrefetcher.Chunk chunk : chunks) {
+      length += chunk.length();
+    }
+    return length;
+  }
+}
@@ -0,0 +1,174 @@
+package com.datadog.profiling.controller.openjdk;
+
+import static datadog.trace.api.Platform.isJavaVersionAtLeast;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ChunkPrefetcherTest {
+
+  private static final String TEST_NAME = "recording name";
+
+  private Recording recording;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    // the recorder only flushes chunks while they are being written from JDK 14
+    assumeTrue(isJavaVersionAtLeast(14));
+    recording = new Recording(Configuration.getConfiguration("profile"));
+    recording.setName(TEST_NAME);
+    recording.start();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    if (recording != null) {
+      recording.close();
+    }
+  }
+
+  @Test
+  public void testPrefetchedSnapshotsMatchTheRecordedData() throws Exception {
+    final OpenJdkOngoingRecording ongoingRecording =
+        new OpenJdkOngoingRecording(recording, new ChunkPrefetcher(Integer.MAX_VALUE));
+    Instant start = Instant.now();
+    for (int i = 0; i < 3; ++i) {
+      Thread.sleep(2 * OpenJdkOngoingRecording.PREFETCH_PERIOD_MILLIS);
+      final OpenJdkRecordingData recordingData = ongoingRecording.snapshot(start);
+      try {
+        assertEquals(PrefetchedRecordingData.class, recordingData.getClass());
+        assertEquals(TEST_NAME, recordingData.getName());
+        final byte[] recorded =
+            readAll(recordingData.getRecording().getStream(start, recordingData.getEnd()));
+        assertEquals(recorded.length, ((PrefetchedRecordingData) recordingData).length());
+        assertArrayEquals(recorded, readAll(recordingData.getStream()));
+        // the data can be read again when an upload is retried
+        assertArrayEquals(recorded, readAll(recordingData.getStream()));
+      } finally {
+        recordingData.release();
+      }
+      start = recordingData.getEnd().plusNanos(1);
+    }
+    ongoingRecording.close();
+  }
+
+  @Test
+  public void testSnapshotsAreReadBackWhenTheBudgetIsExceeded() throws Exception {
+    final OpenJdkOngoingRecording ongoingRecording =
+        new OpenJdkOngoingRecording(recording, new ChunkPrefetcher(ChunkPrefetcher.HEADER_SIZE));
+    Thread.sleep(2 * OpenJdkOngoingRecording.PREFETCH_PERIOD_MILLIS);
+    final OpenJdkRecordingData recordingData = ongoingRecording.snapshot(Instant.now());
+    try {
+      assertEquals(OpenJdkRecordingData.class, recordingData.getClass());
+    } finally {
+      recordingData.release();
+    }
+    ongoingRecording.close();
+  }
+
+  @Test
+  public void testChunksWhoseTailCantBeReadAreNotTaken(@TempDir final Path repository)
+      throws Exception {
+    final String location = System.getProperty(ChunkPrefetcher.REPOSITORY_PROPERTY);
+    System.setProperty(ChunkPrefetcher.REPOSITORY_PROPERTY, repository.toString());
+    try {
+      final ChunkPrefetcher prefetcher = new ChunkPrefetcher(100);
+      final Path first = repository.resolve("1.jfr");
+      writeChunk(first, 50, (byte) 1);
+      prefetcher.prefetch();
+
+      // the tail written when the chunk is rotated doesn't fit in the budget
+      writeChunk(first, 150, (byte) 0);
+      final Path second = repository.resolve("2.jfr");
+      writeChunk(second, 0, (byte) 1);
+      assertNull(prefetcher.takeFinished());
+
+      // the chunk isn't taken again, and later chunks are prefetched as usual
+      writeChunk(second, 20, (byte) 0);
+      writeChunk(repository.resolve("3.jfr"), 0, (byte) 1);
+      final List<ChunkPrefetcher.Chunk> finished = prefetcher.takeFinished();
+      assertEquals(1, finished.size());
+      assertEquals(second, finished.get(0).path);
+      assertEquals(ChunkPrefetcher.HEADER_SIZE + 20, finished.get(0).length());
+    } finally {
+      restoreRepository(location);
+    }
+  }
+
+  @Test
+  public void testNothingIsTakenUnlessEveryChunkWasPrefetched(@TempDir final Path repository)
+      throws Exception {
+    final String location = System.getProperty(ChunkPrefetcher.REPOSITORY_PROPERTY);
+    System.setProperty(ChunkPrefetcher.REPOSITORY_PROPERTY, repository.toString());
+    try {
+      final ChunkPrefetcher prefetcher = new ChunkPrefetcher(100);
+      final Path first = repository.resolve("1.jfr");
+      writeChunk(first, 10, (byte) 1);
+
+      // no chunk was finished
+      assertNull(prefetcher.takeFinished());
+
+      // the repository couldn't be listed when the chunk was finished
+      writeChunk(first, 20, (byte) 0);
+      System.setProperty(ChunkPrefetcher.REPOSITORY_PROPERTY, first.toString());
+      prefetcher.prefetch();
+      System.setProperty(ChunkPrefetcher.REPOSITORY_PROPERTY, repository.toString());
+      writeChunk(repository.resolve("2.jfr"), 0, (byte) 1);
+      assertNull(prefetcher.takeFinished());
+
+      // the failure is only reported once
+      writeChunk(repository.resolve("2.jfr"), 5, (byte) 0);
+      writeChunk(repository.resolve("3.jfr"), 0, (byte) 1);
+      final List<ChunkPrefetcher.Chunk> finished = prefetcher.takeFinished();
+      assertEquals(1, finished.size());
+      assertEquals(ChunkPrefetcher.HEADER_SIZE + 5, finished.get(0).length());
+    } finally {
+      restoreRepository(location);
+    }
+  }
+
+  private static void restoreRepository(final String location) {
+    if (location == null) {
+      System.clearProperty(ChunkPrefetcher.REPOSITORY_PROPERTY);
+    } else {
+      System.setProperty(ChunkPrefetcher.REPOSITORY_PROPERTY, location);
+    }
+  }
+
+  /** Writes a chunk with the given number of bytes after its header, and file state. */
+  private static void writeChunk(final Path path, final int size, final byte state)
+      throws IOException {
+    final ByteBuffer chunk = ByteBuffer.allocate(ChunkPrefetcher.HEADER_SIZE + size);
+    chunk.putLong(8, ChunkPrefetcher.HEADER_SIZE + size);
+    chunk.put(64, state);
+    Files.write(path, chunk.array());
+  }
+
+  private static byte[] readAll(final InputStream stream) throws IOException {
+    try (InputStream in = stream) {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) >= 0) {
+        out.write(buffer, 0, read);
+      }
+      return out.toByteArray();
+    }
+  }
+}
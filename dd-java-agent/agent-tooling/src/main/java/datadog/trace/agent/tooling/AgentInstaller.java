@@ -4,6 +4,8 @@ import static datadog.trace.agent.tooling.ClassLoaderMatcher.skipClassLoader;
 import static datadog.trace.agent.tooling.bytebuddy.matcher.GlobalIgnoresMatcher.globalIgnoresMatcher;
 import static datadog.trace.agent.tooling.bytebuddy.matcher.NameMatchers.nameStartsWith;
 import static datadog.trace.agent.tooling.bytebuddy.matcher.NameMatchers.namedOneOf;
+import static datadog.trace.util.AgentThreadFactory.AgentThread.DEFERRED_INSTRUMENTATION;
+import static datadog.trace.util.AgentThreadFactory.newAgentThread;
 import static net.bytebuddy.matcher.ElementMatchers.any;
 import static net.bytebuddy.matcher.ElementMatchers.none;
 
@@ -20,6 +22,7 @@ import java.util.Map;
 import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import net.bytebuddy.agent.builder.AgentBuilder;
 import net.bytebuddy.agent.builder.ResettableClassFileTransformer;
 import net.bytebuddy.description.type.TypeDefinition;
@@ -37,6 +40,17 @@ public class AgentInstaller {
   private static final List<Runnable> LOG_MANAGER_CALLBACKS = new CopyOnWriteArrayList<>();
   private static final List<Runnable> MBEAN_SERVER_BUILDER_CALLBACKS = new CopyOnWriteArrayList<>();
   private static volatile Instrumentation INSTRUMENTATION;
+  private static volatile long TIME_TO_FULL_INSTRUMENTATION_MILLIS = -1;
+
+  /** Which instrumenters are installed by a call to {@code installBytebuddyAgent}. */
+  enum Phase {
+    /** All instrumenters. */
+    ALL,
+    /** The instrumenters which aren't deferred, during premain. */
+    CRITICAL,
+    /** The deferred instrumenters, from a background thread. */
+    DEFERRED
+  }
 
   public static Instrumentation getInstrumentation() {
     return INSTRUMENTATION;
@@ -55,9 +69,19 @@ public class AgentInstaller {
      * is active.
      */
     if (Config.get().isTraceEnabled() || Config.get().isProfilingEnabled()) {
-      installBytebuddyAgent(inst, false, new AgentBuilder.Listener[0]);
-      if (DEBUG) {
-        log.debug("Class instrumentation installed");
+      final long startNanos = System.nanoTime();
+      if (Config.get().isIntegrationsPhasedInstall()) {
+        installBytebuddyAgent(inst, false, Phase.CRITICAL, new AgentBuilder.Listener[0]);
+        installDeferredInstrumentation(inst, startNanos);
+        if (DEBUG) {
+          log.debug("Critical class instrumentation installed");
+        }
+      } else {
+        installBytebuddyAgent(inst, false, Phase.ALL, new AgentBuilder.Listener[0]);
+        TIME_TO_FULL_INSTRUMENTATION_MILLIS = elapsedMillis(startNanos);
+        if (DEBUG) {
+          log.debug("Class instrumentation installed");
+        }
       }
     } else if (DEBUG) {
       log.debug("Tracing is disabled, not installing instrumentations.");
@@ -74,9 +98,53 @@ public class AgentInstaller {
       final Instrumentation inst,
       final boolean skipAdditionalLibraryMatcher,
       final AgentBuilder.Listener... listeners) {
+    return installBytebuddyAgent(inst, skipAdditionalLibraryMatcher, Phase.ALL, listeners);
+  }
+
+  /**
+   * Installs the deferred instrumenters from a background thread, which runs concurrently with the
+   * rest of premain and the start of the application. Classes which were loaded in the meantime
+   * are picked up by re-transformation, see {@link #isDeferred} for what that rules out.
+   */
+  private static void installDeferredInstrumentation(
+      final Instrumentation inst, final long startNanos) {
+    newAgentThread(
+            DEFERRED_INSTRUMENTATION,
+            new Runnable() {
+              @Override
+              public void run() {
+                installBytebuddyAgent(inst, false, Phase.DEFERRED, new AgentBuilder.Listener[0]);
+                TIME_TO_FULL_INSTRUMENTATION_MILLIS = elapsedMillis(startNanos);
+                log.debug(
+                    "Deferred class instrumentation installed, fully instrumented after {}ms",
+                    TIME_TO_FULL_INSTRUMENTATION_MILLIS);
+              }
+            })
+        .start();
+  }
+
+  /**
+   * @return the time taken from the start of premain until all instrumenters were installed, or
+   *     -1 if they have not all been installed yet
+   */
+  public static long getTimeToFullInstrumentationMillis() {
+    return TIME_TO_FULL_INSTRUMENTATION_MILLIS;
+  }
+
+  private static long elapsedMillis(final long startNanos) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+  }
+
+  static ResettableClassFileTransformer installBytebuddyAgent(
+      final Instrumentation inst,
+      final boolean skipAdditionalLibraryMatcher,
+      final Phase phase,
+      final AgentBuilder.Listener... listeners) {
     INSTRUMENTATION = inst;
 
-    FieldBackedContextProvider.resetContextMatchers();
+    if (phase != Phase.DEFERRED) {
+      FieldBackedContextProvider.resetContextMatchers();
+    }
 
     AgentBuilder.Ignored ignoredAgentBuilder =
         new AgentBuilder.Default()
@@ -87,7 +155,6 @@ public class AgentInstaller {
             .with(AgentTooling.rediscoveryStrategy())
             .with(AgentBuilder.DescriptionStrategy.Default.POOL_ONLY)
             .with(AgentTooling.poolStrategy())
-            .with(new ClassLoadListener())
             .with(AgentTooling.locationStrategy())
             // FIXME: we cannot enable it yet due to BB/JVM bug, see
             // https://github.com/raphw/byte-buddy/issues/558
@@ -100,6 +167,10 @@ public class AgentInstaller {
     ignoredAgentBuilder = ignoredAgentBuilder.or(matchesConfiguredExcludes());
 
     AgentBuilder agentBuilder = ignoredAgentBuilder;
+    if (phase != Phase.DEFERRED) {
+      // class load callbacks only need to be notified by one of the transformers
+      agentBuilder = agentBuilder.with(new ClassLoadListener());
+    }
     if (DEBUG) {
       agentBuilder =
           agentBuilder
@@ -120,6 +191,9 @@ public class AgentInstaller {
     // immediately and we don't have the ability to express dependencies between different
     // instrumenters to control the load order.
     for (final Instrumenter instrumenter : loader) {
+      if (phase == Phase.DEFERRED) {
+        break; // already added when the critical instrumenters were installed
+      }
       if (instrumenter instanceof ExcludeFilterProvider) {
         ExcludeFilterProvider provider = (ExcludeFilterProvider) instrumenter;
         ExcludeFilter.add(provider.excludedClasses());
@@ -131,7 +205,12 @@ public class AgentInstaller {
     }
 
     Set<Instrumenter.TargetSystem> enabledSystems = getEnabledSystems();
+    Set<String> criticalIntegrations = Config.get().getCriticalIntegrations();
     for (final Instrumenter instrumenter : loader) {
+      if (phase != Phase.ALL
+          && isDeferred(instrumenter, criticalIntegrations) != (phase == Phase.DEFERRED)) {
+        continue;
+      }
       if (!instrumenter.isApplicable(enabledSystems)) {
         if (DEBUG) {
           log.debug("Instrumentation {} is not applicable", instrumenter.getClass().getName());
@@ -150,12 +229,46 @@ public class AgentInstaller {
       }
     }
     if (DEBUG) {
-      log.debug("Installed {} instrumenter(s)", numInstrumenters);
+      log.debug("Installed {} {} instrumenter(s)", numInstrumenters, phase);
     }
 
     return agentBuilder.installOn(inst);
   }
 
+  /**
+   * Whether the instrumenter is installed in the deferred phase, which only named integrations
+   * that aren't critical can be. They must also behave the same when the classes they match were
+   * loaded before they were installed, and so are re-transformed rather than transformed:
+   *
+   * <ul>
+   *   <li>they must not have context stores, because fields can't be added to classes which are
+   *       re-transformed, so their stores would silently fall back to the map backed store
+   *   <li>they must not match the bootstrap class loader, because {@link
+   *       datadog.trace.agent.tooling.bytebuddy.DDRediscoveryStrategy} only re-transforms a few
+   *       bootstrap classes, so the others would never be instrumented
+   * </ul>
+   */
+  static boolean isDeferred(
+      final Instrumenter instrumenter, final Set<String> criticalIntegrations) {
+    if (!(instrumenter instanceof Instrumenter.Default)) {
+      return false;
+    }
+    final Instrumenter.Default integration = (Instrumenter.Default) instrumenter;
+    return !integration.hasAnyName(criticalIntegrations)
+        && integration.contextStore().isEmpty()
+        && integration.contextStoreForAll().isEmpty()
+        && !matchesBootstrapClassLoader(integration);
+  }
+
+  private static boolean matchesBootstrapClassLoader(final Instrumenter.Default integration) {
+    try {
+      return integration.classLoaderMatcher().matches(ClassLoaderMatcher.BOOTSTRAP_CLASSLOADER);
+    } catch (final Throwable e) {
+      // assume it does if the matcher can't tell
+      return true;
+    }
+  }
+
   private static Set<Instrumenter.TargetSystem> getEnabledSystems() {
     EnumSet<Instrumenter.TargetSystem> enabledSystems =
         EnumSet.noneOf(Instrumenter.TargetSystem.class);
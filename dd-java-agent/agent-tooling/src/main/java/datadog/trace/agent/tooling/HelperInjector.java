@@ -23,7 +23,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import net.bytebuddy.agent.builder.AgentBuilder.Transformer;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.dynamic.ClassFileLocator;
@@ -45,6 +48,19 @@ public class HelperInjector implements Transformer {
         }
       };
 
+  // Helper bytes are immutable, so they're read from the agent jar once and shared by all injectors
+  private static final ConcurrentHashMap<String, byte[]> HELPER_BYTES = new ConcurrentHashMap<>();
+
+  // Helpers already appended to the bootstrap search path, by any injector
+  private static final Set<String> BOOTSTRAP_HELPERS =
+      Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+  private static final AtomicLong INJECTIONS = new AtomicLong();
+  private static final AtomicLong INJECTED_CLASSES = new AtomicLong();
+  private static final AtomicLong INJECTION_NANOS = new AtomicLong();
+
+  private static volatile File bootstrapTempDir;
+
   static {
     if (Config.get().isTempJarsCleanOnBoot()) {
       cleanTempJars();
@@ -60,6 +76,9 @@ public class HelperInjector implements Transformer {
       Collections.synchronizedMap(new WeakHashMap<ClassLoader, Boolean>());
 
   private final List<WeakReference<Object>> helperModules = new CopyOnWriteArrayList<>();
+
+  private volatile Map<String, byte[]> helperMap;
+
   /**
    * Construct HelperInjector.
    *
@@ -91,22 +110,47 @@ public class HelperInjector implements Transformer {
     return new HelperInjector(requestingName, bytes);
   }
 
-  private Map<String, byte[]> getHelperMap() throws IOException {
-    if (dynamicTypeMap.isEmpty()) {
-      final Map<String, byte[]> classnameToBytes = new LinkedHashMap<>();
+  /** @return the number of batches of helper classes injected into class loaders so far */
+  public static long getInjectionCount() {
+    return INJECTIONS.get();
+  }
 
-      final ClassFileLocator locator =
-          ClassFileLocator.ForClassLoader.of(Utils.getAgentClassLoader());
+  /** @return the number of helper classes injected into class loaders so far */
+  public static long getInjectedClassCount() {
+    return INJECTED_CLASSES.get();
+  }
 
+  /** @return the total time spent injecting helper classes so far, in nanoseconds */
+  public static long getInjectionTimeNanos() {
+    return INJECTION_NANOS.get();
+  }
+
+  private Map<String, byte[]> getHelperMap() throws IOException {
+    if (!dynamicTypeMap.isEmpty()) {
+      return dynamicTypeMap;
+    }
+    Map<String, byte[]> helperMap = this.helperMap;
+    if (null == helperMap) {
+      final Map<String, byte[]> classnameToBytes = new LinkedHashMap<>();
+      ClassFileLocator locator = null;
       for (final String helperClassName : helperClassNames) {
-        final byte[] classBytes = locator.locate(helperClassName).resolve();
+        byte[] classBytes = HELPER_BYTES.get(helperClassName);
+        if (null == classBytes) {
+          if (null == locator) {
+            locator = ClassFileLocator.ForClassLoader.of(Utils.getAgentClassLoader());
+          }
+          classBytes = locator.locate(helperClassName).resolve();
+          final byte[] existing = HELPER_BYTES.putIfAbsent(helperClassName, classBytes);
+          if (null != existing) {
+            classBytes = existing;
+          }
+        }
         classnameToBytes.put(helperClassName, classBytes);
       }
-
-      return classnameToBytes;
-    } else {
-      return dynamicTypeMap;
+      helperMap = Collections.unmodifiableMap(classnameToBytes);
+      this.helperMap = helperMap;
     }
+    return helperMap;
   }
 
   @Override
@@ -125,12 +169,20 @@ public class HelperInjector implements Transformer {
           log.debug("Injecting classes onto classloader {} -> {}", classLoader, helperClassNames);
 
           final Map<String, byte[]> classnameToBytes = getHelperMap();
+          final long startNanos = System.nanoTime();
           final Map<String, Class<?>> classes;
           if (classLoader == BOOTSTRAP_CLASSLOADER_PLACEHOLDER) {
             classes = injectBootstrapClassLoader(classnameToBytes);
           } else {
             classes = injectClassLoader(classLoader, classnameToBytes);
           }
+          final long elapsedNanos = System.nanoTime() - startNanos;
+          INJECTIONS.incrementAndGet();
+          INJECTION_NANOS.addAndGet(elapsedNanos);
+          log.debug(
+              "Injected helpers onto classloader {} in {}us",
+              classLoader,
+              TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
 
           // All datadog helper classes are in the unnamed module
           // And there's exactly one unnamed module per classloader
@@ -159,33 +211,67 @@ public class HelperInjector implements Transformer {
     return builder;
   }
 
-  private Map<String, Class<?>> injectBootstrapClassLoader(
+  private static Map<String, Class<?>> injectBootstrapClassLoader(
       final Map<String, byte[]> classnameToBytes) throws IOException {
-    // Mar 2020: Since we're proactively cleaning up tempDirs, we cannot share dirs per thread.
-    // If this proves expensive, we could do a per-process tempDir with
-    // a reference count -- but for now, starting simple.
+    // Helpers shared between instrumentations are only appended to the bootstrap search path once,
+    // so each batch is written as a single jar holding the helpers which are not there yet.
+    synchronized (BOOTSTRAP_HELPERS) {
+      final Map<String, byte[]> missing = new LinkedHashMap<>();
+      for (final Map.Entry<String, byte[]> helper : classnameToBytes.entrySet()) {
+        if (!BOOTSTRAP_HELPERS.contains(helper.getKey())) {
+          missing.put(helper.getKey(), helper.getValue());
+        }
+      }
+      final Map<String, Class<?>> classes = new LinkedHashMap<>();
+      if (!missing.isEmpty()) {
+        INJECTING_HELPERS.begin();
+        try {
+          classes.putAll(
+              ClassInjector.UsingInstrumentation.of(
+                      getBootstrapTempDir(),
+                      ClassInjector.UsingInstrumentation.Target.BOOTSTRAP,
+                      AgentInstaller.getInstrumentation())
+                  .injectRaw(missing));
+        } finally {
+          INJECTING_HELPERS.end();
+        }
+        BOOTSTRAP_HELPERS.addAll(missing.keySet());
+        INJECTED_CLASSES.addAndGet(missing.size());
+      }
+      for (final String helperClassName : classnameToBytes.keySet()) {
+        if (!classes.containsKey(helperClassName)) {
+          try {
+            classes.put(helperClassName, Class.forName(helperClassName, false, null));
+          } catch (final ClassNotFoundException e) {
+            throw new IOException(e);
+          }
+        }
+      }
+      return classes;
+    }
+  }
 
+  private static File getBootstrapTempDir() throws IOException {
+    // The jars appended to the bootstrap search path stay open for the life of the process, so
+    // they share a single directory which is removed on exit, or on the next boot if that fails.
     // Failures to create a tempDir are propagated as IOException and handled by transform
-    final File tempDir = createTempDir();
-    INJECTING_HELPERS.begin();
-    try {
-      return ClassInjector.UsingInstrumentation.of(
-              tempDir,
-              ClassInjector.UsingInstrumentation.Target.BOOTSTRAP,
-              AgentInstaller.getInstrumentation())
-          .injectRaw(classnameToBytes);
-    } finally {
-      INJECTING_HELPERS.end();
-      // Delete fails silently
-      deleteTempDir(tempDir);
+    File tempDir = bootstrapTempDir;
+    if (null == tempDir) {
+      tempDir = createTempDir();
+      tempDir.deleteOnExit();
+      bootstrapTempDir = tempDir;
     }
+    return tempDir;
   }
 
   private Map<String, Class<?>> injectClassLoader(
       final ClassLoader classLoader, final Map<String, byte[]> classnameToBytes) {
     INJECTING_HELPERS.begin();
     try {
-      return new ClassInjector.UsingReflection(classLoader).injectRaw(classnameToBytes);
+      final Map<String, Class<?>> classes =
+          new ClassInjector.UsingReflection(classLoader).injectRaw(classnameToBytes);
+      INJECTED_CLASSES.addAndGet(classes.size());
+      return classes;
     } finally {
       INJECTING_HELPERS.end();
     }
@@ -228,19 +314,6 @@ public class HelperInjector implements Transformer {
     }
   }
 
-  private static void deleteTempDir(final File file) {
-    // Not using Files.delete for deleting the directory because failures
-    // create Exceptions which may prove expensive.  Instead using the
-    // older File API which simply returns a boolean.
-    final boolean deleted = file.delete();
-    if (!deleted) {
-      file.deleteOnExit();
-      log.debug("file '{}' added to shutdown delete hook", file);
-    } else {
-      log.debug("file '{}' deleted", file);
-    }
-  }
-
   private static final String DATADOG_TEMP_JARS = "datadog-temp-jars";
   private static final int MAX_CLEANUP_MILLIS = 1_000;
 
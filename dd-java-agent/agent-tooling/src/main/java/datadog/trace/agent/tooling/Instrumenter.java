@@ -324,6 +324,16 @@ public interface Instrumenter {
       return enabled;
     }
 
+    /** @return true if this instrumentation is known by any of the given names */
+    public boolean hasAnyName(final Set<String> names) {
+      for (final String name : instrumentationNames) {
+        if (names.contains(name)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
     @Override
     public boolean isApplicable(Set<TargetSystem> enabledSystems) {
       return false;
@@ -92,7 +92,6 @@ public final class DDRediscoveryStrategy implements RedefinitionStrategy.Discove
       case "java.net.HttpURLConnection":
       case "java.net.URL":
       case "sun.net.www.http.HttpClient":
-      case "datadog.trace.bootstrap.instrumentation.java.concurrent.RunnableWrapper":
         return true;
     }
     if (name.startsWith("java.util.concurrent.")
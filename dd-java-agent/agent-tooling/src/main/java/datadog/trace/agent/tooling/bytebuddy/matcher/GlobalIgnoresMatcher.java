@@ -95,10 +95,7 @@ public class GlobalIgnoresMatcher<T extends TypeDescription>
             return true;
           }
           if (name.startsWith("datadog.trace.")) {
-            // FIXME: We should remove this once
-            // https://github.com/raphw/byte-buddy/issues/558 is fixed
-            return !name.equals(
-                "datadog.trace.bootstrap.instrumentation.java.concurrent.RunnableWrapper");
+            return true;
           }
         }
         break;
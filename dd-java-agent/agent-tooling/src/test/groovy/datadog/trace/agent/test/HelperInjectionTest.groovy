@@ -71,6 +71,27 @@ class HelperInjectionTest extends DDSpecification {
     helperClass.getClassLoader() == BOOTSTRAP_CLASSLOADER
   }
 
+  def "helpers shared between injectors are injected on bootstrap classloader once"() {
+    setup:
+    ByteBuddyAgent.install()
+    AgentInstaller.installBytebuddyAgent(ByteBuddyAgent.getInstrumentation())
+    String helperClassName = HelperInjectionTest.getPackage().getName() + '.HelperClass'
+    HelperInjector first = new HelperInjector("first", helperClassName)
+    HelperInjector second = new HelperInjector("second", helperClassName)
+
+    when:
+    first.transform(null, null, BOOTSTRAP_CLASSLOADER, null)
+    long injectedClasses = HelperInjector.getInjectedClassCount()
+    long injections = HelperInjector.getInjectionCount()
+    second.transform(null, null, BOOTSTRAP_CLASSLOADER, null)
+
+    then:
+    HelperInjector.getInjectionCount() == injections + 1
+    // the second injector reuses the class already appended to the bootstrap search path
+    HelperInjector.getInjectedClassCount() == injectedClasses
+    Class.forName(helperClassName, false, null).getClassLoader() == BOOTSTRAP_CLASSLOADER
+  }
+
   def "check hard references on class injection"() {
     setup:
     String helperClassName = HelperInjectionTest.getPackage().getName() + '.HelperClass'
@@ -0,0 +1,93 @@
+package datadog.trace.agent.tooling
+
+import datadog.trace.test.util.DDSpecification
+import net.bytebuddy.matcher.ElementMatcher
+
+import static datadog.trace.agent.tooling.ClassLoaderMatcher.hasClassesNamed
+
+class InstallPhaseTest extends DDSpecification {
+
+  static final Set<String> CRITICAL = ["servlet", "jdbc"] as Set
+
+  def "critical integrations are installed during premain"() {
+    expect:
+    !AgentInstaller.isDeferred(new LibraryIntegration(name), CRITICAL)
+
+    where:
+    name << ["servlet", "jdbc"]
+  }
+
+  def "other integrations of libraries are deferred"() {
+    expect:
+    AgentInstaller.isDeferred(new LibraryIntegration("couchbase"), CRITICAL)
+  }
+
+  def "integrations known by a critical name are installed during premain"() {
+    expect:
+    !AgentInstaller.isDeferred(new LibraryIntegration("jdbc-datasource", "jdbc"), CRITICAL)
+  }
+
+  def "integrations with context stores are installed during premain"() {
+    expect:
+    !AgentInstaller.isDeferred(integration, CRITICAL)
+
+    where:
+    integration << [
+      new LibraryIntegration("couchbase") {
+        @Override
+        Map<String, String> contextStore() {
+          return ["com.couchbase.Bucket": "java.lang.String"]
+        }
+      },
+      new LibraryIntegration("couchbase") {
+        @Override
+        Map<String, String> contextStoreForAll() {
+          return ["java.lang.Runnable": "java.lang.String"]
+        }
+      }
+    ]
+  }
+
+  def "integrations which may match bootstrap classes are installed during premain"() {
+    expect:
+    !AgentInstaller.isDeferred(integration, CRITICAL)
+
+    where:
+    integration << [
+      // matches any class loader by default, including the bootstrap class loader
+      new TestIntegration("rmi"),
+      // can't tell
+      new TestIntegration("broken") {
+        @Override
+        ElementMatcher<ClassLoader> classLoaderMatcher() {
+          return { ClassLoader cl -> cl.getClass() != null } as ElementMatcher<ClassLoader>
+        }
+      }
+    ]
+  }
+
+  def "instrumenters which aren't integrations are installed during premain"() {
+    expect:
+    !AgentInstaller.isDeferred(Stub(Instrumenter), CRITICAL)
+  }
+
+  static class TestIntegration extends Instrumenter.Tracing {
+    TestIntegration(String name, String... additionalNames) {
+      super(name, additionalNames)
+    }
+
+    @Override
+    void adviceTransformations(Instrumenter.AdviceTransformation transformation) {}
+  }
+
+  static class LibraryIntegration extends TestIntegration {
+    LibraryIntegration(String name, String... additionalNames) {
+      super(name, additionalNames)
+    }
+
+    @Override
+    ElementMatcher<ClassLoader> classLoaderMatcher() {
+      return hasClassesNamed("com.example.Client")
+    }
+  }
+}
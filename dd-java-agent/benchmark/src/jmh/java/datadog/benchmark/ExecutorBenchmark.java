@@ -0,0 +1,95 @@
+package datadog.benchmark;
+
+import datadog.trace.api.Trace;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures {@link ThreadPoolExecutor#execute(Runnable)} throughput through the java-concurrent
+ * instrumentation, both when there is no active span and when tasks are submitted from within a
+ * traced method.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ExecutorBenchmark {
+
+  private static final int TASKS_PER_INVOCATION = 1000;
+
+  @State(Scope.Thread)
+  public static class ExecutorState {
+    ThreadPoolExecutor executor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      executor =
+          new ThreadPoolExecutor(
+              1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+      executor.prestartAllCoreThreads();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      executor.shutdownNow();
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TASKS_PER_INVOCATION)
+  public void executeWithoutActiveSpan(final ExecutorState state) throws InterruptedException {
+    executeAndAwait(state.executor);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TASKS_PER_INVOCATION)
+  public void executeWithActiveSpan(final ExecutorState state) throws InterruptedException {
+    tracedExecuteAndAwait(state.executor);
+  }
+
+  @Trace
+  static void tracedExecuteAndAwait(final ThreadPoolExecutor executor) throws InterruptedException {
+    executeAndAwait(executor);
+  }
+
+  private static void executeAndAwait(final ThreadPoolExecutor executor)
+      throws InterruptedException {
+    final CountDownLatch latch = new CountDownLatch(TASKS_PER_INVOCATION);
+    for (int i = 0; i < TASKS_PER_INVOCATION; i++) {
+      executor.execute(new CountDownTask(latch));
+    }
+    latch.await();
+  }
+
+  static final class CountDownTask implements Runnable {
+    private final CountDownLatch latch;
+
+    CountDownTask(final CountDownLatch latch) {
+      this.latch = latch;
+    }
+
+    @Override
+    public void run() {
+      latch.countDown();
+    }
+  }
+
+  @Fork(jvmArgsAppend = "-javaagent:/path/to/dd-java-agent-master.jar")
+  public static class WithAgentMaster extends ExecutorBenchmark {}
+
+  @Fork(
+      jvmArgsAppend =
+          "-javaagent:/path/to/dd-trace-java/dd-java-agent/build/libs/dd-java-agent.jar")
+  public static class WithAgent extends ExecutorBenchmark {}
+}
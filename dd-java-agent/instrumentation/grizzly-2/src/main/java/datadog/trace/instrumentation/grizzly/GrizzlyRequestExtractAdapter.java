@@ -3,7 +3,10 @@ package datadog.trace.instrumentation.grizzly;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import datadog.trace.bootstrap.instrumentation.api.AgentPropagation;
+import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.util.BufferChunk;
+import org.glassfish.grizzly.http.util.DataChunk;
 import org.glassfish.grizzly.http.util.MimeHeaders;
 
 public class GrizzlyRequestExtractAdapter implements AgentPropagation.ContextVisitor<Request> {
@@ -12,12 +15,34 @@ public class GrizzlyRequestExtractAdapter implements AgentPropagation.ContextVis
 
   @Override
   public void forEachKey(Request carrier, AgentPropagation.KeyClassifier classifier) {
+    AgentPropagation.KeyFilter filter =
+        classifier instanceof AgentPropagation.KeyFilter
+            ? (AgentPropagation.KeyFilter) classifier
+            : null;
     MimeHeaders mimeHeaders = carrier.getRequest().getHeaders();
     for (int i = 0; i < mimeHeaders.size(); ++i) {
-      if (!classifier.accept(
-          mimeHeaders.getName(i).toString(UTF_8), mimeHeaders.getValue(i).toString(UTF_8))) {
+      DataChunk name = mimeHeaders.getName(i);
+      if (null != filter && !mayAccept(filter, name)) {
+        continue;
+      }
+      if (!classifier.accept(name.toString(UTF_8), mimeHeaders.getValue(i).toString(UTF_8))) {
         return;
       }
     }
   }
+
+  private static boolean mayAccept(AgentPropagation.KeyFilter filter, DataChunk name) {
+    // parsed headers point into the connection's read buffer
+    if (name.getType() == DataChunk.Type.Buffer) {
+      BufferChunk chunk = name.getBufferChunk();
+      Buffer buffer = chunk.getBuffer();
+      if (buffer.hasArray()) {
+        return filter.mayAccept(
+            buffer.array(),
+            buffer.arrayOffset() + chunk.getStart(),
+            chunk.getEnd() - chunk.getStart());
+      }
+    }
+    return filter.mayAccept(name.toString(UTF_8));
+  }
 }
@@ -2,7 +2,10 @@ package datadog.trace.instrumentation.grizzlyhttp232;
 
 import datadog.trace.bootstrap.instrumentation.api.AgentPropagation;
 import java.nio.charset.StandardCharsets;
+import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.http.HttpHeader;
+import org.glassfish.grizzly.http.util.BufferChunk;
+import org.glassfish.grizzly.http.util.DataChunk;
 import org.glassfish.grizzly.http.util.MimeHeaders;
 
 public class ExtractAdapter implements AgentPropagation.ContextVisitor<HttpHeader> {
@@ -10,13 +13,36 @@ public class ExtractAdapter implements AgentPropagation.ContextVisitor<HttpHeade
 
   @Override
   public void forEachKey(HttpHeader carrier, AgentPropagation.KeyClassifier classifier) {
+    AgentPropagation.KeyFilter filter =
+        classifier instanceof AgentPropagation.KeyFilter
+            ? (AgentPropagation.KeyFilter) classifier
+            : null;
     MimeHeaders headers = carrier.getHeaders();
     for (int i = 0; i < headers.size(); ++i) {
+      DataChunk name = headers.getName(i);
+      if (null != filter && !mayAccept(filter, name)) {
+        continue;
+      }
       if (!classifier.accept(
-          headers.getName(i).toString(StandardCharsets.UTF_8),
+          name.toString(StandardCharsets.UTF_8),
           headers.getValue(i).toString(StandardCharsets.UTF_8))) {
         return;
       }
     }
   }
+
+  private static boolean mayAccept(AgentPropagation.KeyFilter filter, DataChunk name) {
+    // parsed headers point into the connection's read buffer
+    if (name.getType() == DataChunk.Type.Buffer) {
+      BufferChunk chunk = name.getBufferChunk();
+      Buffer buffer = chunk.getBuffer();
+      if (buffer.hasArray()) {
+        return filter.mayAccept(
+            buffer.array(),
+            buffer.arrayOffset() + chunk.getStart(),
+            chunk.getEnd() - chunk.getStart());
+      }
+    }
+    return filter.mayAccept(name.toString(StandardCharsets.UTF_8));
+  }
 }
@@ -47,11 +47,11 @@ public final class JavaExecutorInstrumentation extends AbstractExecutorInstrumen
       // which calls ScheduledExecutorService.schedule (which we also instrument)
       // where all of this could be dodged the second time
       final TraceScope scope = activeScope();
-      if (null != scope) {
+      if (null != scope && scope.isAsyncPropagating()) {
         final Runnable newTask = RunnableWrapper.wrapIfNeeded(task);
         // It is important to check potentially wrapped task if we can instrument task in this
         // executor. Some executors do not support wrapped tasks.
-        if (ExecutorInstrumentationUtils.shouldAttachStateToTask(newTask, executor)) {
+        if (ExecutorInstrumentationUtils.shouldAttachStateToTask(newTask, executor, scope)) {
           task = newTask;
           final ContextStore<Runnable, State> contextStore =
               InstrumentationContext.get(Runnable.class, State.class);
@@ -2,6 +2,7 @@ package datadog.trace.instrumentation.jdbc;
 
 import static datadog.trace.bootstrap.instrumentation.api.Tags.DB_OPERATION;
 
+import datadog.trace.api.GenericClassValue;
 import datadog.trace.bootstrap.ContextStore;
 import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
 import datadog.trace.bootstrap.instrumentation.api.InternalSpanTypes;
@@ -14,9 +15,9 @@ import datadog.trace.bootstrap.instrumentation.jdbc.JDBCConnectionUrlParser;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 import java.sql.Statement;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,6 +34,14 @@ public class JDBCDecorator extends DatabaseClientDecorator<DBInfo> {
   private static final UTF8BytesString JDBC_PREPARED_STATEMENT =
       UTF8BytesString.create("java-jdbc-prepared_statement");
 
+  private static final int MAX_UNWRAP_DEPTH = 8;
+
+  // connection classes which can't be unwrapped, because unwrap is either unsupported or
+  // returns the connection itself, which is what physical connections do, so there's no
+  // point paying for the call again
+  private static final ClassValue<AtomicBoolean> CANNOT_UNWRAP =
+      GenericClassValue.constructing(AtomicBoolean.class);
+
   public static void logMissingQueryInfo(Statement statement) throws SQLException {
     if (log.isDebugEnabled()) {
       log.debug(
@@ -119,37 +128,21 @@ public class JDBCDecorator extends DatabaseClientDecorator<DBInfo> {
       if (dbInfo == null) {
         // first look for injected DBInfo in wrapped delegates
         Connection conn = connection;
-        Set<Connection> connections = new HashSet<>();
-        connections.add(conn);
-        try {
-          while (dbInfo == null) {
-            Connection delegate = conn.unwrap(Connection.class);
-            if (delegate == null || !connections.add(delegate)) {
-              // cycle detected, stop looking
-              break;
-            }
-            dbInfo = contextStore.get(delegate);
-            conn = delegate;
+        for (int depth = 0; dbInfo == null && depth < MAX_UNWRAP_DEPTH; ++depth) {
+          Connection delegate = unwrap(conn);
+          if (delegate == null) {
+            break;
           }
-        } catch (Throwable ignore) {
+          dbInfo = contextStore.get(delegate);
+          conn = delegate;
         }
         if (dbInfo == null) {
           // couldn't find DBInfo anywhere, so fall back to default
-          try {
-            final DatabaseMetaData metaData = connection.getMetaData();
-            final String url = metaData.getURL();
-            if (url != null) {
-              try {
-                dbInfo = JDBCConnectionUrlParser.extractDBInfo(url, connection.getClientInfo());
-              } catch (final Throwable ex) {
-                // getClientInfo is likely not allowed.
-                dbInfo = JDBCConnectionUrlParser.extractDBInfo(url, null);
-              }
-            } else {
-              dbInfo = DBInfo.DEFAULT;
-            }
-          } catch (final SQLException se) {
-            dbInfo = DBInfo.DEFAULT;
+          dbInfo = extractDBInfo(connection);
+          if (conn != connection) {
+            // pools hand out a new wrapper for each checkout, so store the DBInfo on the
+            // innermost connection too, so it can be found by unwrapping the next wrapper
+            contextStore.put(conn, dbInfo);
           }
         }
         // store the DBInfo on the outermost connection instance to avoid future searches
@@ -163,6 +156,45 @@ public class JDBCDecorator extends DatabaseClientDecorator<DBInfo> {
     return super.onConnection(span, dbInfo);
   }
 
+  private static Connection unwrap(final Connection connection) {
+    AtomicBoolean cannotUnwrap = CANNOT_UNWRAP.get(connection.getClass());
+    if (!cannotUnwrap.get()) {
+      try {
+        Connection delegate = connection.unwrap(Connection.class);
+        if (delegate != null && delegate != connection) {
+          return delegate;
+        }
+      } catch (SQLFeatureNotSupportedException unsupported) {
+      } catch (AbstractMethodError unsupported) {
+        // thrown by drivers written before unwrap was added in JDBC 4
+      } catch (Throwable e) {
+        // e.g. pool proxies throw once they're closed, other instances can still be unwrapped
+        return null;
+      }
+      cannotUnwrap.set(true);
+    }
+    return null;
+  }
+
+  private static DBInfo extractDBInfo(final Connection connection) {
+    try {
+      final DatabaseMetaData metaData = connection.getMetaData();
+      final String url = metaData.getURL();
+      if (url != null) {
+        try {
+          return JDBCConnectionUrlParser.extractDBInfo(url, connection.getClientInfo());
+        } catch (final Throwable ex) {
+          // getClientInfo is likely not allowed.
+          return JDBCConnectionUrlParser.extractDBInfo(url, null);
+        }
+      } else {
+        return DBInfo.DEFAULT;
+      }
+    } catch (final SQLException se) {
+      return DBInfo.DEFAULT;
+    }
+  }
+
   public AgentSpan onStatement(AgentSpan span, DBQueryInfo dbQueryInfo) {
     return withQueryInfo(span, dbQueryInfo, JDBC_STATEMENT);
   }
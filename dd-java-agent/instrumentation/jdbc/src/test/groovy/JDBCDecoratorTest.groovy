@@ -0,0 +1,156 @@
+import datadog.trace.agent.test.AgentTestRunner
+import datadog.trace.bootstrap.ContextStore
+import datadog.trace.bootstrap.instrumentation.api.AgentSpan
+import datadog.trace.bootstrap.instrumentation.jdbc.DBInfo
+import test.TestConnection
+import test.WrappedConnection
+
+import java.sql.Connection
+import java.sql.DatabaseMetaData
+import java.sql.SQLException
+import java.sql.SQLFeatureNotSupportedException
+
+import static datadog.trace.bootstrap.instrumentation.jdbc.JDBCConnectionUrlParser.extractDBInfo
+import static datadog.trace.instrumentation.jdbc.JDBCDecorator.DECORATE
+
+class JDBCDecoratorTest extends AgentTestRunner {
+
+  static final DBInfo POSTGRES = extractDBInfo("jdbc:postgresql://pghost:5432/pgdb", null)
+
+  def contextStore = new MapContextStore()
+
+  def "DBInfo is found on a wrapped connection"() {
+    setup:
+    def physical = new TestConnection(false)
+    contextStore.put(physical, POSTGRES)
+    def wrapper = new WrappedConnection(new WrappedConnection(physical))
+
+    when:
+    DECORATE.onConnection(Stub(AgentSpan), wrapper, contextStore)
+
+    then:
+    contextStore.get(wrapper) == POSTGRES
+  }
+
+  def "DBInfo read from a wrapped connection is shared with its delegate"() {
+    setup:
+    def physical = new TestConnection(false)
+    def first = new WrappedConnection(physical)
+    def second = new WrappedConnection(physical)
+
+    when:
+    DECORATE.onConnection(Stub(AgentSpan), first, contextStore)
+
+    then:
+    contextStore.get(physical).type == "testdb"
+
+    when:
+    DECORATE.onConnection(Stub(AgentSpan), second, contextStore)
+
+    then:
+    contextStore.get(second).is(contextStore.get(physical))
+  }
+
+  def "a closed wrapper doesn't stop other wrappers of its class being unwrapped"() {
+    setup:
+    def physical = new TestConnection(false)
+    contextStore.put(physical, POSTGRES)
+    def closed = new ClosableConnection(physical)
+    closed.close()
+    def open = new ClosableConnection(physical)
+
+    when:
+    DECORATE.onConnection(Stub(AgentSpan), closed, contextStore)
+
+    then:
+    contextStore.get(closed) == DBInfo.DEFAULT
+
+    when:
+    DECORATE.onConnection(Stub(AgentSpan), open, contextStore)
+
+    then:
+    contextStore.get(open) == POSTGRES
+  }
+
+  def "connections which don't support unwrap are only asked once"() {
+    setup:
+    def first = new UnsupportedUnwrapConnection()
+    def second = new UnsupportedUnwrapConnection()
+
+    when:
+    DECORATE.onConnection(Stub(AgentSpan), first, contextStore)
+    DECORATE.onConnection(Stub(AgentSpan), second, contextStore)
+
+    then:
+    UnsupportedUnwrapConnection.unwrapCalls == 1
+    contextStore.get(second).type == "testdb"
+  }
+
+  /** A pool proxy which, like Hikari's and DBCP's, can't be used once it's been closed. */
+  static class ClosableConnection extends WrappedConnection {
+    boolean closed
+
+    ClosableConnection(Connection delegate) {
+      super(delegate)
+    }
+
+    @Override
+    void close() {
+      closed = true
+    }
+
+    @Override
+    def <T> T unwrap(Class<T> iface) throws SQLException {
+      if (closed) {
+        throw new SQLException("Connection is closed")
+      }
+      return super.unwrap(iface)
+    }
+
+    @Override
+    DatabaseMetaData getMetaData() throws SQLException {
+      if (closed) {
+        throw new SQLException("Connection is closed")
+      }
+      return super.getMetaData()
+    }
+  }
+
+  static class UnsupportedUnwrapConnection extends TestConnection {
+    static int unwrapCalls
+
+    UnsupportedUnwrapConnection() {
+      super(false)
+    }
+
+    @Override
+    def <T> T unwrap(Class<T> iface) throws SQLException {
+      ++unwrapCalls
+      throw new SQLFeatureNotSupportedException()
+    }
+  }
+
+  static class MapContextStore implements ContextStore<Connection, DBInfo> {
+    final Map<Connection, DBInfo> map = new IdentityHashMap<>()
+
+    @Override
+    DBInfo get(Connection key) {
+      return map.get(key)
+    }
+
+    @Override
+    void put(Connection key, DBInfo context) {
+      map.put(key, context)
+    }
+
+    @Override
+    DBInfo putIfAbsent(Connection key, DBInfo context) {
+      return map.putIfAbsent(key, context)
+    }
+
+    @Override
+    DBInfo putIfAbsent(Connection key, ContextStore.Factory<DBInfo> contextFactory) {
+      return map.computeIfAbsent(key, { contextFactory.create() })
+    }
+  }
+}
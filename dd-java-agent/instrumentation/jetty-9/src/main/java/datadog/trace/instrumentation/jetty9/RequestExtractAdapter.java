@@ -11,10 +11,18 @@ public class RequestExtractAdapter implements AgentPropagation.ContextVisitor<Re
 
   @Override
   public void forEachKey(Request carrier, AgentPropagation.KeyClassifier classifier) {
+    AgentPropagation.KeyFilter filter =
+        classifier instanceof AgentPropagation.KeyFilter
+            ? (AgentPropagation.KeyFilter) classifier
+            : null;
     HttpFields headers = carrier.getHttpFields();
     for (int i = 0; i < headers.size(); ++i) {
       HttpField field = headers.getField(i);
-      if (!classifier.accept(field.getName(), field.getValue())) {
+      String name = field.getName();
+      if (null != filter && !filter.mayAccept(name)) {
+        continue;
+      }
+      if (!classifier.accept(name, field.getValue())) {
         return;
       }
     }
@@ -67,6 +67,7 @@ public class NettyChannelPipelineInstrumentation extends Instrumenter.Tracing {
       packageName + ".client.HttpClientTracingHandler",
       // server helpers
       packageName + ".server.NettyHttpServerDecorator",
+      packageName + ".server.NettyRequestExtractAdapter",
       packageName + ".server.HttpServerRequestTracingHandler",
       packageName + ".server.HttpServerResponseTracingHandler",
       packageName + ".server.HttpServerTracingHandler"
@@ -10,7 +10,6 @@ import static datadog.trace.instrumentation.netty41.server.NettyHttpServerDecora
 import datadog.trace.bootstrap.instrumentation.api.AgentScope;
 import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
 import datadog.trace.bootstrap.instrumentation.api.AgentSpan.Context;
-import datadog.trace.bootstrap.instrumentation.api.ContextVisitors;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
@@ -39,7 +38,7 @@ public class HttpServerRequestTracingHandler extends ChannelInboundHandlerAdapte
     final HttpRequest request = (HttpRequest) msg;
 
     final Context.Extracted extractedContext =
-        propagate().extract(request.headers(), ContextVisitors.stringValuesEntrySet());
+        propagate().extract(request.headers(), NettyRequestExtractAdapter.GETTER);
 
     final AgentSpan span = startSpan(NETTY_REQUEST, extractedContext);
     span.setMeasured(true);
@@ -0,0 +1,33 @@
+package datadog.trace.instrumentation.netty41.server;
+
+import datadog.trace.bootstrap.instrumentation.api.AgentPropagation;
+import io.netty.handler.codec.http.HttpHeaders;
+import java.util.Iterator;
+import java.util.Map;
+
+public class NettyRequestExtractAdapter implements AgentPropagation.ContextVisitor<HttpHeaders> {
+
+  public static final NettyRequestExtractAdapter GETTER = new NettyRequestExtractAdapter();
+
+  @Override
+  public void forEachKey(HttpHeaders headers, AgentPropagation.KeyClassifier classifier) {
+    // iterating the headers as strings converts every name and value,
+    // so only convert the headers the classifier may be interested in
+    AgentPropagation.KeyFilter filter =
+        classifier instanceof AgentPropagation.KeyFilter
+            ? (AgentPropagation.KeyFilter) classifier
+            : null;
+    Iterator<Map.Entry<CharSequence, CharSequence>> it = headers.iteratorCharSequence();
+    while (it.hasNext()) {
+      Map.Entry<CharSequence, CharSequence> header = it.next();
+      CharSequence name = header.getKey();
+      if (null != filter && !filter.mayAccept(name)) {
+        continue;
+      }
+      CharSequence value = header.getValue();
+      if (!classifier.accept(name.toString(), null == value ? null : value.toString())) {
+        return;
+      }
+    }
+  }
+}
@@ -121,6 +121,10 @@ public class OtelSpan implements Span, MutableSpan {
     return delegate;
   }
 
+  TypeConverter getConverter() {
+    return converter;
+  }
+
   @Override
   public long getStartTime() {
     return delegate.getStartTime();
@@ -7,10 +7,9 @@ import io.opentelemetry.context.Scope;
 import io.opentelemetry.trace.Span;
 import io.opentelemetry.trace.SpanContext;
 
-// Centralized place to do conversions
+// Centralized place to do conversions. Span and context facades are cached on the span and
+// context they adapt, so converting the same span repeatedly doesn't allocate.
 public class TypeConverter {
-  // TODO maybe add caching to reduce new objects being created
-
   public AgentSpan toAgentSpan(final Span span) {
     if (span instanceof OtelSpan) {
       return ((OtelSpan) span).getDelegate();
@@ -22,7 +21,13 @@ public class TypeConverter {
     if (agentSpan == null) {
       return null;
     }
-    return new OtelSpan(agentSpan, this);
+    final Object facade = agentSpan.getFacade(AgentSpan.OPENTELEMETRY_FACADE);
+    if (facade instanceof OtelSpan && ((OtelSpan) facade).getConverter() == this) {
+      return (OtelSpan) facade;
+    }
+    final OtelSpan span = new OtelSpan(agentSpan, this);
+    agentSpan.setFacade(AgentSpan.OPENTELEMETRY_FACADE, span);
+    return span;
   }
 
   public Scope toScope(final AgentScope scope) {
@@ -36,7 +41,13 @@ public class TypeConverter {
     if (context == null) {
       return null;
     }
-    return new OtelSpanContext(context);
+    final Object facade = context.getFacade(AgentSpan.OPENTELEMETRY_FACADE);
+    if (facade instanceof OtelSpanContext) {
+      return (OtelSpanContext) facade;
+    }
+    final OtelSpanContext spanContext = new OtelSpanContext(context);
+    context.setFacade(AgentSpan.OPENTELEMETRY_FACADE, spanContext);
+    return spanContext;
   }
 
   public AgentSpan.Context toContext(final SpanContext spanContext) {
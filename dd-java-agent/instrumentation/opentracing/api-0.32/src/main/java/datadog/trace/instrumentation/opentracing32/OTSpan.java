@@ -212,6 +212,10 @@ class OTSpan implements Span, MutableSpan {
     return delegate;
   }
 
+  TypeConverter getConverter() {
+    return converter;
+  }
+
   @Override
   public boolean equals(final Object o) {
     if (this == o) {
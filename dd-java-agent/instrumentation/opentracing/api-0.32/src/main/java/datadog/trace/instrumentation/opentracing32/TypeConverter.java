@@ -9,10 +9,9 @@ import io.opentracing.Scope;
 import io.opentracing.Span;
 import io.opentracing.SpanContext;
 
-// Centralized place to do conversions
+// Centralized place to do conversions. Span and context facades are cached on the span and
+// context they adapt, so converting the same span repeatedly doesn't allocate.
 public class TypeConverter {
-  // TODO maybe add caching to reduce new objects being created
-
   private final LogHandler logHandler;
 
   public TypeConverter(final LogHandler logHandler) {
@@ -30,7 +29,13 @@ public class TypeConverter {
     if (agentSpan == null) {
       return null;
     }
-    return new OTSpan(agentSpan, this, logHandler);
+    final Object facade = agentSpan.getFacade(AgentSpan.OPENTRACING_FACADE);
+    if (facade instanceof OTSpan && ((OTSpan) facade).getConverter() == this) {
+      return (OTSpan) facade;
+    }
+    final OTSpan span = new OTSpan(agentSpan, this, logHandler);
+    agentSpan.setFacade(AgentSpan.OPENTRACING_FACADE, span);
+    return span;
   }
 
   // FIXME [API] Need to use the runtime type not compile-time type so "Object" is used
@@ -50,7 +55,13 @@ public class TypeConverter {
     if (context == null) {
       return null;
     }
-    return new OTSpanContext(context);
+    final Object facade = context.getFacade(AgentSpan.OPENTRACING_FACADE);
+    if (facade instanceof OTSpanContext) {
+      return (OTSpanContext) facade;
+    }
+    final OTSpanContext spanContext = new OTSpanContext(context);
+    context.setFacade(AgentSpan.OPENTRACING_FACADE, spanContext);
+    return spanContext;
   }
 
   public AgentSpan.Context toContext(final SpanContext spanContext) {
@@ -2,6 +2,7 @@ package datadog.trace.instrumentation.tomcat;
 
 import datadog.trace.bootstrap.instrumentation.api.AgentPropagation;
 import org.apache.coyote.Request;
+import org.apache.tomcat.util.buf.ByteChunk;
 import org.apache.tomcat.util.buf.MessageBytes;
 import org.apache.tomcat.util.http.MimeHeaders;
 
@@ -11,13 +12,30 @@ public class RequestExtractAdapter implements AgentPropagation.ContextVisitor<Re
 
   @Override
   public void forEachKey(Request carrier, AgentPropagation.KeyClassifier classifier) {
+    // header names and values are held as bytes until something asks for them,
+    // so only decode the headers the classifier may be interested in
+    AgentPropagation.KeyFilter filter =
+        classifier instanceof AgentPropagation.KeyFilter
+            ? (AgentPropagation.KeyFilter) classifier
+            : null;
     MimeHeaders headers = carrier.getMimeHeaders();
     for (int i = 0; i < headers.size(); ++i) {
       MessageBytes header = headers.getName(i);
+      if (null != filter && !mayAccept(filter, header)) {
+        continue;
+      }
       MessageBytes value = headers.getValue(i);
       if (!classifier.accept(header.toString(), value.toString())) {
         return;
       }
     }
   }
+
+  private static boolean mayAccept(AgentPropagation.KeyFilter filter, MessageBytes header) {
+    if (header.getType() == MessageBytes.T_BYTES) {
+      ByteChunk bytes = header.getByteChunk();
+      return filter.mayAccept(bytes.getBuffer(), bytes.getStart(), bytes.getLength());
+    }
+    return filter.mayAccept(header.toString());
+  }
 }
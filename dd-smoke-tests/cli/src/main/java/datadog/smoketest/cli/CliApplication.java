@@ -1,11 +1,15 @@
 package datadog.smoketest.cli;
 
 import datadog.trace.api.Trace;
+import java.lang.management.ManagementFactory;
 
 /** Simple application that sleeps then quits. */
 public class CliApplication {
 
   public static void main(final String[] args) throws InterruptedException {
+    System.out.println(
+        "Application started after " + ManagementFactory.getRuntimeMXBean().getUptime() + "ms");
+
     final CliApplication app = new CliApplication();
 
     // Sleep to ensure all of the processes are running
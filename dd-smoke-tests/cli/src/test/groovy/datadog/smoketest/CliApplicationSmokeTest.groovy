@@ -33,6 +33,12 @@ abstract class CliApplicationSmokeTest extends AbstractSmokeTest {
     return Collections.emptyList()
   }
 
+  void verifyLog(List<String> lines) {
+    def started = lines.find { it.startsWith("Application started after ") }
+    assert started != null
+    println "${getClass().simpleName}: ${started}"
+  }
+
   // TODO: once java7 support is dropped use waitFor() with timeout call added in java8
   // instead of timeout on test
   @Timeout(value = TIMEOUT_SECS, unit = TimeUnit.SECONDS)
@@ -45,6 +51,7 @@ abstract class CliApplicationSmokeTest extends AbstractSmokeTest {
       assert traceRequests.poll(REQUEST_TIMEOUT, TimeUnit.SECONDS)?.getHeader("X-Datadog-Trace-Count")?.size() > 0
     }
     assert testedProcess.waitFor() == 0
+    verifyLog(new File(logFilePath).readLines())
   }
 }
 
@@ -59,3 +66,16 @@ class NoKeystoreTest extends CliApplicationSmokeTest {
     ]
   }
 }
+
+class ClassDataBlobCLITest extends CliApplicationSmokeTest {
+  List<String> additionalArguments() {
+    String classDataBlob = System.getProperty("datadog.smoketest.agent.classdata.path")
+    assert new File(classDataBlob).isFile()
+    return ["-Ddd.agent.classdata.blob=${classDataBlob}".toString()]
+  }
+
+  void verifyLog(List<String> lines) {
+    assert lines.any { it.contains("Mapped class data blob") }
+    super.verifyLog(lines)
+  }
+}
@@ -27,6 +27,10 @@ public final class ConfigDefaults {
 
   static final boolean DEFAULT_TRACE_ENABLED = true;
   static final boolean DEFAULT_INTEGRATIONS_ENABLED = true;
+  static final boolean DEFAULT_INTEGRATIONS_PHASED_INSTALL = false;
+  static final String DEFAULT_INTEGRATIONS_CRITICAL =
+      "servlet,servlet-filter,servlet-service,netty,jdbc,jdbc-datasource,"
+          + "httpurlconnection,httpclient,okhttp,java_concurrent";
   static final String DEFAULT_AGENT_WRITER_TYPE = "DDAgentWriter";
 
   static final boolean DEFAULT_RUNTIME_CONTEXT_FIELD_INJECTION = true;
@@ -41,11 +45,21 @@ public final class ConfigDefaults {
   static final boolean DEFAULT_HTTP_CLIENT_SPLIT_BY_DOMAIN = false;
   static final boolean DEFAULT_DB_CLIENT_HOST_SPLIT_BY_INSTANCE = false;
   static final int DEFAULT_SCOPE_DEPTH_LIMIT = 100;
+  static final int DEFAULT_ERROR_STACK_MAX_FRAMES = 0; // unlimited
   static final int DEFAULT_PARTIAL_FLUSH_MIN_SPANS = 1000;
+  static final int DEFAULT_SPAN_STREAMING_CHUNK_SIZE = 0; // disabled
+  static final int DEFAULT_SPAN_BUDGET = 0; // unlimited
+  static final int DEFAULT_SPAN_BUDGET_MB = 0; // unlimited
   static final String DEFAULT_PROPAGATION_STYLE_EXTRACT = PropagationStyle.DATADOG.name();
   static final String DEFAULT_PROPAGATION_STYLE_INJECT = PropagationStyle.DATADOG.name();
   static final boolean DEFAULT_JMX_FETCH_ENABLED = true;
   static final boolean DEFAULT_TRACE_AGENT_V05_ENABLED = false;
+  static final boolean DEFAULT_TRACE_SPILL_ENABLED = false;
+  static final int DEFAULT_TRACE_SPILL_SIZE_MB = 64;
+  static final int DEFAULT_TRACE_QUEUE_BUDGET_MB = 0; // unlimited
+  static final boolean DEFAULT_TAIL_SAMPLING_ENABLED = false;
+  static final int DEFAULT_TAIL_SAMPLING_RATE_LIMIT = 100; // traces per second, per policy
+  static final int DEFAULT_TAIL_SAMPLING_LATENCY_THRESHOLD_MS = 1000;
 
   static final int DEFAULT_DOGSTATSD_START_DELAY = 15; // seconds
 
@@ -67,6 +81,7 @@ public final class ConfigDefaults {
   static final int DEFAULT_PROFILING_EXCEPTION_HISTOGRAM_MAX_COLLECTION_SIZE = 10000;
   static final boolean DEFAULT_PROFILING_AGENTLESS = false;
   static final boolean DEFAULT_PROFILING_LEGACY_TRACING_INTEGRATION = true;
+  static final boolean DEFAULT_PROFILING_TRACER_PIPELINE_EVENTS = false;
 
   static final boolean DEFAULT_KAFKA_CLIENT_PROPAGATION_ENABLED = true;
 
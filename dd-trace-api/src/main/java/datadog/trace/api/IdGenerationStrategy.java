@@ -6,18 +6,23 @@ import java.util.concurrent.atomic.AtomicLong;
 public enum IdGenerationStrategy {
   RANDOM {
     @Override
-    public DDId generate() {
-      return DDId.from(ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE));
+    public long generateLong() {
+      return ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
     }
   },
   SEQUENTIAL {
     private final AtomicLong id = new AtomicLong(0);
 
     @Override
-    public DDId generate() {
-      return DDId.from(id.incrementAndGet());
+    public long generateLong() {
+      return id.incrementAndGet();
     }
   };
 
-  public abstract DDId generate();
+  public DDId generate() {
+    return DDId.from(generateLong());
+  }
+
+  /** @return the bits of a new id, for callers which only need a {@link DDId} later, if at all */
+  public abstract long generateLong();
 }
@@ -42,11 +42,17 @@ public final class ProfilingConfig {
       "profiling.exception.histogram.max-collection-size";
   public static final String PROFILING_EXCLUDE_AGENT_THREADS = "profiling.exclude.agent-threads";
   public static final String PROFILING_HOTSPOTS_ENABLED = "profiling.hotspots.enabled";
+  public static final String PROFILING_STREAMING_ENABLED = "profiling.streaming.enabled";
 
   public static final String PROFILING_LEGACY_TRACING_INTEGRATION =
       "profiling.legacy.tracing.integration";
   public static final String PROFILING_CHECKPOINTS_RECORD_CPU_TIME =
       "profiling.checkpoints.record.cpu.time";
+  public static final String PROFILING_CHECKPOINTS_BUFFER_SIZE =
+      "profiling.checkpoints.buffer.size";
+  public static final int PROFILING_CHECKPOINTS_BUFFER_SIZE_DEFAULT = 256;
+  public static final String PROFILING_TRACER_PIPELINE_EVENTS =
+      "profiling.tracer.pipeline.events";
 
   // Not intended for production use
   public static final String PROFILING_AGENTLESS = "profiling.agentless";
@@ -11,6 +11,8 @@ package datadog.trace.api.config;
 public final class TraceInstrumentationConfig {
   public static final String TRACE_ENABLED = "trace.enabled";
   public static final String INTEGRATIONS_ENABLED = "integrations.enabled";
+  public static final String INTEGRATIONS_PHASED_INSTALL = "integrations.phased.install";
+  public static final String INTEGRATIONS_CRITICAL = "integrations.critical";
 
   public static final String TRACE_ANNOTATIONS = "trace.annotations";
   public static final String TRACE_EXECUTORS_ALL = "trace.executors.all";
@@ -37,6 +37,7 @@ public final class TracerConfig {
   public static final String HEADER_TAGS = "trace.header.tags";
   public static final String HTTP_SERVER_ERROR_STATUSES = "http.server.error.statuses";
   public static final String HTTP_CLIENT_ERROR_STATUSES = "http.client.error.statuses";
+  public static final String ERROR_STACK_MAX_FRAMES = "trace.error.stack.max.frames";
 
   public static final String SPLIT_BY_TAGS = "trace.split-by-tags";
 
@@ -45,11 +46,30 @@ public final class TracerConfig {
   public static final String SCOPE_INHERIT_ASYNC_PROPAGATION =
       "trace.scope.inherit.async.propagation";
   public static final String PARTIAL_FLUSH_MIN_SPANS = "trace.partial.flush.min.spans";
+  public static final String SPAN_STREAMING_CHUNK_SIZE = "trace.span.streaming.chunk.size";
+  public static final String SPAN_BUDGET = "trace.span.budget";
+  public static final String SPAN_BUDGET_MB = "trace.span.budget.mb";
   public static final String TRACE_STRICT_WRITES_ENABLED = "trace.strict.writes.enabled";
   public static final String PROPAGATION_STYLE_EXTRACT = "propagation.style.extract";
   public static final String PROPAGATION_STYLE_INJECT = "propagation.style.inject";
 
   public static final String ENABLE_TRACE_AGENT_V05 = "trace.agent.v0.5.enabled";
 
+  public static final String TRACE_SPILL_ENABLED = "trace.spill.enabled";
+  public static final String TRACE_SPILL_FILE = "trace.spill.file";
+  public static final String TRACE_SPILL_SIZE_MB = "trace.spill.size.mb";
+
+  public static final String TRACE_QUEUE_BUDGET_MB = "trace.queue.budget.mb";
+
+  public static final String TAIL_SAMPLING_ENABLED = "trace.tail.sampling.enabled";
+  public static final String TAIL_SAMPLING_ERROR_RATE_LIMIT =
+      "trace.tail.sampling.error.rate.limit";
+  public static final String TAIL_SAMPLING_LATENCY_THRESHOLD_MS =
+      "trace.tail.sampling.latency.threshold.ms";
+  public static final String TAIL_SAMPLING_LATENCY_RATE_LIMIT =
+      "trace.tail.sampling.latency.rate.limit";
+  public static final String TAIL_SAMPLING_TAGS = "trace.tail.sampling.tags";
+  public static final String TAIL_SAMPLING_TAGS_RATE_LIMIT = "trace.tail.sampling.tags.rate.limit";
+
   private TracerConfig() {}
 }
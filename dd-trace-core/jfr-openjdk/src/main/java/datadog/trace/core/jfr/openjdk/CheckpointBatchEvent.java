@@ -0,0 +1,87 @@
+package datadog.trace.core.jfr.openjdk;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * The checkpoints recorded by a thread since its previous batch.
+ *
+ * <p>The checkpoints are packed into a single string field, rather than one event per checkpoint,
+ * so the layout of {@link #checkpoints} is versioned by {@link #formatVersion}. In version {@value
+ * #FORMAT_VERSION} the field is the standard Base64 encoding (RFC 4648, with padding) of {@link
+ * #checkpointCount} records laid out back to back, each made of the following unsigned LEB128
+ * varints:
+ *
+ * <ol>
+ *   <li>the checkpoint flags, as defined in {@code datadog.trace.api.Checkpointer}
+ *   <li>the zigzag encoded difference between the {@code System.nanoTime()} of the checkpoint and
+ *       of the previous checkpoint in the batch, the first checkpoint being at {@link
+ *       #startNanoTime}
+ *   <li>the trace id, as the 64 bits of the id
+ *   <li>the span id, as the 64 bits of the id
+ *   <li>only if the {@code CPU} flag is set, the zigzag encoded thread CPU time in nanoseconds
+ * </ol>
+ *
+ * Adding {@link #epochOffset} to a checkpoint's nano time gives nanoseconds since the epoch. Any
+ * change to this layout must increment {@link #FORMAT_VERSION}.
+ */
+@Name("datadog.CheckpointBatch")
+@Label("Checkpoint Batch")
+@Description("Datadog event holding the tracing checkpoints recorded by a thread.")
+@Category("Datadog")
+@StackTrace(false)
+@Period("endChunk")
+public class CheckpointBatchEvent extends Event {
+
+  static final int FORMAT_VERSION = 1;
+
+  @Label("Format Version")
+  @Description("The version of the layout of the checkpoints field")
+  private final int formatVersion;
+
+  @Label("Checkpoint Thread")
+  private final Thread checkpointThread;
+
+  @Label("Checkpoint Count")
+  private final int checkpointCount;
+
+  @Label("Dropped Checkpoints")
+  @Description("Checkpoints dropped by the thread since its previous batch")
+  private final long droppedCount;
+
+  @Label("Start Nano Time")
+  @Description("The System.nanoTime() of the first checkpoint")
+  private final long startNanoTime;
+
+  @Label("Epoch Offset")
+  @Description("Nanoseconds to add to a System.nanoTime() to get nanoseconds since the epoch")
+  private final long epochOffset;
+
+  @Label("Checkpoints")
+  @Description(
+      "Base64 encoded unsigned LEB128 varints, for each checkpoint: flags, zigzag encoded nano "
+          + "time delta from the previous checkpoint, trace id, span id and, if the CPU flag is "
+          + "set, zigzag encoded thread CPU time. The layout depends on the format version")
+  private final String checkpoints;
+
+  public CheckpointBatchEvent(
+      Thread checkpointThread,
+      int checkpointCount,
+      long droppedCount,
+      long startNanoTime,
+      long epochOffset,
+      String checkpoints) {
+    this.formatVersion = FORMAT_VERSION;
+    this.checkpointThread = checkpointThread;
+    this.checkpointCount = checkpointCount;
+    this.droppedCount = droppedCount;
+    this.startNanoTime = startNanoTime;
+    this.epochOffset = epochOffset;
+    this.checkpoints = checkpoints;
+  }
+}
@@ -0,0 +1,147 @@
+package datadog.trace.core.jfr.openjdk;
+
+import static datadog.trace.api.Checkpointer.CPU;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread's preallocated ring of checkpoint records, so recording a checkpoint is a few stores
+ * rather than a JFR event commit.
+ *
+ * <p>Only the owning thread records into the ring, and it never drains it: the ring is drained
+ * into a {@link CheckpointBatchEvent} by a background task and at chunk rotation. Checkpoints
+ * recorded while the ring is full are dropped and counted. The owning thread is only weakly
+ * referenced, so a ring doesn't keep a dead thread alive.
+ */
+final class CheckpointRing {
+
+  // trace id, span id, flags, nano time, cpu time
+  private static final int STRIDE = 5;
+  private static final int MAX_CAPACITY = 1 << 16;
+
+  private static final AtomicLongFieldUpdater<CheckpointRing> HEAD =
+      AtomicLongFieldUpdater.newUpdater(CheckpointRing.class, "head");
+  private static final AtomicLongFieldUpdater<CheckpointRing> TAIL =
+      AtomicLongFieldUpdater.newUpdater(CheckpointRing.class, "tail");
+  private static final AtomicLongFieldUpdater<CheckpointRing> DROPPED =
+      AtomicLongFieldUpdater.newUpdater(CheckpointRing.class, "dropped");
+
+  private final WeakReference<Thread> owner;
+  private final long[] records;
+  private final int mask;
+  private final ReentrantLock drainLock = new ReentrantLock();
+
+  // the next checkpoint to record, only written by the owning thread
+  private volatile long head;
+  // the next checkpoint to drain, only written while holding the drain lock
+  private volatile long tail;
+  // only written by the owning thread
+  private volatile long dropped;
+  // guarded by the drain lock
+  private long reportedDrops;
+
+  CheckpointRing(Thread owner, int capacity) {
+    this.owner = new WeakReference<>(owner);
+    int size = Math.min(MAX_CAPACITY, Math.max(2, capacity));
+    size = 1 << (32 - Integer.numberOfLeadingZeros(size - 1));
+    this.records = new long[size * STRIDE];
+    this.mask = size - 1;
+  }
+
+  int capacity() {
+    return mask + 1;
+  }
+
+  boolean isOwnerAlive() {
+    Thread thread = owner.get();
+    return null != thread && thread.isAlive();
+  }
+
+  long getDropped() {
+    return dropped;
+  }
+
+  /** Records a checkpoint, must only be called by the owning thread. */
+  void record(long traceId, long spanId, int flags, long nanoTime, long cpuTime) {
+    long h = head;
+    if (h - tail > mask) {
+      DROPPED.lazySet(this, dropped + 1);
+      return;
+    }
+    int i = (int) (h & mask) * STRIDE;
+    records[i] = traceId;
+    records[i + 1] = spanId;
+    records[i + 2] = flags;
+    records[i + 3] = nanoTime;
+    records[i + 4] = cpuTime;
+    HEAD.lazySet(this, h + 1);
+  }
+
+  /** Drains the ring, waiting for any other thread draining it. */
+  void drain() {
+    drainLock.lock();
+    try {
+      drainLocked();
+    } finally {
+      drainLock.unlock();
+    }
+  }
+
+  private void drainLocked() {
+    long h = head;
+    long t = tail;
+    long drops = dropped - reportedDrops;
+    if (h == t && drops == 0) {
+      return;
+    }
+    CheckpointBatchEvent event =
+        new CheckpointBatchEvent(
+            owner.get(),
+            (int) (h - t),
+            drops,
+            h == t ? 0 : records[(int) (t & mask) * STRIDE + 3],
+            TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()) - System.nanoTime(),
+            encode(t, h));
+    TAIL.lazySet(this, h);
+    reportedDrops += drops;
+    event.commit();
+  }
+
+  String encode(long from, long to) {
+    byte[] buffer = new byte[(int) (to - from) * STRIDE * 10];
+    int position = 0;
+    long previousNanoTime = from == to ? 0 : records[(int) (from & mask) * STRIDE + 3];
+    for (long s = from; s < to; ++s) {
+      int i = (int) (s & mask) * STRIDE;
+      int flags = (int) records[i + 2];
+      long nanoTime = records[i + 3];
+      position = writeVarint(buffer, position, flags);
+      position = writeVarint(buffer, position, zigzag(nanoTime - previousNanoTime));
+      position = writeVarint(buffer, position, records[i]);
+      position = writeVarint(buffer, position, records[i + 1]);
+      if ((flags & CPU) != 0) {
+        position = writeVarint(buffer, position, zigzag(records[i + 4]));
+      }
+      previousNanoTime = nanoTime;
+    }
+    return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer, position));
+  }
+
+  private static long zigzag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static int writeVarint(byte[] buffer, int position, long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buffer[position++] = (byte) value;
+    return position;
+  }
+}
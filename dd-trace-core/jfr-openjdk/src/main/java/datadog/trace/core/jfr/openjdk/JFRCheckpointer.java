@@ -1,35 +1,95 @@
 package datadog.trace.core.jfr.openjdk;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
 import datadog.trace.api.Checkpointer;
 import datadog.trace.api.DDId;
 import datadog.trace.api.config.ProfilingConfig;
 import datadog.trace.bootstrap.config.provider.ConfigProvider;
+import datadog.trace.core.util.SystemAccess;
+import datadog.trace.util.AgentTaskScheduler;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
 
+/**
+ * Records checkpoints into a ring per thread, which is drained into a {@link CheckpointBatchEvent}
+ * by a background task and at every chunk rotation, so a checkpoint costs a few stores rather than
+ * a JFR event commit. Application threads never drain their ring, checkpoints recorded while it is
+ * full are dropped and counted instead.
+ */
 public final class JFRCheckpointer implements Checkpointer {
 
   private static final boolean RECORD_CPU_TIME =
       ConfigProvider.createDefault()
           .getBoolean(ProfilingConfig.PROFILING_CHECKPOINTS_RECORD_CPU_TIME, false);
 
+  private static final int RING_CAPACITY =
+      ConfigProvider.createDefault()
+          .getInteger(
+              ProfilingConfig.PROFILING_CHECKPOINTS_BUFFER_SIZE,
+              ProfilingConfig.PROFILING_CHECKPOINTS_BUFFER_SIZE_DEFAULT);
+
   private static final int MASK = RECORD_CPU_TIME ? -1 : ~CPU;
 
+  private static final long DRAIN_INTERVAL_MILLIS = 1000;
+
+  private final EventType batchEventType;
+  private final Set<CheckpointRing> rings = ConcurrentHashMap.newKeySet();
+  private final ThreadLocal<CheckpointRing> threadRing =
+      ThreadLocal.withInitial(
+          () -> {
+            CheckpointRing ring = new CheckpointRing(Thread.currentThread(), RING_CAPACITY);
+            rings.add(ring);
+            return ring;
+          });
+
   public JFRCheckpointer() {
     ExcludedVersions.checkVersionExclusion();
-    // Note: Loading CheckpointEvent when JFRCheckpointer is loaded is important because it also
-    // loads
-    // JFR classes - which may not be present on some JVMs
-    EventType.getEventType(CheckpointEvent.class);
+    // Note: Loading CheckpointBatchEvent when JFRCheckpointer is loaded is important because it
+    // also loads JFR classes - which may not be present on some JVMs
+    this.batchEventType = EventType.getEventType(CheckpointBatchEvent.class);
     EventType.getEventType(RouteEvent.class);
+    FlightRecorder.addPeriodicEvent(CheckpointBatchEvent.class, this::drainRings);
+    AgentTaskScheduler.INSTANCE.weakScheduleAtFixedRate(
+        new DrainRings(), this, DRAIN_INTERVAL_MILLIS, DRAIN_INTERVAL_MILLIS, MILLISECONDS);
   }
 
   @Override
   public void checkpoint(DDId traceId, DDId spanId, int flags) {
-    new CheckpointEvent(traceId.toLong(), spanId.toLong(), flags & MASK).commit();
+    if (batchEventType.isEnabled()) {
+      int maskedFlags = flags & MASK;
+      long cpuTime = (maskedFlags & CPU) != 0 ? SystemAccess.getCurrentThreadCpuTime() : 0L;
+      threadRing
+          .get()
+          .record(traceId.toLong(), spanId.toLong(), maskedFlags, System.nanoTime(), cpuTime);
+    }
   }
 
   @Override
   public void onRootSpanPublished(String route, DDId traceId) {
     new RouteEvent(route, traceId.toLong()).commit();
   }
+
+  /** Drains every ring, forgetting the rings of threads which have died. */
+  void drainRings() {
+    for (Iterator<CheckpointRing> it = rings.iterator(); it.hasNext(); ) {
+      CheckpointRing ring = it.next();
+      // checked before draining so nothing a dying thread records is left behind
+      boolean ownerAlive = ring.isOwnerAlive();
+      ring.drain();
+      if (!ownerAlive) {
+        it.remove();
+      }
+    }
+  }
+
+  private static final class DrainRings implements AgentTaskScheduler.Task<JFRCheckpointer> {
+    @Override
+    public void run(JFRCheckpointer checkpointer) {
+      checkpointer.drainRings();
+    }
+  }
 }
@@ -0,0 +1,41 @@
+package datadog.trace.core.jfr.openjdk;
+
+import datadog.trace.core.monitor.PipelineStages;
+import jdk.jfr.EventType;
+
+/**
+ * Emits a {@link PipelineStageEvent} per pipeline stage. The stages are only timed while the event
+ * is enabled in a running recording, so the tracer pays nothing but a flag check otherwise.
+ */
+public final class JFRPipelineStageListener implements PipelineStages.Listener {
+
+  private final EventType eventType;
+
+  public JFRPipelineStageListener() {
+    ExcludedVersions.checkVersionExclusion();
+    // Note: Loading PipelineStageEvent here is important because it also loads JFR classes -
+    // which may not be present on some JVMs
+    this.eventType = EventType.getEventType(PipelineStageEvent.class);
+  }
+
+  /** Called reflectively by the agent when the tracer pipeline events are enabled. */
+  public static void register() {
+    PipelineStages.register(new JFRPipelineStageListener());
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return eventType.isEnabled();
+  }
+
+  @Override
+  public void onStage(
+      PipelineStages.Stage stage,
+      long queueWaitNanos,
+      long durationNanos,
+      int traceCount,
+      int spanCount) {
+    new PipelineStageEvent(stage.name(), queueWaitNanos, durationNanos, traceCount, spanCount)
+        .commit();
+  }
+}
@@ -0,0 +1,43 @@
+package datadog.trace.core.jfr.openjdk;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("datadog.TracerPipelineStage")
+@Label("Tracer Pipeline Stage")
+@Description("Datadog event corresponding to a finished trace passing through a tracer stage.")
+@Category({"Datadog", "Tracer"})
+@StackTrace(false)
+public class PipelineStageEvent extends Event {
+
+  @Label("Stage")
+  private final String stage;
+
+  @Label("Queue Wait")
+  @Timespan
+  private final long queueWait;
+
+  @Label("Processing Time")
+  @Timespan
+  private final long processingTime;
+
+  @Label("Trace Count")
+  private final int traceCount;
+
+  @Label("Span Count")
+  private final int spanCount;
+
+  public PipelineStageEvent(
+      String stage, long queueWait, long processingTime, int traceCount, int spanCount) {
+    this.stage = stage;
+    this.queueWait = queueWait;
+    this.processingTime = processingTime;
+    this.traceCount = traceCount;
+    this.spanCount = spanCount;
+  }
+}
@@ -0,0 +1,119 @@
+package datadog.trace.core.jfr.openjdk
+
+import datadog.trace.test.util.DDSpecification
+import spock.lang.Requires
+
+import java.lang.ref.WeakReference
+
+import static datadog.trace.api.Checkpointer.CPU
+import static datadog.trace.api.Checkpointer.END
+import static datadog.trace.api.Checkpointer.SPAN
+import static datadog.trace.test.util.GCUtils.awaitGC
+
+@Requires({
+  jvm.java11Compatible
+})
+class CheckpointRingTest extends DDSpecification {
+
+  def "capacity is rounded up to a power of two"() {
+    expect:
+    new CheckpointRing(Thread.currentThread(), requested).capacity() == capacity
+
+    where:
+    requested | capacity
+    0         | 2
+    3         | 4
+    256       | 256
+    257       | 512
+    1 << 20   | 1 << 16
+  }
+
+  def "checkpoints are encoded in the order they were recorded"() {
+    setup:
+    CheckpointRing ring = new CheckpointRing(Thread.currentThread(), 4)
+
+    when:
+    ring.record(1, 2, SPAN, 1000, 50)
+    ring.record(1, 3, SPAN | END, 990, Long.MIN_VALUE)
+    ring.record(-1L, Long.MAX_VALUE, END, 5000, 70)
+
+    then:
+    decode(ring.encode(0, 3)) == [
+      [flags: SPAN, nanoTimeDelta: 0, traceId: 1, spanId: 2, cpuTime: 50],
+      [flags: SPAN | END, nanoTimeDelta: -10, traceId: 1, spanId: 3, cpuTime: Long.MIN_VALUE],
+      [flags: END, nanoTimeDelta: 4010, traceId: -1L, spanId: Long.MAX_VALUE, cpuTime: 0]
+    ]
+  }
+
+  def "checkpoints are dropped while the ring is full"() {
+    setup:
+    CheckpointRing ring = new CheckpointRing(Thread.currentThread(), 4)
+
+    when:
+    6.times {
+      ring.record(1, it, SPAN, it, 0)
+    }
+
+    then: "the owner doesn't drain the ring"
+    ring.getDropped() == 2
+    ring.head == 4
+    ring.tail == 0
+    decode(ring.encode(0, 4))*.spanId == [0, 1, 2, 3]
+
+    when:
+    ring.drain()
+    ring.record(1, 6, SPAN, 6, 0)
+
+    then: "drops are reported once and the ring has room again"
+    ring.tail == 4
+    ring.head == 5
+    ring.reportedDrops == 2
+    ring.getDropped() == 2
+  }
+
+  def "the ring doesn't keep its owner alive"() {
+    setup:
+    def thread = new Thread({})
+    CheckpointRing ring = new CheckpointRing(thread, 4)
+
+    when:
+    thread.start()
+    thread.join()
+
+    then:
+    !ring.isOwnerAlive()
+
+    when:
+    def reference = new WeakReference(thread)
+    thread = null
+    awaitGC(reference)
+
+    then:
+    !ring.isOwnerAlive()
+  }
+
+  static List<Map> decode(String checkpoints) {
+    def input = new ByteArrayInputStream(Base64.decoder.decode(checkpoints))
+    def readVarint = {
+      long value = 0
+      int shift = 0
+      int b
+      while (((b = input.read()) & 0x80) != 0) {
+        value |= (b & 0x7FL) << shift
+        shift += 7
+      }
+      return value | ((long) b << shift)
+    }
+    def unzigzag = { long value -> (value >>> 1) ^ -(value & 1) }
+    def decoded = []
+    while (input.available() > 0) {
+      int flags = (int) readVarint()
+      def checkpoint = [flags: flags, nanoTimeDelta: unzigzag(readVarint())]
+      checkpoint.traceId = readVarint()
+      checkpoint.spanId = readVarint()
+      checkpoint.cpuTime = (flags & CPU) != 0 ? unzigzag(readVarint()) : 0L
+      decoded << checkpoint
+    }
+    return decoded
+  }
+}
@@ -0,0 +1,54 @@
+package datadog.trace.core.jfr.openjdk
+
+import datadog.trace.api.config.ProfilingConfig
+import datadog.trace.common.writer.ListWriter
+import datadog.trace.core.CoreTracer
+import datadog.trace.core.monitor.PipelineStages
+import datadog.trace.test.util.DDSpecification
+import spock.lang.Requires
+
+import java.util.stream.Collectors
+
+@Requires({
+  jvm.java11Compatible
+})
+class PipelineStageEventTest extends DDSpecification {
+
+  def tracer
+
+  def setup() {
+    injectSysConfig(ProfilingConfig.PROFILING_ENABLED, "true")
+    JFRPipelineStageListener.register()
+    tracer = CoreTracer.builder().writer(new ListWriter()).build()
+  }
+
+  def cleanup() {
+    tracer?.close()
+  }
+
+  def "pipeline stage events are written when a trace is reported"() {
+    setup:
+    def recording = JfrHelper.startRecording()
+
+    when:
+    def span = tracer.buildSpan("test").start()
+    tracer.buildSpan("child").asChildOf(span.context()).start().finish()
+    span.finish()
+    def events = JfrHelper.stopRecording(recording).stream()
+      .filter({ it.eventType.name == "datadog.TracerPipelineStage" })
+      .collect(Collectors.toList())
+
+    then:
+    events*.getString("stage").containsAll([
+      PipelineStages.Stage.PENDING_TRACE_WRITE.name(),
+      PipelineStages.Stage.TRACER_WRITE.name()
+    ])
+    events.every { it.getInt("traceCount") == 1 && it.getInt("spanCount") == 2 }
+    events.every { it.getLong("queueWait") >= 0 && it.getLong("processingTime") >= 0 }
+  }
+
+  def "pipeline stages are not timed without a recording"() {
+    expect:
+    !PipelineStages.isEnabled()
+  }
+}
@@ -295,22 +295,25 @@ class ScopeEventTest extends DDSpecification {
     span.setResourceName("foo")
     span.finish()
     then: "checkpoints emitted"
-    def events = filterEvents(JfrHelper.stopRecording(recording), ["datadog.Checkpoint", "datadog.Route"])
-    events.size() == 5
-    events.each {
-      assert it.getLong("traceId") == span.getTraceId().toLong()
-      if (it.eventType.name == "datadog.Checkpoint") {
-        assert it.getLong("spanId") == span.getSpanId().toLong()
-        int flags = it.getInt("flags")
-        long cpuTime = it.getLong("cpuTime")
-        if ((flags & CPU) != 0) {
-          assert cpuTime > 0
-        } else {
-          assert cpuTime == 0L
-        }
+    def events = filterEvents(JfrHelper.stopRecording(recording), ["datadog.CheckpointBatch", "datadog.Route"])
+    def batches = events.findAll { it.eventType.name == "datadog.CheckpointBatch" }
+    def checkpoints = batches.collectMany { CheckpointRingTest.decode(it.getString("checkpoints")) }
+    batches.every { it.getInt("formatVersion") == CheckpointBatchEvent.FORMAT_VERSION }
+    batches.every { it.getLong("droppedCount") == 0 }
+    batches*.getInt("checkpointCount").sum() == 4
+    checkpoints.size() == 4
+    checkpoints.each {
+      assert it.traceId == span.getTraceId().toLong()
+      assert it.spanId == span.getSpanId().toLong()
+      if ((it.flags & CPU) != 0) {
+        assert it.cpuTime > 0
       } else {
-        it.getString("route") == "foo"
+        assert it.cpuTime == 0L
       }
     }
+    def routes = events.findAll { it.eventType.name == "datadog.Route" }
+    routes.size() == 1
+    routes[0].getLong("traceId") == span.getTraceId().toLong()
+    routes[0].getString("route") == "foo"
   }
 }
@@ -0,0 +1,96 @@
+package datadog.trace.common.metrics;
+
+import datadog.trace.api.WellKnownTags;
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Serializes a report of aggregates holding a realistic spread of latencies, and prints the
+ * retained size of each aggregate when set up. Run with {@code -prof gc} to see the garbage
+ * produced per aggregate serialized.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AggregateMetricBenchmark {
+
+  private static final int AGGREGATES = 1000;
+
+  /** The number of durations recorded by each aggregate per report. */
+  @Param({"1", "100", "10000"})
+  int hits;
+
+  /** The fraction of durations which are errors. */
+  @Param({"0", "0.05"})
+  double errorRate;
+
+  private MetricKey[] keys;
+  private AggregateMetric[] aggregates;
+  private SerializingMetricWriter writer;
+
+  @Setup(Level.Trial)
+  public void setup(final Blackhole blackhole) {
+    SplittableRandom random = new SplittableRandom(0);
+    keys = new MetricKey[AGGREGATES];
+    aggregates = new AggregateMetric[AGGREGATES];
+    AtomicLongArray durations = new AtomicLongArray(hits);
+    for (int i = 0; i < AGGREGATES; ++i) {
+      keys[i] = new MetricKey("resource-" + i, "service", "operation", "web", 200);
+      // each endpoint has its own typical latency, between 100us and 100ms
+      double mean = Math.pow(10, 5 + random.nextInt(4));
+      for (int j = 0; j < hits; ++j) {
+        long duration = (long) (-Math.log(random.nextDouble()) * mean);
+        if (random.nextDouble() < errorRate) {
+          duration |= AggregateMetric.ERROR_TAG;
+        }
+        durations.set(j, duration);
+      }
+      aggregates[i] = new AggregateMetric().recordDurations(hits, durations);
+    }
+    // printed rather than counted, counters are summed over the iterations
+    System.out.println(
+        "bytes per aggregate: "
+            + GraphLayout.parseInstance((Object) aggregates).totalSize() / AGGREGATES);
+    writer =
+        new SerializingMetricWriter(
+            new WellKnownTags("runtimeid", "hostname", "env", "service", "version"),
+            new Sink() {
+              @Override
+              public void register(EventListener listener) {}
+
+              @Override
+              public boolean validate() {
+                return true;
+              }
+
+              @Override
+              public void accept(int messageCount, ByteBuffer buffer) {
+                blackhole.consume(buffer);
+              }
+            });
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(AGGREGATES)
+  public void serialize() {
+    writer.startBucket(AGGREGATES, System.nanoTime(), TimeUnit.SECONDS.toNanos(10));
+    for (int i = 0; i < AGGREGATES; ++i) {
+      writer.add(keys[i], aggregates[i]);
+    }
+    writer.finishBucket();
+  }
+}
@@ -0,0 +1,105 @@
+package datadog.trace.common.metrics;
+
+import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.jctools.maps.NonBlockingHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Looks up the metric keys of already seen spans, the common case when publishing traces, either
+ * by creating a key and adding it to a map or by probing the key table with the span's fields. Run
+ * with {@code -prof gc} to compare the allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricKeyBenchmark {
+
+  private static final int SPANS = 64;
+
+  private final CharSequence[] resources = new CharSequence[SPANS];
+  private final String[] services = new String[SPANS];
+  private final CharSequence[] operations = new CharSequence[SPANS];
+  private final CharSequence[] types = new CharSequence[SPANS];
+  private final short[] statusCodes = new short[SPANS];
+
+  private NonBlockingHashMap<MetricKey, MetricKey> map;
+  private MetricKeys keys;
+  private Set<String> ignoredResourceSet;
+  private IgnoredResources ignoredResources;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    map = new NonBlockingHashMap<>();
+    keys = new MetricKeys(SPANS);
+    for (int i = 0; i < SPANS; ++i) {
+      // resource names are usually UTF8BytesString, the other fields plain strings
+      resources[i] = UTF8BytesString.create("GET /api/v1/resource/" + (i & 15));
+      services[i] = "service-" + (i & 3);
+      operations[i] = "servlet.request";
+      types[i] = "web";
+      statusCodes[i] = (short) ((i & 1) == 0 ? 200 : 404);
+      MetricKey key =
+          new MetricKey(resources[i], services[i], operations[i], types[i], statusCodes[i]);
+      map.putIfAbsent(key, key);
+      keys.putIfAbsent(key);
+    }
+    ignoredResourceSet = new HashSet<>();
+    Collections.addAll(ignoredResourceSet, "GET /health", "GET /ping");
+    ignoredResources = new IgnoredResources(ignoredResourceSet);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SPANS)
+  public void createKey(Blackhole blackhole) {
+    for (int i = 0; i < SPANS; ++i) {
+      MetricKey newKey =
+          new MetricKey(resources[i], services[i], operations[i], types[i], statusCodes[i]);
+      MetricKey key = map.putIfAbsent(newKey, newKey);
+      blackhole.consume(null == key ? newKey : key);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SPANS)
+  public void probeKey(Blackhole blackhole) {
+    for (int i = 0; i < SPANS; ++i) {
+      MetricKey key = keys.find(resources[i], services[i], operations[i], types[i], statusCodes[i]);
+      if (null == key) {
+        MetricKey newKey =
+            new MetricKey(resources[i], services[i], operations[i], types[i], statusCodes[i]);
+        key = keys.putIfAbsent(newKey);
+        key = null == key ? newKey : key;
+      }
+      blackhole.consume(key);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SPANS)
+  public void ignoredResourceSet(Blackhole blackhole) {
+    for (int i = 0; i < SPANS; ++i) {
+      blackhole.consume(ignoredResourceSet.contains(resources[i].toString()));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SPANS)
+  public void ignoredResources(Blackhole blackhole) {
+    for (int i = 0; i < SPANS; ++i) {
+      blackhole.consume(ignoredResources.contains(resources[i]));
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package datadog.trace.core;
+
+import datadog.trace.api.cache.RadixTreeCache;
+import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
+import datadog.trace.bootstrap.instrumentation.api.Tags;
+import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
+import datadog.trace.common.writer.ddagent.TraceMapperV0_4;
+import datadog.trace.core.serialization.GrowableBuffer;
+import datadog.trace.core.serialization.msgpack.MsgPackWriter;
+import datadog.trace.core.taginterceptor.RuleFlags;
+import datadog.trace.core.taginterceptor.TagInterceptor;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decorates and serializes synthetic server spans, setting the peer port and address either
+ * through the typed span context slots or, as before they had slots, as a boxed port and a string
+ * address in the tag map.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PeerTagsBenchmark {
+
+  private static final int REQUESTS = 1000;
+
+  private static final UTF8BytesString[] ADDRESSES = {
+    UTF8BytesString.create("10.0.0.1"),
+    UTF8BytesString.create("10.0.0.2"),
+    UTF8BytesString.create("192.168.1.17"),
+    UTF8BytesString.create("172.16.254.3"),
+  };
+
+  private static final int[] PORTS = {443, 8080, 51234, 60001};
+
+  @Param({"true", "false"})
+  boolean typed;
+
+  private CoreTracer tracer;
+  private GrowableBuffer buffer;
+  private MsgPackWriter writer;
+  private TraceMapperV0_4 mapper;
+
+  @Setup(Level.Trial)
+  public void setup(TraceCounters counters, Blackhole blackhole) {
+    CoreTracer.CoreTracerBuilder builder =
+        CoreTracer.builder()
+            .writer(new BlackholeWriter(blackhole, counters, 0))
+            .strictTraceWrites(false);
+    if (!typed) {
+      builder.tagInterceptor(new UntypedPeerTagInterceptor());
+    }
+    tracer = builder.build();
+    buffer = new GrowableBuffer(64 << 10);
+    writer = new MsgPackWriter(buffer);
+    mapper = new TraceMapperV0_4();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    tracer.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(REQUESTS)
+  public void decorateAndSerialize() {
+    for (int i = 0; i < REQUESTS; ++i) {
+      AgentSpan span = tracer.startSpan("servlet.request");
+      int port = PORTS[i & 3];
+      UTF8BytesString address = ADDRESSES[(i >>> 2) & 3];
+      if (typed) {
+        span.setHttpStatusCode(200);
+        span.setPeerPort(port);
+        span.setPeerHostIPv4(address);
+      } else {
+        span.setHttpStatusCode(200);
+        span.setTag(Tags.PEER_PORT, RadixTreeCache.PORTS.get(port));
+        span.setTag(Tags.PEER_HOST_IPV4, address.toString());
+      }
+      span.finish();
+      writer.format(Collections.singletonList((DDSpan) span), mapper);
+      buffer.reset();
+    }
+  }
+
+  /** Leaves the peer tags in the tag map, like the tag interceptor did before the typed slots. */
+  private static final class UntypedPeerTagInterceptor extends TagInterceptor {
+    UntypedPeerTagInterceptor() {
+      super(new RuleFlags());
+    }
+
+    @Override
+    public boolean interceptTag(DDSpanContext span, String tag, Object value) {
+      switch (tag) {
+        case Tags.PEER_PORT:
+        case Tags.PEER_HOST_IPV4:
+        case Tags.PEER_HOST_IPV6:
+          return false;
+        default:
+          return super.interceptTag(span, tag, value);
+      }
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package datadog.trace.core;
+
+import datadog.trace.bootstrap.instrumentation.api.AgentScope;
+import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
+import datadog.trace.bootstrap.instrumentation.api.Tags;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Builds and finishes spans with tags set on the span builder, either as local roots or as children
+ * of an active span. Run with {@code -prof gc} to see the allocation per span.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SpanBuilderBenchmark {
+
+  private static final String[] TAG_KEYS = {
+    Tags.SPAN_KIND, Tags.COMPONENT, Tags.PEER_HOSTNAME, Tags.DB_TYPE, "benchmark.tag"
+  };
+
+  /** The number of tags set on the span builder. */
+  @Param({"0", "2", "5"})
+  int builderTags;
+
+  private CoreTracer tracer;
+  private AgentSpan parent;
+  private AgentScope parentScope;
+
+  @Setup(Level.Trial)
+  public void setup(TraceCounters counters, Blackhole blackhole) {
+    tracer =
+        CoreTracer.builder()
+            .writer(new BlackholeWriter(blackhole, counters, 0))
+            .strictTraceWrites(false)
+            .build();
+    parent = tracer.startSpan("servlet.request");
+    parentScope = tracer.activateSpan(parent);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    parentScope.close();
+    parent.finish();
+    tracer.close();
+  }
+
+  @Benchmark
+  public AgentSpan buildRootSpan() {
+    AgentSpan span = build(tracer.buildSpan("servlet.request").ignoreActiveSpan());
+    span.finish();
+    return span;
+  }
+
+  @Benchmark
+  public AgentSpan buildChildSpan() {
+    AgentSpan span = build(tracer.buildSpan("database.query"));
+    span.finish();
+    return span;
+  }
+
+  private AgentSpan build(CoreTracer.CoreSpanBuilder builder) {
+    for (int i = 0; i < builderTags; ++i) {
+      builder.withTag(TAG_KEYS[i], "value");
+    }
+    return builder.start();
+  }
+}
@@ -0,0 +1,181 @@
+package datadog.trace.core;
+
+import static datadog.trace.api.config.GeneralConfig.TRACER_METRICS_ENABLED;
+import static datadog.trace.api.config.TracerConfig.AGENT_HOST;
+import static datadog.trace.api.config.TracerConfig.TRACE_AGENT_PORT;
+
+import datadog.trace.bootstrap.instrumentation.api.AgentScope;
+import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
+import datadog.trace.common.writer.DDAgentWriter;
+import datadog.trace.common.writer.ddagent.Prioritization;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures the whole life of a trace: building, tagging, activating and finishing its spans,
+ * writing and sampling the finished trace, aggregating its metrics and serializing it into
+ * payloads sent to a {@link StandInAgent} over HTTP.
+ *
+ * <p>Traces are published with {@link Prioritization#ENSURE_TRACE}, which holds the application
+ * threads back when the writer falls behind instead of dropping traces, so the score is the end to
+ * end throughput in traces per second. Run with {@code -prof gc} to see the allocation per trace,
+ * which includes what the writer and aggregator threads allocate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SpanLifecycleBenchmark {
+
+  static final int SPANS_PER_TRACE = 16;
+
+  public enum Shape {
+    /** a root span with children opened and finished one after the other */
+    FLAT,
+    /** a chain of spans, each one the active parent of the next */
+    DEEP,
+    /** a root span with all of its children open at the same time */
+    WIDE
+  }
+
+  private static final String[] OPERATIONS = {
+    "database.query", "http.request", "cache.get", "grpc.client"
+  };
+
+  @Param({"FLAT", "DEEP", "WIDE"})
+  Shape shape;
+
+  /** The number of tags set on each span once it's started. */
+  @Param({"0", "4", "16"})
+  int tags;
+
+  @Param({"v0.4", "v0.5"})
+  String endpoint;
+
+  private StandInAgent agent;
+  private CoreTracer tracer;
+  private String[] tagKeys;
+  private String[] tagValues;
+
+  @State(Scope.Thread)
+  public static class OpenSpans {
+    final AgentSpan[] spans = new AgentSpan[SPANS_PER_TRACE];
+    final AgentScope[] scopes = new AgentScope[SPANS_PER_TRACE];
+  }
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    agent = StandInAgent.start();
+    boolean v05 = "v0.5".equals(endpoint);
+    Properties properties = new Properties();
+    properties.setProperty(AGENT_HOST, agent.getHost());
+    properties.setProperty(TRACE_AGENT_PORT, String.valueOf(agent.getPort()));
+    properties.setProperty(TRACER_METRICS_ENABLED, "true");
+    tracer =
+        CoreTracer.builder()
+            .withProperties(properties)
+            .writer(
+                DDAgentWriter.builder()
+                    .agentHost(agent.getHost())
+                    .traceAgentPort(agent.getPort())
+                    .traceAgentV05Enabled(v05)
+                    .metricsReportingEnabled(true)
+                    .prioritization(Prioritization.ENSURE_TRACE)
+                    .build())
+            .strictTraceWrites(false)
+            .build();
+    tagKeys = new String[tags];
+    tagValues = new String[tags];
+    for (int i = 0; i < tags; ++i) {
+      tagKeys[i] = "benchmark.tag." + i;
+      tagValues[i] = "value-" + i;
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    tracer.close();
+    agent.close();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void trace(OpenSpans open) {
+    writeTrace(open);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void trace4Threads(OpenSpans open) {
+    writeTrace(open);
+  }
+
+  private void writeTrace(OpenSpans open) {
+    AgentSpan root =
+        tracer
+            .buildSpan("servlet.request")
+            .withResourceName("GET /api/users/?")
+            .withSpanType("web")
+            .start();
+    tag(root);
+    AgentScope rootScope = tracer.activateSpan(root);
+    switch (shape) {
+      case FLAT:
+        for (int i = 1; i < SPANS_PER_TRACE; ++i) {
+          AgentSpan span = startChild(i);
+          AgentScope scope = tracer.activateSpan(span);
+          scope.close();
+          span.finish();
+        }
+        break;
+      case DEEP:
+        for (int i = 1; i < SPANS_PER_TRACE; ++i) {
+          open.spans[i] = startChild(i);
+          open.scopes[i] = tracer.activateSpan(open.spans[i]);
+        }
+        for (int i = SPANS_PER_TRACE - 1; i > 0; --i) {
+          open.scopes[i].close();
+          open.spans[i].finish();
+        }
+        break;
+      case WIDE:
+        for (int i = 1; i < SPANS_PER_TRACE; ++i) {
+          open.spans[i] = startChild(i);
+        }
+        for (int i = 1; i < SPANS_PER_TRACE; ++i) {
+          open.spans[i].finish();
+        }
+        break;
+    }
+    rootScope.close();
+    root.finish();
+  }
+
+  private AgentSpan startChild(int i) {
+    String operation = OPERATIONS[i & 3];
+    AgentSpan span = tracer.buildSpan(operation).withResourceName(operation).start();
+    tag(span);
+    return span;
+  }
+
+  private void tag(AgentSpan span) {
+    for (int i = 0; i < tags; ++i) {
+      if ((i & 1) == 0) {
+        span.setTag(tagKeys[i], tagValues[i]);
+      } else {
+        span.setTag(tagKeys[i], i);
+      }
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package datadog.trace.core;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local stand-in for the Datadog agent, which advertises the v0.4 and v0.5 trace endpoints and
+ * the stats endpoint, then accepts and discards whatever is sent to them.
+ */
+public final class StandInAgent implements HttpHandler, Closeable {
+
+  private static final byte[] INFO =
+      ("{\"endpoints\":[\"/v0.4/traces\",\"/v0.5/traces\",\"/v0.6/stats\"],"
+              + "\"client_drop_p0s\":true}")
+          .getBytes(StandardCharsets.UTF_8);
+  private static final byte[] RATES =
+      "{\"rate_by_service\":{\"service:,env:\":1}}".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] NO_CONTENT = new byte[0];
+
+  private final HttpServer server;
+  private final byte[] buffer = new byte[64 << 10];
+  private final AtomicLong tracePayloads = new AtomicLong();
+  private final AtomicLong receivedBytes = new AtomicLong();
+
+  private StandInAgent(HttpServer server) {
+    this.server = server;
+  }
+
+  public static StandInAgent start() throws IOException {
+    HttpServer server =
+        HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    StandInAgent agent = new StandInAgent(server);
+    // the default executor handles requests on the server's own thread, one at a time
+    server.createContext("/", agent);
+    server.start();
+    return agent;
+  }
+
+  public String getHost() {
+    return server.getAddress().getAddress().getHostAddress();
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  public long getTracePayloads() {
+    return tracePayloads.get();
+  }
+
+  public long getReceivedBytes() {
+    return receivedBytes.get();
+  }
+
+  @Override
+  public void handle(HttpExchange exchange) throws IOException {
+    try {
+      String path = exchange.getRequestURI().getPath();
+      byte[] response;
+      if (path.endsWith("/info")) {
+        response = INFO;
+      } else if (path.endsWith("/traces")) {
+        drain(exchange.getRequestBody());
+        tracePayloads.incrementAndGet();
+        response = RATES;
+      } else if (path.endsWith("/stats")) {
+        drain(exchange.getRequestBody());
+        response = NO_CONTENT;
+      } else {
+        exchange.sendResponseHeaders(404, -1);
+        return;
+      }
+      exchange.sendResponseHeaders(200, response.length > 0 ? response.length : -1);
+      if (response.length > 0) {
+        try (OutputStream body = exchange.getResponseBody()) {
+          body.write(response);
+        }
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void drain(InputStream body) throws IOException {
+    int read;
+    while ((read = body.read(buffer)) >= 0) {
+      receivedBytes.addAndGet(read);
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+}
@@ -0,0 +1,79 @@
+package datadog.trace.core;
+
+import datadog.trace.api.DDTags;
+import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
+import datadog.trace.bootstrap.instrumentation.api.TagBatch;
+import datadog.trace.bootstrap.instrumentation.api.Tags;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decorates a server span with the tags a typical HTTP server integration sets at the start of a
+ * request, either one tag at a time or as a single batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TagBatchBenchmark {
+
+  @Param({"true", "false"})
+  boolean batched;
+
+  private CoreTracer tracer;
+
+  @Setup(Level.Trial)
+  public void setup(TraceCounters counters, Blackhole blackhole) {
+    tracer =
+        CoreTracer.builder()
+            .writer(new BlackholeWriter(blackhole, counters, 0))
+            .strictTraceWrites(false)
+            .build();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    tracer.close();
+  }
+
+  @Benchmark
+  public AgentSpan decorateRequest() {
+    AgentSpan span = tracer.startSpan("servlet.request");
+    if (batched) {
+      span.setTags(
+          TagBatch.begin()
+              .put(Tags.SPAN_KIND, Tags.SPAN_KIND_SERVER)
+              .put(Tags.COMPONENT, "java-web-servlet")
+              .put(Tags.HTTP_METHOD, "GET")
+              .put(Tags.HTTP_URL, "http://localhost:8080/api/orders")
+              .put(DDTags.HTTP_QUERY, "page=2")
+              .put(Tags.HTTP_FORWARDED_PROTO, "https")
+              .put(Tags.HTTP_FORWARDED_HOST, "example.com")
+              .put(Tags.HTTP_FORWARDED_IP, "10.0.0.1")
+              .put(Tags.HTTP_FORWARDED_PORT, "443")
+              .put("servlet.path", "/api/orders"));
+    } else {
+      span.setTag(Tags.SPAN_KIND, Tags.SPAN_KIND_SERVER);
+      span.setTag(Tags.COMPONENT, "java-web-servlet");
+      span.setTag(Tags.HTTP_METHOD, "GET");
+      span.setTag(Tags.HTTP_URL, "http://localhost:8080/api/orders");
+      span.setTag(DDTags.HTTP_QUERY, "page=2");
+      span.setTag(Tags.HTTP_FORWARDED_PROTO, "https");
+      span.setTag(Tags.HTTP_FORWARDED_HOST, "example.com");
+      span.setTag(Tags.HTTP_FORWARDED_IP, "10.0.0.1");
+      span.setTag(Tags.HTTP_FORWARDED_PORT, "443");
+      span.setTag("servlet.path", "/api/orders");
+    }
+    span.finish();
+    return span;
+  }
+}
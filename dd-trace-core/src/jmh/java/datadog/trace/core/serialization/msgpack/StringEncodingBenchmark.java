@@ -0,0 +1,56 @@
+package datadog.trace.core.serialization.msgpack;
+
+import datadog.trace.core.serialization.Codec;
+import datadog.trace.core.serialization.GrowableBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares writing repeated tag values through a {@link MsgPackStringTable} against
+ * encoding them on every write.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StringEncodingBenchmark {
+
+  private static final String[] TAGS = {
+    "http.method", "GET",
+    "component", "java-web-servlet",
+    "span.kind", "server",
+    "http.url", "http://localhost:8080/api/v1/orders",
+    "peer.hostname", "localhost",
+    "language", "jvm",
+  };
+
+  @Param({"true", "false"})
+  boolean interned;
+
+  private GrowableBuffer buffer;
+  private MsgPackWriter writer;
+  private MsgPackStringTable stringTable;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    buffer = new GrowableBuffer(64 << 10);
+    writer = new MsgPackWriter(Codec.INSTANCE, buffer);
+    stringTable = interned ? new MsgPackStringTable(1024, 64) : null;
+  }
+
+  @Benchmark
+  public void writeTags() {
+    writer.startMap(TAGS.length / 2);
+    for (String tag : TAGS) {
+      writer.writeString(tag, stringTable);
+    }
+    buffer.reset();
+  }
+}
@@ -13,18 +13,17 @@ public final class AggregateMetric {
 
   private static final HistogramFactory HISTOGRAM_FACTORY = Histograms.newHistogramFactory();
 
-  private final Histogram okLatencies;
-  private final Histogram errorLatencies;
+  /** Stands in for the latencies which haven't been seen yet, never written to. */
+  private static final Histogram NO_LATENCIES = HISTOGRAM_FACTORY.newHistogram();
+
+  // created on first use, most aggregates never see an error
+  private Histogram okLatencies;
+  private Histogram errorLatencies;
   private int errorCount;
   private int hitCount;
   private int topLevelCount;
   private long duration;
 
-  public AggregateMetric() {
-    okLatencies = HISTOGRAM_FACTORY.newHistogram();
-    errorLatencies = HISTOGRAM_FACTORY.newHistogram();
-  }
-
   public AggregateMetric recordDurations(int count, AtomicLongArray durations) {
     this.hitCount += count;
     for (int i = 0; i < count && i < durations.length(); ++i) {
@@ -36,9 +35,15 @@ public final class AggregateMetric {
       if ((duration & ERROR_TAG) == ERROR_TAG) {
         // then it's an error
         duration ^= ERROR_TAG;
+        if (null == errorLatencies) {
+          errorLatencies = HISTOGRAM_FACTORY.newHistogram();
+        }
         errorLatencies.accept(duration);
         ++errorCount;
       } else {
+        if (null == okLatencies) {
+          okLatencies = HISTOGRAM_FACTORY.newHistogram();
+        }
         okLatencies.accept(duration);
       }
       this.duration += duration;
@@ -63,11 +68,11 @@ public final class AggregateMetric {
   }
 
   public Histogram getOkLatencies() {
-    return okLatencies;
+    return null == okLatencies ? NO_LATENCIES : okLatencies;
   }
 
   public Histogram getErrorLatencies() {
-    return errorLatencies;
+    return null == errorLatencies ? NO_LATENCIES : errorLatencies;
   }
 
   public void clear() {
@@ -75,7 +80,11 @@ public final class AggregateMetric {
     this.hitCount = 0;
     this.topLevelCount = 0;
     this.duration = 0;
-    this.okLatencies.clear();
-    this.errorLatencies.clear();
+    if (null != okLatencies) {
+      okLatencies.clear();
+    }
+    if (null != errorLatencies) {
+      errorLatencies.clear();
+    }
   }
 }
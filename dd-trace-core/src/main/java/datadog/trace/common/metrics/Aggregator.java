@@ -8,7 +8,6 @@ import datadog.trace.core.util.LRUCache;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Queue;
-import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 import org.jctools.maps.NonBlockingHashMap;
@@ -23,7 +22,7 @@ final class Aggregator implements Runnable {
   private final BlockingQueue<Batch> inbox;
   private final LRUCache<MetricKey, AggregateMetric> aggregates;
   private final NonBlockingHashMap<MetricKey, Batch> pending;
-  private final Set<MetricKey> commonKeys;
+  private final MetricKeys commonKeys;
   private final MetricWriter writer;
   // the reporting interval controls how much history will be buffered
   // when the agent is unresponsive (only 10 pending requests will be
@@ -37,7 +36,7 @@ final class Aggregator implements Runnable {
       Queue<Batch> batchPool,
       BlockingQueue<Batch> inbox,
       NonBlockingHashMap<MetricKey, Batch> pending,
-      final Set<MetricKey> commonKeys,
+      final MetricKeys commonKeys,
       int maxAggregates,
       long reportingInterval,
       TimeUnit reportingIntervalTimeUnit) {
@@ -127,9 +126,9 @@ final class Aggregator implements Runnable {
   private static final class CommonKeyCleaner
       implements LRUCache.ExpiryListener<MetricKey, AggregateMetric> {
 
-    private final Set<MetricKey> commonKeys;
+    private final MetricKeys commonKeys;
 
-    private CommonKeyCleaner(Set<MetricKey> commonKeys) {
+    private CommonKeyCleaner(MetricKeys commonKeys) {
       this.commonKeys = commonKeys;
     }
 
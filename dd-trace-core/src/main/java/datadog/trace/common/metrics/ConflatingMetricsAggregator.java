@@ -36,10 +36,10 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
 
   static final Batch POISON_PILL = Batch.NULL;
 
-  private final Set<String> ignoredResources;
+  private final IgnoredResources ignoredResources;
   private final Queue<Batch> batchPool;
   private final NonBlockingHashMap<MetricKey, Batch> pending;
-  private final NonBlockingHashMap<MetricKey, MetricKey> keys;
+  private final MetricKeys keys;
   private final Thread thread;
   private final BlockingQueue<Batch> inbox;
   private final Sink sink;
@@ -97,11 +97,11 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
       int queueSize,
       long reportingInterval,
       TimeUnit timeUnit) {
-    this.ignoredResources = ignoredResources;
+    this.ignoredResources = new IgnoredResources(ignoredResources);
     this.inbox = new MpscBlockingConsumerArrayQueue<>(queueSize);
     this.batchPool = new SpmcArrayQueue<>(maxAggregates);
     this.pending = new NonBlockingHashMap<>(maxAggregates * 4 / 3);
-    this.keys = new NonBlockingHashMap<>();
+    this.keys = new MetricKeys(maxAggregates);
     this.sink = sink;
     this.aggregator =
         new Aggregator(
@@ -109,7 +109,7 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
             batchPool,
             inbox,
             pending,
-            keys.keySet(),
+            keys,
             maxAggregates,
             reportingInterval,
             timeUnit);
@@ -153,7 +153,7 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
       for (CoreSpan<?> span : trace) {
         boolean isTopLevel = span.isTopLevel();
         if (isTopLevel || span.isMeasured()) {
-          if (ignoredResources.contains(span.getResourceName().toString())) {
+          if (ignoredResources.contains(span.getResourceName())) {
             // skip publishing all children
             return false;
           }
@@ -165,18 +165,27 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
   }
 
   private boolean publish(CoreSpan<?> span, boolean isTopLevel) {
-    MetricKey newKey =
-        new MetricKey(
-            span.getResourceName(),
-            SERVICE_NAMES.computeIfAbsent(span.getServiceName(), UTF8_ENCODE),
-            span.getOperationName(),
-            span.getType(),
-            span.getHttpStatusCode());
+    CharSequence resourceName = span.getResourceName();
+    String serviceName = span.getServiceName();
+    CharSequence operationName = span.getOperationName();
+    CharSequence type = span.getType();
+    short httpStatusCode = span.getHttpStatusCode();
     boolean isNewKey = false;
-    MetricKey key = keys.putIfAbsent(newKey, newKey);
+    // probe with the span's fields so a key is only created the first time it is seen
+    MetricKey key = keys.find(resourceName, serviceName, operationName, type, httpStatusCode);
     if (null == key) {
-      key = newKey;
-      isNewKey = true;
+      MetricKey newKey =
+          new MetricKey(
+              resourceName,
+              SERVICE_NAMES.computeIfAbsent(serviceName, UTF8_ENCODE),
+              operationName,
+              type,
+              httpStatusCode);
+      key = keys.putIfAbsent(newKey);
+      if (null == key) {
+        key = newKey;
+        isNewKey = true;
+      }
     }
     long tag = (span.getError() > 0 ? ERROR_TAG : 0L) | (isTopLevel ? TOP_LEVEL_TAG : 0L);
     long durationNanos = span.getDurationNano();
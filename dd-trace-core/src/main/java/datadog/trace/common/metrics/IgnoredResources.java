@@ -0,0 +1,46 @@
+package datadog.trace.common.metrics;
+
+import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
+import java.util.Set;
+
+/**
+ * The resource names whose traces don't contribute to metrics, in an open addressed table built
+ * up front, so span resource names can be looked up without converting them to strings.
+ */
+final class IgnoredResources {
+
+  private final UTF8BytesString[] resources;
+  private final int mask;
+
+  IgnoredResources(Set<String> ignoredResources) {
+    int n = ignoredResources.isEmpty() ? 0 : Integer.highestOneBit(ignoredResources.size()) << 2;
+    this.resources = new UTF8BytesString[n];
+    this.mask = n - 1;
+    for (String resource : ignoredResources) {
+      int index = spread(resource.hashCode());
+      while (null != resources[index]) {
+        index = (index + 1) & mask;
+      }
+      resources[index] = UTF8BytesString.create(resource);
+    }
+  }
+
+  boolean contains(CharSequence resource) {
+    if (resources.length == 0 || null == resource) {
+      return false;
+    }
+    int index = spread(MetricKey.hashOf(resource));
+    UTF8BytesString ignored;
+    while (null != (ignored = resources[index])) {
+      if (MetricKey.contentEquals(ignored, resource)) {
+        return true;
+      }
+      index = (index + 1) & mask;
+    }
+    return false;
+  }
+
+  private int spread(int hash) {
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+}
@@ -24,14 +24,63 @@ public final class MetricKey {
     this.operationName = null == operationName ? EMPTY : UTF8BytesString.create(operationName);
     this.type = null == type ? EMPTY : UTF8BytesString.create(type);
     this.httpStatusCode = httpStatusCode;
+    this.hash =
+        hash(this.resource, this.service, this.operationName, this.type, httpStatusCode);
+  }
+
+  /** @return the hash code of the key with these fields, computed without creating the key */
+  static int hash(
+      CharSequence resource,
+      CharSequence service,
+      CharSequence operationName,
+      CharSequence type,
+      int httpStatusCode) {
     // unrolled polynomial hashcode which avoids allocating varargs
     // the constants are 31^4, 31^3, 31^2, 31^1, 31^0
-    this.hash =
-        923521 * this.resource.hashCode()
-            + 29791 * this.service.hashCode()
-            + 961 * this.operationName.hashCode()
-            + 31 * this.type.hashCode()
-            + httpStatusCode;
+    return 923521 * hashOf(resource)
+        + 29791 * hashOf(service)
+        + 961 * hashOf(operationName)
+        + 31 * hashOf(type)
+        + httpStatusCode;
+  }
+
+  /** @return whether this key has these fields, compared without creating a key */
+  boolean matches(
+      int hash,
+      CharSequence resource,
+      CharSequence service,
+      CharSequence operationName,
+      CharSequence type,
+      int httpStatusCode) {
+    return this.hash == hash
+        && this.httpStatusCode == httpStatusCode
+        && contentEquals(this.resource, resource)
+        && contentEquals(this.service, service)
+        && contentEquals(this.operationName, operationName)
+        && contentEquals(this.type, type);
+  }
+
+  /** @return the same hash code as the {@code UTF8BytesString} the key would hold */
+  static int hashOf(CharSequence s) {
+    if (null == s) {
+      return 0;
+    }
+    if (s instanceof String || s instanceof UTF8BytesString) {
+      return s.hashCode();
+    }
+    int h = 0;
+    for (int i = 0; i < s.length(); ++i) {
+      h = 31 * h + s.charAt(i);
+    }
+    return h;
+  }
+
+  static boolean contentEquals(UTF8BytesString field, CharSequence s) {
+    if (null == s) {
+      return field.length() == 0;
+    }
+    return field == s
+        || field.toString().contentEquals(s instanceof UTF8BytesString ? s.toString() : s);
   }
 
   public UTF8BytesString getResource() {
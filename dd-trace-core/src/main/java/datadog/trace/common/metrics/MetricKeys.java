@@ -0,0 +1,111 @@
+package datadog.trace.common.metrics;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The keys of the metrics being aggregated, so spans with the same key share a single {@link
+ * MetricKey} and keys seen for the first time can be told apart.
+ *
+ * <p>Spans are looked up by their fields, which are hashed and compared against the existing keys
+ * directly, so a {@code MetricKey} is only created the first time a key is seen.
+ *
+ * <p>The table is open addressed and lock free. Keys are added by the threads publishing traces
+ * and removed by the aggregator thread when their aggregate is evicted, leaving a tombstone which
+ * is reused by later additions. Probing is bounded, so a key which doesn't fit within {@link
+ * #MAX_PROBES} slots of its home slot isn't tracked. Racing additions of the same key can add it
+ * twice, which only means it is considered new twice.
+ */
+final class MetricKeys {
+
+  private static final MetricKey TOMBSTONE = new MetricKey(null, null, null, null, 0);
+
+  static final int MAX_PROBES = 16;
+
+  private final AtomicReferenceArray<MetricKey> slots;
+  private final int mask;
+
+  /** @param capacity the expected maximum number of keys, the table is twice as large */
+  MetricKeys(int capacity) {
+    int n = Integer.highestOneBit(Math.max(capacity * 2 - 1, MAX_PROBES)) << 1;
+    this.slots = new AtomicReferenceArray<>(n);
+    this.mask = n - 1;
+  }
+
+  /** @return the key with these fields, or null if there is none */
+  MetricKey find(
+      CharSequence resource,
+      CharSequence service,
+      CharSequence operationName,
+      CharSequence type,
+      int httpStatusCode) {
+    int hash = MetricKey.hash(resource, service, operationName, type, httpStatusCode);
+    int home = spread(hash);
+    for (int i = 0; i < MAX_PROBES; ++i) {
+      MetricKey key = slots.get((home + i) & mask);
+      if (null == key) {
+        return null;
+      }
+      if (key != TOMBSTONE
+          && key.matches(hash, resource, service, operationName, type, httpStatusCode)) {
+        return key;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the existing key equal to the new key, or null if the new key was added. The new key
+   *     itself is returned when there is no room left for it near its home slot.
+   */
+  MetricKey putIfAbsent(MetricKey newKey) {
+    int home = spread(newKey.hashCode());
+    while (true) {
+      int free = -1;
+      MetricKey freeSlot = null;
+      for (int i = 0; i < MAX_PROBES; ++i) {
+        int index = (home + i) & mask;
+        MetricKey key = slots.get(index);
+        if (null == key || key == TOMBSTONE) {
+          if (free < 0) {
+            free = index;
+            freeSlot = key;
+          }
+          if (null == key) {
+            break;
+          }
+        } else if (key.equals(newKey)) {
+          return key;
+        }
+      }
+      if (free < 0) {
+        return newKey;
+      }
+      if (slots.compareAndSet(free, freeSlot, newKey)) {
+        return null;
+      }
+      // lost a race for the slot, which may have been taken by the same key
+    }
+  }
+
+  /** Only called by the aggregator thread. */
+  boolean remove(MetricKey key) {
+    int home = spread(key.hashCode());
+    for (int i = 0; i < MAX_PROBES; ++i) {
+      int index = (home + i) & mask;
+      MetricKey existing = slots.get(index);
+      if (null == existing) {
+        return false;
+      }
+      if (existing != TOMBSTONE
+          && existing.equals(key)
+          && slots.compareAndSet(index, existing, TOMBSTONE)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private int spread(int hash) {
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+}
@@ -0,0 +1,243 @@
+package datadog.trace.common.sampling;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import datadog.trace.api.Config;
+import datadog.trace.api.StatsDClient;
+import datadog.trace.api.sampling.PrioritySampling;
+import datadog.trace.common.writer.ddagent.DroppingPolicy;
+import datadog.trace.core.CoreSpan;
+import datadog.trace.core.util.SimpleRateLimiter;
+import datadog.trace.util.AgentTaskScheduler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.jctools.counters.CountersFactory;
+import org.jctools.counters.FixedSizeStripedLongCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decides, once a trace is complete, whether to keep a trace which priority sampling dropped, so
+ * that the dropped traces which are worth looking at are still sent. A trace is kept when it
+ * matches one of the policies (it has an error, is slow, or carries one of the configured tags)
+ * and that policy hasn't reached its rate limit. Traces kept by priority sampling or by the user
+ * are never sampled, so they are never dropped here.
+ *
+ * <p>The tracer only drops traces itself when tracer metrics are enabled and the agent computes
+ * stats from them, so tail sampling is disabled without tracer metrics, and no trace is sampled
+ * until the agent is known to compute stats. The effective rate of the policy which kept a trace
+ * is recorded on its root span, and the traces matched and kept by each policy are reported to
+ * statsd.
+ */
+public class TailSampler<T extends CoreSpan<T>> {
+
+  private static final Logger log = LoggerFactory.getLogger(TailSampler.class);
+
+  public static final String TAIL_SAMPLING_RATE = "_dd.tail_psr";
+
+  private static final String[] NO_TAGS = new String[0];
+
+  /**
+   * @param droppingPolicy whether the agent computes stats from traces the tracer drops, or null
+   *     if the traces aren't written to the agent
+   */
+  public static <T extends CoreSpan<T>> TailSampler<T> forConfig(
+      final Config config, final DroppingPolicy droppingPolicy, final StatsDClient statsd) {
+    if (!config.isTailSamplingEnabled()) {
+      return null;
+    }
+    if (!config.isTracerMetricsEnabled() || null == droppingPolicy) {
+      log.warn(
+          "Tail sampling requires tracer metrics to be sent to the agent, without them the tracer"
+              + " doesn't drop traces, it will be disabled");
+      return null;
+    }
+    final List<Policy<T>> policies = new ArrayList<>();
+    if (config.getTailSamplingErrorRateLimit() > 0) {
+      policies.add(new ErrorPolicy<T>(config.getTailSamplingErrorRateLimit()));
+    }
+    if (config.getTailSamplingLatencyThresholdMs() > 0
+        && config.getTailSamplingLatencyRateLimit() > 0) {
+      policies.add(
+          new LatencyPolicy<T>(
+              MILLISECONDS.toNanos(config.getTailSamplingLatencyThresholdMs()),
+              config.getTailSamplingLatencyRateLimit()));
+    }
+    if (!config.getTailSamplingTags().isEmpty() && config.getTailSamplingTagsRateLimit() > 0) {
+      policies.add(
+          new TagPolicy<T>(config.getTailSamplingTags(), config.getTailSamplingTagsRateLimit()));
+    }
+    if (policies.isEmpty()) {
+      log.warn("Tail sampling is enabled without any policies, it will be disabled");
+      return null;
+    }
+    final TailSampler<T> sampler = new TailSampler<>(policies, droppingPolicy, statsd);
+    AgentTaskScheduler.INSTANCE.weakScheduleAtFixedRate(
+        new Report<T>(), sampler, 10, 10, SECONDS);
+    return sampler;
+  }
+
+  private final List<Policy<T>> policies;
+  private final DroppingPolicy droppingPolicy;
+  private final StatsDClient statsd;
+  private final FixedSizeStripedLongCounter droppedTraces =
+      CountersFactory.createFixedSizeStripedCounter(8);
+  private long reportedDropped;
+
+  TailSampler(
+      final List<Policy<T>> policies,
+      final DroppingPolicy droppingPolicy,
+      final StatsDClient statsd) {
+    this.policies = policies;
+    this.droppingPolicy = droppingPolicy;
+    this.statsd = statsd;
+  }
+
+  /**
+   * @param rootSpan the span the trace's sampling decision is recorded on
+   * @param trace the completed trace, or its first chunk
+   * @return true if the trace was dropped by priority sampling but should be kept
+   */
+  public boolean sample(final T rootSpan, final List<T> trace) {
+    if (rootSpan.samplingPriority() != PrioritySampling.SAMPLER_DROP) {
+      // kept by priority sampling, or dropped by the user
+      return false;
+    }
+    if (!droppingPolicy.active()) {
+      // the agent receives the trace anyway, or hasn't said it computes stats yet
+      return false;
+    }
+    for (final Policy<T> policy : policies) {
+      if (policy.matches(trace)) {
+        policy.matched.inc();
+        if (policy.rateLimiter.tryAcquire()) {
+          policy.kept.inc();
+          rootSpan.setMetric(TAIL_SAMPLING_RATE, policy.effectiveRate());
+          return true;
+        }
+      }
+    }
+    droppedTraces.inc();
+    return false;
+  }
+
+  abstract static class Policy<T extends CoreSpan<T>> {
+    private final String[] tags;
+    private final SimpleRateLimiter rateLimiter;
+    private final FixedSizeStripedLongCounter matched =
+        CountersFactory.createFixedSizeStripedCounter(8);
+    private final FixedSizeStripedLongCounter kept =
+        CountersFactory.createFixedSizeStripedCounter(8);
+    // only touched by the report task, the counters themselves are never reset
+    private long reportedMatched;
+    private long reportedKept;
+
+    Policy(final String name, final long rateLimit) {
+      this.tags = new String[] {"policy:" + name};
+      this.rateLimiter = new SimpleRateLimiter(rateLimit);
+    }
+
+    abstract boolean matches(List<T> trace);
+
+    double effectiveRate() {
+      final long matched = this.matched.get();
+      return matched == 0 ? 1D : Math.min(1D, (double) kept.get() / matched);
+    }
+  }
+
+  static final class ErrorPolicy<T extends CoreSpan<T>> extends Policy<T> {
+    ErrorPolicy(final long rateLimit) {
+      super("error", rateLimit);
+    }
+
+    @Override
+    boolean matches(final List<T> trace) {
+      for (final T span : trace) {
+        if (span.getError() != 0) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  static final class LatencyPolicy<T extends CoreSpan<T>> extends Policy<T> {
+    private final long thresholdNanos;
+
+    LatencyPolicy(final long thresholdNanos, final long rateLimit) {
+      super("latency", rateLimit);
+      this.thresholdNanos = thresholdNanos;
+    }
+
+    @Override
+    boolean matches(final List<T> trace) {
+      for (final T span : trace) {
+        if (span.getDurationNano() >= thresholdNanos) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /** Matches traces with a span carrying one of the tags, with the given value or "*" for any. */
+  static final class TagPolicy<T extends CoreSpan<T>> extends Policy<T> {
+    private final String[] keys;
+    private final String[] values;
+
+    TagPolicy(final Map<String, String> tags, final long rateLimit) {
+      super("tags", rateLimit);
+      this.keys = new String[tags.size()];
+      this.values = new String[tags.size()];
+      int i = 0;
+      for (final Map.Entry<String, String> tag : tags.entrySet()) {
+        keys[i] = tag.getKey();
+        values[i] = tag.getValue();
+        ++i;
+      }
+    }
+
+    @Override
+    boolean matches(final List<T> trace) {
+      for (final T span : trace) {
+        for (int i = 0; i < keys.length; ++i) {
+          final Object value = span.getTag(keys[i]);
+          if (null != value && ("*".equals(values[i]) || values[i].equals(String.valueOf(value)))) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+  }
+
+  static final class Report<T extends CoreSpan<T>>
+      implements AgentTaskScheduler.Task<TailSampler<T>> {
+    @Override
+    public void run(final TailSampler<T> target) {
+      for (final Policy<T> policy : target.policies) {
+        final long matched = policy.matched.get();
+        reportIfChanged(
+            target.statsd, "tail_sampling.matched", matched - policy.reportedMatched, policy.tags);
+        policy.reportedMatched = matched;
+        final long kept = policy.kept.get();
+        reportIfChanged(
+            target.statsd, "tail_sampling.kept", kept - policy.reportedKept, policy.tags);
+        policy.reportedKept = kept;
+      }
+      final long dropped = target.droppedTraces.get();
+      reportIfChanged(
+          target.statsd, "tail_sampling.dropped", dropped - target.reportedDropped, NO_TAGS);
+      target.reportedDropped = dropped;
+    }
+
+    private static void reportIfChanged(
+        final StatsDClient statsd, final String aspect, final long count, final String[] tags) {
+      if (count > 0) {
+        statsd.count(aspect, count, tags);
+      }
+    }
+  }
+}
@@ -12,12 +12,17 @@ import datadog.trace.api.StatsDClient;
 import datadog.trace.common.writer.ddagent.DDAgentApi;
 import datadog.trace.common.writer.ddagent.DDAgentFeaturesDiscovery;
 import datadog.trace.common.writer.ddagent.DDAgentResponseListener;
+import datadog.trace.common.writer.ddagent.DroppingPolicy;
 import datadog.trace.common.writer.ddagent.PayloadDispatcher;
 import datadog.trace.common.writer.ddagent.Prioritization;
+import datadog.trace.common.writer.ddagent.SpillBuffer;
 import datadog.trace.common.writer.ddagent.TraceProcessingWorker;
+import datadog.trace.common.writer.ddagent.TraceQueueBudget;
 import datadog.trace.core.DDSpan;
 import datadog.trace.core.monitor.HealthMetrics;
 import datadog.trace.core.monitor.Monitoring;
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import okhttp3.HttpUrl;
@@ -48,6 +53,8 @@ public class DDAgentWriter implements Writer {
   }
 
   private static final int BUFFER_SIZE = 1024;
+  // processes of the same service on a host each take their own copy of the spill file
+  private static final int SPILL_FILES = 8;
 
   private final DDAgentApi api;
   private final TraceProcessingWorker traceProcessingWorker;
@@ -69,6 +76,9 @@ public class DDAgentWriter implements Writer {
     Monitoring monitoring = Monitoring.DISABLED;
     boolean traceAgentV05Enabled = Config.get().isTraceAgentV05Enabled();
     boolean metricsReportingEnabled = Config.get().isTracerMetricsEnabled();
+    String spillFile = Config.get().isTraceSpillEnabled() ? Config.get().getTraceSpillFile() : null;
+    long spillSizeBytes = Config.get().getTraceSpillSizeMb() * 1024L * 1024L;
+    long traceQueueBudgetBytes = Config.get().getTraceQueueBudgetMb() * 1024L * 1024L;
 
     private DDAgentApi agentApi;
     private Prioritization prioritization;
@@ -139,6 +149,23 @@ public class DDAgentWriter implements Writer {
       return this;
     }
 
+    /** Payloads which can't be sent are kept in this file until the agent is reachable again. */
+    public DDAgentWriterBuilder spillFile(String spillFile) {
+      this.spillFile = spillFile;
+      return this;
+    }
+
+    public DDAgentWriterBuilder spillSizeBytes(long spillSizeBytes) {
+      this.spillSizeBytes = spillSizeBytes;
+      return this;
+    }
+
+    /** Traces are dropped once the estimated size of the queued traces reaches this budget. */
+    public DDAgentWriterBuilder traceQueueBudgetBytes(long traceQueueBudgetBytes) {
+      this.traceQueueBudgetBytes = traceQueueBudgetBytes;
+      return this;
+    }
+
     public DDAgentWriter build() {
       return new DDAgentWriter(
           agentApi,
@@ -153,7 +180,10 @@ public class DDAgentWriter implements Writer {
           monitoring,
           traceAgentV05Enabled,
           metricsReportingEnabled,
-          featureDiscovery);
+          featureDiscovery,
+          spillFile,
+          spillSizeBytes,
+          traceQueueBudgetBytes);
     }
   }
 
@@ -170,7 +200,10 @@ public class DDAgentWriter implements Writer {
       final Monitoring monitoring,
       final boolean traceAgentV05Enabled,
       boolean metricsReportingEnabled,
-      DDAgentFeaturesDiscovery featureDiscovery) {
+      DDAgentFeaturesDiscovery featureDiscovery,
+      String spillFile,
+      long spillSizeBytes,
+      long traceQueueBudgetBytes) {
     HttpUrl agentUrl = HttpUrl.get("http://" + agentHost + ":" + traceAgentPort);
     OkHttpClient client =
         null == featureDiscovery || null == agentApi
@@ -189,7 +222,15 @@ public class DDAgentWriter implements Writer {
     }
     this.discovery = featureDiscovery;
     this.healthMetrics = healthMetrics;
-    this.dispatcher = new PayloadDispatcher(featureDiscovery, api, healthMetrics, monitoring);
+    TraceQueueBudget budget = new TraceQueueBudget(traceQueueBudgetBytes);
+    this.dispatcher =
+        new PayloadDispatcher(
+            featureDiscovery,
+            api,
+            healthMetrics,
+            monitoring,
+            openSpillBuffer(spillFile, spillSizeBytes, healthMetrics),
+            budget);
     this.traceProcessingWorker =
         new TraceProcessingWorker(
             traceBufferSize,
@@ -198,7 +239,8 @@ public class DDAgentWriter implements Writer {
             featureDiscovery,
             null == prioritization ? FAST_LANE : prioritization,
             flushFrequencySeconds,
-            TimeUnit.SECONDS);
+            TimeUnit.SECONDS,
+            budget);
   }
 
   private DDAgentWriter(
@@ -227,6 +269,20 @@ public class DDAgentWriter implements Writer {
     this.dispatcher = dispatcher;
   }
 
+  private static SpillBuffer openSpillBuffer(
+      String spillFile, long spillSizeBytes, HealthMetrics healthMetrics) {
+    if (null == spillFile) {
+      return null;
+    }
+    try {
+      return SpillBuffer.openAvailable(
+          new File(spillFile), SPILL_FILES, spillSizeBytes, healthMetrics);
+    } catch (IOException | RuntimeException e) {
+      log.warn("Unable to open trace spill file {}, payloads will not be spilled", spillFile, e);
+      return null;
+    }
+  }
+
   public void addResponseListener(final DDAgentResponseListener listener) {
     api.addResponseListener(listener);
   }
@@ -283,6 +339,11 @@ public class DDAgentWriter implements Writer {
     return api;
   }
 
+  /** @return whether the agent computes stats from dropped traces, so they can be left out */
+  public DroppingPolicy getDroppingPolicy() {
+    return discovery;
+  }
+
   @Override
   public void start() {
     if (!closed) {
@@ -297,6 +358,7 @@ public class DDAgentWriter implements Writer {
     final boolean flushed = flush();
     closed = true;
     traceProcessingWorker.close();
+    dispatcher.close();
     healthMetrics.close();
     healthMetrics.onShutdown(flushed);
   }
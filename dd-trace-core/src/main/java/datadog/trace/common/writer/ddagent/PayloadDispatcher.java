@@ -3,13 +3,18 @@ package datadog.trace.common.writer.ddagent;
 import datadog.trace.core.CoreSpan;
 import datadog.trace.core.monitor.HealthMetrics;
 import datadog.trace.core.monitor.Monitoring;
+import datadog.trace.core.monitor.PipelineStages;
 import datadog.trace.core.monitor.Recording;
 import datadog.trace.core.serialization.ByteBufferConsumer;
 import datadog.trace.core.serialization.FlushingBuffer;
 import datadog.trace.core.serialization.WritableFormatter;
 import datadog.trace.core.serialization.msgpack.MsgPackWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.jctools.counters.CountersFactory;
 import org.jctools.counters.FixedSizeStripedLongCounter;
 import org.slf4j.Logger;
@@ -19,15 +24,31 @@ public class PayloadDispatcher implements ByteBufferConsumer {
 
   private static final Logger log = LoggerFactory.getLogger(PayloadDispatcher.class);
 
+  // spilled payloads are replayed a few at a time, after a successful send or a flush
+  private static final int MAX_REPLAYS = 4;
+  private static final long REPLAY_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(5);
+
   private final DDAgentApi api;
   private final DDAgentFeaturesDiscovery featuresDiscovery;
   private final HealthMetrics healthMetrics;
   private final Monitoring monitoring;
+  private final SpillBuffer spill;
+  private final TraceQueueBudget budget;
 
   private Recording batchTimer;
   private TraceMapper traceMapper;
   private WritableFormatter packer;
 
+  // pipeline stage bookkeeping, only touched by the trace processing thread
+  private long batchStartNanoTicks;
+  private int batchSpanCount;
+  private long sendNanoTicks;
+
+  // spans in the payload being filled, to keep the budget's average span size up to date
+  private int payloadSpanCount;
+
+  private long nextReplayNanoTicks = System.nanoTime();
+
   private final FixedSizeStripedLongCounter droppedSpanCount =
       CountersFactory.createFixedSizeStripedCounter(8);
   private final FixedSizeStripedLongCounter droppedTraceCount =
@@ -38,16 +59,47 @@ public class PayloadDispatcher implements ByteBufferConsumer {
       DDAgentApi api,
       HealthMetrics healthMetrics,
       Monitoring monitoring) {
+    this(featuresDiscovery, api, healthMetrics, monitoring, null);
+  }
+
+  public PayloadDispatcher(
+      DDAgentFeaturesDiscovery featuresDiscovery,
+      DDAgentApi api,
+      HealthMetrics healthMetrics,
+      Monitoring monitoring,
+      SpillBuffer spill) {
+    this(featuresDiscovery, api, healthMetrics, monitoring, spill, new TraceQueueBudget(0));
+  }
+
+  public PayloadDispatcher(
+      DDAgentFeaturesDiscovery featuresDiscovery,
+      DDAgentApi api,
+      HealthMetrics healthMetrics,
+      Monitoring monitoring,
+      SpillBuffer spill,
+      TraceQueueBudget budget) {
     this.featuresDiscovery = featuresDiscovery;
     this.api = api;
     this.healthMetrics = healthMetrics;
     this.monitoring = monitoring;
+    this.spill = spill;
+    this.budget = budget;
   }
 
   void flush() {
     if (null != packer) {
       packer.flush();
     }
+    // probe the agent with spilled payloads even when there's nothing else to send
+    if (null != spill && System.nanoTime() - nextReplayNanoTicks >= 0 && !spill.isEmpty()) {
+      replaySpilled();
+    }
+  }
+
+  public void close() {
+    if (null != spill) {
+      spill.close();
+    }
   }
 
   public void onDroppedTrace(int spanCount) {
@@ -61,8 +113,23 @@ public class PayloadDispatcher implements ByteBufferConsumer {
     // there are alternative approaches to avoid blocking here, such as
     // introducing an unbound queue and another thread to do the IO
     // however, we can't block the application threads from here.
+    final boolean recordStage = PipelineStages.isEnabled();
+    final long startNanoTicks = recordStage ? System.nanoTime() : 0;
+    // sends outside this call (heartbeat flushes, replays) aren't part of this serialization
+    sendNanoTicks = 0;
     if (null == traceMapper || !packer.format(trace, traceMapper)) {
       healthMetrics.onFailedPublish(trace.get(0).samplingPriority());
+    } else {
+      payloadSpanCount += trace.size();
+      if (recordStage) {
+        // formatting may have sent the previous batch, which is not serialization time
+        PipelineStages.record(
+            PipelineStages.Stage.SERIALIZATION, 0, startNanoTicks + sendNanoTicks, 1, trace.size());
+        if (0 == batchSpanCount) {
+          batchStartNanoTicks = startNanoTicks;
+        }
+        batchSpanCount += trace.size();
+      }
     }
   }
 
@@ -102,20 +169,97 @@ public class PayloadDispatcher implements ByteBufferConsumer {
       Payload payload = newPayload(messageCount, buffer);
       final int sizeInBytes = payload.sizeInBytes();
       healthMetrics.onSerialize(sizeInBytes);
+      budget.onSerialized(payloadSpanCount, sizeInBytes);
+      payloadSpanCount = 0;
+      final boolean recordStage = PipelineStages.isEnabled();
+      final long sendStartNanoTicks = recordStage ? System.nanoTime() : 0;
       DDAgentApi.Response response = api.sendSerializedTraces(payload);
-      traceMapper.reset();
+      if (recordStage) {
+        PipelineStages.record(
+            PipelineStages.Stage.AGENT_SEND,
+            batchSpanCount > 0 ? sendStartNanoTicks - batchStartNanoTicks : 0,
+            sendStartNanoTicks,
+            messageCount,
+            batchSpanCount);
+      }
+      batchSpanCount = 0;
       if (response.success()) {
         if (log.isDebugEnabled()) {
           log.debug("Successfully sent {} traces to the API", messageCount);
         }
         healthMetrics.onSend(messageCount, sizeInBytes, response);
+        if (null != spill && !spill.isEmpty()) {
+          replaySpilled();
+        }
       } else {
         if (log.isDebugEnabled()) {
           log.debug(
               "Failed to send {} traces of size {} bytes to the API", messageCount, sizeInBytes);
         }
         healthMetrics.onFailedSend(messageCount, sizeInBytes, response);
+        if (null != spill && shouldRetry(response)) {
+          spill(payload, messageCount, sizeInBytes);
+          nextReplayNanoTicks = System.nanoTime() + REPLAY_BACKOFF_NANOS;
+        }
       }
+      // the mapper's buffers back the payload, so it can only be reset once it's been spilled
+      traceMapper.reset();
+      if (recordStage) {
+        // includes any spilled payloads replayed after the send
+        sendNanoTicks += System.nanoTime() - sendStartNanoTicks;
+      }
+    }
+  }
+
+  private void spill(Payload payload, int messageCount, int sizeInBytes) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(sizeInBytes);
+    try {
+      payload.writeTo(Channels.newChannel(bytes));
+    } catch (IOException e) {
+      log.debug("Failed to spill {} traces", messageCount, e);
+      return;
+    }
+    if (spill.append(traceMapper.endpoint(), messageCount, bytes.toByteArray())) {
+      healthMetrics.onSpill(messageCount, sizeInBytes, spill.size(), spill.usedBytes());
+    } else {
+      healthMetrics.onSpillEvicted(messageCount);
     }
   }
+
+  private void replaySpilled() {
+    selectTraceMapper();
+    if (null == traceMapper) {
+      return;
+    }
+    for (int i = 0; i < MAX_REPLAYS; ++i) {
+      SpillBuffer.SpilledPayload payload = spill.peek();
+      if (null == payload) {
+        return;
+      }
+      if (!traceMapper.endpoint().equals(payload.endpoint())) {
+        // serialized for an endpoint the agent no longer accepts
+        spill.remove();
+        healthMetrics.onSpillEvicted(payload.traceCount());
+        continue;
+      }
+      DDAgentApi.Response response = api.sendSerializedTraces(payload);
+      if (response.success()) {
+        spill.remove();
+        healthMetrics.onReplay(
+            payload.traceCount(), payload.sizeInBytes(), spill.size(), spill.usedBytes());
+      } else if (shouldRetry(response)) {
+        nextReplayNanoTicks = System.nanoTime() + REPLAY_BACKOFF_NANOS;
+        return;
+      } else {
+        spill.remove();
+        healthMetrics.onSpillEvicted(payload.traceCount());
+      }
+    }
+  }
+
+  /** Whether the payload could be accepted later, when the agent is reachable or less busy. */
+  private static boolean shouldRetry(DDAgentApi.Response response) {
+    Integer status = response.status();
+    return null == status || status == 404 || status == 408 || status == 429 || status >= 500;
+  }
 }
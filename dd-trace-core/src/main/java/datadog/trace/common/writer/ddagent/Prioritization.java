@@ -13,27 +13,43 @@ public enum Prioritization {
   ENSURE_TRACE {
     @Override
     public PrioritizationStrategy create(
-        final Queue<Object> primary, final Queue<Object> secondary, DroppingPolicy neverUsed) {
-      return new EnsureTraceStrategy(primary, secondary);
+        final Queue<Object> primary,
+        final Queue<Object> secondary,
+        DroppingPolicy neverUsed,
+        TraceQueueBudget budget) {
+      return new EnsureTraceStrategy(primary, secondary, budget);
     }
   },
   FAST_LANE {
     @Override
     public PrioritizationStrategy create(
-        final Queue<Object> primary, final Queue<Object> secondary, DroppingPolicy droppingPolicy) {
-      return new FastLaneStrategy(primary, secondary, droppingPolicy);
+        final Queue<Object> primary,
+        final Queue<Object> secondary,
+        DroppingPolicy droppingPolicy,
+        TraceQueueBudget budget) {
+      return new FastLaneStrategy(primary, secondary, droppingPolicy, budget);
     }
   };
 
+  public PrioritizationStrategy create(
+      Queue<Object> primary, Queue<Object> secondary, DroppingPolicy droppingPolicy) {
+    return create(primary, secondary, droppingPolicy, new TraceQueueBudget(0));
+  }
+
   public abstract PrioritizationStrategy create(
-      Queue<Object> primary, Queue<Object> secondary, DroppingPolicy droppingPolicy);
+      Queue<Object> primary,
+      Queue<Object> secondary,
+      DroppingPolicy droppingPolicy,
+      TraceQueueBudget budget);
 
   private abstract static class PrioritizationStrategyWithFlush implements PrioritizationStrategy {
 
     protected final Queue<Object> primary;
+    protected final TraceQueueBudget budget;
 
-    protected PrioritizationStrategyWithFlush(Queue<Object> primary) {
+    protected PrioritizationStrategyWithFlush(Queue<Object> primary, TraceQueueBudget budget) {
       this.primary = primary;
+      this.budget = budget;
     }
 
     @Override
@@ -56,23 +72,42 @@ public enum Prioritization {
         offered = queue.offer(event);
       } while (!offered);
     }
+
+    /** Offers a trace whose weight has been acquired, giving the weight back if it's refused. */
+    protected boolean offer(final Queue<Object> queue, final List<?> trace, final long weight) {
+      if (queue.offer(trace)) {
+        return true;
+      }
+      budget.release(weight);
+      return false;
+    }
+
+    protected static long weightOf(final List<?> trace) {
+      return trace instanceof TraceProcessingWorker.EnqueuedTrace
+          ? ((TraceProcessingWorker.EnqueuedTrace<?>) trace).weight
+          : 0;
+    }
   }
 
   private static final class EnsureTraceStrategy extends PrioritizationStrategyWithFlush {
 
     private final Queue<Object> secondary;
 
-    private EnsureTraceStrategy(final Queue<Object> primary, final Queue<Object> secondary) {
-      super(primary);
+    private EnsureTraceStrategy(
+        final Queue<Object> primary, final Queue<Object> secondary, TraceQueueBudget budget) {
+      super(primary, budget);
       this.secondary = secondary;
     }
 
     @Override
     public <T extends CoreSpan<T>> boolean publish(T root, int priority, final List<T> trace) {
+      // traces are never dropped to respect the budget, but they still count towards it
+      final long weight = weightOf(trace);
+      budget.forceAcquire(weight);
       switch (priority) {
         case SAMPLER_DROP:
         case USER_DROP:
-          return secondary.offer(trace);
+          return offer(secondary, trace, weight);
         default:
           blockingOffer(primary, trace);
           return true;
@@ -86,23 +121,30 @@ public enum Prioritization {
     private final DroppingPolicy droppingPolicy;
 
     private FastLaneStrategy(
-        final Queue<Object> primary, final Queue<Object> secondary, DroppingPolicy droppingPolicy) {
-      super(primary);
+        final Queue<Object> primary,
+        final Queue<Object> secondary,
+        DroppingPolicy droppingPolicy,
+        TraceQueueBudget budget) {
+      super(primary, budget);
       this.secondary = secondary;
       this.droppingPolicy = droppingPolicy;
     }
 
     @Override
     public <T extends CoreSpan<T>> boolean publish(T root, int priority, List<T> trace) {
+      final long weight = weightOf(trace);
       if (root.isForceKeep()) {
-        return primary.offer(trace);
+        budget.forceAcquire(weight);
+        return offer(primary, trace, weight);
       }
       switch (priority) {
         case SAMPLER_DROP:
         case USER_DROP:
-          return !droppingPolicy.active() && secondary.offer(trace);
+          return !droppingPolicy.active()
+              && budget.tryAcquireDroppable(weight)
+              && offer(secondary, trace, weight);
         default:
-          return primary.offer(trace);
+          return budget.tryAcquire(weight) && offer(primary, trace, weight);
       }
     }
   }
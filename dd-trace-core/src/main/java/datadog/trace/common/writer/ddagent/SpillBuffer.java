@@ -0,0 +1,377 @@
+package datadog.trace.common.writer.ddagent;
+
+import static datadog.trace.core.http.OkHttpUtils.msgpackRequestBodyOf;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+import datadog.trace.core.monitor.HealthMetrics;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
+import java.util.zip.CRC32;
+import okhttp3.RequestBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded ring of serialized payloads which could not be sent to the agent, kept in a memory
+ * mapped file so they survive until the agent is reachable again, even across restarts. When the
+ * ring is full the oldest payloads are evicted to make room.
+ *
+ * <p>Layout: a header with the ring's state, followed by the records. Each record is framed by its
+ * length and a CRC32 of its contents, and holds the trace count, the endpoint the payload was
+ * serialized for and the payload bytes. Records never straddle the end of the file; the space left
+ * at the end is skipped and marked with {@link #WRAP} when it is large enough to hold the marker.
+ *
+ * <p>Only used by the trace processing thread, the lock protects against a concurrent close.
+ */
+public final class SpillBuffer {
+
+  private static final Logger log = LoggerFactory.getLogger(SpillBuffer.class);
+
+  private static final int MAGIC = 0xDD5B111F;
+  private static final int VERSION = 1;
+
+  // magic, version, capacity, head, tail, used, count
+  private static final int HEADER_SIZE = 28;
+  // length, crc, trace count, endpoint length
+  private static final int RECORD_HEADER_SIZE = 13;
+  private static final int WRAP = -1;
+
+  private final RandomAccessFile file;
+  private final FileLock lock;
+  private final MappedByteBuffer buffer;
+  private final int capacity;
+  private final HealthMetrics healthMetrics;
+  private final CRC32 crc = new CRC32();
+
+  private int head;
+  private int tail;
+  private int used;
+  private int count;
+
+  /**
+   * Maps the spill file, recovering the payloads already in it.
+   *
+   * @throws IOException if the file can't be mapped or is being used by another process
+   */
+  public static SpillBuffer open(File path, long sizeInBytes, HealthMetrics healthMetrics)
+      throws IOException {
+    SpillBuffer spill = tryOpen(path, sizeInBytes, healthMetrics);
+    if (null == spill) {
+      throw new IOException("Spill file " + path + " is in use");
+    }
+    return spill;
+  }
+
+  /**
+   * Maps the first of the spill file and its numbered siblings ({@code name-1.bin}, {@code
+   * name-2.bin}...) which isn't being used by another process, so several processes configured
+   * with the same file each get their own, and recovers the payloads already in it.
+   *
+   * @param files how many files to try, including the spill file itself
+   * @throws IOException if a file can't be mapped or all of them are being used
+   */
+  public static SpillBuffer openAvailable(
+      File path, int files, long sizeInBytes, HealthMetrics healthMetrics) throws IOException {
+    for (int i = 0; i < files; ++i) {
+      SpillBuffer spill = tryOpen(i == 0 ? path : sibling(path, i), sizeInBytes, healthMetrics);
+      if (null != spill) {
+        return spill;
+      }
+    }
+    throw new IOException("Spill file " + path + " and its siblings are in use");
+  }
+
+  static File sibling(File path, int number) {
+    String name = path.getName();
+    int extension = name.lastIndexOf('.');
+    String siblingName =
+        extension > 0
+            ? name.substring(0, extension) + '-' + number + name.substring(extension)
+            : name + '-' + number;
+    return new File(path.getParentFile(), siblingName);
+  }
+
+  /** @return the mapped spill file, or null if it's being used by another process */
+  private static SpillBuffer tryOpen(File path, long sizeInBytes, HealthMetrics healthMetrics)
+      throws IOException {
+    int capacity = (int) Math.min(Integer.MAX_VALUE, sizeInBytes) - HEADER_SIZE;
+    if (capacity <= RECORD_HEADER_SIZE) {
+      throw new IOException("Spill file size too small: " + sizeInBytes);
+    }
+    File parent = path.getAbsoluteFile().getParentFile();
+    if (null != parent) {
+      parent.mkdirs();
+    }
+    RandomAccessFile file = new RandomAccessFile(path, "rw");
+    try {
+      FileLock lock;
+      try {
+        lock = file.getChannel().tryLock();
+      } catch (OverlappingFileLockException e) {
+        lock = null;
+      }
+      if (null == lock) {
+        file.close();
+        return null;
+      }
+      MappedByteBuffer buffer =
+          file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + capacity);
+      return new SpillBuffer(file, lock, buffer, capacity, healthMetrics);
+    } catch (IOException | RuntimeException e) {
+      file.close();
+      throw e;
+    }
+  }
+
+  private SpillBuffer(
+      RandomAccessFile file,
+      FileLock lock,
+      MappedByteBuffer buffer,
+      int capacity,
+      HealthMetrics healthMetrics) {
+    this.file = file;
+    this.lock = lock;
+    this.buffer = buffer;
+    this.capacity = capacity;
+    this.healthMetrics = healthMetrics;
+    recover();
+  }
+
+  private void recover() {
+    if (buffer.getInt(0) == MAGIC
+        && buffer.getInt(4) == VERSION
+        && buffer.getInt(8) == capacity) {
+      head = buffer.getInt(12);
+      tail = buffer.getInt(16);
+      used = buffer.getInt(20);
+      count = buffer.getInt(24);
+      if (head >= 0
+          && head < capacity
+          && tail >= 0
+          && tail < capacity
+          && used >= 0
+          && used <= capacity
+          && count >= 0) {
+        if (count > 0) {
+          log.debug("Recovered {} spilled payloads", count);
+        }
+        return;
+      }
+    }
+    buffer.putInt(0, MAGIC);
+    buffer.putInt(4, VERSION);
+    buffer.putInt(8, capacity);
+    clear();
+  }
+
+  /**
+   * Appends a payload which could not be sent, evicting the oldest payloads if there isn't enough
+   * space for it.
+   *
+   * @return false if the payload is larger than the whole ring
+   */
+  synchronized boolean append(String endpoint, int traceCount, byte[] payload) {
+    byte[] endpointBytes = endpoint.getBytes(ISO_8859_1);
+    int recordSize = RECORD_HEADER_SIZE + endpointBytes.length + payload.length;
+    if (recordSize > capacity || endpointBytes.length > 0xFF) {
+      return false;
+    }
+    int padding = tail + recordSize > capacity ? capacity - tail : 0;
+    while (capacity - used < padding + recordSize) {
+      evictOldest();
+      if (0 == count) {
+        padding = 0;
+      }
+    }
+    if (padding > 0) {
+      if (padding >= 4) {
+        buffer.putInt(HEADER_SIZE + tail, WRAP);
+      }
+      used += padding;
+      tail = 0;
+    }
+    int position = HEADER_SIZE + tail;
+    crc.reset();
+    ByteBuffer record = buffer.duplicate();
+    record.position(position);
+    record.putInt(recordSize);
+    record.putInt(0); // crc, filled in below
+    record.putInt(traceCount);
+    record.put((byte) endpointBytes.length);
+    record.put(endpointBytes);
+    record.put(payload);
+    crc.update(traceCount >>> 24);
+    crc.update(traceCount >>> 16);
+    crc.update(traceCount >>> 8);
+    crc.update(traceCount);
+    crc.update(endpointBytes.length);
+    crc.update(endpointBytes);
+    crc.update(payload);
+    buffer.putInt(position + 4, (int) crc.getValue());
+    tail += recordSize;
+    if (tail == capacity) {
+      tail = 0;
+    }
+    used += recordSize;
+    ++count;
+    writeState();
+    return true;
+  }
+
+  /** @return the oldest payload, which stays in the ring until it is removed, or null if empty */
+  synchronized SpilledPayload peek() {
+    if (0 == count) {
+      return null;
+    }
+    skipWrap();
+    int position = HEADER_SIZE + head;
+    int recordSize = buffer.getInt(position);
+    if (recordSize < RECORD_HEADER_SIZE || head + recordSize > capacity) {
+      corrupt();
+      return null;
+    }
+    byte[] contents = new byte[recordSize - 8];
+    ByteBuffer record = buffer.duplicate();
+    record.position(position + 8);
+    record.get(contents);
+    crc.reset();
+    crc.update(contents);
+    int endpointLength = contents[4] & 0xFF;
+    if ((int) crc.getValue() != buffer.getInt(position + 4)
+        || 5 + endpointLength > contents.length) {
+      corrupt();
+      return null;
+    }
+    ByteBuffer wrapped = ByteBuffer.wrap(contents);
+    int traceCount = wrapped.getInt(0);
+    String endpoint = new String(contents, 5, endpointLength, ISO_8859_1);
+    wrapped.position(5 + endpointLength);
+    return new SpilledPayload(endpoint, traceCount, wrapped.slice());
+  }
+
+  /** Removes the oldest payload, once it has been replayed. */
+  synchronized void remove() {
+    if (count > 0) {
+      removeOldest();
+      writeState();
+    }
+  }
+
+  synchronized boolean isEmpty() {
+    return 0 == count;
+  }
+
+  synchronized int size() {
+    return count;
+  }
+
+  synchronized int usedBytes() {
+    return used;
+  }
+
+  public synchronized void close() {
+    try {
+      buffer.force();
+      lock.release();
+      file.close();
+    } catch (IOException e) {
+      log.debug("Error closing spill file", e);
+    }
+  }
+
+  private void evictOldest() {
+    if (0 == count) {
+      clear();
+      return;
+    }
+    skipWrap();
+    int traceCount = buffer.getInt(HEADER_SIZE + head + 8);
+    removeOldest();
+    healthMetrics.onSpillEvicted(traceCount);
+  }
+
+  private void removeOldest() {
+    skipWrap();
+    int recordSize = buffer.getInt(HEADER_SIZE + head);
+    if (recordSize < RECORD_HEADER_SIZE || head + recordSize > capacity) {
+      corrupt();
+      return;
+    }
+    head += recordSize;
+    if (head == capacity) {
+      head = 0;
+    }
+    used -= recordSize;
+    if (0 == --count) {
+      clear();
+    }
+  }
+
+  private void skipWrap() {
+    if (head + 4 > capacity || buffer.getInt(HEADER_SIZE + head) == WRAP) {
+      used -= capacity - head;
+      head = 0;
+    }
+  }
+
+  private void corrupt() {
+    log.debug("Discarding {} spilled payloads after finding a corrupt record", count);
+    clear();
+  }
+
+  private void clear() {
+    head = 0;
+    tail = 0;
+    used = 0;
+    count = 0;
+    writeState();
+  }
+
+  private void writeState() {
+    buffer.putInt(12, head);
+    buffer.putInt(16, tail);
+    buffer.putInt(20, used);
+    buffer.putInt(24, count);
+  }
+
+  /** A payload read back from the spill file, sent as is. */
+  static final class SpilledPayload extends Payload {
+
+    private final String endpoint;
+
+    SpilledPayload(String endpoint, int traceCount, ByteBuffer body) {
+      this.endpoint = endpoint;
+      withBody(traceCount, body);
+    }
+
+    String endpoint() {
+      return endpoint;
+    }
+
+    @Override
+    int sizeInBytes() {
+      return body.remaining();
+    }
+
+    @Override
+    void writeTo(WritableByteChannel channel) throws IOException {
+      ByteBuffer duplicate = body.duplicate();
+      while (duplicate.hasRemaining()) {
+        channel.write(duplicate);
+      }
+    }
+
+    @Override
+    RequestBody toRequest() {
+      return msgpackRequestBodyOf(Collections.singletonList(body.duplicate()));
+    }
+  }
+}
@@ -10,6 +10,9 @@ import java.util.List;
 public interface TraceMapper extends Mapper<List<? extends CoreSpan<?>>> {
 
   UTF8BytesString HTTP_STATUS = UTF8BytesString.create(Tags.HTTP_STATUS);
+  UTF8BytesString PEER_PORT = UTF8BytesString.create(Tags.PEER_PORT);
+  UTF8BytesString PEER_HOST_IPV4 = UTF8BytesString.create(Tags.PEER_HOST_IPV4);
+  UTF8BytesString PEER_HOST_IPV6 = UTF8BytesString.create(Tags.PEER_HOST_IPV6);
   UTF8BytesString THREAD_NAME = UTF8BytesString.create(DDTags.THREAD_NAME);
   UTF8BytesString THREAD_ID = UTF8BytesString.create(DDTags.THREAD_ID);
   UTF8BytesString SAMPLING_PRIORITY_KEY = UTF8BytesString.create("_sampling_priority_v1");
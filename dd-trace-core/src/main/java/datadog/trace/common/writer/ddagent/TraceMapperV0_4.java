@@ -3,17 +3,22 @@ package datadog.trace.common.writer.ddagent;
 import static datadog.trace.core.http.OkHttpUtils.msgpackRequestBodyOf;
 import static java.nio.charset.StandardCharsets.ISO_8859_1;
 
+import datadog.trace.api.DDTags;
 import datadog.trace.bootstrap.instrumentation.api.InstrumentationTags;
+import datadog.trace.bootstrap.instrumentation.api.Tags;
 import datadog.trace.core.CoreSpan;
 import datadog.trace.core.Metadata;
 import datadog.trace.core.MetadataConsumer;
 import datadog.trace.core.serialization.Writable;
+import datadog.trace.core.serialization.msgpack.MsgPackStringTable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import okhttp3.RequestBody;
 
 public final class TraceMapperV0_4 implements TraceMapper {
@@ -31,8 +36,25 @@ public final class TraceMapperV0_4 implements TraceMapper {
   public static final byte[] METRICS = "metrics".getBytes(ISO_8859_1);
   public static final byte[] META = "meta".getBytes(ISO_8859_1);
 
+  // tags whose values repeat across spans, other values (ids, urls, queries) are never interned
+  private static final Set<String> LOW_CARDINALITY_TAGS =
+      new HashSet<>(
+          Arrays.asList(
+              Tags.COMPONENT,
+              Tags.SPAN_KIND,
+              Tags.HTTP_METHOD,
+              Tags.DB_TYPE,
+              Tags.DB_INSTANCE,
+              Tags.PEER_SERVICE,
+              DDTags.LANGUAGE_TAG_KEY,
+              "env",
+              "version"));
+
   private final int size;
 
+  // only ever used by the serializer thread
+  private final MsgPackStringTable stringTable = new MsgPackStringTable(1024, 64);
+
   public TraceMapperV0_4(int size) {
     this.size = size;
   }
@@ -43,8 +65,13 @@ public final class TraceMapperV0_4 implements TraceMapper {
 
   private static final class MetaWriter extends MetadataConsumer {
 
+    private final MsgPackStringTable stringTable;
     private Writable writable;
 
+    MetaWriter(MsgPackStringTable stringTable) {
+      this.stringTable = stringTable;
+    }
+
     MetaWriter withWritable(Writable writable) {
       this.writable = writable;
       return this;
@@ -56,11 +83,13 @@ public final class TraceMapperV0_4 implements TraceMapper {
           metadata.getBaggage().size()
               + metadata.getTags().size()
               + (null == metadata.getHttpStatusCode() ? 0 : 1)
+              + metadata.peerHostIpCount()
               + 1;
       int metricsSize =
           (metadata.hasSamplingPriority() ? 1 : 0)
               + (metadata.measured() ? 1 : 0)
               + (metadata.topLevel() ? 1 : 0)
+              + (metadata.hasPeerPort() ? 1 : 0)
               + 1;
       for (Map.Entry<String, Object> tag : metadata.getTags().entrySet()) {
         if (tag.getValue() instanceof Number) {
@@ -84,9 +113,13 @@ public final class TraceMapperV0_4 implements TraceMapper {
       }
       writable.writeUTF8(THREAD_ID);
       writable.writeLong(metadata.getThreadId());
+      if (metadata.hasPeerPort()) {
+        writable.writeUTF8(PEER_PORT);
+        writable.writeInt(metadata.getPeerPort());
+      }
       for (Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
         if (entry.getValue() instanceof Number) {
-          writable.writeString(entry.getKey(), null);
+          writable.writeString(entry.getKey(), stringTable);
           writable.writeObject(entry.getValue(), null);
         }
       }
@@ -97,7 +130,7 @@ public final class TraceMapperV0_4 implements TraceMapper {
       // since they will be accumulated into maps in the same order downstream,
       // we just need to be sure that the size is the same as the number of elements
       for (Map.Entry<String, String> entry : metadata.getBaggage().entrySet()) {
-        writable.writeString(entry.getKey(), null);
+        writable.writeString(entry.getKey(), stringTable);
         writable.writeString(entry.getValue(), null);
       }
       writable.writeUTF8(THREAD_NAME);
@@ -106,16 +139,26 @@ public final class TraceMapperV0_4 implements TraceMapper {
         writable.writeUTF8(HTTP_STATUS);
         writable.writeUTF8(metadata.getHttpStatusCode());
       }
+      if (null != metadata.getPeerHostIPv4()) {
+        writable.writeUTF8(PEER_HOST_IPV4);
+        writable.writeUTF8(metadata.getPeerHostIPv4());
+      }
+      if (null != metadata.getPeerHostIPv6()) {
+        writable.writeUTF8(PEER_HOST_IPV6);
+        writable.writeUTF8(metadata.getPeerHostIPv6());
+      }
       for (Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
         if (!(entry.getValue() instanceof Number)) {
-          writable.writeString(entry.getKey(), null);
-          writable.writeObject(entry.getValue(), null);
+          writable.writeString(entry.getKey(), stringTable);
+          writable.writeObject(
+              entry.getValue(),
+              LOW_CARDINALITY_TAGS.contains(entry.getKey()) ? stringTable : null);
         }
       }
     }
   }
 
-  private final MetaWriter metaWriter = new MetaWriter();
+  private final MetaWriter metaWriter = new MetaWriter(stringTable);
 
   @Override
   public void map(List<? extends CoreSpan<?>> trace, final Writable writable) {
@@ -124,7 +167,7 @@ public final class TraceMapperV0_4 implements TraceMapper {
       writable.startMap(12);
       /* 1  */
       writable.writeUTF8(SERVICE);
-      writable.writeString(span.getServiceName(), null);
+      writable.writeString(span.getServiceName(), stringTable);
       /* 2  */
       writable.writeUTF8(NAME);
       writable.writeObject(span.getOperationName(), null);
@@ -136,10 +179,10 @@ public final class TraceMapperV0_4 implements TraceMapper {
       writable.writeLong(span.getTraceId().toLong());
       /* 5  */
       writable.writeUTF8(SPAN_ID);
-      writable.writeLong(span.getSpanId().toLong());
+      writable.writeLong(span.getSpanIdAsLong());
       /* 6  */
       writable.writeUTF8(PARENT_ID);
-      writable.writeLong(span.getParentId().toLong());
+      writable.writeLong(span.getParentIdAsLong());
       /* 7  */
       writable.writeUTF8(START);
       writable.writeLong(span.getStartTime());
@@ -148,7 +191,7 @@ public final class TraceMapperV0_4 implements TraceMapper {
       writable.writeLong(span.getDurationNano());
       /* 9  */
       writable.writeUTF8(TYPE);
-      writable.writeString(span.getType(), null);
+      writable.writeString(span.getType(), stringTable);
       /* 10 */
       writable.writeUTF8(ERROR);
       writable.writeInt(span.getError());
@@ -195,7 +238,9 @@ public final class TraceMapperV0_4 implements TraceMapper {
 
     @Override
     RequestBody toRequest() {
-      return msgpackRequestBodyOf(Arrays.asList(msgpackArrayHeader(traceCount()), body));
+      // send a view of the body, so it can still be spilled if the request fails
+      return msgpackRequestBodyOf(
+          Arrays.asList(msgpackArrayHeader(traceCount()), body.duplicate()));
     }
   }
 }
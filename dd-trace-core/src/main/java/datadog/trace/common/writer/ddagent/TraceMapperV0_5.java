@@ -62,9 +62,9 @@ public final class TraceMapperV0_5 implements TraceMapper {
       /* 4  */
       writable.writeLong(span.getTraceId().toLong());
       /* 5  */
-      writable.writeLong(span.getSpanId().toLong());
+      writable.writeLong(span.getSpanIdAsLong());
       /* 6  */
-      writable.writeLong(span.getParentId().toLong());
+      writable.writeLong(span.getParentIdAsLong());
       /* 7  */
       writable.writeLong(span.getStartTime());
       /* 8  */
@@ -164,9 +164,9 @@ public final class TraceMapperV0_5 implements TraceMapper {
           // msgpack array header with 2 elements (FIXARRAY | 2)
           ByteBuffer.allocate(1).put(0, (byte) 0x92),
           msgpackArrayHeader(stringCount),
-          dictionary,
+          dictionary.duplicate(),
           msgpackArrayHeader(traceCount()),
-          body);
+          body.duplicate());
     }
   }
 
@@ -185,11 +185,13 @@ public final class TraceMapperV0_5 implements TraceMapper {
           metadata.getBaggage().size()
               + metadata.getTags().size()
               + (null == metadata.getHttpStatusCode() ? 0 : 1)
+              + metadata.peerHostIpCount()
               + 1;
       int metricsSize =
           (metadata.hasSamplingPriority() ? 1 : 0)
               + (metadata.measured() ? 1 : 0)
               + (metadata.topLevel() ? 1 : 0)
+              + (metadata.hasPeerPort() ? 1 : 0)
               + 1;
       for (Map.Entry<String, Object> tag : metadata.getTags().entrySet()) {
         if (tag.getValue() instanceof Number) {
@@ -211,6 +213,14 @@ public final class TraceMapperV0_5 implements TraceMapper {
         writeDictionaryEncoded(writable, HTTP_STATUS);
         writeDictionaryEncoded(writable, metadata.getHttpStatusCode());
       }
+      if (null != metadata.getPeerHostIPv4()) {
+        writeDictionaryEncoded(writable, PEER_HOST_IPV4);
+        writeDictionaryEncoded(writable, metadata.getPeerHostIPv4());
+      }
+      if (null != metadata.getPeerHostIPv6()) {
+        writeDictionaryEncoded(writable, PEER_HOST_IPV6);
+        writeDictionaryEncoded(writable, metadata.getPeerHostIPv6());
+      }
       for (Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
         if (!(entry.getValue() instanceof Number)) {
           writeDictionaryEncoded(writable, entry.getKey());
@@ -232,6 +242,10 @@ public final class TraceMapperV0_5 implements TraceMapper {
       }
       writeDictionaryEncoded(writable, THREAD_ID);
       writable.writeLong(metadata.getThreadId());
+      if (metadata.hasPeerPort()) {
+        writeDictionaryEncoded(writable, PEER_PORT);
+        writable.writeInt(metadata.getPeerPort());
+      }
       for (Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
         if (entry.getValue() instanceof Number) {
           writeDictionaryEncoded(writable, entry.getKey());
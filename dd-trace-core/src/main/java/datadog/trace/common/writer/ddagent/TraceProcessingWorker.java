@@ -8,6 +8,8 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import datadog.trace.core.CoreSpan;
 import datadog.trace.core.DDSpan;
 import datadog.trace.core.monitor.HealthMetrics;
+import datadog.trace.core.monitor.PipelineStages;
+import java.util.AbstractList;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -22,12 +24,16 @@ import org.slf4j.LoggerFactory;
  *
  * <p>publishing to the buffer will not block the calling thread, but instead will return false if
  * the buffer is full. This is to avoid impacting an application thread.
+ *
+ * <p>When the {@link TraceQueueBudget} is limited, the buffer is also considered full once the
+ * estimated size of the queued traces reaches the budget.
  */
 public class TraceProcessingWorker implements AutoCloseable {
 
   private static final Logger log = LoggerFactory.getLogger(TraceProcessingWorker.class);
 
   private final PrioritizationStrategy prioritizationStrategy;
+  private final TraceQueueBudget budget;
   private final MpscBlockingConsumerArrayQueue<Object> primaryQueue;
   private final MpscBlockingConsumerArrayQueue<Object> secondaryQueue;
   private final TraceSerializingHandler serializingHandler;
@@ -42,14 +48,41 @@ public class TraceProcessingWorker implements AutoCloseable {
       final Prioritization prioritization,
       final long flushInterval,
       final TimeUnit timeUnit) {
+    this(
+        capacity,
+        healthMetrics,
+        dispatcher,
+        droppingPolicy,
+        prioritization,
+        flushInterval,
+        timeUnit,
+        new TraceQueueBudget(0));
+  }
+
+  public TraceProcessingWorker(
+      final int capacity,
+      final HealthMetrics healthMetrics,
+      final PayloadDispatcher dispatcher,
+      final DroppingPolicy droppingPolicy,
+      final Prioritization prioritization,
+      final long flushInterval,
+      final TimeUnit timeUnit,
+      final TraceQueueBudget budget) {
     this.capacity = capacity;
+    this.budget = budget;
     this.primaryQueue = createQueue(capacity);
     this.secondaryQueue = createQueue(capacity);
     this.prioritizationStrategy =
-        prioritization.create(primaryQueue, secondaryQueue, droppingPolicy);
+        prioritization.create(primaryQueue, secondaryQueue, droppingPolicy, budget);
     this.serializingHandler =
         new TraceSerializingHandler(
-            primaryQueue, secondaryQueue, healthMetrics, dispatcher, flushInterval, timeUnit);
+            primaryQueue,
+            secondaryQueue,
+            healthMetrics,
+            dispatcher,
+            flushInterval,
+            timeUnit,
+            budget);
     this.serializerThread = newAgentThread(TRACE_PROCESSOR, serializingHandler);
   }
 
@@ -83,7 +116,13 @@ public class TraceProcessingWorker implements AutoCloseable {
 
   public <T extends CoreSpan<T>> boolean publish(
       T root, int samplingPriority, final List<T> trace) {
-    return prioritizationStrategy.publish(root, samplingPriority, trace);
+    // the weight has to travel with the trace, the average span size may change while it's queued
+    return prioritizationStrategy.publish(
+        root,
+        samplingPriority,
+        budget.isLimited() || PipelineStages.isEnabled()
+            ? new EnqueuedTrace<T>(trace, budget.weigh(trace.size()))
+            : trace);
   }
 
   public int getCapacity() {
@@ -95,10 +134,41 @@ public class TraceProcessingWorker implements AutoCloseable {
     return primaryQueue.remainingCapacity();
   }
 
+  public long getQueuedBytes() {
+    return budget.getQueuedBytes();
+  }
+
   private static MpscBlockingConsumerArrayQueue<Object> createQueue(int capacity) {
     return new MpscBlockingConsumerArrayQueue<>(capacity);
   }
 
+  /**
+   * Carries the time a trace was published to the queues, so the time spent queued can be
+   * reported, and the weight it was accounted with against the {@link TraceQueueBudget}. Only used
+   * while {@link PipelineStages} are being recorded or the budget is limited.
+   */
+  static final class EnqueuedTrace<T> extends AbstractList<T> {
+    final List<T> trace;
+    final long enqueuedNanoTicks;
+    final long weight;
+
+    EnqueuedTrace(List<T> trace, long weight) {
+      this.trace = trace;
+      this.enqueuedNanoTicks = System.nanoTime();
+      this.weight = weight;
+    }
+
+    @Override
+    public T get(int index) {
+      return trace.get(index);
+    }
+
+    @Override
+    public int size() {
+      return trace.size();
+    }
+  }
+
   public static class TraceSerializingHandler
       implements Runnable, MessagePassingQueue.Consumer<Object> {
 
@@ -108,6 +178,7 @@ public class TraceProcessingWorker implements AutoCloseable {
     private final long ticksRequiredToFlush;
     private final boolean doTimeFlush;
     private final PayloadDispatcher payloadDispatcher;
+    private final TraceQueueBudget budget;
     private long lastTicks;
 
     public TraceSerializingHandler(
@@ -116,12 +187,14 @@ public class TraceProcessingWorker implements AutoCloseable {
         final HealthMetrics healthMetrics,
         final PayloadDispatcher payloadDispatcher,
         final long flushInterval,
-        final TimeUnit timeUnit) {
+        final TimeUnit timeUnit,
+        final TraceQueueBudget budget) {
       this.primaryQueue = primaryQueue;
       this.secondaryQueue = secondaryQueue;
       this.healthMetrics = healthMetrics;
       this.doTimeFlush = flushInterval > 0;
       this.payloadDispatcher = payloadDispatcher;
+      this.budget = budget;
       if (doTimeFlush) {
         this.lastTicks = System.nanoTime();
         this.ticksRequiredToFlush = timeUnit.toNanos(flushInterval);
@@ -138,6 +211,20 @@ public class TraceProcessingWorker implements AutoCloseable {
       try {
         if (event instanceof List) {
           List<DDSpan> trace = (List<DDSpan>) event;
+          if (event instanceof EnqueuedTrace) {
+            EnqueuedTrace<DDSpan> enqueued = (EnqueuedTrace<DDSpan>) event;
+            trace = enqueued.trace;
+            budget.release(enqueued.weight);
+            if (PipelineStages.isEnabled()) {
+              long nanoTicks = System.nanoTime();
+              PipelineStages.record(
+                  PipelineStages.Stage.WORKER_QUEUE,
+                  nanoTicks - enqueued.enqueuedNanoTicks,
+                  nanoTicks,
+                  1,
+                  trace.size());
+            }
+          }
           // TODO populate `_sample_rate` metric in a way that accounts for lost/dropped traces
           payloadDispatcher.addTrace(trace);
         } else if (event instanceof FlushEvent) {
@@ -195,6 +282,9 @@ public class TraceProcessingWorker implements AutoCloseable {
     private void flushIfNecessary() {
       if (shouldFlush()) {
         payloadDispatcher.flush();
+        if (budget.isLimited()) {
+          healthMetrics.onTraceQueueBytes(budget.getQueuedBytes());
+        }
       }
     }
 
@@ -0,0 +1,100 @@
+package datadog.trace.common.writer.ddagent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accounts the estimated size of the traces waiting in the {@link TraceProcessingWorker}'s queues
+ * against a budget, so the memory held by the queues doesn't depend on how large the traces are.
+ *
+ * <p>A trace weighs its span count times the average serialized size of a span, which the {@link
+ * PayloadDispatcher} keeps up to date as it sends payloads. Traces which will be kept are admitted
+ * while they fit in the budget. Once the queues hold more than half the budget, traces which will
+ * probably be dropped are only admitted if they are small, so large low priority traces are the
+ * first to go.
+ */
+public final class TraceQueueBudget {
+
+  static final int DEFAULT_SPAN_BYTES = 256;
+
+  // once past half the budget, droppable traces heavier than this fraction of it are refused
+  private static final int LARGE_TRACE_DIVISOR = 64;
+
+  private final long budgetBytes;
+  private final long largeTraceBytes;
+  private final AtomicLong queuedBytes = new AtomicLong();
+
+  // only written by the trace processing thread
+  private volatile int averageSpanBytes = DEFAULT_SPAN_BYTES;
+
+  /** @param budgetBytes how many bytes the queued traces may weigh, unlimited if not positive */
+  public TraceQueueBudget(long budgetBytes) {
+    this.budgetBytes = Math.max(0, budgetBytes);
+    this.largeTraceBytes = this.budgetBytes / LARGE_TRACE_DIVISOR;
+  }
+
+  public boolean isLimited() {
+    return budgetBytes > 0;
+  }
+
+  public long getBudgetBytes() {
+    return budgetBytes;
+  }
+
+  public long getQueuedBytes() {
+    return queuedBytes.get();
+  }
+
+  int getAverageSpanBytes() {
+    return averageSpanBytes;
+  }
+
+  /** @return the estimated weight of a trace with this many spans, zero when unlimited */
+  long weigh(int spanCount) {
+    return isLimited() ? (long) spanCount * averageSpanBytes : 0;
+  }
+
+  /** Accounts a trace which will be kept, if it fits in the budget. */
+  boolean tryAcquire(long weight) {
+    if (!isLimited() || weight <= 0) {
+      return true;
+    }
+    long queued;
+    do {
+      queued = queuedBytes.get();
+      if (queued + weight > budgetBytes) {
+        return false;
+      }
+    } while (!queuedBytes.compareAndSet(queued, queued + weight));
+    return true;
+  }
+
+  /** Accounts a trace which will probably be dropped, if it fits and isn't large under pressure. */
+  boolean tryAcquireDroppable(long weight) {
+    if (weight > largeTraceBytes && queuedBytes.get() > budgetBytes / 2) {
+      return false;
+    }
+    return tryAcquire(weight);
+  }
+
+  /** Accounts a trace which must be queued whatever the budget. */
+  void forceAcquire(long weight) {
+    if (weight > 0) {
+      queuedBytes.addAndGet(weight);
+    }
+  }
+
+  /** Gives back the weight of a trace once it has left the queues. */
+  void release(long weight) {
+    if (weight > 0) {
+      queuedBytes.addAndGet(-weight);
+    }
+  }
+
+  /** Folds the span size of a serialized payload into the average used to weigh traces. */
+  void onSerialized(int spanCount, int sizeInBytes) {
+    if (isLimited() && spanCount > 0) {
+      int spanBytes = sizeInBytes / spanCount;
+      averageSpanBytes = Math.max(1, averageSpanBytes + (spanBytes - averageSpanBytes) / 8);
+    }
+  }
+}
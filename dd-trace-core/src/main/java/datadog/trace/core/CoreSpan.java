@@ -18,6 +18,12 @@ public interface CoreSpan<T extends CoreSpan<T>> {
 
   DDId getParentId();
 
+  /** @return the span id's bits, without materializing a {@link DDId} */
+  long getSpanIdAsLong();
+
+  /** @return the parent id's bits, without materializing a {@link DDId} */
+  long getParentIdAsLong();
+
   long getStartTime();
 
   long getDurationNano();
@@ -22,15 +22,22 @@ import datadog.trace.bootstrap.instrumentation.api.AgentScopeManager;
 import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
 import datadog.trace.bootstrap.instrumentation.api.AgentTracer;
 import datadog.trace.bootstrap.instrumentation.api.ScopeSource;
+import datadog.trace.bootstrap.instrumentation.api.TagBatch;
 import datadog.trace.common.metrics.MetricsAggregator;
+import datadog.trace.common.sampling.ForcePrioritySampler;
 import datadog.trace.common.sampling.PrioritySampler;
+import datadog.trace.common.sampling.RateByServiceSampler;
 import datadog.trace.common.sampling.Sampler;
+import datadog.trace.common.sampling.TailSampler;
 import datadog.trace.common.writer.DDAgentWriter;
 import datadog.trace.common.writer.Writer;
 import datadog.trace.common.writer.WriterFactory;
+import datadog.trace.common.writer.ddagent.DroppingPolicy;
 import datadog.trace.context.ScopeListener;
 import datadog.trace.context.TraceScope;
+import datadog.trace.core.monitor.HealthMetrics;
 import datadog.trace.core.monitor.Monitoring;
+import datadog.trace.core.monitor.PipelineStages;
 import datadog.trace.core.monitor.Recording;
 import datadog.trace.core.propagation.ExtractedContext;
 import datadog.trace.core.propagation.HttpCodec;
@@ -38,13 +45,14 @@ import datadog.trace.core.propagation.TagContext;
 import datadog.trace.core.scopemanager.ContinuableScopeManager;
 import datadog.trace.core.taginterceptor.RuleFlags;
 import datadog.trace.core.taginterceptor.TagInterceptor;
+import datadog.trace.core.util.Clock;
 import datadog.trace.util.AgentTaskScheduler;
 import java.lang.ref.WeakReference;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -78,6 +86,7 @@ public class CoreTracer implements AgentTracer.TracerAPI {
   private static final String TRACER_VERSION_STATSD_TAG = "tracer_version";
 
   private final PendingTraceBuffer pendingTraceBuffer;
+  private final SpanBudget spanBudget;
 
   /** Default service name if none provided on the trace or span */
   final String serviceName;
@@ -85,6 +94,13 @@ public class CoreTracer implements AgentTracer.TracerAPI {
   final Writer writer;
   /** Sampler defines the sampling policy in order to reduce the number of traces for instance */
   final Sampler<DDSpan> sampler;
+  /** Optionally drops completed traces which don't match any tail sampling policy */
+  private final TailSampler<DDSpan> tailSampler;
+  /**
+   * Set when priority dropped traces only need to feed client side stats, in which case their spans
+   * don't record tags, see {@link PendingTrace#isStatsOnly()}
+   */
+  private final DroppingPolicy statsOnlyDroppingPolicy;
   /** Scope manager is in charge of managing the scopes from which spans are created */
   final AgentScopeManager scopeManager;
 
@@ -94,12 +110,22 @@ public class CoreTracer implements AgentTracer.TracerAPI {
   private final Map<String, String> localRootSpanTags;
   /** A set of tags that are added to every span */
   private final Map<String, String> defaultSpanTags;
+  /** The default span tags, set on spans in a trace which is already started */
+  private final TagTemplate defaultTagTemplate;
+  /** The default span tags merged with the local root span tags, set on new local root spans */
+  private final TagTemplate rootTagTemplate;
   /** A configured mapping of service names to update with new values */
   private final Map<String, String> serviceNameMappings;
 
   /** number of spans in a pending trace before they get flushed */
   private final int partialFlushMinSpans;
 
+  /** number of finished spans streamed at a time, regardless of the trace's state, 0 to disable */
+  private final int spanStreamingChunkSize;
+
+  /** number of frames rendered per throwable in the error stack, 0 for all of them */
+  private final int errorStackMaxFrames;
+
   private final StatsDClient statsDClient;
   private final Monitoring monitoring;
   private final Monitoring performanceMonitoring;
@@ -194,6 +220,7 @@ public class CoreTracer implements AgentTracer.TracerAPI {
     private Map<String, String> serviceNameMappings;
     private Map<String, String> taggedHeaders;
     private int partialFlushMinSpans;
+    private int spanStreamingChunkSize;
     private StatsDClient statsDClient;
     private TagInterceptor tagInterceptor;
     private boolean strictTraceWrites;
@@ -258,6 +285,11 @@ public class CoreTracer implements AgentTracer.TracerAPI {
       return this;
     }
 
+    public CoreTracerBuilder spanStreamingChunkSize(int spanStreamingChunkSize) {
+      this.spanStreamingChunkSize = spanStreamingChunkSize;
+      return this;
+    }
+
     public CoreTracerBuilder statsDClient(StatsDClient statsDClient) {
       this.statsDClient = statsDClient;
       return this;
@@ -300,6 +332,7 @@ public class CoreTracer implements AgentTracer.TracerAPI {
       serviceNameMappings(config.getServiceMapping());
       taggedHeaders(config.getHeaderTags());
       partialFlushMinSpans(config.getPartialFlushMinSpans());
+      spanStreamingChunkSize(config.getSpanStreamingChunkSize());
       strictTraceWrites(config.isTraceStrictWritesEnabled());
 
       return this;
@@ -320,6 +353,7 @@ public class CoreTracer implements AgentTracer.TracerAPI {
           serviceNameMappings,
           taggedHeaders,
           partialFlushMinSpans,
+          spanStreamingChunkSize,
           statsDClient,
           tagInterceptor,
           strictTraceWrites);
@@ -341,6 +375,7 @@ public class CoreTracer implements AgentTracer.TracerAPI {
       final Map<String, String> serviceNameMappings,
       final Map<String, String> taggedHeaders,
       final int partialFlushMinSpans,
+      final int spanStreamingChunkSize,
       final StatsDClient statsDClient,
       final TagInterceptor tagInterceptor,
       final boolean strictTraceWrites) {
@@ -356,8 +391,12 @@ public class CoreTracer implements AgentTracer.TracerAPI {
     this.extractor = extractor;
     this.localRootSpanTags = localRootSpanTags;
     this.defaultSpanTags = defaultSpanTags;
+    this.defaultTagTemplate = TagTemplate.of(defaultSpanTags);
+    this.rootTagTemplate = TagTemplate.of(defaultSpanTags, localRootSpanTags);
     this.serviceNameMappings = serviceNameMappings;
     this.partialFlushMinSpans = partialFlushMinSpans;
+    this.spanStreamingChunkSize = spanStreamingChunkSize;
+    this.errorStackMaxFrames = config.getErrorStackMaxFrames();
     this.idGenerationStrategy =
         null == idGenerationStrategy
             ? Config.get().getIdGenerationStrategy()
@@ -400,9 +439,30 @@ public class CoreTracer implements AgentTracer.TracerAPI {
       this.writer = writer;
     }
 
+    this.statsOnlyDroppingPolicy =
+        config.isTracerMetricsEnabled()
+                && config.isTracerMetricsStatsOnlyDroppedTraces()
+                && this.writer instanceof DDAgentWriter
+            ? ((DDAgentWriter) this.writer).getDroppingPolicy()
+            : null;
+    this.tailSampler =
+        TailSampler.forConfig(
+            config,
+            this.writer instanceof DDAgentWriter
+                ? ((DDAgentWriter) this.writer).getDroppingPolicy()
+                : null,
+            this.statsDClient);
+
     this.pendingTraceBuffer =
         strictTraceWrites ? PendingTraceBuffer.mute() : PendingTraceBuffer.delaying();
-    pendingTraceFactory = new PendingTrace.Factory(this, pendingTraceBuffer, strictTraceWrites);
+    this.spanBudget =
+        SpanBudget.forConfig(
+            config,
+            config.isHealthMetricsEnabled() && this.writer instanceof DDAgentWriter
+                ? ((DDAgentWriter) this.writer).healthMetrics
+                : new HealthMetrics(StatsDClient.NO_OP));
+    pendingTraceFactory =
+        new PendingTrace.Factory(this, pendingTraceBuffer, strictTraceWrites, spanBudget);
     pendingTraceBuffer.start();
 
     this.writer.start();
@@ -537,6 +597,14 @@ public class CoreTracer implements AgentTracer.TracerAPI {
     return partialFlushMinSpans;
   }
 
+  public int getSpanStreamingChunkSize() {
+    return spanStreamingChunkSize;
+  }
+
+  int getErrorStackMaxFrames() {
+    return errorStackMaxFrames;
+  }
+
   @Override
   public AgentSpan activeSpan() {
     return scopeManager.activeSpan();
@@ -592,6 +660,16 @@ public class CoreTracer implements AgentTracer.TracerAPI {
     if (trace.isEmpty()) {
       return;
     }
+    if (PipelineStages.isEnabled()) {
+      final long startNanoTicks = Clock.currentNanoTicks();
+      doWrite(trace);
+      PipelineStages.record(PipelineStages.Stage.TRACER_WRITE, 0, startNanoTicks, 1, trace.size());
+    } else {
+      doWrite(trace);
+    }
+  }
+
+  private void doWrite(final List<DDSpan> trace) {
     List<DDSpan> writtenTrace = trace;
     if (!interceptors.isEmpty()) {
       Collection<? extends MutableSpan> interceptedTrace = new ArrayList<>(trace);
@@ -617,8 +695,18 @@ public class CoreTracer implements AgentTracer.TracerAPI {
 
       DDSpan rootSpan = writtenTrace.get(0).getLocalRootSpan();
       setSamplingPriorityIfNecessary(rootSpan);
+      if (spanStreamingChunkSize > 0 && null != rootSpan && writtenTrace.get(0) != rootSpan) {
+        // streamed chunks may not contain the root span, so carry the trace level data
+        writtenTrace.get(0).context().setChunkMetadata(rootSpan.context());
+      }
 
       DDSpan spanToSample = rootSpan == null ? writtenTrace.get(0) : rootSpan;
+      PendingTrace traceToSample = spanToSample.context().getTrace();
+      if (!forceKeep && null != tailSampler && !traceToSample.isStatsOnly()) {
+        // keeps traces dropped by priority sampling which match a tail sampling policy, stats only
+        // traces have no tags to match against
+        forceKeep = traceToSample.tailSample(tailSampler, spanToSample, writtenTrace);
+      }
       spanToSample.forceKeep(forceKeep);
       if (forceKeep || sampler.sample(spanToSample)) {
         writer.write(writtenTrace);
@@ -649,6 +737,36 @@ public class CoreTracer implements AgentTracer.TracerAPI {
     }
   }
 
+  /** @return true if local root spans decide whether their trace is stats only */
+  private boolean decidesStatsOnly() {
+    // traces dropped by priority sampling can still be kept by a tail sampling policy, which
+    // needs their tags
+    return null != statsOnlyDroppingPolicy
+        && statsOnlyDroppingPolicy.active()
+        && null == tailSampler;
+  }
+
+  /**
+   * Makes the sampling decision as soon as a local root span is created, when the sampler doesn't
+   * need the span's tags to decide, so that traces which are dropped and only needed for stats
+   * don't record tags in the first place. The span's initial tags have been through the tag
+   * interceptor, so a sampling priority they set is taken into account, but haven't been stored.
+   */
+  void decideStatsOnly(final DDSpan rootSpan, final TagBatch initialTags) {
+    if (sampler instanceof RateByServiceSampler) {
+      // rates are looked up by env
+      rootSpan.context().setStagedTag(initialTags, GeneralConfig.ENV);
+      setSamplingPriorityIfNecessary(rootSpan);
+    } else if (sampler instanceof ForcePrioritySampler) {
+      setSamplingPriorityIfNecessary(rootSpan);
+    }
+    final int samplingPriority = rootSpan.context().getSamplingPriority();
+    if (samplingPriority == PrioritySampling.SAMPLER_DROP
+        || samplingPriority == PrioritySampling.USER_DROP) {
+      rootSpan.context().getTrace().setStatsOnly(true);
+    }
+  }
+
   @Override
   public String getTraceId() {
     final AgentSpan activeSpan = activeSpan();
@@ -753,7 +871,10 @@ public class CoreTracer implements AgentTracer.TracerAPI {
     private final CharSequence operationName;
 
     // Builder attributes
-    private Map<String, Object> tags;
+    // tags are staged in the order they were first set, insertion order is important
+    private String[] tagKeys;
+    private Object[] tagValues;
+    private int tagCount;
     private long timestampMicro;
     private Object parent;
     private String serviceName;
@@ -772,8 +893,27 @@ public class CoreTracer implements AgentTracer.TracerAPI {
       return this;
     }
 
-    private DDSpan buildSpan() {
-      return DDSpan.create(timestampMicro, buildSpanContext());
+    private AgentSpan buildSpan() {
+      final Object parentContext = parentContext();
+      if (parentContext instanceof DDSpanContext
+          && !((DDSpanContext) parentContext).getTrace().admitsSpan()) {
+        // Over the span budget. Spans started under this one are children of its parent instead.
+        return new UnrecordedSpan((DDSpanContext) parentContext);
+      }
+      if (parentContext instanceof DDSpanContext || !decidesStatsOnly()) {
+        return DDSpan.create(timestampMicro, buildSpanContext(parentContext, null));
+      }
+      // The local root span decides if its trace is stats only before its tags are stored
+      final TagBatch initialTags = TagBatch.begin();
+      try {
+        final DDSpan span =
+            DDSpan.create(timestampMicro, buildSpanContext(parentContext, initialTags));
+        decideStatsOnly(span, initialTags);
+        span.context().setStagedTags(initialTags);
+        return span;
+      } finally {
+        initialTags.release();
+      }
     }
 
     @Override
@@ -841,48 +981,86 @@ public class CoreTracer implements AgentTracer.TracerAPI {
 
     @Override
     public CoreSpanBuilder withTag(final String tag, final Object value) {
-      Map<String, Object> tagMap = tags;
-      if (tagMap == null) {
-        tags = tagMap = new LinkedHashMap<>(); // Insertion order is important
-      }
+      final int index = indexOfTag(tag);
       if (value == null || (value instanceof String && ((String) value).isEmpty())) {
-        tagMap.remove(tag);
+        if (index >= 0) {
+          removeTag(index);
+        }
+      } else if (index >= 0) {
+        tagValues[index] = value;
       } else {
-        tagMap.put(tag, value);
+        addTag(tag, value);
       }
       return this;
     }
 
+    private int indexOfTag(final String tag) {
+      for (int i = 0; i < tagCount; ++i) {
+        if (tagKeys[i].equals(tag)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    private void addTag(final String tag, final Object value) {
+      if (null == tagKeys) {
+        tagKeys = new String[4];
+        tagValues = new Object[4];
+      } else if (tagCount == tagKeys.length) {
+        tagKeys = Arrays.copyOf(tagKeys, tagCount * 2);
+        tagValues = Arrays.copyOf(tagValues, tagCount * 2);
+      }
+      tagKeys[tagCount] = tag;
+      tagValues[tagCount] = value;
+      ++tagCount;
+    }
+
+    private void removeTag(final int index) {
+      --tagCount;
+      System.arraycopy(tagKeys, index + 1, tagKeys, index, tagCount - index);
+      System.arraycopy(tagValues, index + 1, tagValues, index, tagCount - index);
+      tagKeys[tagCount] = null;
+      tagValues[tagCount] = null;
+    }
+
+    private Object parentContext() {
+      // FIXME [API] parentContext should be an interface implemented by ExtractedContext,
+      // TagContext, DDSpanContext, AgentSpan.Context
+      Object parentContext = parent;
+      if (parentContext == null && !ignoreScope) {
+        // use the Scope as parent unless overridden or ignored.
+        final AgentSpan activeSpan = scopeManager.activeSpan();
+        if (activeSpan != null) {
+          parentContext = activeSpan.context();
+        }
+      }
+      return parentContext;
+    }
+
     /**
      * Build the SpanContext, if the actual span has a parent, the following attributes must be
      * propagated: - ServiceName - Baggage - Trace (a list of all spans related) - SpanType
      *
+     * @param initialTags if not null, the tags which aren't intercepted are put in it instead of
+     *     being stored
      * @return the context
      */
-    private DDSpanContext buildSpanContext() {
+    private DDSpanContext buildSpanContext(
+        final Object parentContext, final TagBatch initialTags) {
       final DDId traceId;
-      final DDId spanId = idGenerationStrategy.generate();
-      final DDId parentSpanId;
+      final long spanId = idGenerationStrategy.generateLong();
+      final long parentSpanId;
+      final DDId parentDDId;
       final Map<String, String> baggage;
       final PendingTrace parentTrace;
       final int samplingPriority;
       final String origin;
       final Map<String, String> coreTags;
-      final Map<String, String> rootSpanTags;
+      final TagTemplate tagTemplate;
 
       final DDSpanContext context;
 
-      // FIXME [API] parentContext should be an interface implemented by ExtractedContext,
-      // TagContext, DDSpanContext, AgentSpan.Context
-      Object parentContext = parent;
-      if (parentContext == null && !ignoreScope) {
-        // use the Scope as parent unless overridden or ignored.
-        final AgentSpan activeSpan = scopeManager.activeSpan();
-        if (activeSpan != null) {
-          parentContext = activeSpan.context();
-        }
-      }
-
       String parentServiceName = null;
 
       // Propagate internal trace.
@@ -891,13 +1069,14 @@ public class CoreTracer implements AgentTracer.TracerAPI {
       if (parentContext instanceof DDSpanContext) {
         final DDSpanContext ddsc = (DDSpanContext) parentContext;
         traceId = ddsc.getTraceId();
-        parentSpanId = ddsc.getSpanId();
+        parentSpanId = ddsc.getSpanIdAsLong();
+        parentDDId = null;
         baggage = ddsc.getBaggageItems();
         parentTrace = ddsc.getTrace();
         samplingPriority = PrioritySampling.UNSET;
         origin = null;
         coreTags = null;
-        rootSpanTags = null;
+        tagTemplate = defaultTagTemplate;
         parentServiceName = ddsc.getServiceName();
         if (serviceName == null) {
           serviceName = parentServiceName;
@@ -908,13 +1087,15 @@ public class CoreTracer implements AgentTracer.TracerAPI {
           // Propagate external trace
           final ExtractedContext extractedContext = (ExtractedContext) parentContext;
           traceId = extractedContext.getTraceId();
-          parentSpanId = extractedContext.getSpanId();
+          parentDDId = extractedContext.getSpanId();
+          parentSpanId = parentDDId.toLong();
           samplingPriority = extractedContext.getSamplingPriority();
           baggage = extractedContext.getBaggage();
         } else {
           // Start a new trace
           traceId = IdGenerationStrategy.RANDOM.generate();
-          parentSpanId = DDId.ZERO;
+          parentDDId = DDId.ZERO;
+          parentSpanId = 0;
           samplingPriority = PrioritySampling.UNSET;
           baggage = null;
         }
@@ -928,7 +1109,7 @@ public class CoreTracer implements AgentTracer.TracerAPI {
           origin = null;
         }
 
-        rootSpanTags = localRootSpanTags;
+        tagTemplate = rootTagTemplate;
 
         parentTrace = createTrace(traceId);
       }
@@ -941,16 +1122,14 @@ public class CoreTracer implements AgentTracer.TracerAPI {
           this.operationName != null ? this.operationName : resourceName;
 
       final int tagsSize =
-          (null == tags ? 0 : tags.size())
-              + defaultSpanTags.size()
-              + (null == coreTags ? 0 : coreTags.size())
-              + (null == rootSpanTags ? 0 : rootSpanTags.size());
+          tagCount + tagTemplate.size() + (null == coreTags ? 0 : coreTags.size());
       // some attributes are inherited from the parent
       context =
           new DDSpanContext(
               traceId,
               spanId,
               parentSpanId,
+              parentDDId,
               parentServiceName,
               serviceName,
               operationName,
@@ -964,12 +1143,14 @@ public class CoreTracer implements AgentTracer.TracerAPI {
               parentTrace);
 
       // By setting the tags on the context we apply decorators to any tags that have been set via
-      // the builder. This is the order that the tags were added previously, but maybe the `tags`
-      // set in the builder should come last, so that they override other tags.
-      context.setAllTags(defaultSpanTags);
-      context.setAllTags(tags);
-      context.setAllTags(coreTags);
-      context.setAllTags(rootSpanTags);
+      // the builder. The default span tags come first, then the builder's tags and the header tags,
+      // and the local root span tags override all of them. Maybe the tags set in the builder
+      // should come last, so that they override other tags.
+      context.setAllTags(tagTemplate, tagKeys, tagValues, tagCount, initialTags);
+      if (null != coreTags && !coreTags.isEmpty()) {
+        context.setAllTags(coreTags, initialTags);
+        context.setAllTags(localRootSpanTags, initialTags);
+      }
       return context;
     }
   }
@@ -8,9 +8,8 @@ import datadog.trace.api.DDId;
 import datadog.trace.api.DDTags;
 import datadog.trace.api.sampling.PrioritySampling;
 import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
+import datadog.trace.bootstrap.instrumentation.api.TagBatch;
 import datadog.trace.core.util.Clock;
-import java.io.PrintWriter;
-import java.io.StringWriter;
 import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -59,6 +58,11 @@ public class DDSpan implements AgentSpan, CoreSpan<DDSpan> {
 
   private boolean forceKeep;
 
+  // Facades adapting this span to the OpenTracing and OpenTelemetry APIs. They are immutable
+  // so a racy write at worst allocates another facade.
+  private Object openTracingFacade;
+  private Object openTelemetryFacade;
+
   /**
    * Spans should be constructed using the builder, not by calling the constructor directly.
    *
@@ -140,7 +144,7 @@ public class DDSpan implements AgentSpan, CoreSpan<DDSpan> {
    * @return true if root, false otherwise
    */
   public final boolean isRootSpan() {
-    return DDId.ZERO.equals(context.getParentId());
+    return context.getParentIdAsLong() == 0;
   }
 
   @Override
@@ -179,9 +183,10 @@ public class DDSpan implements AgentSpan, CoreSpan<DDSpan> {
       // or warming up - capturing the stack trace and keeping
       // the trace may exacerbate existing problems.
       setError(true);
-      final StringWriter errorString = new StringWriter();
-      error.printStackTrace(new PrintWriter(errorString));
-      setTag(DDTags.ERROR_STACK, errorString.toString());
+      // rendered when the trace is written, if it is written
+      context.setTag(
+          DDTags.ERROR_STACK,
+          new ErrorStack(error, context.getTracer().getErrorStackMaxFrames()));
     }
 
     setTag(DDTags.ERROR_MSG, message);
@@ -273,6 +278,16 @@ public class DDSpan implements AgentSpan, CoreSpan<DDSpan> {
     return this;
   }
 
+  @Override
+  public DDSpan setTags(final TagBatch tags) {
+    try {
+      context.setTags(tags);
+    } finally {
+      tags.release();
+    }
+    return this;
+  }
+
   // FIXME [API] this is not on AgentSpan or MutableSpan
   public DDSpan removeTag(final String tag) {
     context.setTag(tag, null);
@@ -312,6 +327,45 @@ public class DDSpan implements AgentSpan, CoreSpan<DDSpan> {
     return context.getHttpStatusCode();
   }
 
+  @Override
+  public AgentSpan setPeerPort(int port) {
+    context.setPeerPort(port);
+    return this;
+  }
+
+  @Override
+  public AgentSpan setPeerHostIPv4(CharSequence address) {
+    context.setPeerHostIPv4(address);
+    return this;
+  }
+
+  @Override
+  public AgentSpan setPeerHostIPv6(CharSequence address) {
+    context.setPeerHostIPv6(address);
+    return this;
+  }
+
+  @Override
+  public Object getFacade(int api) {
+    switch (api) {
+      case OPENTRACING_FACADE:
+        return openTracingFacade;
+      case OPENTELEMETRY_FACADE:
+        return openTelemetryFacade;
+      default:
+        return null;
+    }
+  }
+
+  @Override
+  public void setFacade(int api, Object facade) {
+    if (api == OPENTRACING_FACADE) {
+      openTracingFacade = facade;
+    } else if (api == OPENTELEMETRY_FACADE) {
+      openTelemetryFacade = facade;
+    }
+  }
+
   @Override
   public final DDSpan setOperationName(final CharSequence operationName) {
     context.setOperationName(operationName);
@@ -408,6 +462,16 @@ public class DDSpan implements AgentSpan, CoreSpan<DDSpan> {
     return context.getParentId();
   }
 
+  @Override
+  public long getSpanIdAsLong() {
+    return context.getSpanIdAsLong();
+  }
+
+  @Override
+  public long getParentIdAsLong() {
+    return context.getParentIdAsLong();
+  }
+
   @Override
   public CharSequence getResourceName() {
     return context.getResourceName();
@@ -11,6 +11,7 @@ import datadog.trace.api.cache.DDCache;
 import datadog.trace.api.cache.DDCaches;
 import datadog.trace.api.sampling.PrioritySampling;
 import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
+import datadog.trace.bootstrap.instrumentation.api.TagBatch;
 import datadog.trace.bootstrap.instrumentation.api.Tags;
 import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
 import datadog.trace.core.taginterceptor.TagInterceptor;
@@ -51,8 +52,11 @@ public class DDSpanContext implements AgentSpan.Context {
 
   // Not Shared with other span contexts
   private final DDId traceId;
-  private final DDId spanId;
-  private final DDId parentId;
+  private final long spanIdBits;
+  private final long parentIdBits;
+  // only wrapped in a DDId when asked for, racy but benign as DDId is immutable
+  private DDId spanId;
+  private DDId parentId;
 
   private final String parentServiceName;
 
@@ -61,6 +65,20 @@ public class DDSpanContext implements AgentSpan.Context {
 
   private volatile short httpStatusCode;
 
+  // peer connection details are set on most client and server spans,
+  // so are kept out of the tag map to avoid boxing and re-encoding
+  private volatile int peerPort;
+  private volatile UTF8BytesString peerHostIPv4;
+  private volatile UTF8BytesString peerHostIPv6;
+  // set once a peer tag has been stored in the tag map, e.g. a String port, so the typed setters
+  // only take the lock to remove it from the map when it may be there
+  private volatile boolean peerTagsInMap;
+
+  // Facades adapting this context to the OpenTracing and OpenTelemetry APIs. They are immutable
+  // so a racy write at worst allocates another facade.
+  private Object openTracingFacade;
+  private Object openTelemetryFacade;
+
   /**
    * Tags are associated to the current span, they will not propagate to the children span.
    *
@@ -96,6 +114,8 @@ public class DDSpanContext implements AgentSpan.Context {
       AtomicIntegerFieldUpdater.newUpdater(DDSpanContext.class, "samplingPriorityV1");
 
   private volatile int samplingPriorityV1 = PrioritySampling.UNSET;
+  /** The trace's sampling priority when this span heads a streamed chunk, guarded by unsafeTags */
+  private int chunkSamplingPriority = PrioritySampling.UNSET;
   /** The origin of the trace. (eg. Synthetics) */
   private final String origin;
 
@@ -114,16 +134,55 @@ public class DDSpanContext implements AgentSpan.Context {
       final CharSequence spanType,
       final int tagsSize,
       final PendingTrace trace) {
+    this(
+        traceId,
+        spanId.toLong(),
+        parentId.toLong(),
+        parentId,
+        parentServiceName,
+        serviceName,
+        operationName,
+        resourceName,
+        samplingPriority,
+        origin,
+        baggageItems,
+        errorFlag,
+        spanType,
+        tagsSize,
+        trace);
+    this.spanId = spanId;
+  }
+
+  /**
+   * Creates a context whose ids are only wrapped in {@link DDId}s when they are asked for. The
+   * parent's {@link DDId} is given when it already exists, to keep its original representation.
+   */
+  DDSpanContext(
+      final DDId traceId,
+      final long spanId,
+      final long parentId,
+      final DDId parentDDId,
+      final CharSequence parentServiceName,
+      final String serviceName,
+      final CharSequence operationName,
+      final CharSequence resourceName,
+      final int samplingPriority,
+      final String origin,
+      final Map<String, String> baggageItems,
+      final boolean errorFlag,
+      final CharSequence spanType,
+      final int tagsSize,
+      final PendingTrace trace) {
 
     assert trace != null;
     this.trace = trace;
 
     assert traceId != null;
-    assert spanId != null;
-    assert parentId != null;
+    assert null == parentDDId || parentDDId.toLong() == parentId;
     this.traceId = traceId;
-    this.spanId = spanId;
-    this.parentId = parentId;
+    this.spanIdBits = spanId;
+    this.parentIdBits = parentId;
+    this.parentId = parentDDId;
     this.parentServiceName = String.valueOf(parentServiceName);
 
     if (baggageItems == null || baggageItems.isEmpty()) {
@@ -163,12 +222,28 @@ public class DDSpanContext implements AgentSpan.Context {
   }
 
   public DDId getParentId() {
-    return parentId;
+    DDId id = parentId;
+    if (null == id) {
+      parentId = id = DDId.from(parentIdBits);
+    }
+    return id;
   }
 
   @Override
   public DDId getSpanId() {
-    return spanId;
+    DDId id = spanId;
+    if (null == id) {
+      spanId = id = DDId.from(spanIdBits);
+    }
+    return id;
+  }
+
+  long getSpanIdAsLong() {
+    return spanIdBits;
+  }
+
+  long getParentIdAsLong() {
+    return parentIdBits;
   }
 
   public String getServiceName() {
@@ -253,6 +328,10 @@ public class DDSpanContext implements AgentSpan.Context {
     // if the user really wants to keep this trace chunk, we will let them,
     // even if the old sampling priority has already propagated
     SAMPLING_PRIORITY_UPDATER.set(this, USER_KEEP);
+    if (trace != null) {
+      // store tags from now on, those already set on a stats only trace are lost
+      trace.setStatsOnly(false);
+    }
   }
 
   /** @return if sampling priority was set by this method invocation */
@@ -312,6 +391,21 @@ public class DDSpanContext implements AgentSpan.Context {
     return SAMPLING_PRIORITY_UPDATER.get(this) != UNSET;
   }
 
+  /**
+   * Copies the trace level data held by the root span onto the first span of a streamed chunk, so
+   * that the chunk can be sampled and processed by the agent without its root span.
+   */
+  void setChunkMetadata(final DDSpanContext rootContext) {
+    final int samplingPriority = rootContext.getSamplingPriority();
+    final String rootOrigin = rootContext.origin;
+    synchronized (unsafeTags) {
+      chunkSamplingPriority = samplingPriority;
+      if (null != rootOrigin) {
+        unsafeTags.put(ORIGIN_KEY, rootOrigin);
+      }
+    }
+  }
+
   public String getOrigin() {
     final DDSpan rootSpan = trace.getRootSpan();
     if (null != rootSpan) {
@@ -345,6 +439,27 @@ public class DDSpanContext implements AgentSpan.Context {
     return baggageItems.entrySet();
   }
 
+  @Override
+  public Object getFacade(int api) {
+    switch (api) {
+      case AgentSpan.OPENTRACING_FACADE:
+        return openTracingFacade;
+      case AgentSpan.OPENTELEMETRY_FACADE:
+        return openTelemetryFacade;
+      default:
+        return null;
+    }
+  }
+
+  @Override
+  public void setFacade(int api, Object facade) {
+    if (api == AgentSpan.OPENTRACING_FACADE) {
+      openTracingFacade = facade;
+    } else if (api == AgentSpan.OPENTELEMETRY_FACADE) {
+      openTelemetryFacade = facade;
+    }
+  }
+
   @Override
   public PendingTrace getTrace() {
     return trace;
@@ -362,6 +477,33 @@ public class DDSpanContext implements AgentSpan.Context {
     return httpStatusCode;
   }
 
+  public void setPeerPort(int port) {
+    this.peerPort = port;
+    removePeerTagFromMap(Tags.PEER_PORT);
+  }
+
+  public int getPeerPort() {
+    return peerPort;
+  }
+
+  public void setPeerHostIPv4(CharSequence address) {
+    this.peerHostIPv4 = UTF8BytesString.create(address);
+    removePeerTagFromMap(Tags.PEER_HOST_IPV4);
+  }
+
+  public void setPeerHostIPv6(CharSequence address) {
+    this.peerHostIPv6 = UTF8BytesString.create(address);
+    removePeerTagFromMap(Tags.PEER_HOST_IPV6);
+  }
+
+  private void removePeerTagFromMap(final String tag) {
+    if (peerTagsInMap) {
+      synchronized (unsafeTags) {
+        unsafeTags.remove(tag);
+      }
+    }
+  }
+
   public void setMetric(final CharSequence key, final Number value) {
     synchronized (unsafeTags) {
       unsafeSetTag(key.toString(), value);
@@ -377,9 +519,10 @@ public class DDSpanContext implements AgentSpan.Context {
   public void setTag(final String tag, final Object value) {
     if (null == value || "".equals(value)) {
       synchronized (unsafeTags) {
-        unsafeTags.remove(tag);
+        unsafeRemoveTag(tag);
       }
-    } else if (!trace.getTracer().getTagInterceptor().interceptTag(this, tag, value)) {
+    } else if (!trace.getTracer().getTagInterceptor().interceptTag(this, tag, value)
+        && !skipTag(tag)) {
       synchronized (unsafeTags) {
         unsafeSetTag(tag, value);
       }
@@ -387,6 +530,14 @@ public class DDSpanContext implements AgentSpan.Context {
   }
 
   void setAllTags(final Map<String, ? extends Object> map) {
+    setAllTags(map, null);
+  }
+
+  /**
+   * Sets tags a new span starts with. If {@code staged} isn't null, the tags which aren't
+   * intercepted are put in it to be stored later by {@link #setStagedTags}.
+   */
+  void setAllTags(final Map<String, ? extends Object> map, final TagBatch staged) {
     if (map == null || map.isEmpty()) {
       return;
     }
@@ -394,15 +545,143 @@ public class DDSpanContext implements AgentSpan.Context {
     TagInterceptor tagInterceptor = trace.getTracer().getTagInterceptor();
     synchronized (unsafeTags) {
       for (final Map.Entry<String, ? extends Object> tag : map.entrySet()) {
-        if (!tagInterceptor.interceptTag(this, tag.getKey(), tag.getValue())) {
-          unsafeSetTag(tag.getKey(), tag.getValue());
+        if (!tagInterceptor.interceptTag(this, tag.getKey(), tag.getValue())
+            && !skipTag(tag.getKey())) {
+          unsafeSetOrStageTag(tag.getKey(), tag.getValue(), staged);
         }
       }
     }
   }
 
+  /**
+   * Sets the tags a new span starts with under one lock: the template's, then the tags staged by
+   * the span builder, unless the template doesn't let them be overridden. If {@code staged} isn't
+   * null, the tags which aren't intercepted are put in it to be stored later by {@link
+   * #setStagedTags}.
+   */
+  void setAllTags(
+      final TagTemplate template,
+      final String[] keys,
+      final Object[] values,
+      final int size,
+      final TagBatch staged) {
+    if (template.size() == 0 && size == 0) {
+      return;
+    }
+
+    TagInterceptor tagInterceptor = trace.getTracer().getTagInterceptor();
+    synchronized (unsafeTags) {
+      for (int i = 0; i < template.size(); ++i) {
+        final String tag = template.key(i);
+        final Object value = template.value(i);
+        if (!tagInterceptor.interceptTag(this, tag, value) && !skipTag(tag)) {
+          unsafeSetOrStageTag(tag, value, staged);
+        }
+      }
+      for (int i = 0; i < size; ++i) {
+        final String tag = keys[i];
+        if (!template.isFinal(tag)
+            && !tagInterceptor.interceptTag(this, tag, values[i])
+            && !skipTag(tag)) {
+          unsafeSetOrStageTag(tag, values[i], staged);
+        }
+      }
+    }
+  }
+
+  /**
+   * Stores the staged value of a tag ahead of the other staged tags, so that it is kept even if
+   * the trace turns out to be stats only.
+   */
+  void setStagedTag(final TagBatch staged, final String tag) {
+    synchronized (unsafeTags) {
+      for (int i = 0; i < staged.size(); ++i) {
+        if (tag.equals(staged.key(i))) {
+          unsafeSetTag(tag, staged.value(i));
+        }
+      }
+    }
+  }
+
+  /**
+   * Stores the tags staged when the span was created, once it is known whether its trace is stats
+   * only. The tags have already been through the tag interceptor.
+   */
+  void setStagedTags(final TagBatch staged) {
+    synchronized (unsafeTags) {
+      for (int i = 0; i < staged.size(); ++i) {
+        final String tag = staged.key(i);
+        if (!skipTag(tag)) {
+          unsafeSetTag(tag, staged.value(i));
+        }
+      }
+    }
+  }
+
+  private void unsafeSetOrStageTag(final String tag, final Object value, final TagBatch staged) {
+    if (null == staged) {
+      unsafeSetTag(tag, value);
+    } else {
+      staged.put(tag, value);
+    }
+  }
+
+  /** Sets the tags in the batch under one lock, with the same semantics as {@link #setTag}. */
+  void setTags(final TagBatch batch) {
+    if (batch.size() == 0) {
+      return;
+    }
+
+    TagInterceptor tagInterceptor = trace.getTracer().getTagInterceptor();
+    synchronized (unsafeTags) {
+      for (int i = 0; i < batch.size(); ++i) {
+        final String tag = batch.key(i);
+        final Object value = batch.value(i);
+        if (null == value || "".equals(value)) {
+          unsafeRemoveTag(tag);
+        } else if (!tagInterceptor.interceptTag(this, tag, value) && !skipTag(tag)) {
+          unsafeSetTag(tag, value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Spans in stats only traces don't store tags, the fields stats are computed from are set by the
+   * tag interceptor. Tags describing errors are kept in case the trace is kept for its errors.
+   */
+  private boolean skipTag(final String tag) {
+    return trace.isStatsOnly() && !tag.startsWith("error.");
+  }
+
   void unsafeSetTag(final String tag, final Object value) {
     unsafeTags.put(tag, value);
+    // a peer tag which wasn't intercepted replaces the value in its typed slot
+    if (clearPeerSlot(tag)) {
+      peerTagsInMap = true;
+    }
+  }
+
+  private void unsafeRemoveTag(final String tag) {
+    unsafeTags.remove(tag);
+    clearPeerSlot(tag);
+  }
+
+  /** Clears the typed slot backing the tag, if it's a peer tag. */
+  private boolean clearPeerSlot(final String tag) {
+    switch (tag) {
+      case Tags.PEER_PORT:
+        peerPort = 0;
+        return true;
+      case Tags.PEER_HOST_IPV4:
+        peerHostIPv4 = null;
+        return true;
+      case Tags.PEER_HOST_IPV6:
+        peerHostIPv6 = null;
+        return true;
+      default:
+        return false;
+    }
   }
 
   Object getTag(final String key) {
@@ -414,10 +693,27 @@ public class DDSpanContext implements AgentSpan.Context {
         return threadName.toString();
       case Tags.HTTP_STATUS:
         return 0 == httpStatusCode ? null : (int) httpStatusCode;
+      case Tags.PEER_PORT:
+        return 0 == peerPort ? getTagFromMap(key) : (Object) peerPort;
+      case Tags.PEER_HOST_IPV4:
+        return null == peerHostIPv4 ? getTagFromMap(key) : peerHostIPv4.toString();
+      case Tags.PEER_HOST_IPV6:
+        return null == peerHostIPv6 ? getTagFromMap(key) : peerHostIPv6.toString();
+      case DDTags.ERROR_STACK:
+        return renderErrorStack(getTagFromMap(key));
       default:
-        synchronized (unsafeTags) {
-          return unsafeGetTag(key);
-        }
+        return getTagFromMap(key);
+    }
+  }
+
+  // maintain previously observable type of the error stack
+  private static Object renderErrorStack(Object errorStack) {
+    return errorStack instanceof ErrorStack ? errorStack.toString() : errorStack;
+  }
+
+  private Object getTagFromMap(final String key) {
+    synchronized (unsafeTags) {
+      return unsafeGetTag(key);
     }
   }
 
@@ -443,6 +739,19 @@ public class DDSpanContext implements AgentSpan.Context {
       if (httpStatusCode != 0) {
         tags.put(Tags.HTTP_STATUS, (int) httpStatusCode);
       }
+      if (peerPort != 0) {
+        tags.put(Tags.PEER_PORT, peerPort);
+      }
+      if (null != peerHostIPv4) {
+        tags.put(Tags.PEER_HOST_IPV4, peerHostIPv4.toString());
+      }
+      if (null != peerHostIPv6) {
+        tags.put(Tags.PEER_HOST_IPV6, peerHostIPv6.toString());
+      }
+      Object errorStack = tags.get(DDTags.ERROR_STACK);
+      if (errorStack instanceof ErrorStack) {
+        tags.put(DDTags.ERROR_STACK, errorStack.toString());
+      }
       return Collections.unmodifiableMap(tags);
     }
   }
@@ -455,10 +764,13 @@ public class DDSpanContext implements AgentSpan.Context {
               threadName,
               unsafeTags,
               baggageItems,
-              samplingPriorityV1,
+              samplingPriorityV1 == UNSET ? chunkSamplingPriority : samplingPriorityV1,
               measured,
               topLevel,
-              httpStatusCode == 0 ? null : HTTP_STATUSES.get(httpStatusCode)));
+              httpStatusCode == 0 ? null : HTTP_STATUSES.get(httpStatusCode),
+              peerPort,
+              peerHostIPv4,
+              peerHostIPv6));
     }
   }
 
@@ -469,9 +781,9 @@ public class DDSpanContext implements AgentSpan.Context {
             .append("DDSpan [ t_id=")
             .append(traceId)
             .append(", s_id=")
-            .append(spanId)
+            .append(getSpanId())
             .append(", p_id=")
-            .append(parentId)
+            .append(getParentId())
             .append(" ] trace=")
             .append(getServiceName())
             .append("/")
@@ -0,0 +1,236 @@
+package datadog.trace.core;
+
+import datadog.trace.api.Function;
+import datadog.trace.api.cache.DDCache;
+import datadog.trace.api.cache.DDCaches;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The value of the {@code error.stack} tag. The messages and stack frames of the throwable and its
+ * causes are captured when the value is created, but the frames are only rendered when the value
+ * is first read, which is normally when the trace is serialized. This keeps the cost of rendering
+ * off the request thread and avoids it altogether for traces which are never written, without
+ * holding on to the throwable or calling into it from the serializer.
+ *
+ * <p>Stack traces are rendered in the same format as {@link Throwable#printStackTrace()}, with
+ * causes but without suppressed exceptions. The top frames of each throwable are shared between
+ * throwables of the same class thrown from the same place through a bounded cache, so a burst of
+ * identical errors is only rendered once. The number of frames rendered per throwable can be
+ * limited with {@code dd.trace.error.stack.max.frames}.
+ */
+final class ErrorStack implements CharSequence {
+
+  private static final int MAX_CAUSES = 64;
+
+  /** The number of top frames shared through the cache, any further frames are always rendered. */
+  static final int SHARED_FRAMES = 32;
+
+  private static final DDCache<Fingerprint, String> RENDERED_FRAMES =
+      DDCaches.newFixedSizeCache(256);
+
+  private static final Function<Fingerprint, String> RENDER_FRAMES =
+      new Function<Fingerprint, String>() {
+        @Override
+        public String apply(Fingerprint fingerprint) {
+          StringBuilder sb = new StringBuilder(fingerprint.frames.length * 64);
+          appendFrames(sb, fingerprint.frames);
+          return sb.toString();
+        }
+      };
+
+  // headers are strings, frames are rendered on first read
+  private volatile Object[] parts;
+  private volatile String rendered;
+
+  ErrorStack(Throwable error, int maxFrames) {
+    this.parts = capture(error, maxFrames);
+  }
+
+  static String render(Throwable error, int maxFrames) {
+    return new ErrorStack(error, maxFrames).toString();
+  }
+
+  @Override
+  public int length() {
+    return toString().length();
+  }
+
+  @Override
+  public char charAt(int index) {
+    return toString().charAt(index);
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    return toString().subSequence(start, end);
+  }
+
+  @Override
+  public String toString() {
+    String rendered = this.rendered;
+    if (null == rendered) {
+      Object[] parts = this.parts;
+      // a concurrent render has finished if the parts have been released
+      rendered = null == parts ? this.rendered : render(parts);
+      this.rendered = rendered;
+      this.parts = null;
+    }
+    return rendered;
+  }
+
+  private static String render(Object[] parts) {
+    StringBuilder sb = new StringBuilder(1024);
+    for (Object part : parts) {
+      if (part instanceof Frames) {
+        ((Frames) part).appendTo(sb);
+      } else {
+        sb.append((String) part);
+      }
+    }
+    return sb.toString();
+  }
+
+  private static Object[] capture(Throwable error, int maxFrames) {
+    List<Object> parts = new ArrayList<>(4);
+    List<Throwable> seen = new ArrayList<>(4);
+    StackTraceElement[] enclosing = null;
+    Throwable current = error;
+    while (null != current) {
+      if (containsIdentity(seen, current)) {
+        parts.add("\t[CIRCULAR REFERENCE: " + describe(current) + "]\n");
+        break;
+      }
+      if (seen.size() == MAX_CAUSES) {
+        break;
+      }
+      String header = describe(current) + '\n';
+      parts.add(seen.isEmpty() ? header : "Caused by: " + header);
+      seen.add(current);
+      StackTraceElement[] trace = stackTrace(current);
+      int inCommon = null == enclosing ? 0 : framesInCommon(trace, enclosing);
+      int count = trace.length - inCommon;
+      if (maxFrames > 0 && count > maxFrames) {
+        count = maxFrames;
+      }
+      if (trace.length > 0) {
+        parts.add(new Frames(current.getClass().getName(), trace, count, trace.length - count));
+      }
+      enclosing = trace;
+      current = cause(current);
+    }
+    return parts.toArray();
+  }
+
+  // the throwable's own methods may be overridden, so none of them are allowed to fail the span
+
+  private static String describe(Throwable error) {
+    try {
+      return String.valueOf(error);
+    } catch (Throwable e) {
+      return error.getClass().getName();
+    }
+  }
+
+  private static StackTraceElement[] stackTrace(Throwable error) {
+    try {
+      StackTraceElement[] trace = error.getStackTrace();
+      return null == trace ? new StackTraceElement[0] : trace;
+    } catch (Throwable e) {
+      return new StackTraceElement[0];
+    }
+  }
+
+  private static Throwable cause(Throwable error) {
+    try {
+      return error.getCause();
+    } catch (Throwable e) {
+      return null;
+    }
+  }
+
+  private static int framesInCommon(StackTraceElement[] trace, StackTraceElement[] enclosing) {
+    int m = trace.length - 1;
+    int n = enclosing.length - 1;
+    while (m >= 0 && n >= 0 && trace[m].equals(enclosing[n])) {
+      --m;
+      --n;
+    }
+    return trace.length - 1 - m;
+  }
+
+  private static boolean containsIdentity(List<Throwable> seen, Throwable error) {
+    for (Throwable throwable : seen) {
+      if (throwable == error) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void appendFrames(StringBuilder sb, StackTraceElement[] trace) {
+    for (StackTraceElement frame : trace) {
+      sb.append("\tat ").append(frame).append('\n');
+    }
+  }
+
+  /**
+   * The first {@code count} frames of a stack trace, followed by a count of omitted frames. Only
+   * the frames after the shared top frames are held on to.
+   */
+  static final class Frames {
+    final Fingerprint fingerprint;
+    private final StackTraceElement[] rest;
+    private final int omitted;
+
+    Frames(String type, StackTraceElement[] trace, int count, int omitted) {
+      int shared = Math.min(count, SHARED_FRAMES);
+      this.fingerprint =
+          new Fingerprint(
+              type, shared == trace.length ? trace : Arrays.copyOfRange(trace, 0, shared));
+      this.rest = shared == count ? null : Arrays.copyOfRange(trace, shared, count);
+      this.omitted = omitted;
+    }
+
+    void appendTo(StringBuilder sb) {
+      sb.append(RENDERED_FRAMES.computeIfAbsent(fingerprint, RENDER_FRAMES));
+      if (null != rest) {
+        appendFrames(sb, rest);
+      }
+      if (omitted > 0) {
+        sb.append("\t... ").append(omitted).append(" more\n");
+      }
+    }
+  }
+
+  /** The class name of a throwable and at most {@link #SHARED_FRAMES} of its top frames. */
+  static final class Fingerprint {
+    private final String type;
+    private final StackTraceElement[] frames;
+    private final int hash;
+
+    Fingerprint(String type, StackTraceElement[] frames) {
+      this.type = type;
+      this.frames = frames;
+      this.hash = 31 * type.hashCode() + Arrays.hashCode(frames);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Fingerprint)) {
+        return false;
+      }
+      Fingerprint that = (Fingerprint) o;
+      return hash == that.hash && type.equals(that.type) && Arrays.equals(frames, that.frames);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
@@ -9,6 +9,9 @@ public final class Metadata {
   private final long threadId;
   private final UTF8BytesString threadName;
   private final UTF8BytesString httpStatusCode;
+  private final int peerPort;
+  private final UTF8BytesString peerHostIPv4;
+  private final UTF8BytesString peerHostIPv6;
   private final Map<String, Object> tags;
   private final Map<String, String> baggage;
 
@@ -25,9 +28,38 @@ public final class Metadata {
       boolean measured,
       boolean topLevel,
       UTF8BytesString httpStatusCode) {
+    this(
+        threadId,
+        threadName,
+        tags,
+        baggage,
+        samplingPriority,
+        measured,
+        topLevel,
+        httpStatusCode,
+        0,
+        null,
+        null);
+  }
+
+  public Metadata(
+      long threadId,
+      UTF8BytesString threadName,
+      Map<String, Object> tags,
+      Map<String, String> baggage,
+      int samplingPriority,
+      boolean measured,
+      boolean topLevel,
+      UTF8BytesString httpStatusCode,
+      int peerPort,
+      UTF8BytesString peerHostIPv4,
+      UTF8BytesString peerHostIPv6) {
     this.threadId = threadId;
     this.threadName = threadName;
     this.httpStatusCode = httpStatusCode;
+    this.peerPort = peerPort;
+    this.peerHostIPv4 = peerHostIPv4;
+    this.peerHostIPv6 = peerHostIPv6;
     this.tags = tags;
     this.baggage = baggage;
     this.samplingPriority = samplingPriority;
@@ -39,6 +71,27 @@ public final class Metadata {
     return httpStatusCode;
   }
 
+  public boolean hasPeerPort() {
+    return peerPort != 0;
+  }
+
+  public int getPeerPort() {
+    return peerPort;
+  }
+
+  public UTF8BytesString getPeerHostIPv4() {
+    return peerHostIPv4;
+  }
+
+  public UTF8BytesString getPeerHostIPv6() {
+    return peerHostIPv6;
+  }
+
+  /** @return the number of peer address entries to write into the meta section */
+  public int peerHostIpCount() {
+    return (null == peerHostIPv4 ? 0 : 1) + (null == peerHostIPv6 ? 0 : 1);
+  }
+
   public long getThreadId() {
     return threadId;
   }
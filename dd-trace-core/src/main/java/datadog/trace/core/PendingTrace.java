@@ -3,9 +3,12 @@ package datadog.trace.core;
 import datadog.trace.api.DDId;
 import datadog.trace.bootstrap.instrumentation.api.AgentScope;
 import datadog.trace.bootstrap.instrumentation.api.AgentTrace;
+import datadog.trace.common.sampling.TailSampler;
+import datadog.trace.core.monitor.PipelineStages;
 import datadog.trace.core.monitor.Recording;
 import datadog.trace.core.util.Clock;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
@@ -21,6 +24,8 @@ import org.slf4j.LoggerFactory;
  *   <li>Immediate Write
  *       <ul>
  *         <li>pending ref count == 0 && trace not already written
+ *         <li>size reaches span streaming chunk size
+ *         <li>tracer is over its span budget
  *         <li>not root span && size exceeds partial flush
  *       </ul>
  *   <li>Delayed Write
@@ -31,6 +36,13 @@ import org.slf4j.LoggerFactory;
  * </ul>
  *
  * Delayed write is handled by PendingTraceBuffer. <br>
+ *
+ * <p>With span streaming, finished spans are written in chunks of a fixed size as soon as enough
+ * of them have finished, oldest first, so long running traces don't accumulate finished spans. The
+ * first span of each chunk carries the trace level data otherwise read from the root span.
+ *
+ * <p>The trace holds its spans against the tracer's {@link SpanBudget} from when they start until
+ * they finish. Any spans it still holds when it leaves the pending trace buffer are released then.
  */
 public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
 
@@ -40,15 +52,25 @@ public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
     private final CoreTracer tracer;
     private final PendingTraceBuffer pendingTraceBuffer;
     private final boolean strictTraceWrites;
+    private final SpanBudget spanBudget;
 
     Factory(CoreTracer tracer, PendingTraceBuffer pendingTraceBuffer, boolean strictTraceWrites) {
+      this(tracer, pendingTraceBuffer, strictTraceWrites, SpanBudget.UNLIMITED);
+    }
+
+    Factory(
+        CoreTracer tracer,
+        PendingTraceBuffer pendingTraceBuffer,
+        boolean strictTraceWrites,
+        SpanBudget spanBudget) {
       this.tracer = tracer;
       this.pendingTraceBuffer = pendingTraceBuffer;
       this.strictTraceWrites = strictTraceWrites;
+      this.spanBudget = spanBudget;
     }
 
     PendingTrace create(@Nonnull DDId traceId) {
-      return new PendingTrace(tracer, traceId, pendingTraceBuffer, strictTraceWrites);
+      return new PendingTrace(tracer, traceId, pendingTraceBuffer, strictTraceWrites, spanBudget);
     }
   }
 
@@ -58,6 +80,8 @@ public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
   private final DDId traceId;
   private final PendingTraceBuffer pendingTraceBuffer;
   private final boolean strictTraceWrites;
+  private final SpanBudget spanBudget;
+  private final SpanBudget.Lease spanBudgetLease;
 
   // TODO: consider moving these time fields into DDTracer to ensure that traces have precise
   // relative time
@@ -88,6 +112,25 @@ public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
 
   private volatile boolean rootSpanWritten = false;
 
+  /**
+   * Set when the trace was dropped by priority sampling as its root span started, so that it is
+   * only used to compute stats and its spans don't need to store tags.
+   */
+  private volatile boolean statsOnly = false;
+
+  /**
+   * The tail sampling decision, made when the first chunk of the trace is written so that all
+   * chunks of a partially flushed trace are kept or dropped together.
+   */
+  private volatile int tailSamplingDecision = TAIL_SAMPLING_UNDECIDED;
+
+  private static final int TAIL_SAMPLING_UNDECIDED = 0;
+  private static final int TAIL_SAMPLING_KEEP = 1;
+  private static final int TAIL_SAMPLING_DROP = 2;
+
+  private static final AtomicIntegerFieldUpdater<PendingTrace> TAIL_SAMPLING_DECISION =
+      AtomicIntegerFieldUpdater.newUpdater(PendingTrace.class, "tailSamplingDecision");
+
   /**
    * Updated with the latest nanoTicks each time getCurrentTimeNano is called (at the start and
    * finish of each span).
@@ -98,11 +141,14 @@ public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
       @Nonnull CoreTracer tracer,
       @Nonnull DDId traceId,
       @Nonnull PendingTraceBuffer pendingTraceBuffer,
-      boolean strictTraceWrites) {
+      boolean strictTraceWrites,
+      @Nonnull SpanBudget spanBudget) {
     this.tracer = tracer;
     this.traceId = traceId;
     this.pendingTraceBuffer = pendingTraceBuffer;
     this.strictTraceWrites = strictTraceWrites;
+    this.spanBudget = spanBudget;
+    this.spanBudgetLease = spanBudget.lease(this);
 
     startTimeNano = Clock.currentNanoTime();
     startNanoTicks = Clock.currentNanoTicks();
@@ -138,13 +184,20 @@ public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
     return nanos < age;
   }
 
+  /** @return false if a new span is refused by the span budget and must not be recorded */
+  boolean admitsSpan() {
+    return spanBudget.admits(spanBudgetLease);
+  }
+
   void registerSpan(final DDSpan span) {
     tracer.onStart(span);
     ROOT_SPAN.compareAndSet(this, null, span);
+    spanBudget.acquire(spanBudgetLease);
     PENDING_REFERENCE_COUNT.incrementAndGet(this);
   }
 
   void addFinishedSpan(final DDSpan span) {
+    spanBudget.release(spanBudgetLease);
     tracer.onFinish(span);
     finishedSpans.addFirst(span);
     // There is a benign race here where the span added above can get written out by a writer in
@@ -158,6 +211,28 @@ public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
     return rootSpan;
   }
 
+  boolean isStatsOnly() {
+    return statsOnly;
+  }
+
+  void setStatsOnly(final boolean statsOnly) {
+    this.statsOnly = statsOnly;
+  }
+
+  /** @return the trace's tail sampling decision, made with this chunk unless one was made before */
+  boolean tailSample(
+      final TailSampler<DDSpan> tailSampler, final DDSpan rootSpan, final List<DDSpan> chunk) {
+    int decision = tailSamplingDecision;
+    if (decision == TAIL_SAMPLING_UNDECIDED) {
+      decision = tailSampler.sample(rootSpan, chunk) ? TAIL_SAMPLING_KEEP : TAIL_SAMPLING_DROP;
+      if (!TAIL_SAMPLING_DECISION.compareAndSet(this, TAIL_SAMPLING_UNDECIDED, decision)) {
+        // another chunk was sampled concurrently
+        decision = tailSamplingDecision;
+      }
+    }
+    return decision == TAIL_SAMPLING_KEEP;
+  }
+
   /** @return Long.MAX_VALUE if no spans finished. */
   public long oldestFinishedTime() {
     long oldest = Long.MAX_VALUE;
@@ -187,10 +262,25 @@ public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
       throw new IllegalStateException("Pending reference count " + count + " is negative");
     }
     int partialFlushMinSpans = tracer.getPartialFlushMinSpans();
+    int spanStreamingChunkSize = tracer.getSpanStreamingChunkSize();
 
     if (count == 0 && (strictTraceWrites || !rootSpanWritten)) {
       // Finished with no pending work ... write immediately
       write();
+    } else if (0 < spanStreamingChunkSize && spanStreamingChunkSize <= size()) {
+      // Enough spans finished to fill a chunk ... stream them
+      streamChunks(spanStreamingChunkSize);
+      if (isRootSpan || rootSpanWritten) {
+        // The rest is written later
+        pendingTraceBuffer.enqueue(this);
+      }
+    } else if (spanBudget.isExceeded()) {
+      // Tracer is over its span budget ... write anything completed, and let buffered traces go
+      spanBudgetFlush();
+      pendingTraceBuffer.forceWrites();
+      if (isRootSpan || rootSpanWritten) {
+        pendingTraceBuffer.enqueue(this);
+      }
     } else if (isRootSpan) {
       // Finished root with pending work ... delay write
       pendingTraceBuffer.enqueue(this);
@@ -211,14 +301,43 @@ public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
     }
   }
 
-  /** Important to note: may be called multiple times. */
+  private void spanBudgetFlush() {
+    int size = write(true, 1, Integer.MAX_VALUE);
+    if (size > 0) {
+      spanBudget.onFlush(size);
+    }
+  }
+
+  private void streamChunks(int chunkSize) {
+    int size;
+    do {
+      size = write(true, chunkSize, chunkSize);
+      if (log.isDebugEnabled() && size > 0) {
+        log.debug("t_id={} -> streamed trace chunk of size {}", traceId, size);
+      }
+    } while (size == chunkSize && chunkSize <= size());
+  }
+
+  /**
+   * Important to note: may be called multiple times. Once the pending trace buffer writes the
+   * trace it stops tracking it, so any spans which haven't finished yet are released from the span
+   * budget.
+   */
   public void write() {
     write(false);
+    spanBudget.expire(spanBudgetLease);
   }
 
   private int write(boolean isPartial) {
+    return write(
+        isPartial, isPartial ? tracer.getPartialFlushMinSpans() + 1 : 1, Integer.MAX_VALUE);
+  }
+
+  private int write(boolean isPartial, int minSpans, int maxSpans) {
     if (!finishedSpans.isEmpty()) {
       try (Recording recording = tracer.writeTimer()) {
+        final boolean recordStage = PipelineStages.isEnabled();
+        final long stageStartNanoTicks = recordStage ? Clock.currentNanoTicks() : 0;
         // Only one writer at a time
         final List<DDSpan> trace;
         synchronized (this) {
@@ -232,12 +351,23 @@ public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
           // the completedSpanCount has not yet been incremented. This means that eventually the
           // count(s) will be incremented, and any new spans added during the period that the count
           // was negative will be written by someone even if we don't write them right now.
-          if (size > 0 && (!isPartial || size > tracer.getPartialFlushMinSpans())) {
-            trace = new ArrayList<>(size);
-            DDSpan span = finishedSpans.pollFirst();
-            while (null != span) {
-              trace.add(span);
-              span = finishedSpans.pollFirst();
+          if (size > 0 && size >= minSpans) {
+            if (maxSpans == Integer.MAX_VALUE) {
+              trace = new ArrayList<>(size);
+              DDSpan span = finishedSpans.pollFirst();
+              while (null != span) {
+                trace.add(span);
+                span = finishedSpans.pollFirst();
+              }
+            } else {
+              // take the oldest spans, keeping the last to finish first
+              trace = new ArrayList<>(maxSpans);
+              DDSpan span = finishedSpans.pollLast();
+              while (null != span) {
+                trace.add(span);
+                span = trace.size() < maxSpans ? finishedSpans.pollLast() : null;
+              }
+              Collections.reverse(trace);
             }
           } else {
             trace = EMPTY;
@@ -245,6 +375,9 @@ public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
         }
         if (!trace.isEmpty()) {
           COMPLETED_SPAN_COUNT.addAndGet(this, -trace.size());
+          if (recordStage) {
+            recordWriteStage(trace, stageStartNanoTicks);
+          }
           tracer.write(trace);
           return trace.size();
         }
@@ -256,4 +389,20 @@ public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
   public int size() {
     return completedSpanCount;
   }
+
+  private void recordWriteStage(final List<DDSpan> trace, final long stageStartNanoTicks) {
+    // spans are added to the front of finishedSpans, so the first span is the last to finish
+    final DDSpan lastFinished = trace.get(0);
+    final long finishedNanoTicks =
+        startNanoTicks
+            + lastFinished.getStartTime()
+            + lastFinished.getDurationNano()
+            - startTimeNano;
+    PipelineStages.record(
+        PipelineStages.Stage.PENDING_TRACE_WRITE,
+        Math.max(0, stageStartNanoTicks - finishedNanoTicks),
+        stageStartNanoTicks,
+        1,
+        trace.size());
+  }
 }
@@ -29,6 +29,7 @@ public abstract class PendingTraceBuffer implements AutoCloseable {
     private final Thread worker;
 
     private volatile boolean closed = false;
+    private volatile boolean forceWrites = false;
     private final AtomicInteger flushCounter = new AtomicInteger(0);
 
     /** if the queue is full, pendingTrace trace will be written immediately. */
@@ -43,6 +44,11 @@ public abstract class PendingTraceBuffer implements AutoCloseable {
       worker.start();
     }
 
+    @Override
+    public void forceWrites() {
+      forceWrites = true;
+    }
+
     @Override
     public void close() {
       closed = true;
@@ -124,6 +130,15 @@ public abstract class PendingTraceBuffer implements AutoCloseable {
               continue;
             }
 
+            if (forceWrites) {
+              // Tracer is over its span budget. Write the oldest traces first, without waiting.
+              pendingTrace.write();
+              if (queue.isEmpty()) {
+                forceWrites = false;
+              }
+              continue;
+            }
+
             long oldestFinishedTime = pendingTrace.oldestFinishedTime();
 
             long finishTimestampMillis = TimeUnit.NANOSECONDS.toMillis(oldestFinishedTime);
@@ -166,6 +181,9 @@ public abstract class PendingTraceBuffer implements AutoCloseable {
 
     @Override
     public void enqueue(Element pendingTrace) {}
+
+    @Override
+    public void forceWrites() {}
   }
 
   public static PendingTraceBuffer delaying() {
@@ -183,4 +201,7 @@ public abstract class PendingTraceBuffer implements AutoCloseable {
   public abstract void flush();
 
   public abstract void enqueue(Element pendingTrace);
+
+  /** Writes the buffered traces without delay until the buffer is empty. */
+  public abstract void forceWrites();
 }
@@ -0,0 +1,202 @@
+package datadog.trace.core;
+
+import datadog.trace.api.Config;
+import datadog.trace.core.monitor.HealthMetrics;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import org.jctools.counters.CountersFactory;
+import org.jctools.counters.FixedSizeStripedLongCounter;
+
+/**
+ * Bounds the number of spans in flight across all pending traces, that is spans which have been
+ * started but not yet finished.
+ *
+ * <p>While the budget is exceeded, new spans in traces which already hold a large share of the
+ * budget are refused and the tracer hands out an {@link UnrecordedSpan} instead, and pending traces
+ * write their finished spans straight away instead of holding on to them. Root spans are always
+ * admitted.
+ *
+ * <p>Each trace holds its spans through a {@link Lease}. The spans a trace still holds are released
+ * when it leaves the pending trace buffer, or when it is garbage collected, so spans which are
+ * never finished don't hold on to the budget.
+ *
+ * <p>The number of spans in flight is kept in a striped counter, which is only summed every {@link
+ * #CHECK_INTERVAL} spans started, so the budget can be overshot by a few spans per thread.
+ */
+final class SpanBudget {
+
+  /** Rough retained size of a span with a handful of tags, used to convert the budget in bytes. */
+  static final int APPROXIMATE_SPAN_SIZE = 1024;
+
+  static final int CHECK_INTERVAL = 64;
+
+  /** Traces holding at least this fraction of the budget are refused new spans when over budget */
+  private static final int MAX_TRACE_SHARE = 64;
+
+  static final SpanBudget UNLIMITED = new SpanBudget(0, CHECK_INTERVAL, null);
+
+  static SpanBudget forConfig(final Config config, final HealthMetrics healthMetrics) {
+    long maxSpans = config.getSpanBudget() > 0 ? config.getSpanBudget() : Long.MAX_VALUE;
+    if (config.getSpanBudgetMb() > 0) {
+      maxSpans =
+          Math.min(maxSpans, ((long) config.getSpanBudgetMb() << 20) / APPROXIMATE_SPAN_SIZE);
+    }
+    if (maxSpans == Long.MAX_VALUE) {
+      return UNLIMITED;
+    }
+    return new SpanBudget(maxSpans, CHECK_INTERVAL, healthMetrics);
+  }
+
+  private final long maxSpans;
+  private final long maxSpansPerTrace;
+  private final int checkMask;
+  private final HealthMetrics healthMetrics;
+  private final FixedSizeStripedLongCounter inFlightSpans;
+
+  // leases are kept reachable until their trace is collected
+  private final Set<Lease> leases;
+  private final ReferenceQueue<PendingTrace> collectedTraces;
+
+  private volatile boolean exceeded;
+  // racy, only used to decide when to check the budget
+  private int started;
+
+  SpanBudget(final long maxSpans, final int checkInterval, final HealthMetrics healthMetrics) {
+    assert Integer.bitCount(checkInterval) == 1;
+    this.maxSpans = maxSpans;
+    this.maxSpansPerTrace = Math.max(1, maxSpans / MAX_TRACE_SHARE);
+    this.checkMask = checkInterval - 1;
+    this.healthMetrics = healthMetrics;
+    if (maxSpans > 0) {
+      this.inFlightSpans = CountersFactory.createFixedSizeStripedCounter(8);
+      this.leases = Collections.newSetFromMap(new ConcurrentHashMap<Lease, Boolean>());
+      this.collectedTraces = new ReferenceQueue<>();
+    } else {
+      this.inFlightSpans = null;
+      this.leases = null;
+      this.collectedTraces = null;
+    }
+  }
+
+  /** @return the lease the trace holds its spans through, or null if the budget is unlimited */
+  Lease lease(final PendingTrace trace) {
+    if (null == inFlightSpans) {
+      return null;
+    }
+    final Lease lease = new Lease(trace, collectedTraces);
+    leases.add(lease);
+    return lease;
+  }
+
+  /** @return false if a new span in the lease's trace is refused and must not be recorded */
+  boolean admits(final Lease lease) {
+    if (null == lease || !exceeded || lease.spans < maxSpansPerTrace) {
+      return true;
+    }
+    healthMetrics.onSpanRejected();
+    maybeCheck();
+    return false;
+  }
+
+  /** Called when a span of the lease's trace starts. */
+  void acquire(final Lease lease) {
+    if (null != lease) {
+      Lease.SPANS.incrementAndGet(lease);
+      inFlightSpans.inc();
+      maybeCheck();
+    }
+  }
+
+  /** Called when a span of the lease's trace finishes. */
+  void release(final Lease lease) {
+    if (null != lease && lease.release()) {
+      inFlightSpans.inc(-1);
+      if (exceeded) {
+        check();
+      }
+    }
+  }
+
+  /** Called when the lease's trace is no longer tracked, releasing the spans it still holds. */
+  void expire(final Lease lease) {
+    if (null != lease && releaseAll(lease) && exceeded) {
+      check();
+    }
+  }
+
+  /** Called when a pending trace wrote its finished spans early to stay within the budget. */
+  void onFlush(final int spans) {
+    healthMetrics.onSpanBudgetFlush(spans);
+  }
+
+  boolean isExceeded() {
+    return exceeded;
+  }
+
+  long inFlightSpans() {
+    return null == inFlightSpans ? 0 : inFlightSpans.get();
+  }
+
+  private boolean releaseAll(final Lease lease) {
+    final int spans = Lease.SPANS.getAndSet(lease, 0);
+    if (spans > 0) {
+      inFlightSpans.inc(-spans);
+      return true;
+    }
+    return false;
+  }
+
+  private void maybeCheck() {
+    if ((++started & checkMask) == 0) {
+      check();
+    }
+  }
+
+  private void check() {
+    Object collected;
+    while (null != (collected = collectedTraces.poll())) {
+      leases.remove(collected);
+      releaseAll((Lease) collected);
+    }
+    final long spans = inFlightSpans.get();
+    final boolean nowExceeded = spans > maxSpans;
+    if (nowExceeded != exceeded) {
+      exceeded = nowExceeded;
+      if (nowExceeded) {
+        healthMetrics.onSpanBudgetExceeded(spans);
+      }
+    }
+  }
+
+  /** The spans a trace holds, enqueued once the trace has been garbage collected. */
+  static final class Lease extends PhantomReference<PendingTrace> {
+    private static final AtomicIntegerFieldUpdater<Lease> SPANS =
+        AtomicIntegerFieldUpdater.newUpdater(Lease.class, "spans");
+
+    private volatile int spans;
+
+    Lease(final PendingTrace trace, final ReferenceQueue<PendingTrace> queue) {
+      super(trace, queue);
+    }
+
+    int spans() {
+      return spans;
+    }
+
+    /** @return false if the trace's spans were already released when it expired */
+    private boolean release() {
+      int current;
+      do {
+        current = spans;
+        if (current == 0) {
+          return false;
+        }
+      } while (!SPANS.compareAndSet(this, current, current - 1));
+      return true;
+    }
+  }
+}
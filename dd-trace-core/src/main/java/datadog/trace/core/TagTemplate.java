@@ -0,0 +1,80 @@
+package datadog.trace.core;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * The tags every new span starts with, merged once from the tracer's default span tags and, for
+ * local root spans, its local root span tags. Tags are held in arrays in the order they are set on
+ * a span, so starting a span doesn't iterate maps.
+ *
+ * <p>Local root span tags take precedence over default span tags and over tags set on the span
+ * builder, so they are held last and marked as final.
+ */
+final class TagTemplate {
+
+  static final TagTemplate EMPTY = new TagTemplate(new String[0], new Object[0], 0);
+
+  private final String[] keys;
+  private final Object[] values;
+  private final int firstFinal;
+
+  private TagTemplate(String[] keys, Object[] values, int firstFinal) {
+    this.keys = keys;
+    this.values = values;
+    this.firstFinal = firstFinal;
+  }
+
+  static TagTemplate of(Map<String, ?> tags) {
+    return of(tags, null);
+  }
+
+  /** @return the tags of both maps, those of {@code finalTags} replacing those of {@code tags} */
+  static TagTemplate of(Map<String, ?> tags, Map<String, ?> finalTags) {
+    int finalCount = null == finalTags ? 0 : finalTags.size();
+    if (tags.isEmpty() && finalCount == 0) {
+      return EMPTY;
+    }
+    String[] keys = new String[tags.size() + finalCount];
+    Object[] values = new Object[keys.length];
+    int size = 0;
+    for (Map.Entry<String, ?> tag : tags.entrySet()) {
+      if (null == finalTags || !finalTags.containsKey(tag.getKey())) {
+        keys[size] = tag.getKey();
+        values[size] = tag.getValue();
+        ++size;
+      }
+    }
+    int firstFinal = size;
+    if (null != finalTags) {
+      for (Map.Entry<String, ?> tag : finalTags.entrySet()) {
+        keys[size] = tag.getKey();
+        values[size] = tag.getValue();
+        ++size;
+      }
+    }
+    return new TagTemplate(Arrays.copyOf(keys, size), Arrays.copyOf(values, size), firstFinal);
+  }
+
+  int size() {
+    return keys.length;
+  }
+
+  String key(int index) {
+    return keys[index];
+  }
+
+  Object value(int index) {
+    return values[index];
+  }
+
+  /** @return whether the tag is one of the template's final tags, which can't be overridden */
+  boolean isFinal(String key) {
+    for (int i = firstFinal; i < keys.length; ++i) {
+      if (keys[i].equals(key)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
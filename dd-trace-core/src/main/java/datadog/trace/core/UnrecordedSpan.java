@@ -0,0 +1,56 @@
+package datadog.trace.core;
+
+import datadog.trace.api.DDId;
+import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
+import datadog.trace.bootstrap.instrumentation.api.AgentTracer;
+
+/**
+ * A no-op span handed out instead of a span refused by the {@link SpanBudget}.
+ *
+ * <p>Unlike {@link AgentTracer.NoopAgentSpan#INSTANCE} it carries the context of its closest
+ * recorded ancestor, so spans started under it, continuations and propagated headers stay in the
+ * same trace, and children are attached to a span which is written.
+ */
+final class UnrecordedSpan extends AgentTracer.NoopAgentSpan {
+  private final DDSpanContext parentContext;
+
+  UnrecordedSpan(final DDSpanContext parentContext) {
+    this.parentContext = parentContext;
+  }
+
+  @Override
+  public DDId getTraceId() {
+    return parentContext.getTraceId();
+  }
+
+  @Override
+  public AgentSpan getLocalRootSpan() {
+    final AgentSpan rootSpan = parentContext.getTrace().getRootSpan();
+    return null == rootSpan ? this : rootSpan;
+  }
+
+  @Override
+  public AgentSpan getRootSpan() {
+    return getLocalRootSpan();
+  }
+
+  @Override
+  public boolean isSameTrace(final AgentSpan otherSpan) {
+    return null != otherSpan && getTraceId().equals(otherSpan.getTraceId());
+  }
+
+  @Override
+  public Context context() {
+    return parentContext;
+  }
+
+  @Override
+  public String getBaggageItem(final String key) {
+    return parentContext.getBaggageItem(key);
+  }
+
+  @Override
+  public String toString() {
+    return "UnrecordedSpan [ t_id=" + getTraceId() + " ]";
+  }
+}
@@ -72,6 +72,11 @@ public class HealthMetrics implements AutoCloseable {
   private final FixedSizeStripedLongCounter enqueuedSpans =
       CountersFactory.createFixedSizeStripedCounter(8);
 
+  private final FixedSizeStripedLongCounter spanBudgetRejectedSpans =
+      CountersFactory.createFixedSizeStripedCounter(8);
+  private final FixedSizeStripedLongCounter spanBudgetFlushedSpans =
+      CountersFactory.createFixedSizeStripedCounter(8);
+
   private final StatsDClient statsd;
   private final long interval;
   private final TimeUnit units;
@@ -184,6 +189,52 @@ public class HealthMetrics implements AutoCloseable {
     }
   }
 
+  public void onSpill(
+      final int traceCount,
+      final int sizeInBytes,
+      final int spilledPayloads,
+      final int spilledBytes) {
+    statsd.count("spill.traces", traceCount, NO_TAGS);
+    statsd.count("spill.bytes", sizeInBytes, NO_TAGS);
+    onSpillSize(spilledPayloads, spilledBytes);
+  }
+
+  public void onSpillEvicted(final int traceCount) {
+    statsd.count("spill.evicted.traces", traceCount, NO_TAGS);
+  }
+
+  public void onReplay(
+      final int traceCount,
+      final int sizeInBytes,
+      final int spilledPayloads,
+      final int spilledBytes) {
+    statsd.count("spill.replayed.traces", traceCount, NO_TAGS);
+    statsd.count("spill.replayed.bytes", sizeInBytes, NO_TAGS);
+    onSpillSize(spilledPayloads, spilledBytes);
+  }
+
+  private void onSpillSize(final int spilledPayloads, final int spilledBytes) {
+    statsd.gauge("spill.payloads", spilledPayloads, NO_TAGS);
+    statsd.gauge("spill.used.bytes", spilledBytes, NO_TAGS);
+  }
+
+  public void onTraceQueueBytes(final long queuedBytes) {
+    statsd.gauge("queue.budget.used.bytes", queuedBytes, NO_TAGS);
+  }
+
+  public void onSpanBudgetExceeded(final long inFlightSpans) {
+    statsd.incrementCounter("span_budget.exceeded", NO_TAGS);
+    statsd.gauge("span_budget.inflight.spans", inFlightSpans, NO_TAGS);
+  }
+
+  public void onSpanRejected() {
+    spanBudgetRejectedSpans.inc();
+  }
+
+  public void onSpanBudgetFlush(final int spanCount) {
+    spanBudgetFlushedSpans.inc(spanCount);
+  }
+
   @Override
   public void close() {
     if (null != cancellation) {
@@ -228,6 +279,10 @@ public class HealthMetrics implements AutoCloseable {
       reportIfChanged(
           target.statsd, "queue.dropped.traces", target.unsetPriorityDroppedTraces, UNSET_TAG);
       reportIfChanged(target.statsd, "queue.enqueued.spans", target.enqueuedSpans, NO_TAGS);
+      reportIfChanged(
+          target.statsd, "span_budget.rejected.spans", target.spanBudgetRejectedSpans, NO_TAGS);
+      reportIfChanged(
+          target.statsd, "span_budget.flushed.spans", target.spanBudgetFlushedSpans, NO_TAGS);
     }
 
     private void reportIfChanged(
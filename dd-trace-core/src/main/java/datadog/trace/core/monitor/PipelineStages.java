@@ -0,0 +1,95 @@
+package datadog.trace.core.monitor;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reports how long finished traces spend in each stage of the pipeline between {@code finish()}
+ * and the agent. Nothing is reported until a {@link Listener} is registered (e.g. the JFR backed
+ * listener from {@code jfr-openjdk}), and callers are expected to check {@link #isEnabled()}
+ * before taking any timestamps so the disabled path costs a single volatile read.
+ */
+public final class PipelineStages {
+
+  private static final Logger log = LoggerFactory.getLogger(PipelineStages.class);
+
+  public enum Stage {
+    /** From the last span finishing until its spans are collected by {@code PendingTrace}. */
+    PENDING_TRACE_WRITE,
+    /** Trace interceptors, metrics aggregation, sampling and publication to the writer. */
+    TRACER_WRITE,
+    /** From publication to the writer until the trace processor picks the trace up. */
+    WORKER_QUEUE,
+    /** Msgpack serialization of a trace into the current batch. */
+    SERIALIZATION,
+    /** From the first trace entering a batch until the batch has been sent to the agent. */
+    AGENT_SEND
+  }
+
+  public interface Listener {
+    boolean isEnabled();
+
+    /**
+     * @param stage the pipeline stage
+     * @param queueWaitNanos how long the trace (or batch) waited before the stage started
+     * @param durationNanos how long the stage took once started
+     * @param traceCount the number of traces processed by the stage
+     * @param spanCount the number of spans processed by the stage
+     */
+    void onStage(
+        Stage stage, long queueWaitNanos, long durationNanos, int traceCount, int spanCount);
+  }
+
+  private static final Holder HOLDER = new Holder();
+
+  public static void register(final Listener listener) {
+    if (!Holder.CAS.compareAndSet(HOLDER, NoOpListener.NO_OP, listener)) {
+      log.debug(
+          "failed to register pipeline listener {} - {} already registered",
+          listener.getClass(),
+          HOLDER.listener.getClass());
+    }
+  }
+
+  public static boolean isEnabled() {
+    return HOLDER.listener.isEnabled();
+  }
+
+  /**
+   * Records a stage which started at {@code startNanos} (as returned by {@link System#nanoTime()})
+   * and ends now.
+   */
+  public static void record(
+      final Stage stage,
+      final long queueWaitNanos,
+      final long startNanos,
+      final int traceCount,
+      final int spanCount) {
+    HOLDER.listener.onStage(
+        stage, queueWaitNanos, System.nanoTime() - startNanos, traceCount, spanCount);
+  }
+
+  private PipelineStages() {}
+
+  private static final class Holder {
+    static final AtomicReferenceFieldUpdater<Holder, Listener> CAS =
+        AtomicReferenceFieldUpdater.newUpdater(Holder.class, Listener.class, "listener");
+
+    volatile Listener listener = NoOpListener.NO_OP;
+  }
+
+  private static final class NoOpListener implements Listener {
+
+    static final NoOpListener NO_OP = new NoOpListener();
+
+    @Override
+    public boolean isEnabled() {
+      return false;
+    }
+
+    @Override
+    public void onStage(
+        Stage stage, long queueWaitNanos, long durationNanos, int traceCount, int spanCount) {}
+  }
+}
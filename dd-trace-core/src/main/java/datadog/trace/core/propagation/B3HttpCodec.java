@@ -6,6 +6,7 @@ import datadog.trace.api.DDId;
 import datadog.trace.api.sampling.PrioritySampling;
 import datadog.trace.bootstrap.instrumentation.api.AgentPropagation;
 import datadog.trace.core.DDSpanContext;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.TreeMap;
 import org.slf4j.Logger;
@@ -84,7 +85,7 @@ class B3HttpCodec {
     private static final int IGNORE = -1;
 
     private B3ContextInterpreter(Map<String, String> taggedHeaders) {
-      super(taggedHeaders);
+      super(taggedHeaders, Arrays.asList(TRACE_ID_KEY, SPAN_ID_KEY, SAMPLING_PRIORITY_KEY));
     }
 
     @Override
@@ -12,13 +12,26 @@ import datadog.trace.api.cache.DDCache;
 import datadog.trace.api.cache.DDCaches;
 import datadog.trace.api.sampling.PrioritySampling;
 import datadog.trace.bootstrap.instrumentation.api.AgentPropagation;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
-public abstract class ContextInterpreter implements AgentPropagation.KeyClassifier {
+public abstract class ContextInterpreter
+    implements AgentPropagation.KeyClassifier, AgentPropagation.KeyFilter {
+
+  private static final List<String> FORWARDING_KEYS =
+      Arrays.asList(
+          FORWARDED_KEY,
+          FORWARDED_PROTO_KEY,
+          FORWARDED_HOST_KEY,
+          FORWARDED_FOR_KEY,
+          FORWARDED_PORT_KEY);
 
   protected final Map<String, String> taggedHeaders;
+  private final HeaderNameMatcher interestingHeaders;
 
   protected DDId traceId;
   protected DDId spanId;
@@ -39,11 +52,33 @@ public abstract class ContextInterpreter implements AgentPropagation.KeyClassifi
     return CACHE.computeIfAbsent(key, Functions.LowerCase.INSTANCE);
   }
 
-  protected ContextInterpreter(Map<String, String> taggedHeaders) {
+  /**
+   * @param taggedHeaders mapping from lower case header names to tag names
+   * @param keys the header names the interpreter reads, in addition to the forwarding headers
+   * @param keyPrefixes the header name prefixes the interpreter reads (e.g. for baggage)
+   */
+  protected ContextInterpreter(
+      Map<String, String> taggedHeaders, List<String> keys, String... keyPrefixes) {
     this.taggedHeaders = taggedHeaders;
+    List<String> interesting =
+        new ArrayList<>(taggedHeaders.size() + keys.size() + FORWARDING_KEYS.size());
+    interesting.addAll(taggedHeaders.keySet());
+    interesting.addAll(keys);
+    interesting.addAll(FORWARDING_KEYS);
+    this.interestingHeaders = new HeaderNameMatcher(interesting, keyPrefixes);
     reset();
   }
 
+  @Override
+  public boolean mayAccept(byte[] key, int offset, int length) {
+    return interestingHeaders.matches(key, offset, length);
+  }
+
+  @Override
+  public boolean mayAccept(CharSequence key) {
+    return interestingHeaders.matches(key);
+  }
+
   public abstract static class Factory {
 
     public ContextInterpreter create(Map<String, String> tagsMapping) {
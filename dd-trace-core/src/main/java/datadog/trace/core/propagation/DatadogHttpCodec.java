@@ -5,6 +5,7 @@ import static datadog.trace.core.propagation.HttpCodec.firstHeaderValue;
 import datadog.trace.api.DDId;
 import datadog.trace.bootstrap.instrumentation.api.AgentPropagation;
 import datadog.trace.core.DDSpanContext;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.TreeMap;
 import org.slf4j.Logger;
@@ -68,7 +69,10 @@ class DatadogHttpCodec {
     private static final int IGNORE = -1;
 
     private DatadogContextInterpreter(Map<String, String> taggedHeaders) {
-      super(taggedHeaders);
+      super(
+          taggedHeaders,
+          Arrays.asList(TRACE_ID_KEY, SPAN_ID_KEY, SAMPLING_PRIORITY_KEY, ORIGIN_KEY),
+          OT_BAGGAGE_PREFIX);
     }
 
     @Override
@@ -7,6 +7,7 @@ import datadog.trace.api.sampling.PrioritySampling;
 import datadog.trace.bootstrap.instrumentation.api.AgentPropagation;
 import datadog.trace.core.DDSpanContext;
 import de.thetaphi.forbiddenapis.SuppressForbidden;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.TreeMap;
 import org.slf4j.Logger;
@@ -121,7 +122,10 @@ public class HaystackHttpCodec {
     private static final int IGNORE = -1;
 
     private HaystackContextInterpreter(Map<String, String> taggedHeaders) {
-      super(taggedHeaders);
+      super(
+          taggedHeaders,
+          Arrays.asList(TRACE_ID_KEY, SPAN_ID_KEY, PARENT_ID_KEY),
+          BAGGAGE_PREFIX_LC);
     }
 
     @Override
@@ -0,0 +1,126 @@
+package datadog.trace.core.propagation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Matches header names against a fixed set of names and name prefixes, ignoring ASCII case, without
+ * decoding the header name into a {@code String} first.
+ */
+final class HeaderNameMatcher {
+
+  private static final String[] NONE = new String[0];
+
+  private final String[][] namesByLength;
+  private final String[] prefixes;
+  // set when a configured name can't be compared byte by byte
+  private final boolean matchAll;
+
+  HeaderNameMatcher(Collection<String> names, String... prefixes) {
+    boolean matchAll = false;
+    int maxLength = 0;
+    for (String name : names) {
+      maxLength = Math.max(maxLength, name.length());
+      matchAll |= !isAscii(name);
+    }
+    List<List<String>> grouped = new ArrayList<>(maxLength + 1);
+    for (int i = 0; i <= maxLength; ++i) {
+      grouped.add(new ArrayList<String>(1));
+    }
+    for (String name : names) {
+      String lowerCase = name.toLowerCase(Locale.ROOT);
+      if (!grouped.get(name.length()).contains(lowerCase)) {
+        grouped.get(name.length()).add(lowerCase);
+      }
+    }
+    this.namesByLength = new String[maxLength + 1][];
+    for (int i = 0; i <= maxLength; ++i) {
+      List<String> group = grouped.get(i);
+      namesByLength[i] = group.isEmpty() ? NONE : group.toArray(new String[group.size()]);
+    }
+    this.prefixes = new String[prefixes.length];
+    for (int i = 0; i < prefixes.length; ++i) {
+      this.prefixes[i] = prefixes[i].toLowerCase(Locale.ROOT);
+      matchAll |= !isAscii(prefixes[i]);
+    }
+    this.matchAll = matchAll;
+  }
+
+  boolean matches(byte[] name, int offset, int length) {
+    if (matchAll) {
+      return true;
+    }
+    if (null == name || length <= 0) {
+      return false;
+    }
+    if (length < namesByLength.length) {
+      for (String candidate : namesByLength[length]) {
+        if (regionMatches(candidate, name, offset)) {
+          return true;
+        }
+      }
+    }
+    for (String prefix : prefixes) {
+      if (length >= prefix.length() && regionMatches(prefix, name, offset)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  boolean matches(CharSequence name) {
+    if (matchAll) {
+      return true;
+    }
+    if (null == name || name.length() == 0) {
+      return false;
+    }
+    int length = name.length();
+    if (length < namesByLength.length) {
+      for (String candidate : namesByLength[length]) {
+        if (regionMatches(candidate, name)) {
+          return true;
+        }
+      }
+    }
+    for (String prefix : prefixes) {
+      if (length >= prefix.length() && regionMatches(prefix, name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean regionMatches(String lowerCase, byte[] name, int offset) {
+    for (int i = 0; i < lowerCase.length(); ++i) {
+      if (lowerCase.charAt(i) != toLowerCase(name[offset + i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean regionMatches(String lowerCase, CharSequence name) {
+    for (int i = 0; i < lowerCase.length(); ++i) {
+      if (lowerCase.charAt(i) != toLowerCase(name.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int toLowerCase(int c) {
+    return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+  }
+
+  private static boolean isAscii(String s) {
+    for (int i = 0; i < s.length(); ++i) {
+      if (s.charAt(i) > 0x7F) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
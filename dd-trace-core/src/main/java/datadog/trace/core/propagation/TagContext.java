@@ -73,6 +73,14 @@ public class TagContext implements AgentSpan.Context.Extracted {
     return Collections.emptyList();
   }
 
+  @Override
+  public Object getFacade(int api) {
+    return null;
+  }
+
+  @Override
+  public void setFacade(int api, Object facade) {}
+
   @Override
   public DDId getTraceId() {
     return DDId.ZERO;
@@ -0,0 +1,140 @@
+package datadog.trace.core.serialization.msgpack;
+
+import static datadog.trace.core.serialization.msgpack.MsgPackWriter.FIXSTR;
+import static datadog.trace.core.serialization.msgpack.MsgPackWriter.STR16;
+import static datadog.trace.core.serialization.msgpack.MsgPackWriter.STR32;
+import static datadog.trace.core.serialization.msgpack.MsgPackWriter.STR8;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
+import datadog.trace.core.serialization.EncodingCache;
+
+/**
+ * A bounded intern table for short, frequently repeated strings (tag keys, tag values such as
+ * {@code http.method}, {@code component} or {@code span.kind}, service names, span types) which
+ * holds the UTF-8 encoding of each string along with its msgpack string header, so an interned
+ * string can be serialized with a single {@code put}. Pass it as the {@link EncodingCache} of the
+ * strings which are known to repeat.
+ *
+ * <p>The table is direct mapped and not thread safe, it belongs to the mapper of a single
+ * serializer thread. To avoid churning the table with unique values, a string is only admitted the
+ * second time it is seen at a given slot.
+ */
+public final class MsgPackStringTable implements EncodingCache {
+
+  public static final class Entry {
+    final int hash;
+    final String string;
+    final UTF8BytesString utf8;
+    final byte[] encoded;
+
+    Entry(int hash, String string) {
+      this.hash = hash;
+      this.string = string;
+      byte[] utf8 = string.getBytes(UTF_8);
+      this.utf8 = UTF8BytesString.create(string, utf8);
+      this.encoded = encode(utf8);
+    }
+
+    /** @return the msgpack string header followed by the UTF-8 encoding of the string */
+    public byte[] encoded() {
+      return encoded;
+    }
+  }
+
+  private final Entry[] entries;
+  private final int[] candidates;
+  private final int mask;
+  private final int maxLength;
+
+  /**
+   * @param capacity the number of slots, rounded up to a power of two
+   * @param maxLength the length of the longest string which will be interned
+   */
+  public MsgPackStringTable(int capacity, int maxLength) {
+    int n = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+    this.entries = new Entry[n];
+    this.candidates = new int[n];
+    this.mask = n - 1;
+    this.maxLength = maxLength;
+  }
+
+  /**
+   * Looks up the entry for the string, admitting it to the table if it is short enough and has
+   * been seen before.
+   *
+   * @return the entry, or null if the string is not interned
+   */
+  public Entry lookup(CharSequence s) {
+    String string;
+    if (s instanceof String) {
+      string = (String) s;
+    } else if (s instanceof UTF8BytesString) {
+      string = s.toString();
+    } else {
+      return null;
+    }
+    int hash = string.hashCode();
+    int slot = (hash ^ (hash >>> 16)) & mask;
+    Entry entry = entries[slot];
+    if (null != entry && entry.hash == hash && entry.string.equals(string)) {
+      return entry;
+    }
+    if (string.length() > maxLength) {
+      return null;
+    }
+    if (candidates[slot] != hash) {
+      candidates[slot] = hash;
+      return null;
+    }
+    entry = new Entry(hash, string);
+    entries[slot] = entry;
+    return entry;
+  }
+
+  /**
+   * @return the pre-encoded msgpack string, or null if the string is not interned
+   */
+  public byte[] encoded(CharSequence s) {
+    Entry entry = lookup(s);
+    return null == entry ? null : entry.encoded;
+  }
+
+  @Override
+  public byte[] encode(CharSequence s) {
+    Entry entry = lookup(s);
+    return null == entry ? null : entry.utf8.getUtf8Bytes();
+  }
+
+  private static byte[] encode(byte[] utf8) {
+    int length = utf8.length;
+    byte[] encoded;
+    int offset;
+    if (length < 0x10) {
+      encoded = new byte[1 + length];
+      encoded[0] = (byte) (FIXSTR | length);
+      offset = 1;
+    } else if (length < 0x100) {
+      encoded = new byte[2 + length];
+      encoded[0] = STR8;
+      encoded[1] = (byte) length;
+      offset = 2;
+    } else if (length < 0x10000) {
+      encoded = new byte[3 + length];
+      encoded[0] = STR16;
+      encoded[1] = (byte) (length >>> 8);
+      encoded[2] = (byte) length;
+      offset = 3;
+    } else {
+      encoded = new byte[5 + length];
+      encoded[0] = STR32;
+      encoded[1] = (byte) (length >>> 24);
+      encoded[2] = (byte) (length >>> 16);
+      encoded[3] = (byte) (length >>> 8);
+      encoded[4] = (byte) length;
+      offset = 5;
+    }
+    System.arraycopy(utf8, 0, encoded, offset, length);
+    return encoded;
+  }
+}
@@ -147,7 +147,14 @@ public class MsgPackWriter implements WritableFormatter {
     if (null == s) {
       writeNull();
     } else {
-      if (null != encodingCache) {
+      if (encodingCache instanceof MsgPackStringTable) {
+        // written with its header in a single put
+        byte[] encoded = ((MsgPackStringTable) encodingCache).encoded(s);
+        if (null != encoded) {
+          buffer.put(encoded);
+          return;
+        }
+      } else if (null != encodingCache) {
         byte[] utf8 = encodingCache.encode(s);
         if (null != utf8) {
           writeUTF8(utf8);
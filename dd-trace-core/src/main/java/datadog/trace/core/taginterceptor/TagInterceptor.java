@@ -75,6 +75,20 @@ public class TagInterceptor {
       case HTTP_STATUS:
         // not set internally but may come from manual instrumentation
         return interceptHttpStatusCode(span, value);
+      case Tags.PEER_PORT:
+        return interceptPeerPort(span, value);
+      case Tags.PEER_HOST_IPV4:
+        if (value instanceof CharSequence) {
+          span.setPeerHostIPv4((CharSequence) value);
+          return true;
+        }
+        return false;
+      case Tags.PEER_HOST_IPV6:
+        if (value instanceof CharSequence) {
+          span.setPeerHostIPv6((CharSequence) value);
+          return true;
+        }
+        return false;
       default:
         return intercept(span, tag, value);
     }
@@ -190,6 +204,15 @@ public class TagInterceptor {
     return false;
   }
 
+  private boolean interceptPeerPort(DDSpanContext span, Object port) {
+    // string ports are kept as tags to preserve their type downstream
+    if (port instanceof Number) {
+      span.setPeerPort(((Number) port).intValue());
+      return true;
+    }
+    return false;
+  }
+
   private static boolean asBoolean(Object value) {
     return Boolean.TRUE.equals(value)
         || (!Boolean.FALSE.equals(value) && Boolean.parseBoolean(String.valueOf(value)));
@@ -0,0 +1,108 @@
+package datadog.trace.common.metrics
+
+import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString
+import datadog.trace.test.util.DDSpecification
+
+class MetricKeysTest extends DDSpecification {
+
+  def "keys are found by the fields of any char sequence"() {
+    setup:
+    MetricKeys keys = new MetricKeys(16)
+    MetricKey key = new MetricKey("resource", "service", "operation", "web", 200)
+
+    expect:
+    keys.find("resource", "service", "operation", "web", 200) == null
+    keys.putIfAbsent(key) == null
+    keys.find(resource, service, "operation", "web", 200).is(key)
+    keys.find("resource", "service", "operation", "web", 500) == null
+    keys.find("other", "service", "operation", "web", 200) == null
+
+    where:
+    resource                               | service
+    "resource"                             | "service"
+    UTF8BytesString.create("resource")     | UTF8BytesString.create("service")
+    new StringBuilder("resource")          | "service"
+  }
+
+  def "missing fields match empty fields"() {
+    setup:
+    MetricKeys keys = new MetricKeys(16)
+    MetricKey key = new MetricKey(null, "service", "operation", null, 0)
+    keys.putIfAbsent(key)
+
+    expect:
+    keys.find(null, "service", "operation", null, 0).is(key)
+    keys.find("", "service", "operation", "", 0).is(key)
+  }
+
+  def "existing keys are returned instead of being added again"() {
+    setup:
+    MetricKeys keys = new MetricKeys(16)
+    MetricKey key = new MetricKey("resource", "service", "operation", "web", 200)
+    keys.putIfAbsent(key)
+
+    expect:
+    keys.putIfAbsent(new MetricKey("resource", "service", "operation", "web", 200)).is(key)
+  }
+
+  def "removed keys are no longer found and their slots are reused"() {
+    setup:
+    MetricKeys keys = new MetricKeys(16)
+    MetricKey key = new MetricKey("resource", "service", "operation", "web", 200)
+    keys.putIfAbsent(key)
+
+    when:
+    boolean removed = keys.remove(key)
+
+    then:
+    removed
+    keys.find("resource", "service", "operation", "web", 200) == null
+    !keys.remove(key)
+
+    when:
+    MetricKey again = new MetricKey("resource", "service", "operation", "web", 200)
+
+    then:
+    keys.putIfAbsent(again) == null
+    keys.find("resource", "service", "operation", "web", 200).is(again)
+  }
+
+  def "keys which don't fit are not tracked"() {
+    setup:
+    MetricKeys keys = new MetricKeys(1)
+    // single character types with compensating status codes give every key the same hash code
+    List<MetricKey> colliding = (0..MetricKeys.MAX_PROBES).collect {
+      new MetricKey("resource", "service", "operation", String.valueOf((char) (97 + it)), 1000 - 31 * it)
+    }
+    assert colliding*.hashCode().unique().size() == 1
+
+    when:
+    def added = colliding.collect { keys.putIfAbsent(it) }
+
+    then:
+    added.count { it == null } == MetricKeys.MAX_PROBES
+    added.last().is(colliding.last())
+  }
+
+  def "ignored resources are matched by content"() {
+    setup:
+    IgnoredResources ignored = new IgnoredResources(["GET /health", "GET /ping"].toSet())
+
+    expect:
+    ignored.contains(resource) == contained
+
+    where:
+    resource                              | contained
+    "GET /health"                         | true
+    UTF8BytesString.create("GET /ping")   | true
+    new StringBuilder("GET /health")      | true
+    "GET /users"                          | false
+    ""                                    | false
+    null                                  | false
+  }
+
+  def "nothing is ignored by default"() {
+    expect:
+    !new IgnoredResources([] as Set).contains("GET /health")
+  }
+}
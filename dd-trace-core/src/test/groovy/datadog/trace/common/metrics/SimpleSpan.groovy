@@ -75,6 +75,16 @@ class SimpleSpan implements CoreSpan<SimpleSpan> {
     return DDId.ZERO
   }
 
+  @Override
+  long getSpanIdAsLong() {
+    return 0
+  }
+
+  @Override
+  long getParentIdAsLong() {
+    return 0
+  }
+
   @Override
   long getStartTime() {
     return startTime
@@ -0,0 +1,284 @@
+package datadog.trace.common.sampling
+
+import datadog.trace.api.Config
+import datadog.trace.api.StatsDClient
+import datadog.trace.common.writer.DDAgentWriter
+import datadog.trace.common.writer.ListWriter
+import datadog.trace.common.writer.ddagent.DroppingPolicy
+import datadog.trace.core.DDSpan
+import datadog.trace.core.test.DDCoreSpecification
+
+import static datadog.trace.api.config.GeneralConfig.TRACER_METRICS_ENABLED
+import static datadog.trace.api.config.TracerConfig.PARTIAL_FLUSH_MIN_SPANS
+import static datadog.trace.api.config.TracerConfig.TAIL_SAMPLING_ENABLED
+import static datadog.trace.api.config.TracerConfig.TAIL_SAMPLING_ERROR_RATE_LIMIT
+import static datadog.trace.api.config.TracerConfig.TAIL_SAMPLING_LATENCY_THRESHOLD_MS
+import static datadog.trace.api.config.TracerConfig.TAIL_SAMPLING_TAGS
+import static datadog.trace.api.sampling.PrioritySampling.SAMPLER_DROP
+import static datadog.trace.api.sampling.PrioritySampling.SAMPLER_KEEP
+import static datadog.trace.api.sampling.PrioritySampling.USER_DROP
+import static datadog.trace.api.sampling.PrioritySampling.USER_KEEP
+
+class TailSamplerTest extends DDCoreSpecification {
+
+  def writer = new ListWriter()
+  def agentDrops = true
+  def droppingPolicy = Stub(DroppingPolicy) {
+    active() >> { agentDrops }
+  }
+  def tracer = tracerBuilder().writer(writer).build()
+
+  def cleanup() {
+    tracer.close()
+  }
+
+  def "Tail Sampler is not created unless enabled"() {
+    when:
+    def properties = new Properties()
+    if (enabled != null) {
+      properties.setProperty(TAIL_SAMPLING_ENABLED, enabled)
+    }
+    properties.setProperty(TRACER_METRICS_ENABLED, "true")
+    properties.setProperty(TAIL_SAMPLING_ERROR_RATE_LIMIT, errorRateLimit)
+    properties.setProperty(TAIL_SAMPLING_LATENCY_THRESHOLD_MS, latencyThreshold)
+
+    then:
+    (TailSampler.forConfig(Config.get(properties), droppingPolicy, StatsDClient.NO_OP) != null) == created
+
+    where:
+    enabled | errorRateLimit | latencyThreshold | created
+    null    | "100"          | "1000"           | false
+    "false" | "100"          | "1000"           | false
+    "true"  | "100"          | "1000"           | true
+    "true"  | "0"            | "1000"           | true
+    "true"  | "100"          | "0"              | true
+    "true"  | "0"            | "0"              | false
+  }
+
+  def "traces matching a policy are kept"() {
+    setup:
+    def properties = new Properties()
+    properties.setProperty(TAIL_SAMPLING_ENABLED, "true")
+    properties.setProperty(TRACER_METRICS_ENABLED, "true")
+    properties.setProperty(TAIL_SAMPLING_LATENCY_THRESHOLD_MS, "1000")
+    properties.setProperty(TAIL_SAMPLING_TAGS, "http.status_code:503,canary:*")
+    TailSampler<DDSpan> sampler = TailSampler.forConfig(Config.get(properties), droppingPolicy, StatsDClient.NO_OP)
+    def root = tracer.buildSpan("root").withStartTimestamp(0).start()
+    root.setSamplingPriority(SAMPLER_DROP)
+    def child = tracer.buildSpan("child").asChildOf(root).withStartTimestamp(0).start()
+    decorate(child)
+    child.finish(durationMicros)
+    root.finish(durationMicros)
+
+    expect:
+    sampler.sample(root, [root, child]) == kept
+    (root.getTag(TailSampler.TAIL_SAMPLING_RATE) != null) == kept
+
+    where:
+    durationMicros | decorate                                 | kept
+    1              | { DDSpan span -> }                       | false
+    1_000_000      | { DDSpan span -> }                       | true
+    1              | { DDSpan span -> span.setError(true) }   | true
+    1              | { DDSpan span -> span.setTag("http.status_code", 503) } | true
+    1              | { DDSpan span -> span.setTag("http.status_code", 200) } | false
+    1              | { DDSpan span -> span.setTag("canary", "blue") } | true
+  }
+
+  def "only traces dropped by priority sampling are sampled"() {
+    setup:
+    def properties = new Properties()
+    properties.setProperty(TAIL_SAMPLING_ENABLED, "true")
+    properties.setProperty(TRACER_METRICS_ENABLED, "true")
+    TailSampler<DDSpan> sampler = TailSampler.forConfig(Config.get(properties), droppingPolicy, StatsDClient.NO_OP)
+    def root = tracer.buildSpan("root").start()
+    root.setSamplingPriority(priority)
+    root.setError(true)
+    root.finish()
+
+    expect:
+    sampler.sample(root, [root]) == kept
+
+    where:
+    priority     | kept
+    SAMPLER_DROP | true
+    SAMPLER_KEEP | false
+    USER_KEEP    | false
+    USER_DROP    | false
+  }
+
+  def "policies are rate limited"() {
+    setup:
+    def properties = new Properties()
+    properties.setProperty(TAIL_SAMPLING_ENABLED, "true")
+    properties.setProperty(TRACER_METRICS_ENABLED, "true")
+    properties.setProperty(TAIL_SAMPLING_ERROR_RATE_LIMIT, "2")
+    TailSampler<DDSpan> sampler = TailSampler.forConfig(Config.get(properties), droppingPolicy, StatsDClient.NO_OP)
+    def spans = (1..4).collect {
+      def span = tracer.buildSpan("root").start()
+      span.setSamplingPriority(SAMPLER_DROP)
+      span.setError(true)
+      span.finish()
+      return span
+    }
+
+    when:
+    def kept = spans.findAll { sampler.sample(it, [it]) }
+
+    then:
+    kept.size() == 2
+    kept[0].getTag(TailSampler.TAIL_SAMPLING_RATE) == 1.0
+    kept[1].getTag(TailSampler.TAIL_SAMPLING_RATE) == 1.0
+  }
+
+  def "Tail Sampler is not created unless traces it drops are in stats"() {
+    when:
+    def properties = new Properties()
+    properties.setProperty(TAIL_SAMPLING_ENABLED, "true")
+    properties.setProperty(TRACER_METRICS_ENABLED, metricsEnabled)
+
+    then:
+    TailSampler.forConfig(Config.get(properties), agentWriter ? droppingPolicy : null, StatsDClient.NO_OP) == null
+
+    where:
+    metricsEnabled | agentWriter
+    "false"        | true
+    "true"         | false
+  }
+
+  def "traces are only sampled once the agent computes stats from dropped traces"() {
+    setup:
+    def properties = new Properties()
+    properties.setProperty(TAIL_SAMPLING_ENABLED, "true")
+    properties.setProperty(TRACER_METRICS_ENABLED, "true")
+    TailSampler<DDSpan> sampler = TailSampler.forConfig(Config.get(properties), droppingPolicy, StatsDClient.NO_OP)
+    def root = tracer.buildSpan("root").start()
+    root.setSamplingPriority(SAMPLER_DROP)
+    root.setError(true)
+    root.finish()
+
+    when:
+    agentDrops = false
+
+    then:
+    !sampler.sample(root, [root])
+
+    when:
+    agentDrops = true
+
+    then:
+    sampler.sample(root, [root])
+  }
+
+  def "effective rate isn't reset by the statsd report"() {
+    setup:
+    def policy = new TailSampler.ErrorPolicy<DDSpan>(1)
+    def sampler = new TailSampler<DDSpan>([policy], droppingPolicy, Mock(StatsDClient))
+    def spans = (1..4).collect {
+      def span = tracer.buildSpan("root").start()
+      span.setSamplingPriority(SAMPLER_DROP)
+      span.setError(true)
+      span.finish()
+      return span
+    }
+
+    when:
+    spans.each { sampler.sample(it, [it]) }
+    new TailSampler.Report<DDSpan>().run(sampler)
+
+    then:
+    policy.effectiveRate() == 0.25
+  }
+
+  def "tracer keeps dropped traces which match a policy"() {
+    setup:
+    injectSysConfig(TAIL_SAMPLING_ENABLED, "true")
+    injectSysConfig(TRACER_METRICS_ENABLED, "true")
+    injectSysConfig(TAIL_SAMPLING_TAGS, "canary:*")
+    def dropped = []
+    def agentWriter = Stub(DDAgentWriter) {
+      getDroppingPolicy() >> droppingPolicy
+      write(_) >> { List<DDSpan> trace ->
+        // the writer drops traces dropped by priority sampling unless they are force kept
+        if (trace[0].isForceKeep() || trace[0].samplingPriority() > 0) {
+          writer.write(trace)
+        } else {
+          dropped.add(trace)
+        }
+      }
+    }
+    def tailTracer = tracerBuilder().writer(agentWriter).sampler(new ForcePrioritySampler(priority)).build()
+
+    when:
+    def ok = tailTracer.buildSpan("ok").start()
+    ok.finish()
+    def canary = tailTracer.buildSpan("canary").withTag("canary", "blue").start()
+    canary.finish()
+    writer.waitForTraces(written.size())
+
+    then:
+    writer.collect { it[0].operationName } == written
+
+    cleanup:
+    tailTracer.close()
+
+    where:
+    priority     | written
+    SAMPLER_DROP | ["canary"]
+    SAMPLER_KEEP | ["ok", "canary"]
+  }
+
+  def "chunks of a partially flushed trace are sampled together"() {
+    setup:
+    injectSysConfig(TAIL_SAMPLING_ENABLED, "true")
+    injectSysConfig(TRACER_METRICS_ENABLED, "true")
+    injectSysConfig(TAIL_SAMPLING_TAGS, "canary:*")
+    injectSysConfig(PARTIAL_FLUSH_MIN_SPANS, "1")
+    def agentWriter = Stub(DDAgentWriter) {
+      getDroppingPolicy() >> droppingPolicy
+      write(_) >> { List<DDSpan> trace ->
+        if (trace[0].isForceKeep()) {
+          writer.write(trace)
+        }
+      }
+    }
+    def tailTracer = tracerBuilder().writer(agentWriter).sampler(new ForcePrioritySampler(SAMPLER_DROP)).build()
+    def root = tailTracer.buildSpan("root").start()
+    def child1 = tailTracer.buildSpan("child1").asChildOf(root).start()
+    def child2 = tailTracer.buildSpan("child2").asChildOf(root).withTag("canary", "blue").start()
+
+    when:
+    child2.finish()
+    child1.finish()
+    writer.waitForTraces(1)
+    root.finish()
+    writer.waitForTraces(2)
+
+    then:
+    writer == [[child1, child2], [root]]
+
+    cleanup:
+    tailTracer.close()
+  }
+
+  def "tracer doesn't tail sample without tracer metrics"() {
+    setup:
+    injectSysConfig(TAIL_SAMPLING_ENABLED, "true")
+    injectSysConfig(TRACER_METRICS_ENABLED, "false")
+    def agentWriter = Stub(DDAgentWriter) {
+      getDroppingPolicy() >> droppingPolicy
+      write(_) >> { List<DDSpan> trace -> writer.write(trace) }
+    }
+    def tailTracer = tracerBuilder().writer(agentWriter).build()
+
+    when:
+    def ok = tailTracer.buildSpan("ok").start()
+    ok.finish()
+    writer.waitForTraces(1)
+
+    then:
+    writer[0][0].operationName == "ok"
+
+    cleanup:
+    tailTracer.close()
+  }
+}
@@ -7,6 +7,7 @@ import datadog.trace.common.writer.ddagent.DDAgentApi
 import datadog.trace.common.writer.ddagent.DDAgentFeaturesDiscovery
 import datadog.trace.common.writer.ddagent.Payload
 import datadog.trace.common.writer.ddagent.PayloadDispatcher
+import datadog.trace.common.writer.ddagent.SpillBuffer
 import datadog.trace.core.CoreTracer
 import datadog.trace.core.DDSpan
 import datadog.trace.core.DDSpanContext
@@ -18,6 +19,7 @@ import spock.lang.Shared
 import spock.lang.Timeout
 
 import java.nio.ByteBuffer
+import java.nio.file.Files
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicBoolean
 
@@ -144,6 +146,68 @@ class PayloadDispatcherTest extends DDSpecification {
     newPayload.droppedTraces() == 0
   }
 
+  def "failed payloads are spilled and replayed once the agent accepts traces again"() {
+    setup:
+    File file = Files.createTempFile("dd-trace-spill", ".bin").toFile()
+    HealthMetrics healthMetrics = Mock(HealthMetrics)
+    DDAgentFeaturesDiscovery discovery = Mock(DDAgentFeaturesDiscovery)
+    discovery.getTraceEndpoint() >> "v0.4/traces"
+    DDAgentApi api = Mock(DDAgentApi)
+    SpillBuffer spill = SpillBuffer.open(file, 1 << 20, healthMetrics)
+    PayloadDispatcher dispatcher = new PayloadDispatcher(discovery, api, healthMetrics, monitoring, spill)
+    List<DDSpan> trace = [realSpan()]
+
+    when: "the agent is unreachable"
+    dispatcher.addTrace(trace)
+    dispatcher.flush()
+
+    then:
+    1 * api.sendSerializedTraces(_) >> DDAgentApi.Response.failed(new IOException("agent down"))
+    1 * healthMetrics.onSpill(1, _, 1, _)
+    spill.size() == 1
+
+    when: "the agent is back"
+    dispatcher.addTrace(trace)
+    dispatcher.addTrace(trace)
+    dispatcher.flush()
+
+    then:
+    1 * api.sendSerializedTraces({ it.traceCount() == 2 }) >> DDAgentApi.Response.success(200)
+
+    then:
+    1 * api.sendSerializedTraces({ it instanceof SpillBuffer.SpilledPayload && it.traceCount() == 1 }) >> DDAgentApi.Response.success(200)
+    1 * healthMetrics.onReplay(1, _, 0, 0)
+    spill.isEmpty()
+
+    cleanup:
+    dispatcher.close()
+    file.delete()
+  }
+
+  def "payloads rejected by the agent are not spilled"() {
+    setup:
+    File file = Files.createTempFile("dd-trace-spill", ".bin").toFile()
+    HealthMetrics healthMetrics = Mock(HealthMetrics)
+    DDAgentFeaturesDiscovery discovery = Mock(DDAgentFeaturesDiscovery)
+    discovery.getTraceEndpoint() >> "v0.4/traces"
+    DDAgentApi api = Mock(DDAgentApi)
+    SpillBuffer spill = SpillBuffer.open(file, 1 << 20, healthMetrics)
+    PayloadDispatcher dispatcher = new PayloadDispatcher(discovery, api, healthMetrics, monitoring, spill)
+
+    when:
+    dispatcher.addTrace([realSpan()])
+    dispatcher.flush()
+
+    then:
+    1 * api.sendSerializedTraces(_) >> DDAgentApi.Response.failed(400)
+    0 * healthMetrics.onSpill(*_)
+    spill.isEmpty()
+
+    cleanup:
+    dispatcher.close()
+    file.delete()
+  }
+
 
   def realSpan() {
     CoreTracer tracer = Mock(CoreTracer)
@@ -3,6 +3,7 @@ package datadog.trace.common.writer
 import datadog.trace.api.StatsDClient
 import datadog.trace.common.writer.ddagent.PayloadDispatcher
 import datadog.trace.common.writer.ddagent.TraceProcessingWorker
+import datadog.trace.common.writer.ddagent.TraceQueueBudget
 import datadog.trace.core.DDSpan
 import datadog.trace.core.monitor.HealthMetrics
 import datadog.trace.core.monitor.Monitoring
@@ -205,6 +206,45 @@ class TraceProcessingWorkerTest extends DDSpecification {
 
   }
 
+  def "queued traces count towards the budget until they are serialized"() {
+    setup:
+    AtomicInteger acceptedCount = new AtomicInteger()
+    PayloadDispatcher countingDispatcher = Mock(PayloadDispatcher)
+    countingDispatcher.addTrace(_) >> {
+      acceptedCount.getAndIncrement()
+    }
+    TraceQueueBudget budget = new TraceQueueBudget(1 << 20)
+    TraceProcessingWorker worker = new TraceProcessingWorker(100, Stub(HealthMetrics),
+      countingDispatcher, {
+        false
+      }, FAST_LANE, 100, TimeUnit.SECONDS, budget)
+
+    when: "traces are submitted before the worker starts"
+    int submitted = 0
+    for (int i = 0; i < 10; ++i) {
+      submitted += worker.publish(Mock(DDSpan), priority, [Mock(DDSpan), Mock(DDSpan)]) ? 1 : 0
+    }
+
+    then: "their estimated size is accounted"
+    submitted == 10
+    worker.getQueuedBytes() == 10 * 2 * budget.getAverageSpanBytes()
+
+    when: "the worker serializes them"
+    worker.start()
+
+    then: "the budget is given back"
+    conditions.eventually {
+      assert acceptedCount.get() == submitted
+      assert worker.getQueuedBytes() == 0
+    }
+
+    cleanup:
+    worker.close()
+
+    where:
+    priority << [SAMPLER_DROP, SAMPLER_KEEP, USER_KEEP]
+  }
+
   def "flush of full queue after worker thread stopped will not flush but will return"() {
     setup:
     PayloadDispatcher countingDispatcher = Mock(PayloadDispatcher)
@@ -0,0 +1,184 @@
+package datadog.trace.common.writer.ddagent
+
+import datadog.trace.core.monitor.HealthMetrics
+import datadog.trace.test.util.DDSpecification
+
+import java.nio.ByteBuffer
+import java.nio.file.Files
+
+class SpillBufferTest extends DDSpecification {
+
+  File file = Files.createTempFile("dd-trace-spill", ".bin").toFile()
+  HealthMetrics healthMetrics = Mock(HealthMetrics)
+
+  def cleanup() {
+    file.delete()
+  }
+
+  def "payloads are replayed oldest first"() {
+    setup:
+    def spill = SpillBuffer.open(file, 4096, healthMetrics)
+
+    when:
+    spill.append("v0.4", 1, bytes(10, 1))
+    spill.append("v0.5", 2, bytes(20, 2))
+
+    then:
+    spill.size() == 2
+
+    when:
+    def first = spill.peek()
+    spill.remove()
+    def second = spill.peek()
+    spill.remove()
+
+    then:
+    first.endpoint() == "v0.4"
+    first.traceCount() == 1
+    contents(first) == bytes(10, 1)
+    second.endpoint() == "v0.5"
+    second.traceCount() == 2
+    contents(second) == bytes(20, 2)
+    spill.isEmpty()
+    spill.peek() == null
+
+    cleanup:
+    spill.close()
+  }
+
+  def "oldest payloads are evicted when full"() {
+    setup:
+    def spill = SpillBuffer.open(file, 1024, healthMetrics)
+
+    when:
+    for (int i = 0; i < 10; ++i) {
+      assert spill.append("v0.4", i, bytes(200, i))
+    }
+
+    then:
+    6 * healthMetrics.onSpillEvicted(_)
+    spill.size() == 4
+    spill.peek().traceCount() == 6
+    contents(spill.peek()) == bytes(200, 6)
+
+    when:
+    def appended = spill.append("v0.4", 1, bytes(1024, 0))
+
+    then: "payloads larger than the file are rejected"
+    !appended
+    0 * healthMetrics.onSpillEvicted(_)
+    spill.size() == 4
+
+    cleanup:
+    spill.close()
+  }
+
+  def "payloads are recovered after reopening"() {
+    setup:
+    def spill = SpillBuffer.open(file, 4096, healthMetrics)
+    spill.append("v0.4", 3, bytes(100, 3))
+    spill.close()
+
+    when:
+    spill = SpillBuffer.open(file, 4096, healthMetrics)
+
+    then:
+    spill.size() == 1
+    spill.peek().traceCount() == 3
+    contents(spill.peek()) == bytes(100, 3)
+
+    cleanup:
+    spill.close()
+  }
+
+  def "corrupt payloads are discarded"() {
+    setup:
+    def spill = SpillBuffer.open(file, 4096, healthMetrics)
+    spill.append("v0.4", 3, bytes(100, 3))
+    spill.close()
+    def raf = new RandomAccessFile(file, "rw")
+    raf.seek(100)
+    raf.write(0xFF)
+    raf.close()
+
+    when:
+    spill = SpillBuffer.open(file, 4096, healthMetrics)
+
+    then:
+    spill.peek() == null
+    spill.isEmpty()
+
+    cleanup:
+    spill.close()
+  }
+
+  def "spill file can only be used by one writer"() {
+    setup:
+    def spill = SpillBuffer.open(file, 4096, healthMetrics)
+
+    when:
+    SpillBuffer.open(file, 4096, healthMetrics)
+
+    then:
+    thrown(IOException)
+
+    cleanup:
+    spill.close()
+  }
+
+  def "writers sharing a spill file each take their own copy of it"() {
+    setup:
+    def first = SpillBuffer.openAvailable(file, 2, 4096, healthMetrics)
+    first.append("v0.4/traces", 1, bytes(100, 1))
+    def second = SpillBuffer.openAvailable(file, 2, 4096, healthMetrics)
+
+    expect:
+    first.size() == 1
+    second.isEmpty()
+    SpillBuffer.sibling(file, 1).exists()
+
+    when:
+    SpillBuffer.openAvailable(file, 2, 4096, healthMetrics)
+
+    then:
+    thrown(IOException)
+
+    when:
+    first.close()
+    def reopened = SpillBuffer.openAvailable(file, 2, 4096, healthMetrics)
+
+    then:
+    reopened.size() == 1
+
+    cleanup:
+    second?.close()
+    reopened?.close()
+    SpillBuffer.sibling(file, 1).delete()
+  }
+
+  def "spill file siblings are numbered before the extension"() {
+    expect:
+    SpillBuffer.sibling(new File(dir, name), 2) == new File(dir, sibling)
+
+    where:
+    dir    | name                  | sibling
+    "/tmp" | "dd-trace-spill-a.bin" | "dd-trace-spill-a-2.bin"
+    "/tmp" | "spill"               | "spill-2"
+    "/tmp" | ".spill"              | ".spill-2"
+  }
+
+  static byte[] bytes(int length, int seed) {
+    byte[] bytes = new byte[length]
+    for (int i = 0; i < length; ++i) {
+      bytes[i] = (byte) (seed + i)
+    }
+    return bytes
+  }
+
+  static byte[] contents(Payload payload) {
+    ByteBuffer body = payload.body.duplicate()
+    byte[] contents = new byte[body.remaining()]
+    body.get(contents)
+    return contents
+  }
+}
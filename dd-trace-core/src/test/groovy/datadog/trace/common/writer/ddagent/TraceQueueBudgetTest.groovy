@@ -0,0 +1,117 @@
+package datadog.trace.common.writer.ddagent
+
+import datadog.trace.core.DDSpan
+import datadog.trace.test.util.DDSpecification
+
+import static datadog.trace.api.sampling.PrioritySampling.SAMPLER_DROP
+import static datadog.trace.api.sampling.PrioritySampling.SAMPLER_KEEP
+import static datadog.trace.api.sampling.PrioritySampling.UNSET
+import static datadog.trace.api.sampling.PrioritySampling.USER_DROP
+import static datadog.trace.api.sampling.PrioritySampling.USER_KEEP
+import static datadog.trace.common.writer.ddagent.Prioritization.ENSURE_TRACE
+import static datadog.trace.common.writer.ddagent.Prioritization.FAST_LANE
+
+class TraceQueueBudgetTest extends DDSpecification {
+
+  def "unlimited budget admits everything and weighs nothing"() {
+    setup:
+    TraceQueueBudget budget = new TraceQueueBudget(0)
+
+    expect:
+    !budget.isLimited()
+    budget.weigh(1000) == 0
+    budget.tryAcquire(Long.MAX_VALUE)
+    budget.tryAcquireDroppable(Long.MAX_VALUE)
+    budget.getQueuedBytes() == 0
+  }
+
+  def "traces are weighed with the average size of the spans serialized"() {
+    setup:
+    TraceQueueBudget budget = new TraceQueueBudget(1 << 20)
+
+    expect:
+    budget.weigh(10) == 10 * TraceQueueBudget.DEFAULT_SPAN_BYTES
+
+    when:
+    100.times {
+      budget.onSerialized(100, 100 * 1000)
+    }
+
+    then:
+    Math.abs(budget.getAverageSpanBytes() - 1000) < 10
+    budget.weigh(10) == 10 * budget.getAverageSpanBytes()
+  }
+
+  def "FAST_LANE drops traces which don't fit in the budget, large droppable traces first"() {
+    setup:
+    Queue<Object> primary = Mock(Queue)
+    Queue<Object> secondary = Mock(Queue)
+    // droppable traces heavier than 100 bytes are refused once 3200 bytes are queued
+    TraceQueueBudget budget = new TraceQueueBudget(6400)
+    budget.forceAcquire(queued)
+    PrioritizationStrategy fastLane = FAST_LANE.create(primary, secondary, { false }, budget)
+    List<DDSpan> trace = new TraceProcessingWorker.EnqueuedTrace<DDSpan>([], weight)
+
+    when:
+    boolean published = fastLane.publish(Mock(DDSpan), priority, trace)
+
+    then:
+    published == publish
+    primaryOffers * primary.offer(trace) >> true
+    secondaryOffers * secondary.offer(trace) >> true
+    budget.getQueuedBytes() == queued + (publish ? weight : 0)
+
+    where:
+    // spotless:off
+    queued | weight | priority     | publish | primaryOffers | secondaryOffers
+    0      | 1000   | SAMPLER_DROP | true    | 0             | 1
+    3000   | 1000   | USER_DROP    | true    | 0             | 1
+    4000   | 1000   | SAMPLER_DROP | false   | 0             | 0
+    4000   | 100    | SAMPLER_DROP | true    | 0             | 1
+    6350   | 100    | USER_DROP    | false   | 0             | 0
+    4000   | 1000   | SAMPLER_KEEP | true    | 1             | 0
+    6000   | 1000   | SAMPLER_KEEP | false   | 0             | 0
+    6000   | 1000   | USER_KEEP    | false   | 0             | 0
+    6000   | 400    | UNSET        | true    | 1             | 0
+    // spotless:on
+  }
+
+  def "weight is given back when the queue refuses the trace"() {
+    setup:
+    Queue<Object> primary = Mock(Queue)
+    TraceQueueBudget budget = new TraceQueueBudget(6400)
+    PrioritizationStrategy fastLane = FAST_LANE.create(primary, null, { false }, budget)
+    List<DDSpan> trace = new TraceProcessingWorker.EnqueuedTrace<DDSpan>([], 1000)
+
+    when:
+    boolean published = fastLane.publish(Mock(DDSpan), SAMPLER_KEEP, trace)
+
+    then:
+    1 * primary.offer(trace) >> false
+    !published
+    budget.getQueuedBytes() == 0
+  }
+
+  def "#strategy strategy queues force kept traces whatever the budget"() {
+    setup:
+    Queue<Object> primary = Mock(Queue)
+    TraceQueueBudget budget = new TraceQueueBudget(6400)
+    budget.forceAcquire(6400)
+    PrioritizationStrategy prioritization = strategy.create(primary, null, { false }, budget)
+    DDSpan root = Stub(DDSpan) {
+      isForceKeep() >> true
+    }
+    List<DDSpan> trace = new TraceProcessingWorker.EnqueuedTrace<DDSpan>([root], 1000)
+
+    when:
+    boolean published = prioritization.publish(root, USER_KEEP, trace)
+
+    then:
+    1 * primary.offer(trace) >> true
+    published
+    budget.getQueuedBytes() == 7400
+
+    where:
+    strategy << [FAST_LANE, ENSURE_TRACE]
+  }
+}
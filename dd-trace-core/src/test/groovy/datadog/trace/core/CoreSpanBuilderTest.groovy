@@ -125,6 +125,50 @@ class CoreSpanBuilderTest extends DDCoreSpecification {
     "empty.tag" | ""
   }
 
+  def "builder tags are set in the order they were first set"() {
+    setup:
+    // both tags set the service name, so the one set last wins
+    def builder = tracer.buildSpan("op name")
+    tags.each {
+      builder.withTag(it[0], it[1])
+    }
+
+    when:
+    DDSpan span = builder.start()
+
+    then:
+    span.serviceName == serviceName
+
+    where:
+    // spotless:off
+    tags                                                                                     | serviceName
+    [["service.name", "a"], ["service", "b"]]                                                | "b"
+    [["service.name", "a"], ["service", "b"], ["service.name", "c"]]                         | "b"
+    [["service.name", "a"], ["service", "b"], ["service.name", null], ["service.name", "c"]] | "c"
+    // spotless:on
+  }
+
+  def "local root span tags override default and builder tags"() {
+    setup:
+    def customTracer = tracerBuilder().writer(writer)
+      .localRootSpanTags([a: "root"])
+      .defaultSpanTags([a: "default", b: "default", c: "default"])
+      .build()
+
+    when:
+    DDSpan root = customTracer.buildSpan("root").withTag("a", "builder").withTag("b", "builder").start()
+    DDSpan child = customTracer.buildSpan("child").asChildOf(root).withTag("a", "builder").start()
+
+    then:
+    root.tags.subMap(["a", "b", "c"]) == [a: "root", b: "builder", c: "default"]
+    child.tags.subMap(["a", "b", "c"]) == [a: "builder", b: "default", c: "default"]
+
+    cleanup:
+    child.finish()
+    root.finish()
+    customTracer.close()
+  }
+
   def "should build span timestamp in nano"() {
     setup:
     // time in micro
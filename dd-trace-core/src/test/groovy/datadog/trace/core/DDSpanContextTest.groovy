@@ -1,9 +1,16 @@
 package datadog.trace.core
 
 import datadog.trace.api.DDTags
+import datadog.trace.bootstrap.instrumentation.api.TagBatch
+import datadog.trace.bootstrap.instrumentation.api.Tags
+import datadog.trace.common.sampling.ForcePrioritySampler
+import datadog.trace.common.writer.DDAgentWriter
 import datadog.trace.common.writer.ListWriter
+import datadog.trace.common.writer.ddagent.DroppingPolicy
 import datadog.trace.core.test.DDCoreSpecification
 
+import static datadog.trace.api.config.GeneralConfig.TRACER_METRICS_ENABLED
+import static datadog.trace.api.config.GeneralConfig.TRACER_METRICS_STATS_ONLY_DROPPED_TRACES
 import static datadog.trace.api.sampling.PrioritySampling.SAMPLER_DROP
 import static datadog.trace.api.sampling.PrioritySampling.USER_DROP
 import static datadog.trace.api.sampling.PrioritySampling.USER_KEEP
@@ -104,6 +111,76 @@ class DDSpanContextTest extends DDCoreSpecification {
     "tag_with_float" | 0.321
   }
 
+  def "peer tags can be removed"() {
+    setup:
+    def span = tracer.buildSpan("fakeOperation").start()
+    def context = span.context()
+    context.setTag(Tags.PEER_PORT, 8080)
+    context.setTag(Tags.PEER_HOST_IPV4, "10.0.0.1")
+    context.setPeerHostIPv6("::1")
+
+    when:
+    if (batched) {
+      context.setTags(TagBatch.begin()
+        .put(Tags.PEER_PORT, removed)
+        .put(Tags.PEER_HOST_IPV4, removed)
+        .put(Tags.PEER_HOST_IPV6, removed))
+    } else {
+      context.setTag(Tags.PEER_PORT, removed)
+      context.setTag(Tags.PEER_HOST_IPV4, removed)
+      context.setTag(Tags.PEER_HOST_IPV6, removed)
+    }
+
+    then:
+    context.peerPort == 0
+    context.getTag(Tags.PEER_PORT) == null
+    context.getTag(Tags.PEER_HOST_IPV4) == null
+    context.getTag(Tags.PEER_HOST_IPV6) == null
+    !context.tags.containsKey(Tags.PEER_PORT)
+    !context.tags.containsKey(Tags.PEER_HOST_IPV4)
+    !context.tags.containsKey(Tags.PEER_HOST_IPV6)
+
+    cleanup:
+    span.finish()
+
+    where:
+    batched | removed
+    false   | null
+    false   | ""
+    true    | null
+    true    | ""
+  }
+
+  def "peer port is only kept as the last type it was set with"() {
+    setup:
+    def span = tracer.buildSpan("fakeOperation").start()
+    def context = span.context()
+
+    when:
+    values.each {
+      if (it instanceof String) {
+        context.setTag(Tags.PEER_PORT, it)
+      } else {
+        context.setPeerPort(it)
+      }
+    }
+
+    then:
+    context.peerPort == (expected instanceof String ? 0 : expected)
+    context.unsafeGetTag(Tags.PEER_PORT) == (expected instanceof String ? expected : null)
+    context.getTag(Tags.PEER_PORT) == expected
+    context.tags[Tags.PEER_PORT] == expected
+
+    cleanup:
+    span.finish()
+
+    where:
+    values               | expected
+    [8080, "9090"]       | "9090"
+    ["9090", 8080]       | 8080
+    [8080, "9090", 7070] | 7070
+  }
+
   def "metrics use the expected types"() {
     // floats should be converted to doubles.
     setup:
@@ -164,6 +241,93 @@ class DDSpanContextTest extends DDCoreSpecification {
     span.finish()
   }
 
+  def "spans of dropped traces only keep what stats need"() {
+    setup:
+    injectSysConfig(TRACER_METRICS_ENABLED, "true")
+    injectSysConfig(TRACER_METRICS_STATS_ONLY_DROPPED_TRACES, enabled)
+    def droppingPolicy = Stub(DroppingPolicy) {
+      active() >> agentDrops
+    }
+    def agentWriter = Stub(DDAgentWriter) {
+      getDroppingPolicy() >> droppingPolicy
+    }
+    def statsTracer = tracerBuilder()
+      .writer(agentWriter)
+      .sampler(new ForcePrioritySampler(priority))
+      .build()
+
+    when:
+    def root = statsTracer.buildSpan("root")
+      .withResourceName("GET /")
+      .withTag("root.tag", "value")
+      .start()
+    def child = statsTracer.buildSpan("child").asChildOf(root).start()
+    child.setTag("some.tag", "value")
+    child.setTag("http.status_code", 500)
+    child.setTag("error.msg", "boom")
+
+    then:
+    root.context().getTrace().isStatsOnly() == statsOnly
+    // the decision is made before the root span's own tags are stored
+    (root.getTag("root.tag") == null) == statsOnly
+    (child.getTag("some.tag") == null) == statsOnly
+    child.getTag("error.msg") == "boom"
+    child.context().getHttpStatusCode() == 500
+    root.context().resourceName.toString() == "GET /"
+
+    when:
+    child.setTag(DDTags.MANUAL_KEEP, true)
+    child.setTag("other.tag", "value")
+
+    then:
+    !root.context().getTrace().isStatsOnly()
+    child.getTag("other.tag") == "value"
+
+    cleanup:
+    child.finish()
+    root.finish()
+    statsTracer.close()
+
+    where:
+    enabled | agentDrops | priority     | statsOnly
+    "true"  | true       | SAMPLER_DROP | true
+    "true"  | true       | USER_DROP    | true
+    "true"  | true       | USER_KEEP    | false
+    "true"  | false      | SAMPLER_DROP | false
+    "false" | true       | SAMPLER_DROP | false
+  }
+
+  def "tags set on a local root span are taken into account before it is stats only"() {
+    setup:
+    injectSysConfig(TRACER_METRICS_ENABLED, "true")
+    injectSysConfig(TRACER_METRICS_STATS_ONLY_DROPPED_TRACES, "true")
+    def droppingPolicy = Stub(DroppingPolicy) {
+      active() >> true
+    }
+    def agentWriter = Stub(DDAgentWriter) {
+      getDroppingPolicy() >> droppingPolicy
+    }
+    def statsTracer = tracerBuilder()
+      .writer(agentWriter)
+      .sampler(new ForcePrioritySampler(SAMPLER_DROP))
+      .build()
+
+    when:
+    def root = statsTracer.buildSpan("root")
+      .withTag(DDTags.MANUAL_KEEP, true)
+      .withTag("root.tag", "value")
+      .start()
+
+    then:
+    root.context().getSamplingPriority() == USER_KEEP
+    !root.context().getTrace().isStatsOnly()
+    root.getTag("root.tag") == "value"
+
+    cleanup:
+    root.finish()
+    statsTracer.close()
+  }
+
   static void assertTagmap(Map source, Map comparison) {
     def sourceWithoutCommonTags = new HashMap(source)
     sourceWithoutCommonTags.remove("runtime-id")
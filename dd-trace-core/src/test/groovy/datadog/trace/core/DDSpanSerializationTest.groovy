@@ -2,6 +2,7 @@ package datadog.trace.core
 
 import datadog.trace.api.DDId
 import datadog.trace.api.sampling.PrioritySampling
+import datadog.trace.bootstrap.instrumentation.api.Tags
 import datadog.trace.common.writer.ListWriter
 import datadog.trace.common.writer.ddagent.TraceMapperV0_4
 import datadog.trace.common.writer.ddagent.TraceMapperV0_5
@@ -257,6 +258,98 @@ class DDSpanSerializationTest extends DDCoreSpecification {
     [foo: "bbar"] | [foo: "tbar"] | [foo: "tbar"]
   }
 
+  def "serialize peer tags from typed slots"() {
+    setup:
+    def writer = new ListWriter()
+    def tracer = tracerBuilder().writer(writer).build()
+    def context = createContext(null, tracer, DDId.ONE)
+    def span = DDSpan.create(0, context)
+    span.setTag(Tags.PEER_PORT, 8080)
+    span.setTag(Tags.PEER_HOST_IPV4, "10.0.0.1")
+    span.setPeerHostIPv6("::1")
+    CaptureBuffer capture = new CaptureBuffer()
+    def packer = new MsgPackWriter(new FlushingBuffer(1024, capture))
+    packer.format(Collections.singletonList(span), new TraceMapperV0_4())
+    packer.flush()
+    def unpacker = MessagePack.newDefaultUnpacker(new ArrayBufferInput(capture.bytes))
+    unpacker.unpackArrayHeader()
+    int size = unpacker.unpackMapHeader()
+    Map<String, String> meta = [:]
+    Map<String, Number> metrics = [:]
+    for (int i = 0; i < size; i++) {
+      String key = unpacker.unpackString()
+      switch (key) {
+        case "meta":
+          int packedSize = unpacker.unpackMapHeader()
+          for (int j = 0; j < packedSize; j++) {
+            meta.put(unpacker.unpackString(), unpacker.unpackString())
+          }
+          break
+        case "metrics":
+          int packedSize = unpacker.unpackMapHeader()
+          for (int j = 0; j < packedSize; j++) {
+            String k = unpacker.unpackString()
+            metrics.put(k, unpacker.unpackValue().asNumberValue().toLong())
+          }
+          break
+        default:
+          unpacker.unpackValue()
+      }
+    }
+
+    expect:
+    context.peerPort == 8080
+    span.getTag(Tags.PEER_PORT) == 8080
+    span.getTag(Tags.PEER_HOST_IPV4) == "10.0.0.1"
+    metrics[Tags.PEER_PORT] == 8080
+    meta[Tags.PEER_HOST_IPV4] == "10.0.0.1"
+    meta[Tags.PEER_HOST_IPV6] == "::1"
+    context.tags[Tags.PEER_PORT] == 8080
+    context.tags[Tags.PEER_HOST_IPV4] == "10.0.0.1"
+
+    cleanup:
+    tracer.close()
+  }
+
+  def "peer port is serialized once when retyped"() {
+    setup:
+    def writer = new ListWriter()
+    def tracer = tracerBuilder().writer(writer).build()
+    def context = createContext(null, tracer, DDId.ONE)
+    def span = DDSpan.create(0, context)
+    span.setTag(Tags.PEER_PORT, 8080)
+    span.setTag(Tags.PEER_PORT, "9090")
+    CaptureBuffer capture = new CaptureBuffer()
+    def packer = new MsgPackWriter(new FlushingBuffer(1024, capture))
+    packer.format(Collections.singletonList(span), new TraceMapperV0_4())
+    packer.flush()
+    def unpacker = MessagePack.newDefaultUnpacker(new ArrayBufferInput(capture.bytes))
+    unpacker.unpackArrayHeader()
+    int size = unpacker.unpackMapHeader()
+    List<String> peerPorts = []
+    for (int i = 0; i < size; i++) {
+      String key = unpacker.unpackString()
+      if (key == "meta" || key == "metrics") {
+        int packedSize = unpacker.unpackMapHeader()
+        for (int j = 0; j < packedSize; j++) {
+          String k = unpacker.unpackString()
+          def v = unpacker.unpackValue()
+          if (k == Tags.PEER_PORT) {
+            peerPorts << v.toString()
+          }
+        }
+      } else {
+        unpacker.unpackValue()
+      }
+    }
+
+    expect:
+    peerPorts == ["9090"]
+
+    cleanup:
+    tracer.close()
+  }
+
   private class CaptureBuffer implements ByteBufferConsumer {
 
     private byte[] bytes
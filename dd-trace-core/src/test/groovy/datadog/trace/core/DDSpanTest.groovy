@@ -5,6 +5,7 @@ import datadog.trace.api.DDId
 import datadog.trace.api.DDTags
 import datadog.trace.api.sampling.PrioritySampling
 import datadog.trace.bootstrap.instrumentation.api.AgentSpan
+import datadog.trace.bootstrap.instrumentation.api.TagBatch
 import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString
 import datadog.trace.common.sampling.RateByServiceSampler
 import datadog.trace.common.writer.ListWriter
@@ -332,4 +333,106 @@ class DDSpanTest extends DDCoreSpecification {
     span.getTag(DDTags.ERROR_STACK) == null
     span.getTag(DDTags.ERROR_MSG) == "Broken pipe"
   }
+
+  def "error stack is rendered like printStackTrace when read"() {
+    setup:
+    def error = new IllegalStateException("outer", new IOException("inner"))
+    def expected = new StringWriter()
+    error.printStackTrace(new PrintWriter(expected))
+
+    when:
+    def span = tracer.buildSpan("root").start()
+    span.addThrowable(error)
+
+    then:
+    span.isError()
+    span.getTag(DDTags.ERROR_STACK) == expected.toString().replace(System.lineSeparator(), "\n")
+    span.getTags()[DDTags.ERROR_STACK] instanceof String
+    span.getTag(DDTags.ERROR_TYPE) == IllegalStateException.name
+  }
+
+  def "error stack frames are truncated and shared"() {
+    setup:
+    def first = new RuntimeException("first")
+    def second = new RuntimeException("second")
+    second.setStackTrace(first.getStackTrace())
+    int frames = first.stackTrace.length
+
+    when:
+    def rendered = ErrorStack.render(first, 2)
+    def lines = rendered.split("\n")
+
+    then:
+    lines.length == 4
+    lines[0] == "java.lang.RuntimeException: first"
+    lines[1] == "\tat " + first.stackTrace[0]
+    lines[2] == "\tat " + first.stackTrace[1]
+    lines[3] == "\t... ${frames - 2} more"
+    ErrorStack.render(second, 2).replace("second", "first") == rendered
+  }
+
+  def "error stack is captured from a throwable whose toString fails"() {
+    setup:
+    def error = new BrokenToStringException()
+    def span = tracer.buildSpan("root").start()
+
+    when:
+    span.addThrowable(error)
+    error.setStackTrace(new StackTraceElement[0])
+
+    then:
+    span.isError()
+    def lines = span.getTag(DDTags.ERROR_STACK).split("\n")
+    lines[0] == BrokenToStringException.name
+    lines.length > 1
+  }
+
+  static class BrokenToStringException extends RuntimeException {
+    @Override
+    String toString() {
+      throw new IllegalStateException()
+    }
+  }
+
+  def "batched tags are set like individual tags"() {
+    setup:
+    def span = tracer.buildSpan("root").withTag("removed", "value").start()
+
+    when:
+    span.setTags(TagBatch.begin()
+      .put("string", "value")
+      .put("int", 1)
+      .put("long", 2L)
+      .put("boolean", true)
+      .put("removed", null)
+      .put("empty", "")
+      .put(DDTags.RESOURCE_NAME, "batched-resource"))
+
+    then:
+    span.getTag("string") == "value"
+    span.getTag("int") == 1
+    span.getTag("long") == 2L
+    span.getTag("boolean") == true
+    !span.getTags().containsKey("removed")
+    !span.getTags().containsKey("empty")
+    // intercepted tags still go through the tag interceptor
+    span.getResourceName() == "batched-resource"
+    !span.getTags().containsKey(DDTags.RESOURCE_NAME)
+
+  }
+
+  def "tag batches are reused once released"() {
+    when:
+    def first = TagBatch.begin().put("key", "value")
+    def nested = TagBatch.begin()
+    first.release()
+    nested.release()
+    def reused = TagBatch.begin()
+    reused.release()
+
+    then:
+    !nested.is(first)
+    reused.is(first)
+    reused.size() == 0
+  }
 }
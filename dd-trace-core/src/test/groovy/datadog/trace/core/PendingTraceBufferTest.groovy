@@ -77,6 +77,7 @@ class PendingTraceBufferTest extends DDSpecification {
     trace.pendingReferenceCount == 1
     1 * bufferSpy.enqueue(trace)
     _ * tracer.getPartialFlushMinSpans() >> 10
+    _ * tracer.getSpanStreamingChunkSize() >> 0
     1 * tracer.onFinish(span)
     0 * _
 
@@ -88,6 +89,7 @@ class PendingTraceBufferTest extends DDSpecification {
     1 * tracer.write({ it.size() == 1 })
     1 * tracer.writeTimer() >> Monitoring.DISABLED.newTimer("")
     _ * tracer.getPartialFlushMinSpans() >> 10
+    _ * tracer.getSpanStreamingChunkSize() >> 0
     0 * _
   }
 
@@ -108,6 +110,7 @@ class PendingTraceBufferTest extends DDSpecification {
     trace.pendingReferenceCount == 1
     1 * bufferSpy.enqueue(trace)
     _ * tracer.getPartialFlushMinSpans() >> 10
+    _ * tracer.getSpanStreamingChunkSize() >> 0
     1 * tracer.onFinish(parent)
     0 * _
 
@@ -120,6 +123,7 @@ class PendingTraceBufferTest extends DDSpecification {
     1 * tracer.write({ it.size() == 2 })
     1 * tracer.writeTimer() >> Monitoring.DISABLED.newTimer("")
     _ * tracer.getPartialFlushMinSpans() >> 10
+    _ * tracer.getSpanStreamingChunkSize() >> 0
     1 * tracer.onFinish(child)
     0 * _
   }
@@ -137,6 +141,7 @@ class PendingTraceBufferTest extends DDSpecification {
     buffer.queue.size() == BUFFER_SIZE
     buffer.queue.capacity() * bufferSpy.enqueue(_)
     _ * tracer.getPartialFlushMinSpans() >> 10
+    _ * tracer.getSpanStreamingChunkSize() >> 0
     _ * tracer.mapServiceName(_)
     _ * tracer.onStart(_)
     _ * tracer.onFinish(_)
@@ -150,6 +155,7 @@ class PendingTraceBufferTest extends DDSpecification {
     1 * tracer.writeTimer() >> Monitoring.DISABLED.newTimer("")
     1 * tracer.write({ it.size() == 1 })
     _ * tracer.getPartialFlushMinSpans() >> 10
+    _ * tracer.getSpanStreamingChunkSize() >> 0
     _ * tracer.mapServiceName(_)
     1 * tracer.onStart(_)
     1 * tracer.onFinish(_)
@@ -176,6 +182,7 @@ class PendingTraceBufferTest extends DDSpecification {
     !trace.rootSpanWritten
     1 * bufferSpy.enqueue(trace)
     _ * tracer.getPartialFlushMinSpans() >> 10
+    _ * tracer.getSpanStreamingChunkSize() >> 0
     1 * tracer.onFinish(parent)
     0 * _
 
@@ -202,6 +209,7 @@ class PendingTraceBufferTest extends DDSpecification {
       latch.countDown()
     }
     _ * tracer.getPartialFlushMinSpans() >> 10
+    _ * tracer.getSpanStreamingChunkSize() >> 0
     0 * _
   }
 
@@ -227,6 +235,7 @@ class PendingTraceBufferTest extends DDSpecification {
       parentLatch.countDown()
     }
     _ * tracer.getPartialFlushMinSpans() >> 10
+    _ * tracer.getSpanStreamingChunkSize() >> 0
     1 * tracer.onFinish(parent)
     0 * _
 
@@ -241,6 +250,7 @@ class PendingTraceBufferTest extends DDSpecification {
     trace.rootSpanWritten
     1 * bufferSpy.enqueue(trace)
     _ * tracer.getPartialFlushMinSpans() >> 10
+    _ * tracer.getSpanStreamingChunkSize() >> 0
     1 * tracer.writeTimer() >> Monitoring.DISABLED.newTimer("")
     1 * tracer.write({ it.size() == 1 }) >> {
       childLatch.countDown()
@@ -3,6 +3,7 @@ package datadog.trace.core
 import ch.qos.logback.classic.Level
 import ch.qos.logback.classic.Logger
 import datadog.trace.api.Checkpointer
+import datadog.trace.api.sampling.PrioritySampling
 import datadog.trace.common.writer.ListWriter
 import datadog.trace.core.test.DDCoreSpecification
 import org.slf4j.LoggerFactory
@@ -13,6 +14,7 @@ import java.util.concurrent.TimeUnit
 import static datadog.trace.api.Checkpointer.END
 import static datadog.trace.api.Checkpointer.SPAN
 import static datadog.trace.api.config.TracerConfig.PARTIAL_FLUSH_MIN_SPANS
+import static datadog.trace.api.config.TracerConfig.SPAN_STREAMING_CHUNK_SIZE
 
 abstract class PendingTraceTestBase extends DDCoreSpecification {
 
@@ -207,6 +209,84 @@ abstract class PendingTraceTestBase extends DDCoreSpecification {
     quickTracer.close()
   }
 
+  def "span streaming writes finished spans in chunks"() {
+    when:
+    injectSysConfig(SPAN_STREAMING_CHUNK_SIZE, "2")
+    def streamingTracer = tracerBuilder().writer(writer).build()
+    def rootSpan = streamingTracer.buildSpan("root").start()
+    def trace = rootSpan.context().trace
+    def child1 = streamingTracer.buildSpan("child1").asChildOf(rootSpan).start()
+    def child2 = streamingTracer.buildSpan("child2").asChildOf(rootSpan).start()
+    def child3 = streamingTracer.buildSpan("child3").asChildOf(rootSpan).start()
+    child1.finish()
+
+    then:
+    trace.finishedSpans.asList() == [child1]
+    writer == []
+
+    when:
+    child2.finish()
+    writer.waitForTraces(1)
+
+    then:
+    trace.pendingReferenceCount == 2
+    trace.finishedSpans.isEmpty()
+    writer == [[child2, child1]]
+    samplingPriorityOf(child2) == rootSpan.samplingPriority()
+    samplingPriorityOf(child1) == PrioritySampling.UNSET
+
+    when:
+    child3.finish()
+    rootSpan.finish()
+    writer.waitForTraces(2)
+
+    then:
+    trace.pendingReferenceCount == 0
+    trace.finishedSpans.isEmpty()
+    writer == [[child2, child1], [rootSpan, child3]]
+
+    cleanup:
+    streamingTracer.close()
+  }
+
+  def "span streaming writes the oldest spans first"() {
+    when:
+    injectSysConfig(SPAN_STREAMING_CHUNK_SIZE, "2")
+    def streamingTracer = tracerBuilder().writer(writer).build()
+    def rootSpan = streamingTracer.buildSpan("root").start()
+    def trace = rootSpan.context().trace
+    def children = (1..5).collect {
+      streamingTracer.buildSpan("child" + it).asChildOf(rootSpan).start()
+    }
+    children.each { it.finish() }
+    writer.waitForTraces(2)
+
+    then:
+    trace.finishedSpans.asList() == [children[4]]
+    writer == [[children[1], children[0]], [children[3], children[2]]]
+
+    when:
+    rootSpan.finish()
+    writer.waitForTraces(3)
+
+    then:
+    writer[2] == [rootSpan, children[4]]
+
+    cleanup:
+    streamingTracer.close()
+  }
+
+  private static int samplingPriorityOf(DDSpan span) {
+    int[] samplingPriority = [PrioritySampling.UNSET]
+    span.processTagsAndBaggage(new MetadataConsumer() {
+        @Override
+        void accept(Metadata metadata) {
+          samplingPriority[0] = metadata.samplingPriority()
+        }
+      })
+    return samplingPriority[0]
+  }
+
   def "partial flush concurrency test"() {
     // reduce logging noise
     def logger = (Logger) LoggerFactory.getLogger("datadog.trace")
@@ -0,0 +1,184 @@
+package datadog.trace.core
+
+import datadog.trace.api.Config
+import datadog.trace.common.writer.ListWriter
+import datadog.trace.core.monitor.HealthMetrics
+import datadog.trace.core.test.DDCoreSpecification
+import spock.util.concurrent.PollingConditions
+
+import java.lang.ref.WeakReference
+
+import static datadog.trace.api.config.TracerConfig.SPAN_BUDGET
+import static datadog.trace.api.config.TracerConfig.SPAN_BUDGET_MB
+import static datadog.trace.test.util.GCUtils.awaitGC
+
+class SpanBudgetTest extends DDCoreSpecification {
+
+  def healthMetrics = Mock(HealthMetrics)
+
+  def "budget is only created when configured"() {
+    setup:
+    def properties = new Properties()
+    if (spans != null) {
+      properties.setProperty(SPAN_BUDGET, spans)
+    }
+    if (mb != null) {
+      properties.setProperty(SPAN_BUDGET_MB, mb)
+    }
+
+    when:
+    def budget = SpanBudget.forConfig(Config.get(properties), healthMetrics)
+
+    then:
+    (budget == SpanBudget.UNLIMITED) == (maxSpans == 0)
+    budget == SpanBudget.UNLIMITED || budget.maxSpans == maxSpans
+
+    where:
+    spans   | mb   | maxSpans
+    null    | null | 0
+    "0"     | "0"  | 0
+    "10000" | null | 10000
+    null    | "1"  | 1024
+    "10000" | "1"  | 1024
+    "100"   | "1"  | 100
+  }
+
+  def "unlimited budget admits every span"() {
+    setup:
+    def lease = SpanBudget.UNLIMITED.lease(null)
+
+    expect:
+    lease == null
+    SpanBudget.UNLIMITED.admits(lease)
+    !SpanBudget.UNLIMITED.isExceeded()
+  }
+
+  def "spans in large traces are refused once the budget is exceeded"() {
+    setup:
+    def budget = new SpanBudget(4, 1, healthMetrics)
+    def large = budget.lease(null)
+    def small = budget.lease(null)
+
+    when:
+    4.times {
+      assert budget.admits(large)
+      budget.acquire(large)
+    }
+
+    then:
+    !budget.isExceeded()
+    0 * _
+
+    when:
+    budget.acquire(small)
+
+    then:
+    budget.isExceeded()
+    budget.inFlightSpans() == 5
+    1 * healthMetrics.onSpanBudgetExceeded(5)
+    0 * _
+
+    when:
+    def refused = !budget.admits(large)
+    def rootAdmitted = budget.admits(budget.lease(null))
+
+    then:
+    refused
+    rootAdmitted
+    1 * healthMetrics.onSpanRejected()
+    0 * _
+
+    when:
+    budget.release(large)
+
+    then:
+    !budget.isExceeded()
+    budget.inFlightSpans() == 4
+    large.spans() == 3
+    0 * _
+  }
+
+  def "spans still held when a trace expires are released once"() {
+    setup:
+    def budget = new SpanBudget(4, 1, healthMetrics)
+    def lease = budget.lease(null)
+    3.times {
+      budget.acquire(lease)
+    }
+
+    when:
+    budget.expire(lease)
+
+    then:
+    budget.inFlightSpans() == 0
+    lease.spans() == 0
+
+    when: "a span of the expired trace finishes late"
+    budget.release(lease)
+
+    then:
+    budget.inFlightSpans() == 0
+  }
+
+  def "spans of collected traces are released"() {
+    setup:
+    injectSysConfig(SPAN_BUDGET, "10")
+    def tracer = tracerBuilder().writer(new ListWriter()).build()
+    def budget = tracer.spanBudget
+
+    when:
+    def root = tracer.buildSpan("root").start()
+    tracer.buildSpan("child").asChildOf(root).start()
+    def ref = new WeakReference<>(root.context().trace)
+    root = null
+    awaitGC(ref)
+
+    then:
+    new PollingConditions(timeout: 5).eventually {
+      // collected traces are released when the budget is next checked
+      budget.check()
+      assert budget.inFlightSpans() == 0
+    }
+
+    cleanup:
+    tracer.close()
+  }
+
+  def "tracer hands out unrecorded spans and flushes early when over budget"() {
+    setup:
+    injectSysConfig(SPAN_BUDGET, "10")
+    def writer = new ListWriter()
+    def tracer = tracerBuilder().writer(writer).build()
+
+    when:
+    def root = tracer.buildSpan("root").start()
+    def children = (1..100).collect {
+      tracer.buildSpan("child").asChildOf(root).start()
+    }
+    def unrecorded = children.findAll { it instanceof UnrecordedSpan }
+    def grandchild = tracer.buildSpan("grandchild").asChildOf(unrecorded.last()).start()
+
+    then:
+    // the budget is checked every CHECK_INTERVAL spans started
+    unrecorded.size() == 101 - SpanBudget.CHECK_INTERVAL
+    // spans started under an unrecorded span are children of its parent
+    unrecorded.every { it.context() == root.context() && it.localRootSpan == root }
+    grandchild instanceof UnrecordedSpan
+    grandchild.context() == root.context()
+
+    when:
+    children.each { it.finish() }
+    root.finish()
+
+    then:
+    // finished spans are written straight away until the tracer is back within the budget
+    writer.sum { it.size() } == SpanBudget.CHECK_INTERVAL
+    writer.size() == SpanBudget.CHECK_INTERVAL - 10
+    writer.last().size() == 11
+    writer.last().contains(root)
+    tracer.spanBudget.inFlightSpans() == 0
+
+    cleanup:
+    tracer.close()
+  }
+}
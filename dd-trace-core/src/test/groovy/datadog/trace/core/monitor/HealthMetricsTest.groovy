@@ -189,6 +189,103 @@ class HealthMetricsTest extends DDSpecification {
     sendSize = ThreadLocalRandom.current().nextInt(1, 100)
   }
 
+  def "test onSpill"() {
+    when:
+    healthMetrics.onSpill(traceCount, size, 3, 3 * size)
+
+    then:
+    1 * statsD.count('spill.traces', traceCount)
+    1 * statsD.count('spill.bytes', size)
+    1 * statsD.gauge('spill.payloads', 3)
+    1 * statsD.gauge('spill.used.bytes', 3 * size)
+    0 * _
+
+    where:
+    traceCount = ThreadLocalRandom.current().nextInt(1, 100)
+    size = ThreadLocalRandom.current().nextInt(1, 100)
+  }
+
+  def "test onSpillEvicted"() {
+    when:
+    healthMetrics.onSpillEvicted(traceCount)
+
+    then:
+    1 * statsD.count('spill.evicted.traces', traceCount)
+    0 * _
+
+    where:
+    traceCount = ThreadLocalRandom.current().nextInt(1, 100)
+  }
+
+  def "test onReplay"() {
+    when:
+    healthMetrics.onReplay(traceCount, size, 0, 0)
+
+    then:
+    1 * statsD.count('spill.replayed.traces', traceCount)
+    1 * statsD.count('spill.replayed.bytes', size)
+    1 * statsD.gauge('spill.payloads', 0)
+    1 * statsD.gauge('spill.used.bytes', 0)
+    0 * _
+
+    where:
+    traceCount = ThreadLocalRandom.current().nextInt(1, 100)
+    size = ThreadLocalRandom.current().nextInt(1, 100)
+  }
+
+  def "test onSpanBudgetExceeded"() {
+    when:
+    healthMetrics.onSpanBudgetExceeded(spans)
+
+    then:
+    1 * statsD.incrementCounter('span_budget.exceeded')
+    1 * statsD.gauge('span_budget.inflight.spans', spans)
+    0 * _
+
+    where:
+    spans = ThreadLocalRandom.current().nextLong(1, 100)
+  }
+
+  def "test onSpanRejected"() {
+    setup:
+    def latch = new CountDownLatch(1)
+    def healthMetrics = new HealthMetrics(new Latched(statsD, latch), 100, TimeUnit.MILLISECONDS)
+    healthMetrics.start()
+
+    when:
+    healthMetrics.onSpanRejected()
+    healthMetrics.onSpanRejected()
+    latch.await(10, TimeUnit.SECONDS)
+
+    then:
+    1 * statsD.count('span_budget.rejected.spans', 2, _)
+    0 * _
+
+    cleanup:
+    healthMetrics.close()
+  }
+
+  def "test onSpanBudgetFlush"() {
+    setup:
+    def latch = new CountDownLatch(1)
+    def healthMetrics = new HealthMetrics(new Latched(statsD, latch), 100, TimeUnit.MILLISECONDS)
+    healthMetrics.start()
+
+    when:
+    healthMetrics.onSpanBudgetFlush(spanCount)
+    latch.await(10, TimeUnit.SECONDS)
+
+    then:
+    1 * statsD.count('span_budget.flushed.spans', spanCount, _)
+    0 * _
+
+    cleanup:
+    healthMetrics.close()
+
+    where:
+    spanCount = ThreadLocalRandom.current().nextInt(1, 100)
+  }
+
   private static class Latched implements StatsDClient {
     final StatsDClient delegate
     final CountDownLatch latch
@@ -2,9 +2,12 @@ package datadog.trace.core.propagation
 
 import datadog.trace.api.DDId
 import datadog.trace.api.sampling.PrioritySampling
+import datadog.trace.bootstrap.instrumentation.api.AgentPropagation
 import datadog.trace.bootstrap.instrumentation.api.ContextVisitors
 import datadog.trace.test.util.DDSpecification
 
+import java.nio.charset.StandardCharsets
+
 import static datadog.trace.core.CoreTracer.TRACE_ID_MAX
 import static datadog.trace.core.propagation.DatadogHttpCodec.ORIGIN_KEY
 import static datadog.trace.core.propagation.DatadogHttpCodec.OT_BAGGAGE_PREFIX
@@ -107,6 +110,48 @@ class DatadogHttpExtractorTest extends DDSpecification {
     ]
   }
 
+  def "extract http headers from ascii carrier only decodes interesting headers"() {
+    setup:
+    def headers = [
+      (TRACE_ID_KEY.toUpperCase())            : "1",
+      (SPAN_ID_KEY.toUpperCase())             : "2",
+      (OT_BAGGAGE_PREFIX.toUpperCase() + "k1"): "v1",
+      "X-Forwarded-For"                       : "1.2.3.4",
+      "Some_Header"                           : "my-interesting-info",
+      "User-Agent"                            : "ignored",
+      "x-datadog"                             : "ignored",
+    ]
+    def decoded = []
+    def visitor = new AgentPropagation.ContextVisitor<Map<String, String>>() {
+        @Override
+        void forEachKey(Map<String, String> carrier, AgentPropagation.KeyClassifier classifier) {
+          def filter = (AgentPropagation.KeyFilter) classifier
+          for (Map.Entry<String, String> entry : carrier.entrySet()) {
+            byte[] name = ("  " + entry.key).getBytes(StandardCharsets.US_ASCII)
+            if (filter.mayAccept(name, 2, name.length - 2)) {
+              decoded.add(entry.key)
+              if (!classifier.accept(entry.key, entry.value)) {
+                return
+              }
+            }
+          }
+        }
+      }
+
+    when:
+    final ExtractedContext context = extractor.extract(headers, visitor)
+
+    then:
+    context.traceId == DDId.ONE
+    context.spanId == DDId.from(2)
+    context.baggage == ["k1": "v1"]
+    context.tags == ["some-tag": "my-interesting-info"]
+    context.forwardedIp == "1.2.3.4"
+    decoded.size() == 5
+    !decoded.contains("User-Agent")
+    !decoded.contains("x-datadog")
+  }
+
   def "extract empty headers returns null"() {
     expect:
     extractor.extract(["ignored-header": "ignored-value"], ContextVisitors.stringValuesMap()) == null
@@ -0,0 +1,81 @@
+package datadog.trace.core.serialization.msgpack;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import datadog.trace.core.serialization.Codec;
+import datadog.trace.core.serialization.GrowableBuffer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.Test;
+import org.msgpack.core.MessagePack;
+import org.msgpack.core.MessageUnpacker;
+
+public class MsgPackStringTableTest {
+
+  @Test
+  public void testStringIsInternedOnSecondLookup() {
+    MsgPackStringTable table = new MsgPackStringTable(16, 64);
+    String value = new String("server");
+    assertNull(table.lookup(value));
+    MsgPackStringTable.Entry entry = table.lookup(value);
+    assertNotNull(entry);
+    assertSame(entry, table.lookup(new String("server")));
+    assertSame(entry.utf8.getUtf8Bytes(), table.encode("server"));
+  }
+
+  @Test
+  public void testLongStringsAreNotInterned() {
+    MsgPackStringTable table = new MsgPackStringTable(16, 4);
+    assertNull(table.lookup("server"));
+    assertNull(table.lookup("server"));
+    assertNull(table.encode("server"));
+  }
+
+  @Test
+  public void testOtherCharSequencesAreNotInterned() {
+    MsgPackStringTable table = new MsgPackStringTable(16, 64);
+    StringBuilder value = new StringBuilder("server");
+    assertNull(table.lookup(value));
+    assertNull(table.lookup(value));
+  }
+
+  @Test
+  public void testEncodedStringsRoundTrip() throws IOException {
+    String[] values = {
+      "", "GET", "道可道非常道", repeat('a', 31), repeat('ß', 200), repeat('x', 300)
+    };
+    MsgPackStringTable table = new MsgPackStringTable(16, 1024);
+    GrowableBuffer buffer = new GrowableBuffer(1024);
+    MsgPackWriter writer = new MsgPackWriter(Codec.INSTANCE, buffer);
+    for (String value : values) {
+      table.lookup(value);
+      byte[] expected = value.getBytes(StandardCharsets.UTF_8);
+      byte[] encoded = table.encoded(value);
+      assertNotNull(encoded);
+      assertArrayEquals(
+          expected,
+          Arrays.copyOfRange(encoded, encoded.length - expected.length, encoded.length));
+      writer.writeString(value, table);
+    }
+    buffer.mark();
+    ByteBuffer written = buffer.slice();
+    MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(written);
+    for (String value : values) {
+      assertEquals(value, unpacker.unpackString());
+    }
+  }
+
+  private static String repeat(char c, int count) {
+    StringBuilder sb = new StringBuilder(count);
+    for (int i = 0; i < count; ++i) {
+      sb.append(c);
+    }
+    return sb.toString();
+  }
+}
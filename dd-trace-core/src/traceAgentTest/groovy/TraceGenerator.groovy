@@ -167,6 +167,16 @@ class TraceGenerator {
       return parentId
     }
 
+    @Override
+    long getSpanIdAsLong() {
+      return spanId.toLong()
+    }
+
+    @Override
+    long getParentIdAsLong() {
+      return parentId.toLong()
+    }
+
     @Override
     long getStartTime() {
       return start
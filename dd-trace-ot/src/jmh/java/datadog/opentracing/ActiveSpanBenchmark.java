@@ -0,0 +1,58 @@
+package datadog.opentracing;
+
+import datadog.trace.common.writer.ListWriter;
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Accesses the active span through the OpenTracing API, the way OpenTracing instrumented libraries
+ * do in tight loops. Run with {@code -prof gc} to check the conversions don't allocate.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ActiveSpanBenchmark {
+
+  private DDTracer tracer;
+  private Span span;
+  private Scope scope;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    tracer = DDTracer.builder().writer(new ListWriter()).build();
+    span = tracer.buildSpan("active-span-benchmark").start();
+    scope = tracer.activateSpan(span);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    scope.close();
+    span.finish();
+    tracer.close();
+  }
+
+  @Benchmark
+  public Span activeSpanSetTag() {
+    return tracer.activeSpan().setTag("key", "value");
+  }
+
+  @Benchmark
+  public Span scopeManagerActiveSpan() {
+    return tracer.scopeManager().activeSpan();
+  }
+
+  @Benchmark
+  public SpanContext activeSpanContext() {
+    return tracer.activeSpan().context();
+  }
+}
@@ -1,6 +1,7 @@
 package datadog.opentracing
 
 import datadog.trace.common.writer.DDAgentWriter
+import datadog.trace.common.writer.ListWriter
 import datadog.trace.test.util.DDSpecification
 
 class DDTracerTest extends DDSpecification {
@@ -26,4 +27,21 @@ class DDTracerTest extends DDSpecification {
     cleanup:
     tracer.close()
   }
+
+  def "active span conversions reuse the same facade"() {
+    setup:
+    def tracer = DDTracer.builder().writer(new ListWriter()).build()
+    def span = tracer.buildSpan("operation").start()
+    def scope = tracer.activateSpan(span)
+
+    expect:
+    tracer.activeSpan().is(span)
+    tracer.activeSpan().is(tracer.scopeManager().activeSpan())
+    tracer.activeSpan().context().is(span.context())
+
+    cleanup:
+    scope.close()
+    span.finish()
+    tracer.close()
+  }
 }
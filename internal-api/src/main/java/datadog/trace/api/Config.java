@@ -6,6 +6,7 @@ import static datadog.trace.api.ConfigDefaults.DEFAULT_AGENT_WRITER_TYPE;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_ANALYTICS_SAMPLE_RATE;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_DB_CLIENT_HOST_SPLIT_BY_INSTANCE;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_DOGSTATSD_START_DELAY;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_ERROR_STACK_MAX_FRAMES;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_HEALTH_METRICS_ENABLED;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_HTTP_CLIENT_ERROR_STATUSES;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_HTTP_CLIENT_SPLIT_BY_DOMAIN;
@@ -13,7 +14,9 @@ import static datadog.trace.api.ConfigDefaults.DEFAULT_HTTP_CLIENT_TAG_QUERY_STR
 import static datadog.trace.api.ConfigDefaults.DEFAULT_HTTP_SERVER_ERROR_STATUSES;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_HTTP_SERVER_ROUTE_BASED_NAMING;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_HTTP_SERVER_TAG_QUERY_STRING;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_INTEGRATIONS_CRITICAL;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_INTEGRATIONS_ENABLED;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_INTEGRATIONS_PHASED_INSTALL;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_JMX_FETCH_ENABLED;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_KAFKA_CLIENT_PROPAGATION_ENABLED;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_LOGS_INJECTION_ENABLED;
@@ -30,6 +33,7 @@ import static datadog.trace.api.ConfigDefaults.DEFAULT_PROFILING_LEGACY_TRACING_
 import static datadog.trace.api.ConfigDefaults.DEFAULT_PROFILING_PROXY_PORT;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_PROFILING_START_DELAY;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_PROFILING_START_FORCE_FIRST;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_PROFILING_TRACER_PIPELINE_EVENTS;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_PROFILING_UPLOAD_COMPRESSION;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_PROFILING_UPLOAD_PERIOD;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_PROFILING_UPLOAD_TIMEOUT;
@@ -40,6 +44,12 @@ import static datadog.trace.api.ConfigDefaults.DEFAULT_SCOPE_DEPTH_LIMIT;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_SERIALVERSIONUID_FIELD_INJECTION;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_SERVICE_NAME;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_SITE;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_SPAN_BUDGET;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_SPAN_BUDGET_MB;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_SPAN_STREAMING_CHUNK_SIZE;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_TAIL_SAMPLING_ENABLED;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_TAIL_SAMPLING_LATENCY_THRESHOLD_MS;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_TAIL_SAMPLING_RATE_LIMIT;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_AGENT_PORT;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_AGENT_V05_ENABLED;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_ANALYTICS_ENABLED;
@@ -47,9 +57,12 @@ import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_ANNOTATIONS;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_ENABLED;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_EXECUTORS_ALL;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_METHODS;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_QUEUE_BUDGET_MB;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_RATE_LIMIT;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_REPORT_HOSTNAME;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_RESOLVER_ENABLED;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_SPILL_ENABLED;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_SPILL_SIZE_MB;
 import static datadog.trace.api.DDTags.HOST_TAG;
 import static datadog.trace.api.DDTags.INTERNAL_HOST_NAME;
 import static datadog.trace.api.DDTags.LANGUAGE_TAG_KEY;
@@ -81,6 +94,7 @@ import static datadog.trace.api.config.GeneralConfig.TRACER_METRICS_ENABLED;
 import static datadog.trace.api.config.GeneralConfig.TRACER_METRICS_IGNORED_RESOURCES;
 import static datadog.trace.api.config.GeneralConfig.TRACER_METRICS_MAX_AGGREGATES;
 import static datadog.trace.api.config.GeneralConfig.TRACER_METRICS_MAX_PENDING;
+import static datadog.trace.api.config.GeneralConfig.TRACER_METRICS_STATS_ONLY_DROPPED_TRACES;
 import static datadog.trace.api.config.GeneralConfig.VERSION;
 import static datadog.trace.api.config.JmxFetchConfig.JMX_FETCH_CHECK_PERIOD;
 import static datadog.trace.api.config.JmxFetchConfig.JMX_FETCH_CONFIG;
@@ -111,8 +125,10 @@ import static datadog.trace.api.config.ProfilingConfig.PROFILING_PROXY_PORT;
 import static datadog.trace.api.config.ProfilingConfig.PROFILING_PROXY_USERNAME;
 import static datadog.trace.api.config.ProfilingConfig.PROFILING_START_DELAY;
 import static datadog.trace.api.config.ProfilingConfig.PROFILING_START_FORCE_FIRST;
+import static datadog.trace.api.config.ProfilingConfig.PROFILING_STREAMING_ENABLED;
 import static datadog.trace.api.config.ProfilingConfig.PROFILING_TAGS;
 import static datadog.trace.api.config.ProfilingConfig.PROFILING_TEMPLATE_OVERRIDE_FILE;
+import static datadog.trace.api.config.ProfilingConfig.PROFILING_TRACER_PIPELINE_EVENTS;
 import static datadog.trace.api.config.ProfilingConfig.PROFILING_UPLOAD_COMPRESSION;
 import static datadog.trace.api.config.ProfilingConfig.PROFILING_UPLOAD_PERIOD;
 import static datadog.trace.api.config.ProfilingConfig.PROFILING_UPLOAD_TIMEOUT;
@@ -127,7 +143,9 @@ import static datadog.trace.api.config.TraceInstrumentationConfig.HTTP_SERVER_TA
 import static datadog.trace.api.config.TraceInstrumentationConfig.HYSTRIX_MEASURED_ENABLED;
 import static datadog.trace.api.config.TraceInstrumentationConfig.HYSTRIX_TAGS_ENABLED;
 import static datadog.trace.api.config.TraceInstrumentationConfig.IGNITE_CACHE_INCLUDE_KEYS;
+import static datadog.trace.api.config.TraceInstrumentationConfig.INTEGRATIONS_CRITICAL;
 import static datadog.trace.api.config.TraceInstrumentationConfig.INTEGRATIONS_ENABLED;
+import static datadog.trace.api.config.TraceInstrumentationConfig.INTEGRATIONS_PHASED_INSTALL;
 import static datadog.trace.api.config.TraceInstrumentationConfig.JDBC_CONNECTION_CLASS_NAME;
 import static datadog.trace.api.config.TraceInstrumentationConfig.JDBC_PREPARED_STATEMENT_CLASS_NAME;
 import static datadog.trace.api.config.TraceInstrumentationConfig.KAFKA_CLIENT_BASE64_DECODING_ENABLED;
@@ -153,6 +171,7 @@ import static datadog.trace.api.config.TracerConfig.AGENT_PORT_LEGACY;
 import static datadog.trace.api.config.TracerConfig.AGENT_TIMEOUT;
 import static datadog.trace.api.config.TracerConfig.AGENT_UNIX_DOMAIN_SOCKET;
 import static datadog.trace.api.config.TracerConfig.ENABLE_TRACE_AGENT_V05;
+import static datadog.trace.api.config.TracerConfig.ERROR_STACK_MAX_FRAMES;
 import static datadog.trace.api.config.TracerConfig.HEADER_TAGS;
 import static datadog.trace.api.config.TracerConfig.HTTP_CLIENT_ERROR_STATUSES;
 import static datadog.trace.api.config.TracerConfig.HTTP_SERVER_ERROR_STATUSES;
@@ -167,17 +186,30 @@ import static datadog.trace.api.config.TracerConfig.SCOPE_DEPTH_LIMIT;
 import static datadog.trace.api.config.TracerConfig.SCOPE_INHERIT_ASYNC_PROPAGATION;
 import static datadog.trace.api.config.TracerConfig.SCOPE_STRICT_MODE;
 import static datadog.trace.api.config.TracerConfig.SERVICE_MAPPING;
+import static datadog.trace.api.config.TracerConfig.SPAN_BUDGET;
+import static datadog.trace.api.config.TracerConfig.SPAN_BUDGET_MB;
+import static datadog.trace.api.config.TracerConfig.SPAN_STREAMING_CHUNK_SIZE;
 import static datadog.trace.api.config.TracerConfig.SPAN_TAGS;
 import static datadog.trace.api.config.TracerConfig.SPLIT_BY_TAGS;
+import static datadog.trace.api.config.TracerConfig.TAIL_SAMPLING_ENABLED;
+import static datadog.trace.api.config.TracerConfig.TAIL_SAMPLING_ERROR_RATE_LIMIT;
+import static datadog.trace.api.config.TracerConfig.TAIL_SAMPLING_LATENCY_RATE_LIMIT;
+import static datadog.trace.api.config.TracerConfig.TAIL_SAMPLING_LATENCY_THRESHOLD_MS;
+import static datadog.trace.api.config.TracerConfig.TAIL_SAMPLING_TAGS;
+import static datadog.trace.api.config.TracerConfig.TAIL_SAMPLING_TAGS_RATE_LIMIT;
 import static datadog.trace.api.config.TracerConfig.TRACE_AGENT_PORT;
 import static datadog.trace.api.config.TracerConfig.TRACE_AGENT_URL;
 import static datadog.trace.api.config.TracerConfig.TRACE_ANALYTICS_ENABLED;
+import static datadog.trace.api.config.TracerConfig.TRACE_QUEUE_BUDGET_MB;
 import static datadog.trace.api.config.TracerConfig.TRACE_RATE_LIMIT;
 import static datadog.trace.api.config.TracerConfig.TRACE_REPORT_HOSTNAME;
 import static datadog.trace.api.config.TracerConfig.TRACE_RESOLVER_ENABLED;
 import static datadog.trace.api.config.TracerConfig.TRACE_SAMPLE_RATE;
 import static datadog.trace.api.config.TracerConfig.TRACE_SAMPLING_OPERATION_RULES;
 import static datadog.trace.api.config.TracerConfig.TRACE_SAMPLING_SERVICE_RULES;
+import static datadog.trace.api.config.TracerConfig.TRACE_SPILL_ENABLED;
+import static datadog.trace.api.config.TracerConfig.TRACE_SPILL_FILE;
+import static datadog.trace.api.config.TracerConfig.TRACE_SPILL_SIZE_MB;
 import static datadog.trace.api.config.TracerConfig.TRACE_STRICT_WRITES_ENABLED;
 import static datadog.trace.api.config.TracerConfig.WRITER_TYPE;
 import static datadog.trace.util.CollectionUtils.tryMakeImmutableList;
@@ -257,6 +289,8 @@ public class Config {
   private final boolean serviceNameSetByUser;
   private final boolean traceEnabled;
   private final boolean integrationsEnabled;
+  private final boolean integrationsPhasedInstall;
+  private final Set<String> criticalIntegrations;
   private final String writerType;
   private final boolean agentConfiguredUsingDefault;
   private final String agentUrl;
@@ -282,10 +316,14 @@ public class Config {
   private final boolean httpClientSplitByDomain;
   private final boolean dbClientSplitByInstance;
   private final Set<String> splitByTags;
+  private final int errorStackMaxFrames;
   private final int scopeDepthLimit;
   private final boolean scopeStrictMode;
   private final boolean scopeInheritAsyncPropagation;
   private final int partialFlushMinSpans;
+  private final int spanStreamingChunkSize;
+  private final int spanBudget;
+  private final int spanBudgetMb;
   private final boolean traceStrictWritesEnabled;
   private final boolean runtimeContextFieldInjection;
   private final boolean serialVersionUIDFieldInjection;
@@ -313,6 +351,7 @@ public class Config {
   private final boolean tracerMetricsBufferingEnabled;
   private final int tracerMetricsMaxAggregates;
   private final int tracerMetricsMaxPending;
+  private final boolean tracerMetricsStatsOnlyDroppedTraces;
 
   private final boolean logsInjectionEnabled;
   private final boolean logsMDCTagsInjectionEnabled;
@@ -335,6 +374,7 @@ public class Config {
   private final boolean profilingEnabled;
   private final boolean profilingAgentless;
   private final boolean profilingLegacyTracingIntegrationEnabled;
+  private final boolean profilingTracerPipelineEventsEnabled;
   @Deprecated private final String profilingUrl;
   private final Map<String, String> profilingTags;
   private final int profilingStartDelay;
@@ -352,6 +392,7 @@ public class Config {
   private final int profilingExceptionHistogramMaxCollectionSize;
   private final boolean profilingExcludeAgentThreads;
   private final boolean profilingHotspotsEnabled;
+  private final boolean profilingStreamingEnabled;
 
   private final boolean kafkaClientPropagationEnabled;
   private final boolean kafkaClientBase64DecodingEnabled;
@@ -373,6 +414,19 @@ public class Config {
 
   private final boolean traceAgentV05Enabled;
 
+  private final boolean traceSpillEnabled;
+  private final String traceSpillFile;
+  private final int traceSpillSizeMb;
+
+  private final int traceQueueBudgetMb;
+
+  private final boolean tailSamplingEnabled;
+  private final int tailSamplingErrorRateLimit;
+  private final int tailSamplingLatencyThresholdMs;
+  private final int tailSamplingLatencyRateLimit;
+  private final Map<String, String> tailSamplingTags;
+  private final int tailSamplingTagsRateLimit;
+
   private final boolean debugEnabled;
   private final String configFile;
 
@@ -435,6 +489,11 @@ public class Config {
     traceEnabled = configProvider.getBoolean(TRACE_ENABLED, DEFAULT_TRACE_ENABLED);
     integrationsEnabled =
         configProvider.getBoolean(INTEGRATIONS_ENABLED, DEFAULT_INTEGRATIONS_ENABLED);
+    integrationsPhasedInstall =
+        configProvider.getBoolean(INTEGRATIONS_PHASED_INSTALL, DEFAULT_INTEGRATIONS_PHASED_INSTALL);
+    criticalIntegrations =
+        tryMakeImmutableSet(
+            configProvider.getList(INTEGRATIONS_CRITICAL, DEFAULT_INTEGRATIONS_CRITICAL));
     writerType = configProvider.getString(WRITER_TYPE, DEFAULT_AGENT_WRITER_TYPE);
 
     idGenerationStrategy =
@@ -564,6 +623,9 @@ public class Config {
 
     splitByTags = tryMakeImmutableSet(configProvider.getList(SPLIT_BY_TAGS));
 
+    errorStackMaxFrames =
+        configProvider.getInteger(ERROR_STACK_MAX_FRAMES, DEFAULT_ERROR_STACK_MAX_FRAMES);
+
     scopeDepthLimit = configProvider.getInteger(SCOPE_DEPTH_LIMIT, DEFAULT_SCOPE_DEPTH_LIMIT);
 
     scopeStrictMode = configProvider.getBoolean(SCOPE_STRICT_MODE, false);
@@ -573,6 +635,12 @@ public class Config {
     partialFlushMinSpans =
         configProvider.getInteger(PARTIAL_FLUSH_MIN_SPANS, DEFAULT_PARTIAL_FLUSH_MIN_SPANS);
 
+    spanStreamingChunkSize =
+        configProvider.getInteger(SPAN_STREAMING_CHUNK_SIZE, DEFAULT_SPAN_STREAMING_CHUNK_SIZE);
+
+    spanBudget = configProvider.getInteger(SPAN_BUDGET, DEFAULT_SPAN_BUDGET);
+    spanBudgetMb = configProvider.getInteger(SPAN_BUDGET_MB, DEFAULT_SPAN_BUDGET_MB);
+
     traceStrictWritesEnabled = configProvider.getBoolean(TRACE_STRICT_WRITES_ENABLED, false);
 
     runtimeContextFieldInjection =
@@ -632,6 +700,8 @@ public class Config {
         configProvider.getBoolean(TRACER_METRICS_BUFFERING_ENABLED, false);
     tracerMetricsMaxAggregates = configProvider.getInteger(TRACER_METRICS_MAX_AGGREGATES, 2048);
     tracerMetricsMaxPending = configProvider.getInteger(TRACER_METRICS_MAX_PENDING, 2048);
+    tracerMetricsStatsOnlyDroppedTraces =
+        configProvider.getBoolean(TRACER_METRICS_STATS_ONLY_DROPPED_TRACES, false);
 
     logsInjectionEnabled =
         configProvider.getBoolean(LOGS_INJECTION_ENABLED, DEFAULT_LOGS_INJECTION_ENABLED);
@@ -642,6 +712,32 @@ public class Config {
     traceAgentV05Enabled =
         configProvider.getBoolean(ENABLE_TRACE_AGENT_V05, DEFAULT_TRACE_AGENT_V05_ENABLED);
 
+    traceSpillEnabled = configProvider.getBoolean(TRACE_SPILL_ENABLED, DEFAULT_TRACE_SPILL_ENABLED);
+    // per service, so one service never replays another's payloads after a restart
+    traceSpillFile =
+        configProvider.getString(
+            TRACE_SPILL_FILE,
+            new File(System.getProperty("java.io.tmpdir"), defaultSpillFileName(serviceName))
+                .getPath());
+    traceSpillSizeMb = configProvider.getInteger(TRACE_SPILL_SIZE_MB, DEFAULT_TRACE_SPILL_SIZE_MB);
+
+    traceQueueBudgetMb =
+        configProvider.getInteger(TRACE_QUEUE_BUDGET_MB, DEFAULT_TRACE_QUEUE_BUDGET_MB);
+
+    tailSamplingEnabled =
+        configProvider.getBoolean(TAIL_SAMPLING_ENABLED, DEFAULT_TAIL_SAMPLING_ENABLED);
+    tailSamplingErrorRateLimit =
+        configProvider.getInteger(TAIL_SAMPLING_ERROR_RATE_LIMIT, DEFAULT_TAIL_SAMPLING_RATE_LIMIT);
+    tailSamplingLatencyThresholdMs =
+        configProvider.getInteger(
+            TAIL_SAMPLING_LATENCY_THRESHOLD_MS, DEFAULT_TAIL_SAMPLING_LATENCY_THRESHOLD_MS);
+    tailSamplingLatencyRateLimit =
+        configProvider.getInteger(
+            TAIL_SAMPLING_LATENCY_RATE_LIMIT, DEFAULT_TAIL_SAMPLING_RATE_LIMIT);
+    tailSamplingTags = configProvider.getMergedMap(TAIL_SAMPLING_TAGS);
+    tailSamplingTagsRateLimit =
+        configProvider.getInteger(TAIL_SAMPLING_TAGS_RATE_LIMIT, DEFAULT_TAIL_SAMPLING_RATE_LIMIT);
+
     traceAnnotations = configProvider.getString(TRACE_ANNOTATIONS, DEFAULT_TRACE_ANNOTATIONS);
 
     traceMethods = configProvider.getString(TRACE_METHODS, DEFAULT_TRACE_METHODS);
@@ -664,6 +760,9 @@ public class Config {
     profilingLegacyTracingIntegrationEnabled =
         configProvider.getBoolean(
             PROFILING_LEGACY_TRACING_INTEGRATION, DEFAULT_PROFILING_LEGACY_TRACING_INTEGRATION);
+    profilingTracerPipelineEventsEnabled =
+        configProvider.getBoolean(
+            PROFILING_TRACER_PIPELINE_EVENTS, DEFAULT_PROFILING_TRACER_PIPELINE_EVENTS);
     profilingUrl = configProvider.getString(PROFILING_URL);
 
     if (tmpApiKey == null) {
@@ -733,6 +832,9 @@ public class Config {
     // code hotspots are disabled by default because of potential perf overhead they can incur
     profilingHotspotsEnabled = configProvider.getBoolean(PROFILING_HOTSPOTS_ENABLED, false);
 
+    // streaming reads the recorder's disk repository as it is written, so it is opt-in for now
+    profilingStreamingEnabled = configProvider.getBoolean(PROFILING_STREAMING_ENABLED, false);
+
     jdbcPreparedStatementClassName =
         configProvider.getString(JDBC_PREPARED_STATEMENT_CLASS_NAME, "");
 
@@ -815,6 +917,14 @@ public class Config {
     return integrationsEnabled;
   }
 
+  public boolean isIntegrationsPhasedInstall() {
+    return integrationsPhasedInstall;
+  }
+
+  public Set<String> getCriticalIntegrations() {
+    return criticalIntegrations;
+  }
+
   public String getWriterType() {
     return writerType;
   }
@@ -903,6 +1013,10 @@ public class Config {
     return splitByTags;
   }
 
+  public int getErrorStackMaxFrames() {
+    return errorStackMaxFrames;
+  }
+
   public int getScopeDepthLimit() {
     return scopeDepthLimit;
   }
@@ -919,6 +1033,18 @@ public class Config {
     return partialFlushMinSpans;
   }
 
+  public int getSpanStreamingChunkSize() {
+    return spanStreamingChunkSize;
+  }
+
+  public int getSpanBudget() {
+    return spanBudget;
+  }
+
+  public int getSpanBudgetMb() {
+    return spanBudgetMb;
+  }
+
   public boolean isTraceStrictWritesEnabled() {
     return traceStrictWritesEnabled;
   }
@@ -1011,6 +1137,10 @@ public class Config {
     return tracerMetricsMaxPending;
   }
 
+  public boolean isTracerMetricsStatsOnlyDroppedTraces() {
+    return tracerMetricsStatsOnlyDroppedTraces;
+  }
+
   public boolean isLogsInjectionEnabled() {
     return logsInjectionEnabled;
   }
@@ -1127,10 +1257,18 @@ public class Config {
     return profilingHotspotsEnabled;
   }
 
+  public boolean isProfilingStreamingEnabled() {
+    return profilingStreamingEnabled;
+  }
+
   public boolean isProfilingLegacyTracingIntegrationEnabled() {
     return profilingLegacyTracingIntegrationEnabled;
   }
 
+  public boolean isProfilingTracerPipelineEventsEnabled() {
+    return profilingTracerPipelineEventsEnabled;
+  }
+
   public boolean isKafkaClientPropagationEnabled() {
     return kafkaClientPropagationEnabled;
   }
@@ -1175,6 +1313,46 @@ public class Config {
     return traceAgentV05Enabled;
   }
 
+  public boolean isTraceSpillEnabled() {
+    return traceSpillEnabled;
+  }
+
+  public String getTraceSpillFile() {
+    return traceSpillFile;
+  }
+
+  public int getTraceSpillSizeMb() {
+    return traceSpillSizeMb;
+  }
+
+  public int getTraceQueueBudgetMb() {
+    return traceQueueBudgetMb;
+  }
+
+  public boolean isTailSamplingEnabled() {
+    return tailSamplingEnabled;
+  }
+
+  public int getTailSamplingErrorRateLimit() {
+    return tailSamplingErrorRateLimit;
+  }
+
+  public int getTailSamplingLatencyThresholdMs() {
+    return tailSamplingLatencyThresholdMs;
+  }
+
+  public int getTailSamplingLatencyRateLimit() {
+    return tailSamplingLatencyRateLimit;
+  }
+
+  public Map<String, String> getTailSamplingTags() {
+    return tailSamplingTags;
+  }
+
+  public int getTailSamplingTagsRateLimit() {
+    return tailSamplingTagsRateLimit;
+  }
+
   public boolean isDebugEnabled() {
     return debugEnabled;
   }
@@ -1413,6 +1591,22 @@ public class Config {
     return configProvider.getEnum(name, type, defaultValue);
   }
 
+  private static String defaultSpillFileName(final String serviceName) {
+    final StringBuilder name = new StringBuilder("dd-trace-spill-");
+    for (int i = 0; i < serviceName.length(); ++i) {
+      final char c = serviceName.charAt(i);
+      final boolean safe =
+          (c >= 'a' && c <= 'z')
+              || (c >= 'A' && c <= 'Z')
+              || (c >= '0' && c <= '9')
+              || c == '-'
+              || c == '_'
+              || c == '.';
+      name.append(safe ? c : '_');
+    }
+    return name.append(".bin").toString();
+  }
+
   private static boolean isDebugMode() {
     final String tracerDebugLevelSysprop = "dd.trace.debug";
     final String tracerDebugLevelProp = System.getProperty(tracerDebugLevelSysprop);
@@ -1675,6 +1869,10 @@ public class Config {
         + traceEnabled
         + ", integrationsEnabled="
         + integrationsEnabled
+        + ", integrationsPhasedInstall="
+        + integrationsPhasedInstall
+        + ", criticalIntegrations="
+        + criticalIntegrations
         + ", writerType='"
         + writerType
         + '\''
@@ -1730,6 +1928,8 @@ public class Config {
         + dbClientSplitByInstance
         + ", splitByTags="
         + splitByTags
+        + ", errorStackMaxFrames="
+        + errorStackMaxFrames
         + ", scopeDepthLimit="
         + scopeDepthLimit
         + ", scopeStrictMode="
@@ -1738,6 +1938,12 @@ public class Config {
         + scopeInheritAsyncPropagation
         + ", partialFlushMinSpans="
         + partialFlushMinSpans
+        + ", spanStreamingChunkSize="
+        + spanStreamingChunkSize
+        + ", spanBudget="
+        + spanBudget
+        + ", spanBudgetMb="
+        + spanBudgetMb
         + ", traceStrictWritesEnabled="
         + traceStrictWritesEnabled
         + ", runtimeContextFieldInjection="
@@ -1787,6 +1993,8 @@ public class Config {
         + tracerMetricsMaxAggregates
         + ", tracerMetricsMaxPending="
         + tracerMetricsMaxPending
+        + ", tracerMetricsStatsOnlyDroppedTraces="
+        + tracerMetricsStatsOnlyDroppedTraces
         + ", logsInjectionEnabled="
         + logsInjectionEnabled
         + ", logsMDCTagsInjectionEnabled="
@@ -1854,6 +2062,8 @@ public class Config {
         + profilingExceptionHistogramMaxCollectionSize
         + ", profilingExcludeAgentThreads="
         + profilingExcludeAgentThreads
+        + ", profilingStreamingEnabled="
+        + profilingStreamingEnabled
         + ", kafkaClientPropagationEnabled="
         + kafkaClientPropagationEnabled
         + ", kafkaClientBase64DecodingEnabled="
@@ -1874,6 +2084,27 @@ public class Config {
         + tempJarsCleanOnBoot
         + ", traceAgentV05Enabled="
         + traceAgentV05Enabled
+        + ", traceSpillEnabled="
+        + traceSpillEnabled
+        + ", traceSpillFile='"
+        + traceSpillFile
+        + '\''
+        + ", traceSpillSizeMb="
+        + traceSpillSizeMb
+        + ", traceQueueBudgetMb="
+        + traceQueueBudgetMb
+        + ", tailSamplingEnabled="
+        + tailSamplingEnabled
+        + ", tailSamplingErrorRateLimit="
+        + tailSamplingErrorRateLimit
+        + ", tailSamplingLatencyThresholdMs="
+        + tailSamplingLatencyThresholdMs
+        + ", tailSamplingLatencyRateLimit="
+        + tailSamplingLatencyRateLimit
+        + ", tailSamplingTags="
+        + tailSamplingTags
+        + ", tailSamplingTagsRateLimit="
+        + tailSamplingTagsRateLimit
         + ", debugEnabled="
         + debugEnabled
         + ", configFile='"
@@ -123,6 +123,10 @@ public final class ConfigProvider {
     return ConfigConverter.parseList(getString(key));
   }
 
+  public final List<String> getList(String key, String defaultValue) {
+    return ConfigConverter.parseList(getString(key, defaultValue));
+  }
+
   public final List<String> getSpacedList(String key) {
     return ConfigConverter.parseList(getString(key), " ");
   }
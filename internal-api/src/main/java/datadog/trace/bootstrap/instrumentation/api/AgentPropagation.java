@@ -21,6 +21,20 @@ public interface AgentPropagation {
     boolean accept(String key, String value);
   }
 
+  /**
+   * Optionally implemented by a {@link KeyClassifier} so that carriers which hold keys as ASCII
+   * bytes or as non-{@code String} character sequences can skip keys the classifier would ignore,
+   * without decoding those keys or their values into strings.
+   */
+  interface KeyFilter {
+
+    /** @return false if a key with this ASCII encoding would never be accepted */
+    boolean mayAccept(byte[] key, int offset, int length);
+
+    /** @return false if this key would never be accepted */
+    boolean mayAccept(CharSequence key);
+  }
+
   interface ContextVisitor<C> {
     void forEachKey(C carrier, KeyClassifier classifier);
   }
@@ -6,6 +6,11 @@ import java.util.Map;
 
 public interface AgentSpan extends MutableSpan {
 
+  /** Facade slot for the OpenTracing API, see {@link #getFacade(int)}. */
+  int OPENTRACING_FACADE = 0;
+  /** Facade slot for the OpenTelemetry API, see {@link #getFacade(int)}. */
+  int OPENTELEMETRY_FACADE = 1;
+
   DDId getTraceId();
 
   DDId getSpanId();
@@ -26,6 +31,9 @@ public interface AgentSpan extends MutableSpan {
 
   AgentSpan setTag(String key, Object value);
 
+  /** Sets all the tags in the batch under a single lock, then releases the batch. */
+  AgentSpan setTags(TagBatch tags);
+
   @Override
   AgentSpan setTag(String key, Number value);
 
@@ -67,6 +75,12 @@ public interface AgentSpan extends MutableSpan {
 
   short getHttpStatusCode();
 
+  AgentSpan setPeerPort(int port);
+
+  AgentSpan setPeerHostIPv4(CharSequence address);
+
+  AgentSpan setPeerHostIPv6(CharSequence address);
+
   void finish();
 
   void finish(long finishMicros);
@@ -91,6 +105,17 @@ public interface AgentSpan extends MutableSpan {
   /** Mark the end of a task associated with the span */
   void finishWork();
 
+  /**
+   * @param api the facade slot, one of {@link #OPENTRACING_FACADE} or {@link
+   *     #OPENTELEMETRY_FACADE}
+   * @return the object last cached by {@link #setFacade(int, Object)} which adapts this span to
+   *     another tracing API, or null
+   */
+  Object getFacade(int api);
+
+  /** Caches an object which adapts this span to another tracing API, if supported. */
+  void setFacade(int api, Object facade);
+
   interface Context {
     DDId getTraceId();
 
@@ -100,6 +125,12 @@ public interface AgentSpan extends MutableSpan {
 
     Iterable<Map.Entry<String, String>> baggageItems();
 
+    /** @see AgentSpan#getFacade(int) */
+    Object getFacade(int api);
+
+    /** @see AgentSpan#setFacade(int, Object) */
+    void setFacade(int api, Object facade);
+
     interface Extracted extends Context {
       String getForwarded();
 
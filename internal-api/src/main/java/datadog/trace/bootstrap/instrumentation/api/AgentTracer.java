@@ -478,6 +478,35 @@ public class AgentTracer {
       return 0;
     }
 
+    @Override
+    public AgentSpan setPeerPort(int port) {
+      return this;
+    }
+
+    @Override
+    public AgentSpan setPeerHostIPv4(CharSequence address) {
+      return this;
+    }
+
+    @Override
+    public AgentSpan setPeerHostIPv6(CharSequence address) {
+      return this;
+    }
+
+    @Override
+    public Object getFacade(int api) {
+      return null;
+    }
+
+    @Override
+    public void setFacade(int api, Object facade) {}
+
+    @Override
+    public AgentSpan setTags(final TagBatch tags) {
+      tags.release();
+      return this;
+    }
+
     @Override
     public AgentSpan getLocalRootSpan() {
       return this;
@@ -613,6 +642,14 @@ public class AgentTracer {
       return Collections.emptyList();
     }
 
+    @Override
+    public Object getFacade(int api) {
+      return null;
+    }
+
+    @Override
+    public void setFacade(int api, Object facade) {}
+
     @Override
     public String getForwarded() {
       return null;
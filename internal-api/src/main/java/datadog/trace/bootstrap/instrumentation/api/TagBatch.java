@@ -0,0 +1,97 @@
+package datadog.trace.bootstrap.instrumentation.api;
+
+/**
+ * Collects tags which are then set on a span all at once with {@link AgentSpan#setTags(TagBatch)},
+ * which only takes the span's tag lock once, rather than once per tag.
+ *
+ * <p>Batches are reused per thread: {@link #begin()} hands out the calling thread's batch unless it
+ * is already in use, and the batch is cleared and released when it is applied to a span. Tags
+ * follow the same rules as {@link AgentSpan#setTag(String, Object)}: null or empty values remove
+ * the tag.
+ */
+public final class TagBatch {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private static final ThreadLocal<TagBatch> BATCHES =
+      new ThreadLocal<TagBatch>() {
+        @Override
+        protected TagBatch initialValue() {
+          return new TagBatch();
+        }
+      };
+
+  private String[] keys = new String[INITIAL_CAPACITY];
+  private Object[] values = new Object[INITIAL_CAPACITY];
+  private int size;
+  private boolean inUse;
+
+  /** @return an empty batch, reusing the calling thread's batch if it isn't already in use */
+  public static TagBatch begin() {
+    TagBatch batch = BATCHES.get();
+    if (batch.inUse) {
+      // nested batch on the same thread
+      batch = new TagBatch();
+    }
+    batch.inUse = true;
+    return batch;
+  }
+
+  public TagBatch put(final String key, final Object value) {
+    if (size == keys.length) {
+      grow();
+    }
+    keys[size] = key;
+    values[size] = value;
+    ++size;
+    return this;
+  }
+
+  public TagBatch put(final String key, final int value) {
+    return put(key, (Object) value);
+  }
+
+  public TagBatch put(final String key, final long value) {
+    return put(key, (Object) value);
+  }
+
+  public TagBatch put(final String key, final boolean value) {
+    return put(key, (Object) value);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public String key(final int index) {
+    return keys[index];
+  }
+
+  public Object value(final int index) {
+    return values[index];
+  }
+
+  /**
+   * Clears the batch and releases it for reuse, called once the tags have been applied. Releasing
+   * a released batch has no effect, so callers which may fail before applying the batch can also
+   * release it in a finally block.
+   */
+  public void release() {
+    for (int i = 0; i < size; ++i) {
+      keys[i] = null;
+      values[i] = null;
+    }
+    size = 0;
+    inUse = false;
+  }
+
+  private void grow() {
+    int capacity = keys.length * 2;
+    String[] newKeys = new String[capacity];
+    Object[] newValues = new Object[capacity];
+    System.arraycopy(keys, 0, newKeys, 0, size);
+    System.arraycopy(values, 0, newValues, 0, size);
+    keys = newKeys;
+    values = newValues;
+  }
+}
@@ -16,6 +16,9 @@ import static datadog.trace.bootstrap.instrumentation.ci.git.pack.GitPackObject.
 import static datadog.trace.bootstrap.instrumentation.ci.git.pack.VersionedPackGitInfoExtractor.SIZE_INDEX;
 import static datadog.trace.bootstrap.instrumentation.ci.git.pack.VersionedPackGitInfoExtractor.TYPE_INDEX;
 
+import datadog.trace.api.Function;
+import datadog.trace.api.cache.DDCache;
+import datadog.trace.api.cache.DDCaches;
 import datadog.trace.bootstrap.instrumentation.ci.git.pack.GitPackObject;
 import datadog.trace.bootstrap.instrumentation.ci.git.pack.GitPackUtils;
 import datadog.trace.bootstrap.instrumentation.ci.git.pack.V2PackGitInfoExtractor;
@@ -28,6 +31,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.regex.Pattern;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
@@ -47,6 +52,33 @@ public class LocalFSGitInfoExtractor implements GitInfoExtractor {
   private static final VersionedPackGitInfoExtractor V2_PACK_GIT_INFO_EXTRACTOR =
       new V2PackGitInfoExtractor();
 
+  // Commit objects are immutable, so the information resolved for a certain sha in a certain
+  // repository can be shared by every extractor in the process (e.g. several test framework
+  // instrumentations looking up the same HEAD commit).
+  private static final DDCache<String[], CommitInfo> COMMIT_INFO_CACHE =
+      DDCaches.newFixedSizeArrayKeyCache(16);
+
+  private static final File[] NO_IDX_FILES = new File[0];
+
+  private final Function<String[], CommitInfo> commitInfoLoader =
+      new Function<String[], CommitInfo>() {
+        @Override
+        public CommitInfo apply(final String[] gitFolderAndSha) {
+          try {
+            return findCommit(gitFolderAndSha[0], gitFolderAndSha[1]);
+          } catch (final Exception e) {
+            return null;
+          }
+        }
+      };
+
+  // The pack folder is listed once per repository, instead of once per looked up object.
+  private final Map<String, File[]> idxFilesByGitFolder = new HashMap<>();
+
+  // Git objects are small, so the same inflater and buffer are reused for all of them.
+  private final Inflater inflater = new Inflater();
+  private final byte[] inflateBuffer = new byte[4 * 1024];
+
   /**
    * Extracts all git information available from the HEAD
    *
@@ -63,7 +95,10 @@ public class LocalFSGitInfoExtractor implements GitInfoExtractor {
       final String tag = extractTag(ref);
       final String sha = extractSha(gitFolderPath, head);
       final String repositoryURL = extractRepositoryURL(gitFolderPath, branch);
-      final CommitInfo commitInfo = findCommit(gitFolder, sha);
+      final CommitInfo commitInfo = findCachedCommit(gitFolder, sha);
+      if (commitInfo == null) {
+        return GitInfo.NOOP;
+      }
 
       return new GitInfo(repositoryURL, branch, tag, commitInfo);
     } catch (final Exception e) {
@@ -109,6 +144,13 @@ public class LocalFSGitInfoExtractor implements GitInfoExtractor {
     return head.substring(5); // Remove the ref: prefix
   }
 
+  private CommitInfo findCachedCommit(final String gitFolder, final String sha) {
+    if (sha == null || sha.isEmpty()) {
+      return CommitInfo.NOOP;
+    }
+    return COMMIT_INFO_CACHE.computeIfAbsent(new String[] {gitFolder, sha}, commitInfoLoader);
+  }
+
   private CommitInfo findCommit(final String gitFolder, final String sha)
       throws IOException, DataFormatException {
     if (sha == null || sha.isEmpty()) {
@@ -142,19 +184,7 @@ public class LocalFSGitInfoExtractor implements GitInfoExtractor {
 
   private GitPackObject readPackObject(final String gitFolder, final String sha)
       throws IOException {
-    final File packFolder = Paths.get(gitFolder, "objects", "pack").toFile();
-    final File[] idxFiles =
-        packFolder.listFiles(
-            new FilenameFilter() {
-              @Override
-              public boolean accept(final File dir, final String name) {
-                return name.endsWith(".idx");
-              }
-            });
-
-    if (idxFiles == null) {
-      return null;
-    }
+    final File[] idxFiles = listIdxFiles(gitFolder);
 
     short packVersion = 0;
     for (final File idxFile : idxFiles) {
@@ -186,6 +216,26 @@ public class LocalFSGitInfoExtractor implements GitInfoExtractor {
     return null;
   }
 
+  private File[] listIdxFiles(final String gitFolder) {
+    File[] idxFiles = idxFilesByGitFolder.get(gitFolder);
+    if (idxFiles == null) {
+      final File packFolder = Paths.get(gitFolder, "objects", "pack").toFile();
+      idxFiles =
+          packFolder.listFiles(
+              new FilenameFilter() {
+                @Override
+                public boolean accept(final File dir, final String name) {
+                  return name.endsWith(".idx");
+                }
+              });
+      if (idxFiles == null) {
+        idxFiles = NO_IDX_FILES;
+      }
+      idxFilesByGitFolder.put(gitFolder, idxFiles);
+    }
+    return idxFiles;
+  }
+
   private static final Pattern SPACE_PATTERN = Pattern.compile(" ");
 
   private CommitInfo parseCommit(
@@ -298,13 +348,16 @@ public class LocalFSGitInfoExtractor implements GitInfoExtractor {
 
       // Git objects are compressed with ZLib.
       // We need to decompress it using Inflater.
-      final Inflater ifr = new Inflater();
-      ifr.setInput(bytes);
-
-      final byte[] tmp = new byte[4 * 1024];
-      while (!ifr.finished()) {
-        final int size = ifr.inflate(tmp);
-        baos.write(tmp, 0, size);
+      inflater.reset();
+      inflater.setInput(bytes);
+
+      while (!inflater.finished()) {
+        final int size = inflater.inflate(inflateBuffer);
+        if (size == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          // Truncated content: it will never finish.
+          return null;
+        }
+        baos.write(inflateBuffer, 0, size);
       }
 
       return baos.toByteArray();
@@ -3,6 +3,9 @@ package datadog.trace.bootstrap.instrumentation.ci.git.pack;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 
 public final class GitPackUtils {
@@ -43,6 +46,20 @@ public final class GitPackUtils {
     return buff;
   }
 
+  /**
+   * Maps the whole file in read-only mode. The mapping stays valid after the channel is closed, so
+   * callers can use absolute reads on the returned buffer without holding any file handle.
+   *
+   * @param file
+   * @return read-only buffer mapped to the file content.
+   * @throws IOException
+   */
+  public static MappedByteBuffer mapReadOnly(final File file) throws IOException {
+    try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+
   public static byte[] hexToByteArray(final String s) {
     final int len = s.length();
     final byte[] data = new byte[len / 2];
@@ -6,11 +6,12 @@ import static datadog.trace.bootstrap.instrumentation.ci.git.pack.GitPackObject.
 import static datadog.trace.bootstrap.instrumentation.ci.git.pack.GitPackObject.NOT_FOUND_PACK_OBJECT;
 import static datadog.trace.bootstrap.instrumentation.ci.git.pack.GitPackObject.NOT_FOUND_SHA_INDEX;
 import static datadog.trace.bootstrap.instrumentation.ci.git.pack.GitPackUtils.hexToByteArray;
-import static datadog.trace.bootstrap.instrumentation.ci.git.pack.GitPackUtils.readBytes;
+import static datadog.trace.bootstrap.instrumentation.ci.git.pack.GitPackUtils.mapReadOnly;
 
 import java.io.File;
-import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 
 /**
@@ -59,6 +60,13 @@ public class V2PackGitInfoExtractor extends VersionedPackGitInfoExtractor {
 
   private static final int[] INVALID_TYPE_AND_SIZE = new int[] {-1, -1};
   private static final int MAX_ALLOWED_SIZE = Character.MAX_VALUE; // 65535 or 2 bytes
+  // 1 byte for type and 4 bits of size + 7 bits of size per extra byte covers MAX_ALLOWED_SIZE.
+  private static final int MAX_HEADER_SIZE = 4;
+
+  private static final int SHA_SIZE = 20;
+  // Skip header and version
+  private static final int FANOUT_POSITION = 8;
+  private static final int SHA_LISTING_POSITION = FANOUT_POSITION + (256 * 4);
 
   @Override
   public short getVersion() {
@@ -68,6 +76,10 @@ public class V2PackGitInfoExtractor extends VersionedPackGitInfoExtractor {
   /**
    * Extracts the Git object information of a certain commit sha from the IDX and pack files.
    *
+   * <p>The IDX file is memory-mapped, so the fanout table and the SHA listing are searched directly
+   * in the mapped buffer. The pack file is only touched with two positional reads: the object
+   * header and the deflated content.
+   *
    * <p>If there is an error in the process, the object contains a flag called "error" set to true.
    *
    * @param idxFile
@@ -78,119 +90,119 @@ public class V2PackGitInfoExtractor extends VersionedPackGitInfoExtractor {
   @Override
   public GitPackObject extract(final File idxFile, final File packFile, final String commitSha) {
     try {
-      final String indexHex = commitSha.substring(0, 2);
-      final int index = Integer.parseInt(indexHex, 16);
-      final int previousIndex = index - 1;
-
-      try (final RandomAccessFile idx = new RandomAccessFile(idxFile, "r")) {
-        // Skip header and version
-        idx.seek(8);
-
-        int numObjectsPreviousIndex = 0;
-        if (previousIndex != -1) {
-          // Seek to previousIndex position.
-          idx.seek((4L * previousIndex) + idx.getFilePointer());
-          numObjectsPreviousIndex = idx.readInt();
-        }
-
-        // In the fanout table, every index has its objects + the previous ones.
-        // We need to subtract the previous index objects to know the correct
-        // actual number of objects for this specific index.
-        final int numObjectsIndex = idx.readInt() - numObjectsPreviousIndex;
-
-        // Seek to last position. The last position contains the number of all objects.
-        idx.seek((4L * (255 - (index + 1))) + idx.getFilePointer());
-        final int totalObjects = idx.readInt();
+      final ByteBuffer idx = mapReadOnly(idxFile);
+      final byte[] shaBytes = hexToByteArray(commitSha);
+      final int index = shaBytes[0] & 0xFF;
+
+      // In the fanout table, every index has its objects + the previous ones.
+      final int numObjectsPreviousIndex =
+          index == 0 ? 0 : idx.getInt(FANOUT_POSITION + (4 * (index - 1)));
+      final int numObjectsIndex =
+          idx.getInt(FANOUT_POSITION + (4 * index)) - numObjectsPreviousIndex;
+
+      // The last position of the fanout table contains the number of all objects.
+      final int totalObjects = idx.getInt(FANOUT_POSITION + (4 * 255));
+
+      // Search the sha index in the second layer: the SHA listing.
+      final int shaIndex =
+          searchSha(idx, shaBytes, SHA_LISTING_POSITION, numObjectsPreviousIndex, numObjectsIndex);
+      if (shaIndex == NOT_FOUND_SHA_INDEX) {
+        return NOT_FOUND_PACK_OBJECT;
+      }
 
-        // Search the sha index in the second layer: the SHA listing.
-        final int shaIndex =
-            searchSha(idx, commitSha, totalObjects, numObjectsPreviousIndex, numObjectsIndex);
-        if (shaIndex == NOT_FOUND_SHA_INDEX) {
-          return NOT_FOUND_PACK_OBJECT;
-        }
+      // Third layer: 4 byte CRC for each object. We skip it.
+      final int offsetsPosition = SHA_LISTING_POSITION + (24 * totalObjects);
 
-        // Third layer: 4 byte CRC for each object. We skip it.
-        idx.seek((4L * totalObjects) + idx.getFilePointer());
+      // Search packOffset in fourth and fifth layer.
+      final long packOffset = searchOffset(idx, offsetsPosition, shaIndex, totalObjects);
 
-        // Search packOffset in fourth and fifth layer.
-        final long packOffset = searchOffset(idx, shaIndex, totalObjects);
+      try (final FileChannel pack = FileChannel.open(packFile.toPath(), StandardOpenOption.READ)) {
+        // Get the type and the size of the git object.
+        final ByteBuffer header = ByteBuffer.allocate(MAX_HEADER_SIZE);
+        pack.read(header, packOffset);
+        header.flip();
 
-        // Open pack file and seek to packOffset.
-        try (final RandomAccessFile pack = new RandomAccessFile(packFile, "r")) {
-          pack.seek(packOffset);
+        final int[] gitObjectTypeAndSize = extractGitObjectTypeAndSize(header);
+        if (Arrays.equals(gitObjectTypeAndSize, INVALID_TYPE_AND_SIZE)) {
+          return ERROR_PACK_OBJECT;
+        }
 
-          // Get the type and the size of the git object.
-          final int[] gitObjectTypeAndSize = extractGitObjectTypeAndSize(pack);
-          if (Arrays.equals(gitObjectTypeAndSize, INVALID_TYPE_AND_SIZE)) {
+        // Read the deflated content which starts right after the header.
+        final byte[] content = new byte[gitObjectTypeAndSize[SIZE_INDEX]];
+        final ByteBuffer contentBuffer = ByteBuffer.wrap(content);
+        long position = packOffset + header.position();
+        while (contentBuffer.hasRemaining()) {
+          final int read = pack.read(contentBuffer, position);
+          if (read < 0) {
             return ERROR_PACK_OBJECT;
           }
-
-          // Return the GitPackObject with the extracted information.
-          return new GitPackObject(
-              shaIndex,
-              (byte) gitObjectTypeAndSize[TYPE_INDEX],
-              readBytes(pack, gitObjectTypeAndSize[SIZE_INDEX]),
-              false);
+          position += read;
         }
-      }
 
+        // Return the GitPackObject with the extracted information.
+        return new GitPackObject(shaIndex, (byte) gitObjectTypeAndSize[TYPE_INDEX], content, false);
+      }
     } catch (final Exception e) {
       return ERROR_PACK_OBJECT;
     }
   }
 
   /**
-   * Extracts the SHA index using the number of objects found in the fanout table.
+   * Extracts the SHA index using a binary search over the SHA listing bucket delimited by the
+   * fanout table. The SHA listing is sorted, so there is no need to compare every entry.
    *
    * @param idx
-   * @param commitSha
-   * @param totalObjects
+   * @param shaBytes
+   * @param shaListingPosition
    * @param numObjectsPreviousIndex
    * @param numObjectsIndex
    * @return sha index to be used in the offsets table.
-   * @throws IOException
    */
   protected int searchSha(
-      final RandomAccessFile idx,
-      final String commitSha,
-      final int totalObjects,
+      final ByteBuffer idx,
+      final byte[] shaBytes,
+      final int shaListingPosition,
       final int numObjectsPreviousIndex,
-      final int numObjectsIndex)
-      throws IOException {
-
-    // Skip all previous SHAs
-    idx.seek((20L * numObjectsPreviousIndex) + idx.getFilePointer());
-    final byte[] shaBytes = hexToByteArray(commitSha);
-
-    // Search target SHA index in the SHA listing table.
-    for (int i = 0; i < numObjectsIndex; i++) {
-      final byte[] current = readBytes(idx, 20);
-      if (Arrays.equals(shaBytes, current)) {
-        final int shaIndex = numObjectsPreviousIndex + i;
-
-        // If we find the SHA, we skip all SHA listing table.
-        idx.seek((20L * (totalObjects - (shaIndex + 1))) + idx.getFilePointer());
-        return shaIndex;
+      final int numObjectsIndex) {
+    int low = numObjectsPreviousIndex;
+    int high = numObjectsPreviousIndex + numObjectsIndex - 1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      final int cmp = compareSha(idx, shaListingPosition + (SHA_SIZE * mid), shaBytes);
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
       }
     }
-
     return NOT_FOUND_SHA_INDEX;
   }
 
+  private static int compareSha(final ByteBuffer idx, final int position, final byte[] shaBytes) {
+    for (int i = 0; i < SHA_SIZE; i++) {
+      final int cmp = (idx.get(position + i) & 0xFF) - (shaBytes[i] & 0xFF);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
   /**
    * Find the offset in the fourth and fifth layer of the IDX file using the sha index.
    *
    * @param idx
+   * @param offsetsPosition position of the fourth layer in the IDX file.
    * @param shaIndex
    * @param totalObjects
    * @return
-   * @throws IOException
    */
   protected long searchOffset(
-      final RandomAccessFile idx, final int shaIndex, final int totalObjects) throws IOException {
+      final ByteBuffer idx, final int offsetsPosition, final int shaIndex, final int totalObjects) {
     // Fourth layer: 4 byte per object of offset in pack file
-    idx.seek((4L * shaIndex) + idx.getFilePointer());
-    int offset = idx.readInt();
+    int offset = idx.getInt(offsetsPosition + (4 * shaIndex));
 
     // Check the first bit.
     // If the first bit == 0, the offset is in the fourth layer.
@@ -201,12 +213,9 @@ public class V2PackGitInfoExtractor extends VersionedPackGitInfoExtractor {
     } else {
       // Clear first bit and look at it at the 5th layer
       offset &= 0x7FFFFFFF;
-      // Skip complete fourth layer.
-      idx.seek(4L * (totalObjects - (shaIndex + 1)) + idx.getFilePointer());
-      // Use the offset from fourth layer, to find the actual pack file offset in the fifth layer.
-      // In this case, the offset is 8 bytes long.
-      idx.seek((8L * offset) + idx.getFilePointer());
-      return idx.readLong();
+      // Use the offset from fourth layer, to find the actual pack file offset in the fifth layer,
+      // which starts after the complete fourth layer. In this case, the offset is 8 bytes long.
+      return idx.getLong(offsetsPosition + (4 * totalObjects) + (8 * offset));
     }
   }
 
@@ -214,18 +223,21 @@ public class V2PackGitInfoExtractor extends VersionedPackGitInfoExtractor {
    * Returns an int array with the type and size of the git object. The type is stored in the pos 0
    * of the array The size is stored in the pos 1 of the array.
    *
-   * @param pack
+   * @param pack buffer positioned at the start of the git object header.
    * @return type and size of the git object.
-   * @throws IOException
    */
-  protected int[] extractGitObjectTypeAndSize(final RandomAccessFile pack) throws IOException {
+  protected int[] extractGitObjectTypeAndSize(final ByteBuffer pack) {
     // The type and size of the git object is stored in a variable length byte array.
     // If the read byte has the first bit == 0, it means it's the final byte to read.
     byte sizePart;
     byte[] sizeParts = new byte[2]; // 2 bytes size is the most common use case.
     int idx = 0;
     do {
-      sizePart = readBytes(pack, 1)[0];
+      if (!pack.hasRemaining()) {
+        // The header is longer than any size we would accept.
+        return INVALID_TYPE_AND_SIZE;
+      }
+      sizePart = pack.get();
       sizeParts[idx++] = sizePart;
 
       if (idx == sizeParts.length && ((sizePart >> 7) & 1) == 1) {
@@ -13,6 +13,8 @@ public final class AgentThreadFactory implements ThreadFactory {
   public enum AgentThread {
     TASK_SCHEDULER("dd-task-scheduler"),
 
+    DEFERRED_INSTRUMENTATION("dd-agent-deferred-instrumentation"),
+
     TRACE_STARTUP("dd-agent-startup-datadog-tracer"),
     TRACE_MONITOR("dd-trace-monitor"),
     TRACE_PROCESSOR("dd-trace-processor"),
@@ -700,6 +700,24 @@ class ConfigTest extends DDSpecification {
     integrationNames = new TreeSet<>(names)
   }
 
+  def "verify phased integration install config"() {
+    when:
+    def config = new Config()
+
+    then:
+    !config.integrationsPhasedInstall
+    config.criticalIntegrations.containsAll(["servlet", "netty", "jdbc", "java_concurrent"])
+
+    when:
+    System.setProperty("dd.integrations.phased.install", "true")
+    System.setProperty("dd.integrations.critical", "servlet, grpc")
+    config = new Config()
+
+    then:
+    config.integrationsPhasedInstall
+    config.criticalIntegrations == ["servlet", "grpc"] as Set
+  }
+
   def "verify rule config #name"() {
     setup:
     environmentVariables.set("DD_TRACE_TEST_ENABLED", "true")
@@ -70,6 +70,22 @@ class LocalFSGitInfoExtractorTest extends DDSpecification {
     resolve("ci/git/with_pack/git")            | gitInfoPack
   }
 
+  def "test git info extraction is stable across extractors"() {
+    when:
+    def first = new LocalFSGitInfoExtractor().headCommit(gitFolder)
+    def second = new LocalFSGitInfoExtractor().headCommit(gitFolder)
+
+    then:
+    first == expectedGitInfo
+    second == expectedGitInfo
+    first.commit.is(second.commit)
+
+    where:
+    gitFolder                          | expectedGitInfo
+    resolve("ci/git/with_commits/git") | gitInfoOneCommit
+    resolve("ci/git/with_tag/git")     | gitInfoOneTag
+  }
+
   def "test extract correct git info with complex commit object"() {
     setup:
     def commitBytes = ("tree e3a1035abd2b319bb01e57d69b0ba6cab289297e\n" +
@@ -46,6 +46,23 @@ class GitPackUtilsTest extends DDSpecification {
     file("ci/git/pack/utils/version/v2.idx") | GitPackUtils.HEADER
   }
 
+  def "test map file read-only"() {
+    when:
+    def buffer = GitPackUtils.mapReadOnly(file)
+    def header = new byte[4]
+    buffer.get(header)
+
+    then:
+    buffer.isReadOnly()
+    buffer.capacity() == file.length()
+    header == expectedBArray
+    buffer.getInt() == 2
+
+    where:
+    file                                     | expectedBArray
+    file("ci/git/pack/utils/version/v2.idx") | GitPackUtils.HEADER
+  }
+
   def "test convert hex to byte array correctly"() {
     setup:
     def expectedBArray = [1, 35, 69, 103, -119, -85, -51, -17] as byte[]
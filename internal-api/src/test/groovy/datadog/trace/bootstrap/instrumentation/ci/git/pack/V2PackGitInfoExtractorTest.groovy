@@ -3,11 +3,13 @@ package datadog.trace.bootstrap.instrumentation.ci.git.pack
 import datadog.trace.test.util.DDSpecification
 import spock.lang.Shared
 
+import java.nio.ByteBuffer
 import java.nio.file.Paths
 
 import static datadog.trace.bootstrap.instrumentation.ci.git.GitObject.COMMIT_TYPE
 import static datadog.trace.bootstrap.instrumentation.ci.git.pack.GitPackObject.ERROR_PACK_OBJECT
 import static datadog.trace.bootstrap.instrumentation.ci.git.pack.GitPackObject.NOT_FOUND_PACK_OBJECT
+import static datadog.trace.bootstrap.instrumentation.ci.git.pack.GitPackObject.NOT_FOUND_SHA_INDEX
 import static datadog.trace.bootstrap.instrumentation.ci.git.pack.VersionedPackGitInfoExtractor.SIZE_INDEX
 import static datadog.trace.bootstrap.instrumentation.ci.git.pack.VersionedPackGitInfoExtractor.TYPE_INDEX
 
@@ -33,26 +35,28 @@ class V2PackGitInfoExtractorTest extends DDSpecification {
 
   def "test search correct sha index"() {
     setup:
-    def idx = new RandomAccessFile(idxFile, "r")
-    idx.seek(8L + (256 * 4))
+    def idx = GitPackUtils.mapReadOnly(idxFile)
+    def shaListingPosition = 8 + (256 * 4)
 
     when:
-    def shaIndex = sut.searchSha(idx, commitSha, totalObjects, previousObjects, indexObjects)
+    def shaIndex = sut.searchSha(idx, GitPackUtils.hexToByteArray(commitSha), shaListingPosition, previousObjects, indexObjects)
 
     then:
     shaIndex == expectedShaIndex
 
     where:
-    idxFile                                      | commitSha                                  | totalObjects | previousObjects | indexObjects | expectedShaIndex
-    file("ci/git/pack/extractor/v2/pack-v2.idx") | "5b6f3a6dab5972d73a56dff737bd08d995255c08" | 28841        | 10310           | 126          | 10367
+    idxFile                                      | commitSha                                  | previousObjects | indexObjects | expectedShaIndex
+    file("ci/git/pack/extractor/v2/pack-v2.idx") | "5b6f3a6dab5972d73a56dff737bd08d995255c08" | 10310           | 126          | 10367
+    file("ci/git/pack/extractor/v2/pack-v2.idx") | "5b00000000000000000000000000000000000000" | 10310           | 126          | NOT_FOUND_SHA_INDEX
+    file("ci/git/pack/extractor/v2/pack-v2.idx") | "5bffffffffffffffffffffffffffffffffffffff" | 10310           | 126          | NOT_FOUND_SHA_INDEX
   }
 
   def "test search correct offset from idx file"() {
     setup:
-    def idx = new RandomAccessFile(idxFile, "r")
+    def idx = GitPackUtils.mapReadOnly(idxFile)
 
     when:
-    def offset = sut.searchOffset(idx, shaIndex, totalObjects)
+    def offset = sut.searchOffset(idx, 0, shaIndex, totalObjects)
 
     then:
     offset == expectedOffset
@@ -65,7 +69,7 @@ class V2PackGitInfoExtractorTest extends DDSpecification {
 
   def "test extract correct git object size from pack file"() {
     setup:
-    def pack = new RandomAccessFile(packFile, "r")
+    def pack = ByteBuffer.wrap(packFile.bytes)
 
     when:
     def data = sut.extractGitObjectTypeAndSize(pack)
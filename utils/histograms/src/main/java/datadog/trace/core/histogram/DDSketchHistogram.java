@@ -51,6 +51,11 @@ public final class DDSketchHistogram implements Histogram, HistogramFactory {
     return sketch.serialize();
   }
 
+  @Override
+  public int serializedSize() {
+    return sketch.serializedSize();
+  }
+
   @Override
   public Histogram newHistogram() {
     return new DDSketchHistogram();
@@ -13,4 +13,7 @@ public interface Histogram {
   void clear();
 
   ByteBuffer serialize();
+
+  /** @return the length of the serialized histogram, computed without serializing it */
+  int serializedSize();
 }
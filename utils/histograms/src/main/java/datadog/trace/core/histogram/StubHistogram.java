@@ -26,6 +26,11 @@ public class StubHistogram implements Histogram, HistogramFactory {
     return EMPTY;
   }
 
+  @Override
+  public int serializedSize() {
+    return 0;
+  }
+
   @Override
   public Histogram newHistogram() {
     return new StubHistogram();
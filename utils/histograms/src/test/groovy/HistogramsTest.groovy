@@ -26,6 +26,18 @@ class HistogramsTest extends DDSpecification {
     null != proto
   }
 
+  def "ddsketch serialized size is the length of the serialized sketch"() {
+    setup:
+    Histogram histogram = new DDSketchHistogram()
+    values.each { histogram.accept(it) }
+
+    expect:
+    histogram.serializedSize() == histogram.serialize().remaining()
+
+    where:
+    values << [[], [0L], [1L, 2L, 3L], (1L..100_000L).step(997)]
+  }
+
   def "stub histogram creates empty bytes"() {
     setup:
     HistogramFactory histogramFactory = new StubHistogram()